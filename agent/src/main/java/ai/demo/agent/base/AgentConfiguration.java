@@ -19,6 +19,7 @@ public class AgentConfiguration {
     private final int maxConcurrentTasks;
     private final boolean enableMetrics;
     private final Duration shutdownTimeout;
+    private final boolean virtualThreads;
     
     private AgentConfiguration(Builder builder) {
         this.properties = Collections.unmodifiableMap(new HashMap<>(builder.properties));
@@ -27,6 +28,7 @@ public class AgentConfiguration {
         this.maxConcurrentTasks = builder.maxConcurrentTasks;
         this.enableMetrics = builder.enableMetrics;
         this.shutdownTimeout = builder.shutdownTimeout;
+        this.virtualThreads = builder.virtualThreads;
     }
     
     /**
@@ -136,10 +138,21 @@ public class AgentConfiguration {
         return shutdownTimeout;
     }
     
+    /**
+     * Check if tasks run on virtual threads, one per task, instead of the agent's single
+     * platform worker thread.
+     * 
+     * @return true if tasks run on virtual threads
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+    
     @Override
     public String toString() {
-        return String.format("AgentConfiguration{properties=%d, instructions='%s', taskTimeout=%s, maxConcurrentTasks=%d, enableMetrics=%s, shutdownTimeout=%s}",
-                properties.size(), instructions, taskTimeout, maxConcurrentTasks, enableMetrics, shutdownTimeout);
+        return String.format("AgentConfiguration{properties=%d, instructions='%s', taskTimeout=%s, maxConcurrentTasks=%d, enableMetrics=%s, shutdownTimeout=%s, virtualThreads=%s}",
+                properties.size(), instructions, taskTimeout, maxConcurrentTasks, enableMetrics, shutdownTimeout,
+                virtualThreads);
     }
     
     /**
@@ -170,6 +183,7 @@ public class AgentConfiguration {
         private int maxConcurrentTasks = 1;
         private boolean enableMetrics = true;
         private Duration shutdownTimeout = Duration.ofSeconds(30);
+        private boolean virtualThreads = false;
         
         /**
          * Set a custom property.
@@ -257,6 +271,18 @@ public class AgentConfiguration {
             return this;
         }
         
+        /**
+         * Run tasks on virtual threads, one per task, so blocking calls such as model requests
+         * do not queue behind each other.
+         * 
+         * @param virtualThreads true to run tasks on virtual threads
+         * @return this builder
+         */
+        public Builder virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+        
         /**
          * Build the agent configuration.
          * 
@@ -1,6 +1,7 @@
 package ai.demo.agent.base;
 
 import ai.demo.agent.base.task.Task;
+import ai.demo.agent.jfr.PipelineStageEvent;
 
 /**
  * AI/LLM-based agent interface with transformation pipeline: TASK → PROMPT → CHAT_RESPONSE → RESULT
@@ -80,6 +81,8 @@ public interface AiAgent<TASK extends Task, PROMPT, CHAT_RESPONSE, RESULT> exten
      * task → prompt → LLM call → response → result. Classes can use this
      * method in their {@link BaseAgent#doProcess(Task)} implementation.
      *
+     * <p>Each stage is recorded as a {@link PipelineStageEvent} when JFR is recording.
+     *
      * @param task the task to process
      * @return result of the AI pipeline processing
      * @throws RuntimeException if any step in the pipeline fails
@@ -87,16 +90,40 @@ public interface AiAgent<TASK extends Task, PROMPT, CHAT_RESPONSE, RESULT> exten
     default RESULT processWithAiPipeline(TASK task) {
         try {
             // Step 1: Transform task to prompt
+            PipelineStageEvent stage = new PipelineStageEvent(PipelineStageEvent.TRANSFORM_TO_PROMPT);
+            stage.begin();
             PROMPT prompt = transformToPrompt(task);
+            commitStage(stage, task);
 
             // Step 2: Execute LLM call
+            stage = new PipelineStageEvent(PipelineStageEvent.CALL);
+            stage.begin();
             CHAT_RESPONSE response = call(prompt);
+            commitStage(stage, task);
 
             // Step 3: Transform response back to result
-            return transformFromResponse(response);
+            stage = new PipelineStageEvent(PipelineStageEvent.TRANSFORM_FROM_RESPONSE);
+            stage.begin();
+            RESULT result = transformFromResponse(response);
+            commitStage(stage, task);
+            return result;
 
         } catch (Exception e) {
             throw new RuntimeException("AI pipeline processing failed", e);
         }
     }
+
+    /**
+     * End and commit a pipeline stage event for the given task if JFR wants it.
+     *
+     * @param stage the stage event started with {@link PipelineStageEvent#begin()}
+     * @param task the task being processed
+     */
+    default void commitStage(PipelineStageEvent stage, TASK task) {
+        stage.end();
+        if (stage.shouldCommit()) {
+            stage.describe(getAgentName(), task);
+            stage.commit();
+        }
+    }
 }
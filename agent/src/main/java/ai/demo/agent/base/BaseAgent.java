@@ -1,6 +1,10 @@
 package ai.demo.agent.base;
 
 import ai.demo.agent.base.task.Task;
+import ai.demo.agent.jfr.AgentStateChangedEvent;
+import ai.demo.agent.jfr.MemoryCompactionEvent;
+import ai.demo.agent.jfr.TaskEnqueuedEvent;
+import ai.demo.agent.jfr.TaskExecutionEvent;
 import ai.demo.agent.metrics.TaskAgentMetrics;
 
 import java.time.Instant;
@@ -10,8 +14,10 @@ import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 public abstract class BaseAgent<TASK extends Task, RESULT> implements TaskAgent<TASK, RESULT> {
     
@@ -25,10 +31,15 @@ public abstract class BaseAgent<TASK extends Task, RESULT> implements TaskAgent<
     
     // State management
     private final AtomicReference<AgentState> state = new AtomicReference<>(AgentState.CREATED);
-    private final Object stateLock = new Object();
+    // A lock rather than a monitor so lifecycle calls that block (stop awaits the executor)
+    // do not pin a virtual thread's carrier
+    private final ReentrantLock stateLock = new ReentrantLock();
     
     // Execution infrastructure
     private volatile ExecutorService executor;
+    // Caps tasks in flight at maxConcurrentTasks; the single platform worker never contends
+    // for it, but a virtual thread per task would otherwise run without a bound
+    private final Semaphore taskPermits;
     private final TaskAgentMetrics metrics;
     
     // Memory system
@@ -42,6 +53,7 @@ public abstract class BaseAgent<TASK extends Task, RESULT> implements TaskAgent<
         this.createdAt = Instant.now();
         this.configuration = Objects.requireNonNull(configuration, "Configuration cannot be null");
         this.capabilities = List.copyOf(Objects.requireNonNull(capabilities, "Capabilities cannot be null"));
+        this.taskPermits = new Semaphore(configuration.getMaxConcurrentTasks(), true);
         this.metrics = new TaskAgentMetrics();
         this.memory = new AgentMemory();
     }
@@ -59,45 +71,85 @@ public abstract class BaseAgent<TASK extends Task, RESULT> implements TaskAgent<
                 new AgentException("Agent is not running", agentId, state.get()));
         }
         
-        return CompletableFuture.supplyAsync(() -> {
-            long startTime = System.nanoTime();
-            metrics.recordOperationStarted();
-            onTaskStarted(task);
+        TaskEnqueuedEvent enqueued = new TaskEnqueuedEvent();
+        if (enqueued.isEnabled()) {
+            enqueued.describe(agentName, task);
+            enqueued.commit();
+        }
+        long enqueuedAt = System.nanoTime();
 
+        return CompletableFuture.supplyAsync(() -> {
+            acquireTaskPermit();
             try {
-                RESULT result = doProcess(task);
-                long processingTime = System.nanoTime() - startTime;
-
-                // Use TaskAgentMetrics method with task-specific information
-                long inputSize = task.getInputSize();
-                long outputSize = result != null ? estimateOutputSize(result) : 0;
-                metrics.recordTaskSucceeded(processingTime, inputSize, outputSize, task.getPriority());
-                
-                // Record successful execution in memory
-                memory.recordExecution(task, result, true, processingTime, null);
-                
-                onTaskCompleted(task, result);
-                return result;
-                
-            } catch (Exception e) {
-                long processingTime = System.nanoTime() - startTime;
-
-                // Use TaskAgentMetrics method with task-specific information
-                long inputSize = task.getInputSize();
-                metrics.recordTaskFailed(processingTime, inputSize, task.getPriority());
-                
-                // Record failed execution in memory with error details
-                String learnings = "Error: " + e.getClass().getSimpleName() + 
-                                 (e.getMessage() != null ? " - " + e.getMessage() : "");
-                memory.recordExecution(task, null, false, processingTime, learnings);
-                
-                onTaskFailed(task, e);
-                throw new RuntimeException("Task processing failed", e);
+                return execute(task, enqueuedAt);
+            } finally {
+                taskPermits.release();
             }
         }, executor);
     }
+
+    private RESULT execute(TASK task, long enqueuedAt) {
+        long startTime = System.nanoTime();
+        TaskExecutionEvent execution = new TaskExecutionEvent();
+        execution.begin();
+        metrics.recordOperationStarted();
+        onTaskStarted(task);
+
+        try {
+            RESULT result = doProcess(task);
+            long processingTime = System.nanoTime() - startTime;
+
+            // Use TaskAgentMetrics method with task-specific information
+            long inputSize = task.getInputSize();
+            long outputSize = result != null ? estimateOutputSize(result) : 0;
+            metrics.recordTaskSucceeded(processingTime, inputSize, outputSize, task.getPriority());
+            
+            // Record successful execution in memory
+            memory.recordExecution(task, result, true, processingTime, null);
+            
+            onTaskCompleted(task, result);
+            commitExecutionEvent(execution, task, startTime - enqueuedAt, null);
+            return result;
+            
+        } catch (Exception e) {
+            long processingTime = System.nanoTime() - startTime;
+
+            // Use TaskAgentMetrics method with task-specific information
+            long inputSize = task.getInputSize();
+            metrics.recordTaskFailed(processingTime, inputSize, task.getPriority());
+            
+            // Record failed execution in memory with error details
+            String learnings = "Error: " + e.getClass().getSimpleName() + 
+                             (e.getMessage() != null ? " - " + e.getMessage() : "");
+            memory.recordExecution(task, null, false, processingTime, learnings);
+            
+            onTaskFailed(task, e);
+            commitExecutionEvent(execution, task, startTime - enqueuedAt, e);
+            throw new RuntimeException("Task processing failed", e);
+        }
+    }
+
+    private void acquireTaskPermit() {
+        try {
+            taskPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a task slot", e);
+        }
+    }
     
     protected abstract RESULT doProcess(TASK task) throws Exception;
+
+    private void commitExecutionEvent(TaskExecutionEvent execution, TASK task, long queueTimeNanos, Exception error) {
+        execution.end();
+        if (execution.shouldCommit()) {
+            execution.describe(agentName, task);
+            execution.queueTime = queueTimeNanos;
+            execution.succeeded = error == null;
+            execution.error = error != null ? error.getClass().getName() : null;
+            execution.commit();
+        }
+    }
     
     // === Agent Identity ===
     
@@ -163,7 +215,8 @@ public abstract class BaseAgent<TASK extends Task, RESULT> implements TaskAgent<
     
     @Override
     public void start() throws AgentException {
-        synchronized (stateLock) {
+        stateLock.lock();
+        try {
             AgentState currentState = state.get();
             AgentState targetState = AgentState.STARTED;
             
@@ -182,12 +235,15 @@ public abstract class BaseAgent<TASK extends Task, RESULT> implements TaskAgent<
                 setState(AgentState.ERROR);
                 throw new AgentException("Failed to start agent", e, agentId, currentState);
             }
+        } finally {
+            stateLock.unlock();
         }
     }
     
     @Override
     public void pause() throws AgentException {
-        synchronized (stateLock) {
+        stateLock.lock();
+        try {
             AgentState currentState = state.get();
             AgentState targetState = AgentState.PAUSED;
             
@@ -206,12 +262,15 @@ public abstract class BaseAgent<TASK extends Task, RESULT> implements TaskAgent<
                 setState(AgentState.ERROR);
                 throw new AgentException("Failed to pause agent", e, agentId, currentState);
             }
+        } finally {
+            stateLock.unlock();
         }
     }
     
     @Override
     public void stop() throws AgentException {
-        synchronized (stateLock) {
+        stateLock.lock();
+        try {
             AgentState currentState = state.get();
             AgentState targetState = AgentState.STOPPED;
             
@@ -230,12 +289,15 @@ public abstract class BaseAgent<TASK extends Task, RESULT> implements TaskAgent<
                 setState(AgentState.ERROR);
                 throw new AgentException("Failed to stop agent", e, agentId, currentState);
             }
+        } finally {
+            stateLock.unlock();
         }
     }
     
     @Override
     public void reset() throws AgentException {
-        synchronized (stateLock) {
+        stateLock.lock();
+        try {
             AgentState currentState = state.get();
             AgentState targetState = AgentState.CREATED;
             
@@ -254,29 +316,44 @@ public abstract class BaseAgent<TASK extends Task, RESULT> implements TaskAgent<
                 setState(AgentState.ERROR);
                 throw new AgentException("Failed to reset agent", e, agentId, currentState);
             }
+        } finally {
+            stateLock.unlock();
         }
     }
     
     private void setState(AgentState newState) {
         AgentState oldState = state.getAndSet(newState);
+        AgentStateChangedEvent event = new AgentStateChangedEvent();
+        if (event.isEnabled()) {
+            event.agentId = agentId;
+            event.agentName = agentName;
+            event.fromState = oldState.name();
+            event.toState = newState.name();
+            event.commit();
+        }
         onStateChanged(oldState, newState);
     }
     
     // === Lifecycle Implementation Methods ===
     
     /**
-     * Perform agent startup logic. Default implementation creates the executor.
+     * Perform agent startup logic. Default implementation creates the executor: a single
+     * worker thread, or a virtual thread per task when the configuration asks for them. Either
+     * way at most {@link AgentConfiguration#getMaxConcurrentTasks()} tasks run at once.
      * Subclasses can override for custom startup behavior.
      * 
      * @throws Exception if startup fails
      */
     protected void doStart() throws Exception {
         if (executor == null || executor.isShutdown()) {
-            executor = Executors.newSingleThreadExecutor(r -> {
-                Thread t = new Thread(r, "Agent-" + agentName + "-" + agentId.substring(0, 8));
-                t.setDaemon(true);
-                return t;
-            });
+            String threadName = "Agent-" + agentName + "-" + agentId.substring(0, 8);
+            executor = configuration.isVirtualThreads()
+                    ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(threadName + "-", 0).factory())
+                    : Executors.newSingleThreadExecutor(r -> {
+                        Thread t = new Thread(r, threadName);
+                        t.setDaemon(true);
+                        return t;
+                    });
         }
     }
     
@@ -339,6 +416,11 @@ public abstract class BaseAgent<TASK extends Task, RESULT> implements TaskAgent<
     
     @Override
     public void compactMemory() {
+        MemoryCompactionEvent event = new MemoryCompactionEvent();
+        event.begin();
+        int entriesBefore = memory.size();
+        boolean summaryGenerated = false;
+
         memory.compact();
         
         // Generate summary if we have enough entries
@@ -346,8 +428,18 @@ public abstract class BaseAgent<TASK extends Task, RESULT> implements TaskAgent<
             String summary = generateMemorySummary();
             if (summary != null && !summary.trim().isEmpty()) {
                 memory.setSummary(summary);
+                summaryGenerated = true;
             }
         }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.agentName = agentName;
+            event.entriesBefore = entriesBefore;
+            event.entriesAfter = memory.size();
+            event.summaryGenerated = summaryGenerated;
+            event.commit();
+        }
     }
     
     protected long estimateOutputSize(RESULT result) {
@@ -14,8 +14,10 @@ import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Base class for chat-oriented agents with lifecycle, metrics and execution infrastructure.
@@ -30,9 +32,13 @@ public abstract class BaseChatAgent<REQUEST, RESPONSE> implements ChatAgent<REQU
     private final List<String> capabilities;
 
     private final AtomicReference<AgentState> state = new AtomicReference<>(AgentState.CREATED);
-    private final Object stateLock = new Object();
+    // A lock rather than a monitor so lifecycle calls that block (stop awaits the executor)
+    // do not pin a virtual thread's carrier
+    private final ReentrantLock stateLock = new ReentrantLock();
 
     private volatile ExecutorService executor;
+    // Caps chats in flight at maxConcurrentTasks, which a virtual thread per chat would not
+    private final Semaphore chatPermits;
     private final ChatAgentMetrics metrics;
     private final AgentMemory memory;
 
@@ -44,6 +50,7 @@ public abstract class BaseChatAgent<REQUEST, RESPONSE> implements ChatAgent<REQU
         this.createdAt = Instant.now();
         this.configuration = Objects.requireNonNull(configuration);
         this.capabilities = List.copyOf(Objects.requireNonNull(capabilities));
+        this.chatPermits = new Semaphore(configuration.getMaxConcurrentTasks(), true);
         this.metrics = new ChatAgentMetrics();
         this.memory = new AgentMemory();
     }
@@ -60,28 +67,42 @@ public abstract class BaseChatAgent<REQUEST, RESPONSE> implements ChatAgent<REQU
             return CompletableFuture.failedFuture(new AgentException("Agent is not running", agentId, state.get()));
         }
         return CompletableFuture.supplyAsync(() -> {
-            long startTime = System.nanoTime();
-            metrics.recordOperationStarted();
-            onConversationStarted(request);
             try {
-                RESPONSE result = doChat(request);
-                long processingTime = System.nanoTime() - startTime;
-                // Token estimates are left to concrete classes; record basic message stats
-                metrics.recordMessageProcessed(processingTime, 0, 0, true);
-                onConversationCompleted(request, result);
-                // Treat each chat call as a single message exchange
-                metrics.recordConversationCompleted(1, 1, 1);
-                return result;
-            } catch (Exception e) {
-                long processingTime = System.nanoTime() - startTime;
-                metrics.recordMessageProcessingFailed(processingTime, 0, true);
-                onConversationFailed(request, e);
-                metrics.recordConversationAbandoned();
-                throw new RuntimeException("Chat processing failed", e);
+                chatPermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for a chat slot", e);
+            }
+            try {
+                return execute(request);
+            } finally {
+                chatPermits.release();
             }
         }, executor);
     }
 
+    private RESPONSE execute(REQUEST request) {
+        long startTime = System.nanoTime();
+        metrics.recordOperationStarted();
+        onConversationStarted(request);
+        try {
+            RESPONSE result = doChat(request);
+            long processingTime = System.nanoTime() - startTime;
+            // Token estimates are left to concrete classes; record basic message stats
+            metrics.recordMessageProcessed(processingTime, 0, 0, true);
+            onConversationCompleted(request, result);
+            // Treat each chat call as a single message exchange
+            metrics.recordConversationCompleted(1, 1, 1);
+            return result;
+        } catch (Exception e) {
+            long processingTime = System.nanoTime() - startTime;
+            metrics.recordMessageProcessingFailed(processingTime, 0, true);
+            onConversationFailed(request, e);
+            metrics.recordConversationAbandoned();
+            throw new RuntimeException("Chat processing failed", e);
+        }
+    }
+
     // Agent identity
     @Override public String getAgentId() { return agentId; }
     @Override public String getAgentName() { return agentName; }
@@ -97,37 +118,49 @@ public abstract class BaseChatAgent<REQUEST, RESPONSE> implements ChatAgent<REQU
     // Lifecycle
     @Override
     public void start() throws AgentException {
-        synchronized (stateLock) {
+        stateLock.lock();
+        try {
             if (state.get() == AgentState.STARTED) return;
             state.set(AgentState.STARTING);
             try {
                 if (executor == null || executor.isShutdown()) {
-                    executor = Executors.newSingleThreadExecutor(r -> {
-                        Thread t = new Thread(r, "ChatAgent-" + agentName + "-" + agentId.substring(0, 8));
-                        t.setDaemon(true);
-                        return t;
-                    });
+                    String threadName = "ChatAgent-" + agentName + "-" + agentId.substring(0, 8);
+                    // Virtual threads give each chat its own thread, so blocking model calls
+                    // no longer queue behind the single worker; chatPermits still bounds them
+                    executor = configuration.isVirtualThreads()
+                            ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(threadName + "-", 0).factory())
+                            : Executors.newSingleThreadExecutor(r -> {
+                                Thread t = new Thread(r, threadName);
+                                t.setDaemon(true);
+                                return t;
+                            });
                 }
                 state.set(AgentState.STARTED);
             } catch (Exception e) {
                 state.set(AgentState.ERROR);
                 throw new AgentException("Failed to start agent: " + e.getMessage(), e, agentId, state.get());
             }
+        } finally {
+            stateLock.unlock();
         }
     }
 
     @Override
     public void pause() throws AgentException {
-        synchronized (stateLock) {
+        stateLock.lock();
+        try {
             if (state.get() != AgentState.STARTED) return;
             state.set(AgentState.PAUSING);
             state.set(AgentState.PAUSED);
+        } finally {
+            stateLock.unlock();
         }
     }
 
     @Override
     public void stop() throws AgentException {
-        synchronized (stateLock) {
+        stateLock.lock();
+        try {
             if (state.get() == AgentState.STOPPED) return;
             state.set(AgentState.STOPPING);
             try {
@@ -140,12 +173,15 @@ public abstract class BaseChatAgent<REQUEST, RESPONSE> implements ChatAgent<REQU
                 state.set(AgentState.ERROR);
                 throw new AgentException("Failed to stop agent: " + e.getMessage(), e, agentId, state.get());
             }
+        } finally {
+            stateLock.unlock();
         }
     }
 
     @Override
     public void reset() throws AgentException {
-        synchronized (stateLock) {
+        stateLock.lock();
+        try {
             try {
                 metrics.reset();
                 memory.clear();
@@ -158,6 +194,8 @@ public abstract class BaseChatAgent<REQUEST, RESPONSE> implements ChatAgent<REQU
                 state.set(AgentState.ERROR);
                 throw new AgentException("Failed to reset agent: " + e.getMessage(), e, agentId, state.get());
             }
+        } finally {
+            stateLock.unlock();
         }
     }
 
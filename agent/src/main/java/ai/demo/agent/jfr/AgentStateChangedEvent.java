@@ -0,0 +1,31 @@
+package ai.demo.agent.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Instant event emitted on every agent lifecycle transition.
+ */
+@Name("ai.demo.agent.StateChanged")
+@Label("Agent State Changed")
+@Description("An agent moved between lifecycle states")
+@Category({"Spring AI Agent", "Lifecycle"})
+@StackTrace(false)
+public class AgentStateChangedEvent extends Event {
+
+    @Label("Agent Id")
+    public String agentId;
+
+    @Label("Agent")
+    public String agentName;
+
+    @Label("From")
+    public String fromState;
+
+    @Label("To")
+    public String toState;
+}
@@ -0,0 +1,31 @@
+package ai.demo.agent.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Duration event covering an agent memory compaction, including summary generation.
+ */
+@Name("ai.demo.agent.MemoryCompaction")
+@Label("Agent Memory Compaction")
+@Description("Compaction of an agent's memory")
+@Category({"Spring AI Agent", "Memory"})
+@StackTrace(false)
+public class MemoryCompactionEvent extends Event {
+
+    @Label("Agent")
+    public String agentName;
+
+    @Label("Entries Before")
+    public int entriesBefore;
+
+    @Label("Entries After")
+    public int entriesAfter;
+
+    @Label("Summary Generated")
+    public boolean summaryGenerated;
+}
@@ -0,0 +1,32 @@
+package ai.demo.agent.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Duration event for a single stage of the AI pipeline
+ * (TASK → PROMPT → CHAT_RESPONSE → RESULT).
+ */
+@Name("ai.demo.agent.PipelineStage")
+@Label("AI Pipeline Stage")
+@Description("One stage of the AiAgent transformation pipeline")
+@StackTrace(false)
+public class PipelineStageEvent extends TaskEvent {
+
+    public static final String TRANSFORM_TO_PROMPT = "transformToPrompt";
+    public static final String ENHANCE_PROMPT = "enhancePrompt";
+    public static final String CALL = "call";
+    public static final String TRANSFORM_FROM_RESPONSE = "transformFromResponse";
+
+    @Label("Stage")
+    public String stage;
+
+    public PipelineStageEvent() {
+    }
+
+    public PipelineStageEvent(String stage) {
+        this.stage = stage;
+    }
+}
@@ -0,0 +1,16 @@
+package ai.demo.agent.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Instant event emitted when a task is handed to an agent's executor.
+ */
+@Name("ai.demo.agent.TaskEnqueued")
+@Label("Task Enqueued")
+@Description("A task was submitted to an agent")
+@StackTrace(false)
+public class TaskEnqueuedEvent extends TaskEvent {
+}
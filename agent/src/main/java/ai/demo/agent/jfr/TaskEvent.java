@@ -0,0 +1,51 @@
+package ai.demo.agent.jfr;
+
+import ai.demo.agent.base.task.Task;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Base JFR event for anything tied to a task. Carries the task identity and the attributes
+ * needed to group latency outliers: priority, size and the conversation thread (when the
+ * task metadata provides a {@code threadId}).
+ */
+@Category({"Spring AI Agent", "Task"})
+public abstract class TaskEvent extends Event {
+
+    @Label("Agent")
+    public String agentName;
+
+    @Label("Task Id")
+    public String taskId;
+
+    @Label("Priority")
+    public String priority;
+
+    @Label("Size")
+    public String size;
+
+    @Label("Thread Id")
+    @Description("Conversation thread the task belongs to, if any")
+    public String threadId;
+
+    /**
+     * Copy the task attributes into this event. Callers should only do this once
+     * {@link #shouldCommit()} or {@link #isEnabled()} returned true to keep the disabled path free.
+     *
+     * @param agentName name of the agent processing the task
+     * @param task the task (may be null)
+     */
+    public void describe(String agentName, Task task) {
+        this.agentName = agentName;
+        if (task == null) {
+            return;
+        }
+        this.taskId = task.getId();
+        this.priority = task.getPriority() != null ? task.getPriority().name() : null;
+        this.size = task.getSize() != null ? task.getSize().name() : null;
+        Object thread = task.getMetadata() != null ? task.getMetadata().get("threadId") : null;
+        this.threadId = thread != null ? thread.toString() : null;
+    }
+}
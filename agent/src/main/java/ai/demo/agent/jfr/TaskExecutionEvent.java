@@ -0,0 +1,29 @@
+package ai.demo.agent.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Duration event spanning a task from the moment an agent thread starts it until it
+ * completes or fails.
+ */
+@Name("ai.demo.agent.TaskExecution")
+@Label("Task Execution")
+@Description("Execution of a task on an agent thread")
+@StackTrace(false)
+public class TaskExecutionEvent extends TaskEvent {
+
+    @Label("Queue Time")
+    @Description("Time between enqueue and the start of execution")
+    @Timespan(Timespan.NANOSECONDS)
+    public long queueTime;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+
+    @Label("Error")
+    public String error;
+}
@@ -1,6 +1,11 @@
 package ai.demo.agent.metrics;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -14,6 +19,9 @@ public class ChatAgentMetrics extends AgentMetrics {
     private final AtomicLong totalAgentMessages = new AtomicLong(0);
     private final AtomicLong totalInputTokens = new AtomicLong(0);
     private final AtomicLong totalOutputTokens = new AtomicLong(0);
+    private final AtomicLong totalGenerationTimeNanos = new AtomicLong(0);
+    private final Map<String, TokenCounter> tokensByThread = new ConcurrentHashMap<>();
+    private final Map<String, TokenCounter> tokensByModel = new ConcurrentHashMap<>();
     private final AtomicReference<Instant> lastConversationStartTime = new AtomicReference<>();
     private final AtomicReference<Instant> lastConversationEndTime = new AtomicReference<>();
     private final AtomicLong currentActiveConversations = new AtomicLong(0);
@@ -49,6 +57,7 @@ public class ChatAgentMetrics extends AgentMetrics {
         super.recordOperationSucceeded(processingTimeNanos);
         totalInputTokens.addAndGet(inputTokens);
         totalOutputTokens.addAndGet(outputTokens);
+        totalGenerationTimeNanos.addAndGet(processingTimeNanos);
         if (isUserMessage) {
             totalUserMessages.incrementAndGet();
         } else {
@@ -66,6 +75,34 @@ public class ChatAgentMetrics extends AgentMetrics {
         }
     }
 
+    /**
+     * Attribute token usage to a conversation thread and a model. Totals are recorded separately
+     * through {@link #recordMessageProcessed(long, long, long, boolean)}; this only maintains the
+     * per-thread and per-model breakdown.
+     *
+     * @param threadId the conversation thread, or null when the exchange is not bound to a thread
+     * @param model the model that served the request, or null if unknown
+     * @param inputTokens prompt tokens reported by the provider
+     * @param outputTokens completion tokens reported by the provider
+     */
+    public void recordTokenUsage(String threadId, String model, long inputTokens, long outputTokens) {
+        if (threadId != null) {
+            tokensByThread.computeIfAbsent(threadId, k -> new TokenCounter()).add(inputTokens, outputTokens);
+        }
+        if (model != null) {
+            tokensByModel.computeIfAbsent(model, k -> new TokenCounter()).add(inputTokens, outputTokens);
+        }
+    }
+
+    /**
+     * Drop the per-thread token breakdown for a thread that no longer exists.
+     *
+     * @param threadId the thread identifier
+     */
+    public void removeThread(String threadId) {
+        tokensByThread.remove(threadId);
+    }
+
     public long getConversationsStarted() {
         return conversationsStarted.get();
     }
@@ -125,6 +162,36 @@ public class ChatAgentMetrics extends AgentMetrics {
         return totalInputTokens.get() + totalOutputTokens.get();
     }
 
+    public Duration getTotalGenerationTime() {
+        return Duration.ofNanos(totalGenerationTimeNanos.get());
+    }
+
+    /**
+     * Output tokens produced per second of generation time across all processed messages.
+     *
+     * @return completion-token throughput, or 0 if nothing has been generated yet
+     */
+    public double getOutputTokensPerSecond() {
+        long nanos = totalGenerationTimeNanos.get();
+        return nanos > 0 ? totalOutputTokens.get() / (nanos / 1_000_000_000.0) : 0.0;
+    }
+
+    public TokenCounter getThreadTokens(String threadId) {
+        return tokensByThread.get(threadId);
+    }
+
+    public TokenCounter getModelTokens(String model) {
+        return tokensByModel.get(model);
+    }
+
+    public Map<String, TokenCounter> getTokensByThread() {
+        return Collections.unmodifiableMap(new TreeMap<>(tokensByThread));
+    }
+
+    public Map<String, TokenCounter> getTokensByModel() {
+        return Collections.unmodifiableMap(new TreeMap<>(tokensByModel));
+    }
+
     public double getAverageMessagesPerConversation() {
         long completed = conversationsCompleted.get();
         return completed > 0 ? (double) totalMessages.get() / completed : 0.0;
@@ -159,6 +226,9 @@ public class ChatAgentMetrics extends AgentMetrics {
         totalAgentMessages.set(0);
         totalInputTokens.set(0);
         totalOutputTokens.set(0);
+        totalGenerationTimeNanos.set(0);
+        tokensByThread.clear();
+        tokensByModel.clear();
         lastConversationStartTime.set(null);
         lastConversationEndTime.set(null);
         currentActiveConversations.set(0);
@@ -169,7 +239,8 @@ public class ChatAgentMetrics extends AgentMetrics {
     public String getSummary() {
         return String.format(
             "%s{conversations=%d(started),%d(completed),%d(abandoned), completionRate=%.2f%%, " +
-            "active=%d, maxConcurrent=%d, messages=%d(user:%d,agent:%d), tokens=%d(in:%d,out:%d), %s}",
+            "active=%d, maxConcurrent=%d, messages=%d(user:%d,agent:%d), tokens=%d(in:%d,out:%d), " +
+            "outputTokensPerSec=%.2f, %s}",
             this.getClass().getSimpleName(),
             getConversationsStarted(),
             getConversationsCompleted(),
@@ -183,7 +254,39 @@ public class ChatAgentMetrics extends AgentMetrics {
             getTotalTokens(),
             getTotalInputTokens(),
             getTotalOutputTokens(),
+            getOutputTokensPerSecond(),
             super.getSummary().substring(this.getClass().getSimpleName().length() + 1)
         );
     }
+
+    /**
+     * Input/output token totals for a single thread or model.
+     */
+    public static final class TokenCounter {
+
+        private final AtomicLong inputTokens = new AtomicLong(0);
+        private final AtomicLong outputTokens = new AtomicLong(0);
+
+        void add(long input, long output) {
+            inputTokens.addAndGet(input);
+            outputTokens.addAndGet(output);
+        }
+
+        public long getInputTokens() {
+            return inputTokens.get();
+        }
+
+        public long getOutputTokens() {
+            return outputTokens.get();
+        }
+
+        public long getTotalTokens() {
+            return inputTokens.get() + outputTokens.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("TokenCounter{in=%d, out=%d}", getInputTokens(), getOutputTokens());
+        }
+    }
 }
@@ -8,11 +8,15 @@ import ai.demo.agent.base.task.TaskStatus;
 import ai.demo.agent.task.TaskAgent;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -157,24 +161,95 @@ class BaseAgentTest {
         }
     }
 
+    @Test
+    void testVirtualThreadsRunTasksConcurrently() throws Exception {
+        AgentConfiguration configuration = AgentConfiguration.builder()
+            .instructions("Follow the test instructions")
+            .maxConcurrentTasks(2)
+            .virtualThreads(true)
+            .build();
+        try (TestAgent agent = new TestAgent(configuration)) {
+            // Both tasks must be running at once to get past the barrier
+            agent.barrier = new CountDownLatch(2);
+            agent.start();
+
+            CompletableFuture<String> first = agent.process(SimpleTask.success("1"));
+            CompletableFuture<String> second = agent.process(SimpleTask.success("2"));
+
+            assertNotNull(first.get(5, TimeUnit.SECONDS));
+            assertNotNull(second.get(5, TimeUnit.SECONDS));
+            assertEquals(2, agent.virtualThreadTasks.get());
+        }
+    }
+
+    @Test
+    void testVirtualThreadsRespectMaxConcurrentTasks() throws Exception {
+        AgentConfiguration configuration = AgentConfiguration.builder()
+            .instructions("Follow the test instructions")
+            .maxConcurrentTasks(2)
+            .virtualThreads(true)
+            .build();
+        try (TestAgent agent = new TestAgent(configuration)) {
+            agent.delay = Duration.ofMillis(20);
+            agent.start();
+
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                results.add(agent.process(SimpleTask.success(String.valueOf(i))));
+            }
+            for (CompletableFuture<String> result : results) {
+                assertNotNull(result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(10, agent.virtualThreadTasks.get());
+            assertTrue(agent.maxInFlight.get() <= 2, "at most two tasks may run at once");
+        }
+    }
+
     private static final class TestAgent extends BaseAgent<SimpleTask, String> implements AutoCloseable {
         private final AtomicInteger startedCount = new AtomicInteger();
         private final AtomicInteger completedCount = new AtomicInteger();
         private final AtomicInteger failedCount = new AtomicInteger();
+        private final AtomicInteger virtualThreadTasks = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+        private volatile CountDownLatch barrier;
+        private volatile Duration delay;
 
         private TestAgent() {
-            super(
-                "TestAgent",
-                "1.0.0",
-                AgentConfiguration.builder()
-                    .instructions("Follow the test instructions")
-                    .build(),
-                List.of("echo", "summarize")
-            );
+            this(AgentConfiguration.builder()
+                .instructions("Follow the test instructions")
+                .build());
+        }
+
+        private TestAgent(AgentConfiguration configuration) {
+            super("TestAgent", "1.0.0", configuration, List.of("echo", "summarize"));
         }
 
         @Override
-        protected String doProcess(SimpleTask task) {
+        protected String doProcess(SimpleTask task) throws InterruptedException {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                return run(task);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        private String run(SimpleTask task) throws InterruptedException {
+            if (Thread.currentThread().isVirtual()) {
+                virtualThreadTasks.incrementAndGet();
+            }
+            Duration pause = delay;
+            if (pause != null) {
+                Thread.sleep(pause.toMillis());
+            }
+            CountDownLatch latch = barrier;
+            if (latch != null) {
+                latch.countDown();
+                if (!latch.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Tasks did not run concurrently");
+                }
+            }
             if (task.shouldFail()) {
                 throw new IllegalStateException("Intentional failure");
             }
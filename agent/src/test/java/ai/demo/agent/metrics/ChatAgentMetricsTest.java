@@ -0,0 +1,45 @@
+package ai.demo.agent.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatAgentMetricsTest {
+
+    @Test
+    void testTokenTotalsAndThroughput() {
+        ChatAgentMetrics metrics = new ChatAgentMetrics();
+        assertEquals(0.0, metrics.getOutputTokensPerSecond());
+
+        metrics.recordMessageProcessed(500_000_000L, 120, 40, false);
+        metrics.recordMessageProcessed(500_000_000L, 80, 60, false);
+
+        assertEquals(200, metrics.getTotalInputTokens());
+        assertEquals(100, metrics.getTotalOutputTokens());
+        assertEquals(300, metrics.getTotalTokens());
+        assertEquals(1_000_000_000L, metrics.getTotalGenerationTime().toNanos());
+        assertEquals(100.0, metrics.getOutputTokensPerSecond(), 0.001);
+    }
+
+    @Test
+    void testPerThreadAndPerModelBreakdown() {
+        ChatAgentMetrics metrics = new ChatAgentMetrics();
+        metrics.recordTokenUsage("thread-1", "gpt-a", 10, 5);
+        metrics.recordTokenUsage("thread-1", "gpt-b", 20, 7);
+        metrics.recordTokenUsage("thread-2", "gpt-a", 1, 1);
+        metrics.recordTokenUsage(null, null, 100, 100);
+
+        assertEquals(30, metrics.getThreadTokens("thread-1").getInputTokens());
+        assertEquals(12, metrics.getThreadTokens("thread-1").getOutputTokens());
+        assertEquals(17, metrics.getModelTokens("gpt-a").getTotalTokens());
+        assertEquals(2, metrics.getTokensByThread().size());
+        assertEquals(2, metrics.getTokensByModel().size());
+
+        metrics.removeThread("thread-1");
+        assertNull(metrics.getThreadTokens("thread-1"));
+
+        metrics.reset();
+        assertTrue(metrics.getTokensByModel().isEmpty());
+        assertEquals(0, metrics.getTotalOutputTokens());
+    }
+}
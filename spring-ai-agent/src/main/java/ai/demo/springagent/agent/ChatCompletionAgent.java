@@ -1,9 +1,12 @@
 package ai.demo.springagent.agent;
 
 import ai.demo.agent.base.AgentConfiguration;
+import ai.demo.agent.jfr.PipelineStageEvent;
 import ai.demo.springagent.base.SpringAiAgent;
 import ai.demo.springagent.dto.ChatRequest;
 import ai.demo.springagent.dto.ChatResponse;
+import ai.demo.springagent.metrics.RequestTimings;
+import ai.demo.springagent.provider.UsageMetadata;
 import ai.demo.springagent.task.ChatTask;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.prompt.Prompt;
@@ -19,6 +22,9 @@ import java.util.UUID;
  */
 public class ChatCompletionAgent extends SpringAiAgent<ChatTask, ChatResponse> {
 
+    private static final String DEFAULT_MODEL = "gpt-5-nano";
+    private static final int ESTIMATED_CHARS_PER_TOKEN = 4;
+
     /**
      * Create a new ChatCompletionAgent with the specified configuration.
      *
@@ -71,13 +77,43 @@ public class ChatCompletionAgent extends SpringAiAgent<ChatTask, ChatResponse> {
     }
 
     @Override
+    public ChatResponse transformFromResponse(org.springframework.ai.chat.model.ChatResponse response) {
+        String content = contentOf(response);
+        if (content == null) {
+            content = "";
+        }
+
+        String model = DEFAULT_MODEL;
+        if (response != null && response.getMetadata() != null
+                && response.getMetadata().getModel() != null && !response.getMetadata().getModel().isBlank()) {
+            model = response.getMetadata().getModel();
+        }
+
+        // Prefer the token counts reported by the provider over a character-based guess
+        ChatResponse.Usage usage = UsageMetadata.orEstimate(UsageMetadata.from(response),
+                0, content.length(), ESTIMATED_CHARS_PER_TOKEN);
+        return buildChatResponse(content, model, usage);
+    }
+
+    /**
+     * Transform plain generated text into a ChatResponse. Used when no provider metadata is
+     * available, so token usage is estimated from the text length.
+     *
+     * @param response the AI-generated text
+     * @return the chat response
+     */
     public ChatResponse transformFromResponse(String response) {
+        return buildChatResponse(response, DEFAULT_MODEL,
+                UsageMetadata.estimate(0, response != null ? response.length() : 0, ESTIMATED_CHARS_PER_TOKEN));
+    }
+
+    private ChatResponse buildChatResponse(String content, String model, ChatResponse.Usage usage) {
         // Create a ChatResponse from the AI-generated text
         ChatResponse chatResponse = new ChatResponse();
         chatResponse.setId("chatcmpl-" + UUID.randomUUID().toString().replace("-", ""));
         chatResponse.setObject("chat.completion");
         chatResponse.setCreated(System.currentTimeMillis() / 1000);
-        chatResponse.setModel("gpt-5-nano"); // Could be made configurable
+        chatResponse.setModel(model);
 
         ChatResponse.Choice choice = new ChatResponse.Choice();
         choice.setIndex(0);
@@ -85,23 +121,29 @@ public class ChatCompletionAgent extends SpringAiAgent<ChatTask, ChatResponse> {
 
         ChatResponse.Message message = new ChatResponse.Message();
         message.setRole("assistant");
-        message.setContent(response);
+        message.setContent(content);
         choice.setMessage(message);
 
         chatResponse.setChoices(List.of(choice));
-
-        // Add usage information (placeholder values)
-        ChatResponse.Usage usage = new ChatResponse.Usage();
-        // Estimate tokens (4 chars per token as rough estimate)
-        int estimatedTokens = response.length() / 4;
-        usage.setPromptTokens(estimatedTokens / 2); // Rough estimate
-        usage.setCompletionTokens(estimatedTokens / 2);
-        usage.setTotalTokens(estimatedTokens);
         chatResponse.setUsage(usage);
 
         return chatResponse;
     }
 
+    @Override
+    protected void onStageCompleted(ChatTask task, String stage, long durationNanos) {
+        RequestTimings.Phase phase = switch (stage) {
+            case PipelineStageEvent.TRANSFORM_TO_PROMPT -> RequestTimings.Phase.PROMPT;
+            case PipelineStageEvent.ENHANCE_PROMPT -> RequestTimings.Phase.ENHANCE;
+            case PipelineStageEvent.CALL -> RequestTimings.Phase.PROVIDER;
+            case PipelineStageEvent.TRANSFORM_FROM_RESPONSE -> RequestTimings.Phase.SERIALIZATION;
+            default -> null;
+        };
+        if (phase != null) {
+            task.getTimings().add(phase, durationNanos);
+        }
+    }
+
     @Override
     protected String buildCustomContext() {
         // Add context about the agent's capabilities and current state
@@ -125,6 +167,7 @@ public class ChatCompletionAgent extends SpringAiAgent<ChatTask, ChatResponse> {
     @Override
     public void onTaskStarted(ChatTask task) {
         super.onTaskStarted(task);
+        task.getTimings().end(RequestTimings.Phase.QUEUE);
         // Log task start for monitoring
         System.out.println("[" + getAgentName() + "] Started processing chat task: " + task.getId());
     }
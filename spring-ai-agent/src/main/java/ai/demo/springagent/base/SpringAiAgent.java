@@ -2,10 +2,12 @@ package ai.demo.springagent.base;
 
 import ai.demo.agent.base.*;
 import ai.demo.agent.base.task.Task;
+import ai.demo.agent.jfr.PipelineStageEvent;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
 
 import java.util.ArrayList;
@@ -17,10 +19,13 @@ import java.util.Objects;
  * Provides automatic context enhancement including instructions, memory learnings,
  * and configuration preferences.
  *
+ * <p>The raw LLM response is the full Spring AI {@link ChatResponse}, so implementations
+ * can read provider metadata such as token usage alongside the generated content.
+ *
  * @param <TASK> The type of task/input the agent processes (must extend Task)
  * @param <RESULT> The type of result/output the agent produces
  */
-public abstract class SpringAiAgent<TASK extends Task, RESULT> extends BaseAgent<TASK, RESULT> implements AiAgent<TASK, Prompt, String, RESULT> {
+public abstract class SpringAiAgent<TASK extends Task, RESULT> extends BaseAgent<TASK, RESULT> implements AiAgent<TASK, Prompt, ChatResponse, RESULT> {
 
     private final ChatClient chatClient;
 
@@ -54,17 +59,58 @@ public abstract class SpringAiAgent<TASK extends Task, RESULT> extends BaseAgent
 
     @Override
     protected final RESULT doProcess(TASK task) throws Exception {
-        // Follow the transformation pipeline: TASK → PROMPT → CHAT_RESPONSE → RESULT
+        // Follow the transformation pipeline: TASK → PROMPT → CHAT_RESPONSE → RESULT,
+        // recording each stage as a JFR event
+        PipelineStageEvent stage = new PipelineStageEvent(PipelineStageEvent.TRANSFORM_TO_PROMPT);
+        stage.begin();
+        long stageStart = System.nanoTime();
         Prompt basePrompt = transformToPrompt(task);
-        String response = call(basePrompt);
-        return transformFromResponse(response);
+        stageStart = completeStage(stage, task, stageStart);
+
+        stage = new PipelineStageEvent(PipelineStageEvent.ENHANCE_PROMPT);
+        stage.begin();
+        Prompt enhancedPrompt = enhancePromptWithContext(basePrompt);
+        stageStart = completeStage(stage, task, stageStart);
+
+        stage = new PipelineStageEvent(PipelineStageEvent.CALL);
+        stage.begin();
+        ChatResponse response = invoke(enhancedPrompt);
+        stageStart = completeStage(stage, task, stageStart);
+
+        stage = new PipelineStageEvent(PipelineStageEvent.TRANSFORM_FROM_RESPONSE);
+        stage.begin();
+        RESULT result = transformFromResponse(response);
+        completeStage(stage, task, stageStart);
+        return result;
+    }
+
+    private long completeStage(PipelineStageEvent stage, TASK task, long startNanos) {
+        commitStage(stage, task);
+        long now = System.nanoTime();
+        onStageCompleted(task, stage.stage, now - startNanos);
+        return now;
+    }
+
+    /**
+     * Called after each pipeline stage with its wall-clock duration.
+     * Subclasses can override this to attribute latency to a request.
+     *
+     * @param task the task being processed
+     * @param stage the stage name, one of the {@link PipelineStageEvent} constants
+     * @param durationNanos how long the stage took
+     */
+    protected void onStageCompleted(TASK task, String stage, long durationNanos) {
+        // Default implementation does nothing
     }
 
     @Override
-    public final String call(Prompt basePrompt) {
+    public final ChatResponse call(Prompt basePrompt) {
         // Enhance the prompt with context from configuration and memory
-        Prompt enhancedPrompt = enhancePromptWithContext(basePrompt);
-        return chatClient.prompt(enhancedPrompt).call().content();
+        return invoke(enhancePromptWithContext(basePrompt));
+    }
+
+    private ChatResponse invoke(Prompt enhancedPrompt) {
+        return chatClient.prompt(enhancedPrompt).call().chatResponse();
     }
 
     /**
@@ -148,6 +194,19 @@ public abstract class SpringAiAgent<TASK extends Task, RESULT> extends BaseAgent
         return null; // Default implementation provides no custom context
     }
 
+    /**
+     * Extract the generated text from a Spring AI response.
+     *
+     * @param response the raw LLM response (may be null)
+     * @return the generated content, or null if the response carried no generation
+     */
+    protected static String contentOf(ChatResponse response) {
+        if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
+            return null;
+        }
+        return response.getResult().getOutput().getContent();
+    }
+
     /**
      * Get the underlying Spring AI ChatClient.
      * This allows subclasses to access advanced Spring AI features directly if needed.
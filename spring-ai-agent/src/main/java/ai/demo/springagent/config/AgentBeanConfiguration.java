@@ -1,9 +1,11 @@
 package ai.demo.springagent.config;
 
 import ai.demo.agent.base.AgentConfiguration;
+import ai.demo.agent.metrics.ChatAgentMetrics;
 import ai.demo.springagent.agent.ChatCompletionAgent;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
@@ -17,10 +19,13 @@ import org.springframework.core.env.Environment;
 @Configuration
 public class AgentBeanConfiguration {
 
+    private static final int DEFAULT_VIRTUAL_CONCURRENT_TASKS = 200;
+
     /**
      * Create the default agent configuration.
      *
-     * @param aiModelConfig AI model configuration
+     * <p>Tasks run on virtual threads when {@code spring.threads.virtual.enabled} is set.
+     *
      * @param env Spring environment
      * @return configured AgentConfiguration
      */
@@ -31,12 +36,23 @@ public class AgentBeanConfiguration {
 
         return AgentConfiguration.builder()
                 .instructions(instructions)
-                .maxConcurrentTasks(1)
+                .maxConcurrentTasks(maxConcurrentTasks(env))
                 .taskTimeout(java.time.Duration.ofSeconds(30))
                 .shutdownTimeout(java.time.Duration.ofSeconds(10))
+                .virtualThreads(Threading.VIRTUAL.isActive(env))
                 .build();
     }
 
+    /**
+     * Shared chat metrics fed with provider-reported token usage from every chat path.
+     *
+     * @return chat metrics instance
+     */
+    @Bean
+    public ChatAgentMetrics chatAgentMetrics() {
+        return new ChatAgentMetrics();
+    }
+
     /**
      * Create the main ChatCompletionAgent bean.
      *
@@ -55,21 +71,33 @@ public class AgentBeanConfiguration {
      * This demonstrates how to create multiple agents with different configurations.
      *
      * @param chatClient Spring AI ChatClient
+     * @param env Spring environment
      * @return specialized ChatCompletionAgent
      */
     @Bean
     @ConditionalOnProperty(name = "agent.specialized.enabled", havingValue = "true")
-    public ChatCompletionAgent specializedChatAgent(ChatClient chatClient) {
+    public ChatCompletionAgent specializedChatAgent(ChatClient chatClient, Environment env) {
         AgentConfiguration specializedConfig = AgentConfiguration.builder()
                 .instructions("You are a specialized AI assistant focused on code analysis and debugging. " +
                              "Provide detailed technical explanations and help with programming tasks.")
-                .maxConcurrentTasks(1)
+                .maxConcurrentTasks(maxConcurrentTasks(env))
                 .taskTimeout(java.time.Duration.ofSeconds(45))
+                .virtualThreads(Threading.VIRTUAL.isActive(env))
                 .build();
 
         return new ChatCompletionAgent(chatClient, specializedConfig);
     }
 
+    /**
+     * Tasks an agent runs at once, from {@code agent.max-concurrent-tasks}. Platform-thread
+     * agents have a single worker, so the default there is 1; on virtual threads it matches
+     * Tomcat's default request thread count.
+     */
+    private static int maxConcurrentTasks(Environment env) {
+        return env.getProperty("agent.max-concurrent-tasks", Integer.class,
+                Threading.VIRTUAL.isActive(env) ? DEFAULT_VIRTUAL_CONCURRENT_TASKS : 1);
+    }
+
     /**
      * Configuration for agent-specific settings.
      */
@@ -9,7 +9,8 @@ public class AiModelConfiguration {
     
     private String model = "gpt-5-nano"; // Default model
     private int maxHistoryTokens = 4096; // Approximate token cap for history
-    private int charsPerToken = 4;       // Heuristic conversion factor
+    private int charsPerToken = 4;       // Heuristic conversion factor when no tokenizer vocabulary is loaded
+    private int contextCacheThreads = 1024; // Threads whose history context is kept cached
     
     public String getModel() {
         return model;
@@ -34,4 +35,12 @@ public class AiModelConfiguration {
     public void setCharsPerToken(int charsPerToken) {
         this.charsPerToken = charsPerToken;
     }
+
+    public int getContextCacheThreads() {
+        return contextCacheThreads;
+    }
+
+    public void setContextCacheThreads(int contextCacheThreads) {
+        this.contextCacheThreads = contextCacheThreads;
+    }
 }
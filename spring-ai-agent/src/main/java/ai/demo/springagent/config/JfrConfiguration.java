@@ -0,0 +1,39 @@
+package ai.demo.springagent.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "ai.jfr")
+public class JfrConfiguration {
+
+    private int maxRunning = 1;                        // Recordings running at once
+    private int maxRecordings = 4;                     // Recordings held, running or finished
+    private Duration retention = Duration.ofMinutes(15); // Finished recordings are closed and deleted after this
+
+    public int getMaxRunning() {
+        return maxRunning;
+    }
+
+    public void setMaxRunning(int maxRunning) {
+        this.maxRunning = maxRunning;
+    }
+
+    public int getMaxRecordings() {
+        return maxRecordings;
+    }
+
+    public void setMaxRecordings(int maxRecordings) {
+        this.maxRecordings = maxRecordings;
+    }
+
+    public Duration getRetention() {
+        return retention;
+    }
+
+    public void setRetention(Duration retention) {
+        this.retention = retention;
+    }
+}
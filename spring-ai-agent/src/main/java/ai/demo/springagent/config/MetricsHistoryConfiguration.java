@@ -0,0 +1,57 @@
+package ai.demo.springagent.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "ai.metrics-history")
+public class MetricsHistoryConfiguration {
+
+    private boolean enabled = true;
+    private String directory = "data/metrics-history";
+    private Duration interval = Duration.ofSeconds(10); // Snapshot interval
+    private int segmentBytes = 1024 * 1024;              // Size of each mmap'd segment file
+    private int maxSegments = 32;                        // Retention: disk use is segmentBytes * maxSegments
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    public int getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    public void setSegmentBytes(int segmentBytes) {
+        this.segmentBytes = segmentBytes;
+    }
+
+    public int getMaxSegments() {
+        return maxSegments;
+    }
+
+    public void setMaxSegments(int maxSegments) {
+        this.maxSegments = maxSegments;
+    }
+}
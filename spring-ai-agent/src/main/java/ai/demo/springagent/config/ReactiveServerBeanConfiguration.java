@@ -0,0 +1,34 @@
+package ai.demo.springagent.config;
+
+import ai.demo.springagent.reactive.ReactiveChatHandler;
+import ai.demo.springagent.reactive.ReactiveChatServer;
+import ai.demo.springagent.service.ChatService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Starts the non-blocking chat endpoints on their own Reactor Netty port when
+ * {@code ai.reactive-server.enabled} is set.
+ */
+@Configuration
+public class ReactiveServerBeanConfiguration {
+
+    /**
+     * @param chatService chat pipeline shared with the servlet endpoints
+     * @param objectMapper mapper for request and response bodies
+     * @param validator validates request bodies as {@code @Valid} does for the servlet API
+     * @param config port and event-loop settings
+     * @return the server, started with the application context
+     */
+    @Bean
+    @ConditionalOnProperty(name = "ai.reactive-server.enabled", havingValue = "true")
+    public ReactiveChatServer reactiveChatServer(ChatService chatService, ObjectMapper objectMapper,
+                                                 Validator validator, ReactiveServerConfiguration config) {
+        ReactiveChatHandler handler = new ReactiveChatHandler(chatService, objectMapper, validator);
+        return new ReactiveChatServer(handler, objectMapper, config.getPort(), config.getEventLoopThreads(),
+                config.getShutdownTimeout());
+    }
+}
@@ -0,0 +1,64 @@
+package ai.demo.springagent.config;
+
+import ai.demo.springagent.provider.CoalescingLLMProvider;
+import ai.demo.springagent.provider.LLMProvider;
+import ai.demo.springagent.provider.OpenAIProvider;
+import ai.demo.springagent.provider.cache.CachingLLMProvider;
+import ai.demo.springagent.provider.cache.EmbeddingModelEmbedder;
+import ai.demo.springagent.provider.cache.ResponseCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Puts the {@link ResponseCache} in front of the chat provider, and request coalescing
+ * between the two.
+ */
+@Configuration
+public class ResponseCacheBeanConfiguration {
+
+    /**
+     * The provider chat completions go through: cache misses for identical deterministic
+     * requests share one upstream call. Either layer is a pass-through when disabled. The
+     * semantic tier is only built when a similarity threshold is configured and an embedding
+     * model is available to back it.
+     *
+     * @param provider the upstream provider
+     * @param config response cache configuration
+     * @param coalescing request coalescing configuration
+     * @param embeddingModel embedding model for the semantic tier, if one is configured
+     * @param meterRegistry registry for cache and coalescing metrics
+     * @return the caching provider
+     */
+    @Bean
+    public CachingLLMProvider cachingLLMProvider(OpenAIProvider provider, ResponseCacheConfiguration config,
+                                                 CoalescingConfiguration coalescing,
+                                                 ObjectProvider<EmbeddingModel> embeddingModel,
+                                                 MeterRegistry meterRegistry) {
+        LLMProvider upstream = provider;
+        if (coalescing.isEnabled()) {
+            CoalescingLLMProvider coalescingProvider = new CoalescingLLMProvider(provider,
+                    coalescing.getMaxTemperature());
+            coalescingProvider.bindTo(meterRegistry);
+            upstream = coalescingProvider;
+        }
+        ResponseCache cache = null;
+        if (config.isEnabled()) {
+            if (config.getSimilarityThreshold() <= 1.0) {
+                EmbeddingModel model = embeddingModel.getIfAvailable();
+                if (model == null) {
+                    throw new IllegalStateException("ai.response-cache.similarity-threshold is set, but the "
+                            + "semantic cache tier needs an EmbeddingModel bean and none is configured");
+                }
+                cache = new ResponseCache(config.getMaxEntries(), config.getTtl(),
+                        config.getSimilarityThreshold(), new EmbeddingModelEmbedder(model));
+            } else {
+                cache = new ResponseCache(config.getMaxEntries(), config.getTtl());
+            }
+            cache.bindTo(meterRegistry);
+        }
+        return new CachingLLMProvider(upstream, cache, config.getStreamChunkChars());
+    }
+}
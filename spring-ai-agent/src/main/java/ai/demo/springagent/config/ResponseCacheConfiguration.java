@@ -0,0 +1,57 @@
+package ai.demo.springagent.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "ai.response-cache")
+public class ResponseCacheConfiguration {
+
+    private boolean enabled = true;
+    private int maxEntries = 10_000;              // Per tier; least recently used entries are evicted
+    private Duration ttl = Duration.ofHours(1);
+    private double similarityThreshold = 2.0;     // Cosine similarity for a semantic hit; above 1 disables the semantic tier
+    private int streamChunkChars = 16;            // Minimum chunk size when replaying a hit as a stream
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public double getSimilarityThreshold() {
+        return similarityThreshold;
+    }
+
+    public void setSimilarityThreshold(double similarityThreshold) {
+        this.similarityThreshold = similarityThreshold;
+    }
+
+    public int getStreamChunkChars() {
+        return streamChunkChars;
+    }
+
+    public void setStreamChunkChars(int streamChunkChars) {
+        this.streamChunkChars = streamChunkChars;
+    }
+}
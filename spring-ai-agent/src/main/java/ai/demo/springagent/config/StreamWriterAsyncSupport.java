@@ -0,0 +1,47 @@
+package ai.demo.springagent.config;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Runs Spring MVC's asynchronous responses, i.e. every {@code StreamingResponseBody}, on a
+ * dedicated pool instead of Boot's application task executor.
+ *
+ * <p>A streamed chat completion holds its writer thread until the provider finishes, so the
+ * pool has to be sized for concurrent streams, not for CPU work: Boot's default executor has
+ * 8 core threads and an unbounded queue, which would make a ninth stream wait for one of the
+ * first eight to end. Only used with platform threads; in virtual-thread mode Boot's
+ * executor already starts a virtual thread per stream.
+ */
+public class StreamWriterAsyncSupport implements WebMvcConfigurer {
+
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    /**
+     * @param threads streams written concurrently
+     * @param queueCapacity streams that may wait for a thread; beyond that they are rejected
+     */
+    public StreamWriterAsyncSupport(int threads, int queueCapacity) {
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        // Threads only exist while streams need them
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("chat-stream-");
+        executor.initialize();
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(executor);
+    }
+
+    public ThreadPoolTaskExecutor getExecutor() {
+        return executor;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
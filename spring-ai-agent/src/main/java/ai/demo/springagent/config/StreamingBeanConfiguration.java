@@ -0,0 +1,49 @@
+package ai.demo.springagent.config;
+
+import ai.demo.springagent.sse.DeltaCoalescer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Builds the streaming pipeline stages and writer pool configured under {@code ai.streaming}.
+ */
+@Configuration
+public class StreamingBeanConfiguration {
+
+    /**
+     * Delta coalescer with the server-wide defaults, which requests can override through
+     * {@code streamOptions}.
+     *
+     * @param config streaming configuration
+     * @param meterRegistry registry for the coalesced-delta counter
+     * @return the coalescer
+     */
+    @Bean
+    public DeltaCoalescer deltaCoalescer(StreamingConfiguration config, MeterRegistry meterRegistry) {
+        DeltaCoalescer coalescer = new DeltaCoalescer(config.getCoalesceDelay(), config.getCoalesceBytes());
+        coalescer.bindTo(meterRegistry);
+        return coalescer;
+    }
+
+    /**
+     * Dedicated writer pool for streamed responses in platform-thread mode. Ordered after
+     * Boot's MVC configuration, which would otherwise hand them to the application task
+     * executor. Set {@code ai.streaming.writer-threads} to 0 to keep Boot's executor.
+     *
+     * @param config streaming configuration
+     * @return the MVC async configuration
+     */
+    @Bean(destroyMethod = "shutdown")
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @ConditionalOnThreading(Threading.PLATFORM)
+    @ConditionalOnExpression("${ai.streaming.writer-threads:200} > 0")
+    public StreamWriterAsyncSupport streamWriterAsyncSupport(StreamingConfiguration config) {
+        return new StreamWriterAsyncSupport(config.getWriterThreads(), config.getWriterQueueCapacity());
+    }
+}
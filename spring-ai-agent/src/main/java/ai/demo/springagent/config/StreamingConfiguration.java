@@ -0,0 +1,48 @@
+package ai.demo.springagent.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "ai.streaming")
+public class StreamingConfiguration {
+
+    private Duration coalesceDelay = Duration.ofMillis(30); // Longest a delta waits for others; 0 = one frame per delta
+    private int coalesceBytes = 512;                        // Batch size sent without waiting for the delay
+    private int writerThreads = 200;                        // Platform-thread mode: streamed responses written at once
+    private int writerQueueCapacity = 100;                  // Streams waiting for a writer thread before rejection
+
+    public Duration getCoalesceDelay() {
+        return coalesceDelay;
+    }
+
+    public void setCoalesceDelay(Duration coalesceDelay) {
+        this.coalesceDelay = coalesceDelay;
+    }
+
+    public int getCoalesceBytes() {
+        return coalesceBytes;
+    }
+
+    public void setCoalesceBytes(int coalesceBytes) {
+        this.coalesceBytes = coalesceBytes;
+    }
+
+    public int getWriterThreads() {
+        return writerThreads;
+    }
+
+    public void setWriterThreads(int writerThreads) {
+        this.writerThreads = writerThreads;
+    }
+
+    public int getWriterQueueCapacity() {
+        return writerQueueCapacity;
+    }
+
+    public void setWriterQueueCapacity(int writerQueueCapacity) {
+        this.writerQueueCapacity = writerQueueCapacity;
+    }
+}
@@ -0,0 +1,66 @@
+package ai.demo.springagent.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "ai.summary")
+public class SummaryConfiguration {
+
+    private boolean enabled = true;
+    private int segmentMessages = 8;               // Messages that must fall out of the history window before a summary pass
+    private int maxSummaryTokens = 512;            // Summaries are trimmed to this many tokens, charged against max-history-tokens
+    private double maxHistoryShare = 0.5;          // Largest fraction of max-history-tokens a summary may take
+    private Duration timeout = Duration.ofSeconds(60); // Per summarisation call
+    private int maxThreads = 1024;                 // Threads whose summary is kept; least recently used are dropped
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getSegmentMessages() {
+        return segmentMessages;
+    }
+
+    public void setSegmentMessages(int segmentMessages) {
+        this.segmentMessages = segmentMessages;
+    }
+
+    public int getMaxSummaryTokens() {
+        return maxSummaryTokens;
+    }
+
+    public void setMaxSummaryTokens(int maxSummaryTokens) {
+        this.maxSummaryTokens = maxSummaryTokens;
+    }
+
+    public double getMaxHistoryShare() {
+        return maxHistoryShare;
+    }
+
+    public void setMaxHistoryShare(double maxHistoryShare) {
+        this.maxHistoryShare = maxHistoryShare;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public void setMaxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
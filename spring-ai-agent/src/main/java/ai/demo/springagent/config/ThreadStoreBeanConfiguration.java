@@ -0,0 +1,76 @@
+package ai.demo.springagent.config;
+
+import ai.demo.springagent.repository.ContentTable;
+import ai.demo.springagent.repository.InMemoryThreadStore;
+import ai.demo.springagent.repository.MessageCompressor;
+import ai.demo.springagent.repository.ThreadArchive;
+import ai.demo.springagent.repository.ThreadStore;
+import ai.demo.springagent.repository.log.LogStructuredThreadStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Selects the {@link ThreadStore} implementation from {@code ai.thread-store.type}.
+ */
+@Configuration
+public class ThreadStoreBeanConfiguration {
+
+    /**
+     * Heap store; the default, and what tests run against. Identical message bodies are
+     * stored once and large ones are kept compressed; with eviction enabled, idle threads
+     * are archived to compressed files and reloaded on access.
+     *
+     * @param config thread store configuration
+     * @param meterRegistry registry for content and eviction metrics
+     * @return the store
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "ai.thread-store.type", havingValue = "memory", matchIfMissing = true)
+    public ThreadStore inMemoryThreadStore(ThreadStoreConfiguration config, MeterRegistry meterRegistry)
+            throws IOException {
+        ThreadStoreConfiguration.Compression compression = config.getCompression();
+        MessageCompressor compressor = MessageCompressor.DISABLED;
+        if (compression.isEnabled()) {
+            compressor = new MessageCompressor(compression.getThresholdChars(), compression.getCacheEntries());
+            compressor.bindTo(meterRegistry);
+        }
+        ContentTable contents = new ContentTable(compressor);
+        contents.bindTo(meterRegistry);
+
+        ThreadStoreConfiguration.Eviction eviction = config.getEviction();
+        if (!eviction.isEnabled()) {
+            return new InMemoryThreadStore(contents);
+        }
+        return new InMemoryThreadStore(contents, new ThreadArchive(Path.of(eviction.getDirectory())),
+                new InMemoryThreadStore.Eviction()
+                        .idleTimeout(eviction.getIdleTimeout())
+                        .maxResidentThreads(eviction.getMaxResidentThreads())
+                        .sweepInterval(eviction.getSweepInterval()),
+                meterRegistry);
+    }
+
+    /**
+     * Embedded log-structured file store that survives restarts.
+     *
+     * @param config thread store configuration
+     * @return the opened store, after replaying existing segments
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "ai.thread-store.type", havingValue = "file")
+    public ThreadStore logStructuredThreadStore(ThreadStoreConfiguration config) throws IOException {
+        LogStructuredThreadStore.Options options = new LogStructuredThreadStore.Options()
+                .shards(config.getShards())
+                .segmentBytes(config.getSegmentBytes())
+                .durability(LogStructuredThreadStore.Durability.valueOf(config.getDurability().toUpperCase(Locale.ROOT)))
+                .flushInterval(config.getFlushInterval())
+                .compactionThreshold(config.getCompactionThreshold())
+                .compactionInterval(config.getCompactionInterval());
+        return new LogStructuredThreadStore(Path.of(config.getDirectory()), options);
+    }
+}
@@ -0,0 +1,174 @@
+package ai.demo.springagent.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "ai.thread-store")
+public class ThreadStoreConfiguration {
+
+    private String type = "memory";                        // memory | file
+    private String directory = "data/threads";
+    private int shards = 8;                                // Segment directories; threads are hashed onto them
+    private long segmentBytes = 64L * 1024 * 1024;         // Active segment rolls over at this size
+    private String durability = "group";                   // group: writes wait for a batched fsync; none: background flush
+    private Duration flushInterval = Duration.ofMillis(100); // Upper bound between background fsyncs
+    private double compactionThreshold = 0.5;              // Rewrite sealed segments whose live ratio drops below this
+    private Duration compactionInterval = Duration.ofMinutes(1);
+    private final Eviction eviction = new Eviction();      // Memory store: archive idle threads to disk
+    private final Compression compression = new Compression(); // Memory store: deflate large message content
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    public long getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    public void setSegmentBytes(long segmentBytes) {
+        this.segmentBytes = segmentBytes;
+    }
+
+    public String getDurability() {
+        return durability;
+    }
+
+    public void setDurability(String durability) {
+        this.durability = durability;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public double getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+    public void setCompactionThreshold(double compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    public Duration getCompactionInterval() {
+        return compactionInterval;
+    }
+
+    public void setCompactionInterval(Duration compactionInterval) {
+        this.compactionInterval = compactionInterval;
+    }
+
+    public Eviction getEviction() {
+        return eviction;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public static class Eviction {
+
+        private boolean enabled = false;
+        private String directory = "data/thread-archive";
+        private Duration idleTimeout = Duration.ofMinutes(30);  // Threads untouched this long are archived
+        private int maxResidentThreads = 10_000;               // LRU cap on threads with messages in heap
+        private Duration sweepInterval = Duration.ofSeconds(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        public int getMaxResidentThreads() {
+            return maxResidentThreads;
+        }
+
+        public void setMaxResidentThreads(int maxResidentThreads) {
+            this.maxResidentThreads = maxResidentThreads;
+        }
+
+        public Duration getSweepInterval() {
+            return sweepInterval;
+        }
+
+        public void setSweepInterval(Duration sweepInterval) {
+            this.sweepInterval = sweepInterval;
+        }
+    }
+
+    public static class Compression {
+
+        private boolean enabled = true;
+        private int thresholdChars = 4096;                     // Content at least this long is stored deflated
+        private int cacheEntries = 256;                        // Decoded contents kept for hot threads
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getThresholdChars() {
+            return thresholdChars;
+        }
+
+        public void setThresholdChars(int thresholdChars) {
+            this.thresholdChars = thresholdChars;
+        }
+
+        public int getCacheEntries() {
+            return cacheEntries;
+        }
+
+        public void setCacheEntries(int cacheEntries) {
+            this.cacheEntries = cacheEntries;
+        }
+    }
+}
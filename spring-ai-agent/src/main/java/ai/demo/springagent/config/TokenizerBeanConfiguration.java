@@ -0,0 +1,59 @@
+package ai.demo.springagent.config;
+
+import ai.demo.springagent.tokenizer.BpeTokenizer;
+import ai.demo.springagent.tokenizer.CachingTokenCounter;
+import ai.demo.springagent.tokenizer.TokenCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Builds the shared {@link TokenCounter} from {@code ai.tokenizer}.
+ */
+@Configuration
+public class TokenizerBeanConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenizerBeanConfiguration.class);
+
+    /**
+     * BPE tokenizer for the configured encoding, behind a per-message count cache. Falls back
+     * to the {@code ai.chars-per-token} heuristic when the encoding is {@code heuristic} or the
+     * vocabulary file is not available.
+     *
+     * @param config tokenizer configuration
+     * @param aiModelConfig source of the heuristic conversion factor
+     * @param resourceLoader resolves the vocabulary location
+     * @return the counter
+     */
+    @Bean
+    public TokenCounter tokenCounter(TokenizerConfiguration config, AiModelConfiguration aiModelConfig,
+                                     ResourceLoader resourceLoader) throws IOException {
+        TokenCounter heuristic = TokenCounter.heuristic(aiModelConfig.getCharsPerToken());
+        if ("heuristic".equalsIgnoreCase(config.getEncoding())) {
+            return heuristic;
+        }
+        BpeTokenizer.Encoding encoding = BpeTokenizer.Encoding.fromName(config.getEncoding());
+        String location = StringUtils.hasText(config.getVocabulary()) ? config.getVocabulary()
+                : "classpath:tokenizers/" + encoding.getEncodingName() + ".tiktoken";
+        Resource vocabulary = resourceLoader.getResource(location);
+        if (!vocabulary.exists()) {
+            logger.warn("Tokenizer vocabulary {} not found; estimating {} characters per token",
+                    location, aiModelConfig.getCharsPerToken());
+            return heuristic;
+        }
+        BpeTokenizer tokenizer;
+        try (InputStream in = vocabulary.getInputStream()) {
+            tokenizer = BpeTokenizer.load(encoding, in);
+        }
+        logger.info("Loaded {} tokenizer with {} tokens from {}",
+                encoding.getEncodingName(), tokenizer.getVocabularySize(), location);
+        return new CachingTokenCounter(tokenizer, config.getCacheEntries(), config.getCacheMinChars());
+    }
+}
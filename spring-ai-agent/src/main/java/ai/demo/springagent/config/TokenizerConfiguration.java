@@ -0,0 +1,46 @@
+package ai.demo.springagent.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "ai.tokenizer")
+public class TokenizerConfiguration {
+
+    private String encoding = "cl100k_base"; // cl100k_base | o200k_base | heuristic (ai.chars-per-token)
+    private String vocabulary;               // tiktoken file; defaults to classpath:tokenizers/<encoding>.tiktoken
+    private int cacheEntries = 4096;         // Per-message token counts kept in the LRU
+    private int cacheMinChars = 64;          // Shorter texts are counted again rather than cached
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public void setEncoding(String encoding) {
+        this.encoding = encoding;
+    }
+
+    public String getVocabulary() {
+        return vocabulary;
+    }
+
+    public void setVocabulary(String vocabulary) {
+        this.vocabulary = vocabulary;
+    }
+
+    public int getCacheEntries() {
+        return cacheEntries;
+    }
+
+    public void setCacheEntries(int cacheEntries) {
+        this.cacheEntries = cacheEntries;
+    }
+
+    public int getCacheMinChars() {
+        return cacheMinChars;
+    }
+
+    public void setCacheMinChars(int cacheMinChars) {
+        this.cacheMinChars = cacheMinChars;
+    }
+}
@@ -0,0 +1,36 @@
+package ai.demo.springagent.config;
+
+import ai.demo.springagent.jfr.PinnedThreadMonitor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Diagnostics for virtual-thread mode ({@code spring.threads.virtual.enabled}). That switch
+ * alone moves Tomcat's request threads and the application task executor, which runs
+ * streamed responses and {@code @Async} methods, onto virtual threads; the agents follow it
+ * through {@link AgentBeanConfiguration}.
+ */
+@Configuration
+public class VirtualThreadBeanConfiguration {
+
+    /**
+     * Reports virtual threads that block while pinned to their carrier.
+     *
+     * @param meterRegistry registry for the pinned-time timers
+     * @param config threshold and logging settings
+     * @return the running monitor
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    @ConditionalOnProperty(name = "ai.virtual-threads.pinning-monitor", havingValue = "true", matchIfMissing = true)
+    public PinnedThreadMonitor pinnedThreadMonitor(MeterRegistry meterRegistry, VirtualThreadConfiguration config) {
+        PinnedThreadMonitor monitor = new PinnedThreadMonitor(meterRegistry, config.getPinnedThreshold(),
+                config.getStackDepth());
+        monitor.start();
+        return monitor;
+    }
+}
@@ -0,0 +1,39 @@
+package ai.demo.springagent.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "ai.virtual-threads")
+public class VirtualThreadConfiguration {
+
+    private boolean pinningMonitor = true;                  // Report virtual threads pinned to their carrier (JFR)
+    private Duration pinnedThreshold = Duration.ofMillis(20); // Shorter pins are not reported
+    private int stackDepth = 16;                             // Frames logged for a newly seen pinning site
+
+    public boolean isPinningMonitor() {
+        return pinningMonitor;
+    }
+
+    public void setPinningMonitor(boolean pinningMonitor) {
+        this.pinningMonitor = pinningMonitor;
+    }
+
+    public Duration getPinnedThreshold() {
+        return pinnedThreshold;
+    }
+
+    public void setPinnedThreshold(Duration pinnedThreshold) {
+        this.pinnedThreshold = pinnedThreshold;
+    }
+
+    public int getStackDepth() {
+        return stackDepth;
+    }
+
+    public void setStackDepth(int stackDepth) {
+        this.stackDepth = stackDepth;
+    }
+}
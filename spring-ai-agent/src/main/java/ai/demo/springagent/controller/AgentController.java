@@ -2,7 +2,9 @@ package ai.demo.springagent.controller;
 
 import ai.demo.springagent.dto.ChatRequest;
 import ai.demo.springagent.dto.ChatResponse;
+import ai.demo.springagent.metrics.RequestTimings;
 import ai.demo.springagent.service.AgentChatService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
@@ -26,24 +28,27 @@ public class AgentController {
     private static final Logger logger = LoggerFactory.getLogger(AgentController.class);
 
     private final AgentChatService agentChatService;
+    private final ObjectMapper objectMapper;
 
-    public AgentController(AgentChatService agentChatService) {
+    public AgentController(AgentChatService agentChatService, ObjectMapper objectMapper) {
         this.agentChatService = agentChatService;
+        this.objectMapper = objectMapper;
     }
 
     /**
      * Process a chat request using the new agent framework.
      *
      * @param request the chat request
-     * @return chat response
+     * @return chat response with a {@code Server-Timing} header
      */
     @PostMapping("/chat")
-    public ResponseEntity<ChatResponse> chatWithAgent(@RequestBody ChatRequest request) {
+    public ResponseEntity<byte[]> chatWithAgent(@RequestBody ChatRequest request) {
         logger.info("Received agent chat request - threadId: {}", request.getThreadId());
 
         try {
-            ChatResponse response = agentChatService.processChat(request);
-            return ResponseEntity.ok(response);
+            RequestTimings timings = new RequestTimings();
+            ChatResponse response = agentChatService.processChat(request, timings);
+            return ServerTimingResponses.json(objectMapper, response, timings);
         } catch (Exception e) {
             logger.error("Agent chat processing failed", e);
             return ResponseEntity.internalServerError().build();
@@ -3,47 +3,57 @@ package ai.demo.springagent.controller;
 import ai.demo.springagent.dto.ChatCompletionChunk;
 import ai.demo.springagent.dto.ChatRequest;
 import ai.demo.springagent.dto.ChatResponse;
+import ai.demo.springagent.metrics.RequestTimings;
 import ai.demo.springagent.service.ChatService;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 @RestController
 @RequestMapping("/v1")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = RequestTimings.HEADER)
 public class ChatController {
 
+    private static final MediaType EVENT_STREAM =
+            new MediaType("text", "event-stream", StandardCharsets.UTF_8);
+
     private final ChatService chatService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public ChatController(ChatService chatService) {
+    public ChatController(ChatService chatService, ObjectMapper objectMapper) {
         this.chatService = chatService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/chat/completions")
     public ResponseEntity<?> chatCompletions(
             @Valid @RequestBody ChatRequest request,
             @RequestHeader(value = "X-LLM-Provider", defaultValue = "openai") String provider,
-            @RequestHeader(value = "X-Use-Memory-Advisor", defaultValue = "false") boolean useMemoryAdvisor) {
+            @RequestHeader(value = "X-Use-Memory-Advisor", defaultValue = "false") boolean useMemoryAdvisor)
+            throws JsonProcessingException {
         
+        RequestTimings timings = new RequestTimings();
         if (request.isStream()) {
-            SseEmitter emitter = new SseEmitter();
-            chatService.streamChatAsync(request, provider, emitter);
-            return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+            timings.begin(RequestTimings.Phase.QUEUE);
+            StreamingResponseBody body = out -> chatService.streamChat(request, provider, out, timings);
+            return ResponseEntity.ok().contentType(EVENT_STREAM).body(body);
         } else {
             ChatResponse response;
             if (useMemoryAdvisor) {
-                response = chatService.processChatWithMemoryAdvisor(request, provider);
+                response = chatService.processChatWithMemoryAdvisor(request, provider, timings);
             } else {
-                response = chatService.processChat(request, provider);
+                response = chatService.processChat(request, provider, timings);
             }
-            return ResponseEntity.ok(response);
+            return ServerTimingResponses.json(objectMapper, response, timings);
         }
     }
 
@@ -52,6 +62,11 @@ public class ChatController {
         return ResponseEntity.ok(chatService.getAvailableModels());
     }
 
+    @GetMapping("/usage/stats")
+    public ResponseEntity<?> getUsageStats() {
+        return ResponseEntity.ok(chatService.getUsageStatistics());
+    }
+
     @GetMapping("/sessions/stats")
     public ResponseEntity<?> getSessionStats() {
         return ResponseEntity.ok(chatService.getSessionStatistics());
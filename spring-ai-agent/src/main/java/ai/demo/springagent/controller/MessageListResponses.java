@@ -0,0 +1,54 @@
+package ai.demo.springagent.controller;
+
+import ai.demo.springagent.repository.EncodedMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Streams an OpenAI-style message list response.
+ *
+ * <p>Messages are copied to the response in their stored JSON encoding, so listing a long
+ * thread neither decodes every message nor buffers the whole body on the heap. The
+ * envelope matches what the message converter produced for the equivalent map.
+ */
+final class MessageListResponses {
+
+    private static final byte[] DATA_START = "{\"object\":\"list\",\"data\":[".getBytes(StandardCharsets.UTF_8);
+
+    private MessageListResponses() {
+    }
+
+    static ResponseEntity<StreamingResponseBody> stream(ObjectMapper objectMapper, List<EncodedMessage> messages,
+                                                        boolean hasMore) {
+        // Resolve the cursor ids up front so the stream only copies bytes
+        String firstId = messages.isEmpty() ? null : messages.get(0).getId();
+        String lastId = messages.isEmpty() ? null : messages.get(messages.size() - 1).getId();
+
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = new BufferedOutputStream(outputStream, 16 * 1024);
+            out.write(DATA_START);
+            for (int i = 0; i < messages.size(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                messages.get(i).writeTo(out, objectMapper);
+            }
+            out.write(("],\"has_more\":" + hasMore + ",\"first_id\":").getBytes(StandardCharsets.UTF_8));
+            out.write(objectMapper.writeValueAsBytes(firstId));
+            out.write(",\"last_id\":".getBytes(StandardCharsets.UTF_8));
+            out.write(objectMapper.writeValueAsBytes(lastId));
+            out.write('}');
+            out.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+}
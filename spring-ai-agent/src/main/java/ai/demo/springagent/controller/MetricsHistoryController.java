@@ -0,0 +1,76 @@
+package ai.demo.springagent.controller;
+
+import ai.demo.springagent.metrics.history.MetricsHistoryRecorder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST controller exposing the on-disk agent metrics history.
+ */
+@RestController
+@RequestMapping("/api/v1/agent/metrics/history")
+@ConditionalOnProperty(name = "ai.metrics-history.enabled", havingValue = "true", matchIfMissing = true)
+public class MetricsHistoryController {
+
+    private static final Duration DEFAULT_RANGE = Duration.ofHours(1);
+    private static final int DEFAULT_POINTS = 300;
+
+    private final MetricsHistoryRecorder recorder;
+
+    public MetricsHistoryController(MetricsHistoryRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Get downsampled metrics history for a time range.
+     *
+     * @param from start of the range (ISO-8601), defaults to one hour before {@code to}
+     * @param to end of the range (ISO-8601), defaults to now
+     * @param step bucket width (ISO-8601 duration), defaults to about 300 points over the range
+     * @param series series names to include, defaults to all
+     * @return the range, step and per-series points
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getHistory(
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) Duration step,
+            @RequestParam(required = false) List<String> series) {
+
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(DEFAULT_RANGE);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        long rangeMillis = end.toEpochMilli() - start.toEpochMilli();
+        long stepMillis = step != null && !step.isNegative() && !step.isZero()
+                ? step.toMillis()
+                : Math.max(1000, rangeMillis / DEFAULT_POINTS);
+
+        return ResponseEntity.ok(Map.of(
+            "from", start.toString(),
+            "to", end.toString(),
+            "stepMillis", stepMillis,
+            "series", recorder.query(start.toEpochMilli(), end.toEpochMilli(), stepMillis, series)
+        ));
+    }
+
+    /**
+     * Get storage statistics for the metrics history.
+     *
+     * @return segment count, record count and disk usage
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStatistics() {
+        return ResponseEntity.ok(recorder.getStatistics());
+    }
+}
@@ -0,0 +1,33 @@
+package ai.demo.springagent.controller;
+
+import ai.demo.springagent.metrics.RequestTimings;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Builds JSON responses carrying a {@code Server-Timing} header.
+ *
+ * <p>The body is serialized here rather than by the message converter so that the
+ * serialization phase can be measured and still make it into the header.
+ */
+final class ServerTimingResponses {
+
+    private ServerTimingResponses() {
+    }
+
+    static ResponseEntity<byte[]> json(ObjectMapper objectMapper, Object body, RequestTimings timings)
+            throws JsonProcessingException {
+        long serializeStart = System.nanoTime();
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        timings.record(RequestTimings.Phase.SERIALIZATION, serializeStart);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(RequestTimings.HEADER, timings.toHeaderValue())
+                // Lets browsers on other origins expose the timings in dev tools
+                .header("Timing-Allow-Origin", "*")
+                .body(json);
+    }
+}
@@ -2,13 +2,22 @@ package ai.demo.springagent.controller;
 
 import ai.demo.springagent.dto.ThreadRequest;
 import ai.demo.springagent.dto.ThreadResponse;
+import ai.demo.springagent.dto.ThreadSearchResponse;
 import ai.demo.springagent.model.ThreadMessage;
+import ai.demo.springagent.repository.EncodedMessage;
+import ai.demo.springagent.repository.Page;
 import ai.demo.springagent.service.ThreadService;
+import ai.demo.springagent.service.ThreadTransferService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -18,10 +27,19 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class ThreadController {
     
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    
     private final ThreadService threadService;
+    private final ThreadTransferService threadTransferService;
+    private final ObjectMapper objectMapper;
     
-    public ThreadController(ThreadService threadService) {
+    public ThreadController(ThreadService threadService, ThreadTransferService threadTransferService,
+                            ObjectMapper objectMapper) {
         this.threadService = threadService;
+        this.threadTransferService = threadTransferService;
+        this.objectMapper = objectMapper;
     }
     
     @PostMapping("/threads")
@@ -30,18 +48,78 @@ public class ThreadController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
     
+    /**
+     * List threads by activity. Without {@code limit} every thread is returned; with it the
+     * {@code after}/{@code before} thread-id cursors page through the activity index.
+     */
     @GetMapping("/threads")
-    public ResponseEntity<Map<String, Object>> getAllThreads() {
-        List<ThreadResponse> threads = threadService.getAllThreads();
+    public ResponseEntity<Map<String, Object>> getAllThreads(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "desc") String order) {
+        if (!"asc".equals(order) && !"desc".equals(order)) {
+            throw new IllegalArgumentException("order must be 'asc' or 'desc'");
+        }
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        
+        Page<ThreadResponse> page = threadService.getThreads(limit != null ? limit : Integer.MAX_VALUE,
+                after, before, "desc".equals(order));
+        List<ThreadResponse> threads = page.getItems();
         Map<String, Object> response = new HashMap<>();
         response.put("object", "list");
         response.put("data", threads);
-        response.put("has_more", false);
+        response.put("has_more", page.hasMore());
         response.put("first_id", threads.isEmpty() ? null : threads.get(0).getId());
         response.put("last_id", threads.isEmpty() ? null : threads.get(threads.size() - 1).getId());
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Full-text search over message content. Returns the best matching messages and the
+     * threads they belong to, ranked by relevance.
+     */
+    @GetMapping("/threads/search")
+    public ResponseEntity<ThreadSearchResponse> searchThreads(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (q.isBlank()) {
+            throw new IllegalArgumentException("q must not be blank");
+        }
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_SEARCH_RESULTS);
+        }
+        return ResponseEntity.ok(threadService.search(q, limit));
+    }
+    
+    /**
+     * Stream every thread and its messages as NDJSON, one record per line.
+     */
+    @GetMapping("/threads/export")
+    public ResponseEntity<StreamingResponseBody> exportThreads() {
+        StreamingResponseBody body = threadTransferService::exportThreads;
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header("Content-Disposition", "attachment; filename=\"threads.ndjson\"")
+                .body(body);
+    }
+    
+    /**
+     * Import NDJSON produced by {@link #exportThreads()}; threads that already exist are skipped.
+     */
+    @PostMapping("/threads/import")
+    public ResponseEntity<Map<String, Object>> importThreads(InputStream body) throws IOException {
+        ThreadTransferService.ImportResult result = threadTransferService.importThreads(body);
+        Map<String, Object> response = new HashMap<>();
+        response.put("object", "thread.import");
+        response.put("threads_imported", result.getThreadsImported());
+        response.put("threads_skipped", result.getThreadsSkipped());
+        response.put("messages_imported", result.getMessagesImported());
+        return ResponseEntity.ok(response);
+    }
+    
     @GetMapping("/threads/{threadId}")
     public ResponseEntity<ThreadResponse> getThread(@PathVariable String threadId) {
         return threadService.getThread(threadId)
@@ -74,7 +152,7 @@ public class ThreadController {
     
     @PostMapping("/threads/{threadId}/messages")
     public ResponseEntity<ThreadMessage> addMessage(@PathVariable String threadId, @Valid @RequestBody Map<String, String> request) {
-        if (!threadService.getThread(threadId).isPresent()) {
+        if (!threadService.threadExists(threadId)) {
             return ResponseEntity.notFound().build();
         }
         
@@ -85,26 +163,45 @@ public class ThreadController {
             return ResponseEntity.badRequest().build();
         }
         
-        threadService.addMessageToThread(threadId, role, content);
-        List<ThreadMessage> messages = threadService.getThreadMessages(threadId);
-        ThreadMessage lastMessage = messages.get(messages.size() - 1);
+        ThreadMessage message = threadService.addMessageToThread(threadId, role, content);
         
-        return ResponseEntity.status(HttpStatus.CREATED).body(lastMessage);
+        return ResponseEntity.status(HttpStatus.CREATED).body(message);
     }
     
+    /**
+     * List a thread's messages. Without {@code limit} the whole thread is returned oldest
+     * first (the original contract); with {@code limit} the {@code after}/{@code before}
+     * message-id cursors page through it in the requested {@code order}. Messages are
+     * streamed in their stored encoding rather than decoded and re-serialized.
+     */
     @GetMapping("/threads/{threadId}/messages")
-    public ResponseEntity<Map<String, Object>> getThreadMessages(@PathVariable String threadId) {
-        if (!threadService.getThread(threadId).isPresent()) {
+    public ResponseEntity<StreamingResponseBody> getThreadMessages(
+            @PathVariable String threadId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "asc") String order) {
+        if (!threadService.threadExists(threadId)) {
             return ResponseEntity.notFound().build();
         }
+        if (!"asc".equals(order) && !"desc".equals(order)) {
+            throw new IllegalArgumentException("order must be 'asc' or 'desc'");
+        }
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
         
-        List<ThreadMessage> messages = threadService.getThreadMessages(threadId);
-        Map<String, Object> response = new HashMap<>();
-        response.put("object", "list");
-        response.put("data", messages);
-        response.put("has_more", false);
-        response.put("first_id", messages.isEmpty() ? null : messages.get(0).getId());
-        response.put("last_id", messages.isEmpty() ? null : messages.get(messages.size() - 1).getId());
-        return ResponseEntity.ok(response);
+        List<EncodedMessage> messages;
+        boolean hasMore;
+        if (limit == null && after == null && before == null && "asc".equals(order)) {
+            messages = threadService.getEncodedThreadMessages(threadId);
+            hasMore = false;
+        } else {
+            Page<EncodedMessage> page = threadService.getEncodedThreadMessagesPage(threadId,
+                    limit != null ? limit : MAX_PAGE_SIZE, after, before, "asc".equals(order));
+            messages = page.getItems();
+            hasMore = page.hasMore();
+        }
+        return MessageListResponses.stream(objectMapper, messages, hasMore);
     }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package ai.demo.springagent.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.time.Instant;
 import java.util.List;
 
@@ -11,6 +13,10 @@ public class ChatCompletionChunk {
     private String model;
     private List<ChunkChoice> choices;
 
+    // Only present on the final chunk, mirroring OpenAI's stream_options.include_usage
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ChatResponse.Usage usage;
+
     public static class ChunkChoice {
         private int index;
         private Delta delta;
@@ -67,4 +73,6 @@ public class ChatCompletionChunk {
     public void setModel(String model) { this.model = model; }
     public List<ChunkChoice> getChoices() { return choices; }
     public void setChoices(List<ChunkChoice> choices) { this.choices = choices; }
+    public ChatResponse.Usage getUsage() { return usage; }
+    public void setUsage(ChatResponse.Usage usage) { this.usage = usage; }
 }
\ No newline at end of file
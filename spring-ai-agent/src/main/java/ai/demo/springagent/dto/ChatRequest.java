@@ -22,6 +22,8 @@ public class ChatRequest {
     @Min(1)
     private Integer maxTokens;
     private boolean stream = false;
+    @Valid
+    private StreamOptions streamOptions; // Per-request delta coalescing; server defaults when absent
 
     public static class Message {
         @NotBlank
@@ -44,6 +46,27 @@ public class ChatRequest {
         public void setContent(String content) { this.content = content; }
     }
 
+    public static class StreamOptions {
+        @Min(0)
+        @Max(1000)
+        private Integer coalesceMs; // 0 sends every delta as its own frame
+
+        @Min(0)
+        private Integer coalesceBytes;
+
+        public StreamOptions() {}
+
+        public StreamOptions(Integer coalesceMs, Integer coalesceBytes) {
+            this.coalesceMs = coalesceMs;
+            this.coalesceBytes = coalesceBytes;
+        }
+
+        public Integer getCoalesceMs() { return coalesceMs; }
+        public void setCoalesceMs(Integer coalesceMs) { this.coalesceMs = coalesceMs; }
+        public Integer getCoalesceBytes() { return coalesceBytes; }
+        public void setCoalesceBytes(Integer coalesceBytes) { this.coalesceBytes = coalesceBytes; }
+    }
+
     public String getModel() { return model; }
     public void setModel(String model) { this.model = model; }
     public List<Message> getMessages() { return messages; }
@@ -58,4 +81,6 @@ public class ChatRequest {
     public void setMaxTokens(Integer maxTokens) { this.maxTokens = maxTokens; }
     public boolean isStream() { return stream; }
     public void setStream(boolean stream) { this.stream = stream; }
+    public StreamOptions getStreamOptions() { return streamOptions; }
+    public void setStreamOptions(StreamOptions streamOptions) { this.streamOptions = streamOptions; }
 }
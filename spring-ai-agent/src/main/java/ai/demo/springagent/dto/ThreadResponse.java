@@ -1,5 +1,6 @@
 package ai.demo.springagent.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.time.Instant;
 
@@ -26,6 +27,10 @@ public class ThreadResponse {
     @JsonProperty("last_activity")
     private long lastActivity;
     
+    @JsonProperty("last_message_preview")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String lastMessagePreview;
+    
     public ThreadResponse() {}
     
     public ThreadResponse(String id, String title, Object metadata) {
@@ -92,4 +97,12 @@ public class ThreadResponse {
     public void setLastActivity(long lastActivity) {
         this.lastActivity = lastActivity;
     }
-}
\ No newline at end of file
+    
+    public String getLastMessagePreview() {
+        return lastMessagePreview;
+    }
+    
+    public void setLastMessagePreview(String lastMessagePreview) {
+        this.lastMessagePreview = lastMessagePreview;
+    }
+}
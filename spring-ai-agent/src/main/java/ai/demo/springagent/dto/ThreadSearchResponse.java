@@ -0,0 +1,113 @@
+package ai.demo.springagent.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public class ThreadSearchResponse {
+
+    @JsonProperty("object")
+    private String object = "thread.search_result";
+
+    @JsonProperty("query")
+    private String query;
+
+    @JsonProperty("threads")
+    private List<ThreadHit> threads;
+
+    @JsonProperty("messages")
+    private List<MessageHit> messages;
+
+    public ThreadSearchResponse() {}
+
+    public ThreadSearchResponse(String query, List<ThreadHit> threads, List<MessageHit> messages) {
+        this.query = query;
+        this.threads = threads;
+        this.messages = messages;
+    }
+
+    public String getObject() { return object; }
+    public void setObject(String object) { this.object = object; }
+    public String getQuery() { return query; }
+    public void setQuery(String query) { this.query = query; }
+    public List<ThreadHit> getThreads() { return threads; }
+    public void setThreads(List<ThreadHit> threads) { this.threads = threads; }
+    public List<MessageHit> getMessages() { return messages; }
+    public void setMessages(List<MessageHit> messages) { this.messages = messages; }
+
+    public static class ThreadHit {
+        @JsonProperty("thread_id")
+        private String threadId;
+
+        @JsonProperty("title")
+        private String title;
+
+        @JsonProperty("score")
+        private float score;
+
+        @JsonProperty("hits")
+        private int hits;
+
+        public ThreadHit() {}
+
+        public ThreadHit(String threadId, String title, float score, int hits) {
+            this.threadId = threadId;
+            this.title = title;
+            this.score = score;
+            this.hits = hits;
+        }
+
+        public String getThreadId() { return threadId; }
+        public void setThreadId(String threadId) { this.threadId = threadId; }
+        public String getTitle() { return title; }
+        public void setTitle(String title) { this.title = title; }
+        public float getScore() { return score; }
+        public void setScore(float score) { this.score = score; }
+        public int getHits() { return hits; }
+        public void setHits(int hits) { this.hits = hits; }
+    }
+
+    public static class MessageHit {
+        @JsonProperty("id")
+        private String id;
+
+        @JsonProperty("thread_id")
+        private String threadId;
+
+        @JsonProperty("role")
+        private String role;
+
+        @JsonProperty("created_at")
+        private long createdAt;
+
+        @JsonProperty("score")
+        private float score;
+
+        @JsonProperty("snippet")
+        private String snippet;
+
+        public MessageHit() {}
+
+        public MessageHit(String id, String threadId, String role, long createdAt, float score, String snippet) {
+            this.id = id;
+            this.threadId = threadId;
+            this.role = role;
+            this.createdAt = createdAt;
+            this.score = score;
+            this.snippet = snippet;
+        }
+
+        public String getId() { return id; }
+        public void setId(String id) { this.id = id; }
+        public String getThreadId() { return threadId; }
+        public void setThreadId(String threadId) { this.threadId = threadId; }
+        public String getRole() { return role; }
+        public void setRole(String role) { this.role = role; }
+        public long getCreatedAt() { return createdAt; }
+        public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+        public float getScore() { return score; }
+        public void setScore(float score) { this.score = score; }
+        public String getSnippet() { return snippet; }
+        public void setSnippet(String snippet) { this.snippet = snippet; }
+    }
+}
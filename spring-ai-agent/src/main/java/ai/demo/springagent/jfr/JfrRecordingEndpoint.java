@@ -0,0 +1,212 @@
+package ai.demo.springagent.jfr;
+
+import ai.demo.springagent.config.JfrConfiguration;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Actuator endpoint for on-demand, bounded JFR recordings.
+ *
+ * <p>{@code POST /actuator/jfr} starts a recording that is always capped by duration, max age
+ * and max size so it cannot grow without limit in production; {@code GET /actuator/jfr/{id}}
+ * stops it and downloads the {@code .jfr} file; {@code DELETE /actuator/jfr/{id}} discards it.
+ *
+ * <p>At most {@code ai.jfr.max-running} recordings run and {@code ai.jfr.max-recordings} are
+ * held at once; further starts get 429. Finished recordings are closed, freeing their disk
+ * space, once {@code ai.jfr.retention} has passed since they stopped. The endpoint is not
+ * exposed over HTTP by default: it can record the whole process, so only expose it behind
+ * authentication.
+ */
+@Component
+@WebEndpoint(id = "jfr")
+public class JfrRecordingEndpoint implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(JfrRecordingEndpoint.class);
+
+    static final Duration DEFAULT_DURATION = Duration.ofMinutes(1);
+    static final Duration MAX_DURATION = Duration.ofMinutes(30);
+    static final long DEFAULT_MAX_SIZE_MB = 64;
+    static final long MAX_SIZE_MB = 512;
+
+    private final Map<Long, Recording> recordings = new ConcurrentHashMap<>();
+    private final int maxRunning;
+    private final int maxRecordings;
+    private final Duration retention;
+    private final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jfr-recording-reaper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public JfrRecordingEndpoint(JfrConfiguration config) {
+        this.maxRunning = Math.max(1, config.getMaxRunning());
+        this.maxRecordings = Math.max(this.maxRunning, config.getMaxRecordings());
+        this.retention = config.getRetention();
+        reaper.scheduleWithFixedDelay(this::closeExpired, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * List recordings started through this endpoint.
+     */
+    @ReadOperation
+    public Map<String, Object> recordings() {
+        Map<Long, Object> result = new LinkedHashMap<>();
+        recordings.values().forEach(recording -> result.put(recording.getId(), describe(recording)));
+        return Map.of("recordings", result);
+    }
+
+    /**
+     * Start a bounded recording.
+     *
+     * @param durationSeconds recording length, capped at {@link #MAX_DURATION}
+     * @param maxSizeMb on-disk size cap, capped at {@link #MAX_SIZE_MB}
+     * @param settings JFR settings profile, {@code default} (low overhead) or {@code profile}
+     */
+    @WriteOperation
+    public synchronized WebEndpointResponse<Map<String, Object>> start(@Nullable Long durationSeconds,
+                                                                     @Nullable Long maxSizeMb,
+                                                                     @Nullable String settings) throws Exception {
+        closeExpired();
+        long running = recordings.values().stream()
+                .filter(recording -> recording.getState() == RecordingState.RUNNING
+                        || recording.getState() == RecordingState.DELAYED)
+                .count();
+        if (running >= maxRunning || recordings.size() >= maxRecordings) {
+            return new WebEndpointResponse<>(Map.of("error", "Too many recordings: " + running + " of "
+                    + maxRunning + " running, " + recordings.size() + " of " + maxRecordings
+                    + " held; download or delete one first"), WebEndpointResponse.STATUS_TOO_MANY_REQUESTS);
+        }
+        Duration duration = durationSeconds != null && durationSeconds > 0
+                ? Duration.ofSeconds(durationSeconds)
+                : DEFAULT_DURATION;
+        if (duration.compareTo(MAX_DURATION) > 0) {
+            duration = MAX_DURATION;
+        }
+        long sizeMb = maxSizeMb != null && maxSizeMb > 0 ? Math.min(maxSizeMb, MAX_SIZE_MB) : DEFAULT_MAX_SIZE_MB;
+        String configName = "profile".equals(settings) ? "profile" : "default";
+
+        Recording recording = new Recording(Configuration.getConfiguration(configName));
+        recording.setName("spring-ai-agent-" + System.currentTimeMillis());
+        recording.setToDisk(true);
+        recording.setDuration(duration);
+        recording.setMaxAge(duration);
+        recording.setMaxSize(sizeMb * 1024 * 1024);
+        // Keep our own events regardless of the selected profile
+        recording.enable("ai.demo.agent.*");
+        recording.enable("ai.demo.springagent.*");
+        recording.start();
+        recordings.put(recording.getId(), recording);
+
+        logger.info("Started JFR recording {} ({}, duration {}, max {} MB)",
+                recording.getId(), configName, duration, sizeMb);
+        return new WebEndpointResponse<>(describe(recording), WebEndpointResponse.STATUS_OK);
+    }
+
+    /**
+     * Stop the recording (if still running) and stream it as a {@code .jfr} file.
+     */
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> download(@Selector long id) throws IOException {
+        Recording recording = recordings.get(id);
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        Path file = Files.createTempFile("recording-" + id + "-", ".jfr");
+        recording.dump(file);
+
+        InputStream stream = new FilterInputStream(Files.newInputStream(file)) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    Files.deleteIfExists(file);
+                }
+            }
+        };
+        return new WebEndpointResponse<>(new InputStreamResource(stream), WebEndpointResponse.STATUS_OK);
+    }
+
+    /**
+     * Stop and discard a recording.
+     */
+    @DeleteOperation
+    public Map<String, Object> discard(@Selector long id) {
+        Recording recording = recordings.remove(id);
+        if (recording == null) {
+            return Map.of("id", id, "status", "NOT_FOUND");
+        }
+        recording.close();
+        logger.info("Discarded JFR recording {}", id);
+        return Map.of("id", id, "status", "CLOSED");
+    }
+
+    /**
+     * Close recordings that stopped more than the retention period ago.
+     */
+    void closeExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        recordings.values().removeIf(recording -> {
+            Instant stopped = recording.getStopTime();
+            boolean finished = recording.getState() == RecordingState.STOPPED
+                    || recording.getState() == RecordingState.CLOSED;
+            if (!finished || stopped == null || stopped.isAfter(cutoff)) {
+                return false;
+            }
+            recording.close();
+            logger.info("Closed JFR recording {} after its {} retention period", recording.getId(), retention);
+            return true;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        reaper.shutdownNow();
+        recordings.values().forEach(Recording::close);
+        recordings.clear();
+    }
+
+    private Map<String, Object> describe(Recording recording) {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("id", recording.getId());
+        info.put("name", recording.getName());
+        info.put("state", recording.getState().name());
+        info.put("duration", String.valueOf(recording.getDuration()));
+        info.put("maxSizeBytes", recording.getMaxSize());
+        if (recording.getStartTime() != null) {
+            info.put("startTime", recording.getStartTime().toString());
+        }
+        return info;
+    }
+}
@@ -0,0 +1,122 @@
+package ai.demo.springagent.jfr;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streams {@code jdk.VirtualThreadPinned} JFR events and reports where virtual threads block
+ * while pinned to their carrier, typically inside a {@code synchronized} block or method.
+ * A pinned thread holds one of the few carrier threads for the whole wait, so a pin on the
+ * request path caps concurrency just like a platform thread pool would.
+ *
+ * <p>Each event is attributed to its first application frame (the pinning site). The first
+ * pin at a site is logged with its stack; every pin is timed into
+ * {@code jvm.threads.virtual.pinned}, tagged with the site.
+ */
+public class PinnedThreadMonitor implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+    static final String EVENT = "jdk.VirtualThreadPinned";
+
+    private final MeterRegistry registry;
+    private final int stackDepth;
+    private final Map<String, Timer> sites = new ConcurrentHashMap<>();
+    private final RecordingStream stream;
+
+    /**
+     * @param threshold shortest pin that is reported
+     * @param stackDepth frames logged for a newly seen site
+     */
+    public PinnedThreadMonitor(MeterRegistry registry, Duration threshold, int stackDepth) {
+        this.registry = registry;
+        this.stackDepth = Math.max(1, stackDepth);
+        this.stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT, this::onPinned);
+    }
+
+    public void start() {
+        stream.startAsync();
+    }
+
+    /**
+     * @return pins reported so far, by site
+     */
+    public Map<String, Long> getSites() {
+        Map<String, Long> counts = new TreeMap<>();
+        sites.forEach((site, timer) -> counts.put(site, timer.count()));
+        return counts;
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+
+    void onPinned(RecordedEvent event) {
+        List<RecordedFrame> frames = event.getStackTrace() != null
+                ? event.getStackTrace().getFrames() : List.of();
+        String site = site(frames);
+        Timer timer = sites.computeIfAbsent(site, s -> {
+            logger.warn("Virtual thread pinned for {} ms at {}{}", event.getDuration().toMillis(), s,
+                    describe(event.getStackTrace()));
+            return Timer.builder("jvm.threads.virtual.pinned")
+                    .description("Time virtual threads spent blocked while pinned to their carrier")
+                    .tag("site", s)
+                    .register(registry);
+        });
+        timer.record(event.getDuration());
+    }
+
+    /**
+     * @return the first frame outside the JDK, or the top frame if there is none
+     */
+    static String site(List<RecordedFrame> frames) {
+        RecordedFrame top = null;
+        for (RecordedFrame frame : frames) {
+            if (!frame.isJavaFrame()) {
+                continue;
+            }
+            if (top == null) {
+                top = frame;
+            }
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return format(frame);
+            }
+        }
+        return top != null ? format(top) : "unknown";
+    }
+
+    private String describe(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return " (no stack trace)";
+        }
+        StringBuilder text = new StringBuilder();
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        for (int i = 0; i < Math.min(stackDepth, frames.size()); i++) {
+            text.append("\n\tat ").append(format(frames.get(i)));
+        }
+        if (frames.size() > stackDepth || stackTrace.isTruncated()) {
+            text.append("\n\t...");
+        }
+        return text.toString();
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber();
+    }
+}
@@ -0,0 +1,56 @@
+package ai.demo.springagent.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Duration event for a single upstream LLM provider call (one attempt; retries emit
+ * their own events). For streams the event spans subscription to the last upstream chunk.
+ */
+@Name("ai.demo.springagent.ProviderCall")
+@Label("LLM Provider Call")
+@Description("A call to the upstream LLM provider")
+@Category({"Spring AI Agent", "Provider"})
+@StackTrace(false)
+public class ProviderCallEvent extends Event {
+
+    @Label("Provider")
+    public String provider;
+
+    @Label("Model")
+    public String model;
+
+    @Label("Streaming")
+    public boolean streaming;
+
+    @Label("Time To First Token")
+    @Description("Time until the first content arrived from the provider")
+    @Timespan(Timespan.NANOSECONDS)
+    public long timeToFirstToken;
+
+    @Label("Prompt Tokens")
+    public long promptTokens;
+
+    @Label("Completion Tokens")
+    public long completionTokens;
+
+    @Label("Chunks")
+    public int chunks;
+
+    @Label("Outcome")
+    public String outcome;
+
+    public ProviderCallEvent() {
+    }
+
+    public ProviderCallEvent(String provider, String model, boolean streaming) {
+        this.provider = provider;
+        this.model = model;
+        this.streaming = streaming;
+    }
+}
@@ -0,0 +1,142 @@
+package ai.demo.springagent.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cheap per-request phase timer, rendered as a {@code Server-Timing} header (or a trailing
+ * SSE event for streams) so slow requests can be diagnosed from browser dev tools.
+ *
+ * <p>One instance is created per request and handed through the services. Phases may be
+ * recorded from different threads (servlet, async executor, agent worker, Reactor), so
+ * durations are kept in an {@link AtomicLongArray}; there is no other allocation per phase.
+ */
+public final class RequestTimings {
+
+    public static final String HEADER = "Server-Timing";
+
+    /**
+     * Request phases reported in the header, in display order.
+     */
+    public enum Phase {
+        QUEUE("queue", "Queue wait"),
+        HISTORY("history", "Thread history load"),
+        TRUNCATION("truncate", "Token budget truncation"),
+        PROMPT("prompt", "Prompt build"),
+        ENHANCE("enhance", "Prompt enhancement"),
+        PROVIDER("provider", "Provider call"),
+        SERIALIZATION("serialize", "Serialization");
+
+        private final String metricName;
+        private final String description;
+
+        Phase(String metricName, String description) {
+            this.metricName = metricName;
+            this.description = description;
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final long createdAt = System.nanoTime();
+    private final AtomicLongArray durations = new AtomicLongArray(PHASES.length);
+    private final AtomicLongArray startedAt = new AtomicLongArray(PHASES.length);
+
+    /**
+     * Mark the start of a phase that ends on another call site (e.g. queue wait).
+     */
+    public void begin(Phase phase) {
+        startedAt.set(phase.ordinal(), System.nanoTime());
+    }
+
+    /**
+     * End a phase started with {@link #begin(Phase)}. Ignored if it was never begun.
+     */
+    public void end(Phase phase) {
+        long start = startedAt.getAndSet(phase.ordinal(), 0);
+        if (start != 0) {
+            add(phase, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Add the time elapsed since {@code startNanos} to a phase.
+     *
+     * @return the current {@link System#nanoTime()}, convenient for timing the next phase
+     */
+    public long record(Phase phase, long startNanos) {
+        long now = System.nanoTime();
+        add(phase, now - startNanos);
+        return now;
+    }
+
+    /**
+     * Add a duration to a phase. Phases may be recorded more than once (e.g. per stream chunk).
+     */
+    public void add(Phase phase, long nanos) {
+        if (nanos > 0) {
+            durations.addAndGet(phase.ordinal(), nanos);
+        }
+    }
+
+    public long getNanos(Phase phase) {
+        return durations.get(phase.ordinal());
+    }
+
+    public long getTotalNanos() {
+        return System.nanoTime() - createdAt;
+    }
+
+    /**
+     * Render recorded phases plus the total as a {@code Server-Timing} header value, e.g.
+     * {@code history;desc="Thread history load";dur=0.42, provider;desc="Provider call";dur=812.3, total;dur=815.1}.
+     */
+    public String toHeaderValue() {
+        StringBuilder header = new StringBuilder(192);
+        for (Phase phase : PHASES) {
+            long nanos = durations.get(phase.ordinal());
+            if (nanos > 0) {
+                header.append(phase.metricName)
+                        .append(";desc=\"").append(phase.description).append("\";dur=");
+                appendMillis(header, nanos);
+                header.append(", ");
+            }
+        }
+        header.append("total;dur=");
+        appendMillis(header, getTotalNanos());
+        return header.toString();
+    }
+
+    /**
+     * Recorded phases plus the total in milliseconds, for the trailing SSE event of streams.
+     */
+    public Map<String, Double> toMillis() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Phase phase : PHASES) {
+            long nanos = durations.get(phase.ordinal());
+            if (nanos > 0) {
+                result.put(phase.metricName, toMillis(nanos));
+            }
+        }
+        result.put("total", toMillis(getTotalNanos()));
+        return result;
+    }
+
+    private static void appendMillis(StringBuilder sb, long nanos) {
+        sb.append(String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0));
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+}
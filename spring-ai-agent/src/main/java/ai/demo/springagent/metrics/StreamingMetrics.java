@@ -0,0 +1,183 @@
+package ai.demo.springagent.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms for streaming chat completions, tagged by provider and model.
+ *
+ * <p>Each stream is observed twice: on the {@link #UPSTREAM} side (chunks arriving from
+ * the LLM provider) and on the {@link #DOWNSTREAM} side (frames written to the client).
+ * Comparing the two separates provider latency from our own processing and network
+ * back-pressure. Meters are exposed on {@code /actuator/metrics}:
+ * <ul>
+ *   <li>{@code llm.stream.ttft} - time to first token</li>
+ *   <li>{@code llm.stream.inter.token} - gap between consecutive tokens</li>
+ *   <li>{@code llm.stream.tokens.per.second} - generation throughput after the first token</li>
+ *   <li>{@code llm.stream.send} - time spent in a single client send</li>
+ *   <li>{@code llm.stream.cancelled} - streams the client abandoned before {@code [DONE]}</li>
+ * </ul>
+ */
+@Component
+public class StreamingMetrics {
+
+    public static final String UPSTREAM = "upstream";
+    public static final String DOWNSTREAM = "downstream";
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.95, 0.99};
+
+    private final MeterRegistry registry;
+    private final Map<String, StreamMeters> meters = new ConcurrentHashMap<>();
+
+    public StreamingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Begin observing a stream. The clock for time-to-first-token starts now.
+     *
+     * @param side {@link #UPSTREAM} or {@link #DOWNSTREAM}
+     * @param provider provider name
+     * @param model model name
+     * @return tracker to be fed with tokens from a single subscriber
+     */
+    public StreamTracker start(String side, String provider, String model) {
+        return new StreamTracker(metersFor(side, provider, model), System.nanoTime());
+    }
+
+    /**
+     * Record how long a single write to the client took.
+     */
+    public void recordSend(String provider, String model, long nanos) {
+        metersFor(DOWNSTREAM, provider, model).send.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Count a stream the client abandoned before it finished.
+     */
+    public void recordCancelled(String provider, String model) {
+        metersFor(DOWNSTREAM, provider, model).cancelled.increment();
+    }
+
+    private StreamMeters metersFor(String side, String provider, String model) {
+        String key = side + '|' + provider + '|' + model;
+        return meters.computeIfAbsent(key, k -> new StreamMeters(registry,
+                Tags.of("side", side, "provider", nonNull(provider), "model", nonNull(model))));
+    }
+
+    private static String nonNull(String value) {
+        return value != null ? value : "unknown";
+    }
+
+    private static final class StreamMeters {
+        final Timer timeToFirstToken;
+        final Timer interToken;
+        final DistributionSummary tokensPerSecond;
+        final Timer send;
+        final Counter cancelled;
+
+        StreamMeters(MeterRegistry registry, Tags tags) {
+            this.timeToFirstToken = Timer.builder("llm.stream.ttft")
+                    .description("Time from request start to the first streamed token")
+                    .tags(tags)
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(10))
+                    .maximumExpectedValue(Duration.ofSeconds(60))
+                    .register(registry);
+            this.interToken = Timer.builder("llm.stream.inter.token")
+                    .description("Gap between consecutive streamed tokens")
+                    .tags(tags)
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry);
+            this.tokensPerSecond = DistributionSummary.builder("llm.stream.tokens.per.second")
+                    .description("Output tokens per second after the first token")
+                    .baseUnit("tokens")
+                    .tags(tags)
+                    .publishPercentiles(PERCENTILES)
+                    .register(registry);
+            this.send = Timer.builder("llm.stream.send")
+                    .description("Time spent writing a single frame to the client")
+                    .tags(tags)
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(10_000))
+                    .maximumExpectedValue(Duration.ofSeconds(5))
+                    .register(registry);
+            this.cancelled = Counter.builder("llm.stream.cancelled")
+                    .description("Streams whose client disconnected before the end, cancelling the provider")
+                    .tags(tags)
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Per-stream state. Not thread-safe; Reactor delivers signals serially to one subscriber.
+     */
+    public static final class StreamTracker {
+
+        private final StreamMeters meters;
+        private final long startNanos;
+        private long firstTokenNanos;
+        private long lastTokenNanos;
+        private long tokens;
+        private boolean completed;
+
+        private StreamTracker(StreamMeters meters, long startNanos) {
+            this.meters = meters;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * Record the arrival of a token (or content chunk).
+         */
+        public void onToken() {
+            long now = System.nanoTime();
+            if (tokens == 0) {
+                firstTokenNanos = now;
+                meters.timeToFirstToken.record(now - startNanos, TimeUnit.NANOSECONDS);
+            } else {
+                meters.interToken.record(now - lastTokenNanos, TimeUnit.NANOSECONDS);
+            }
+            lastTokenNanos = now;
+            tokens++;
+        }
+
+        /**
+         * Record throughput for the finished stream. Safe to call more than once.
+         *
+         * @param reportedTokens provider-reported output tokens, or a non-positive value to
+         *                       fall back to the number of observed chunks
+         */
+        public void complete(long reportedTokens) {
+            if (completed || tokens == 0) {
+                return;
+            }
+            completed = true;
+            long outputTokens = reportedTokens > 0 ? reportedTokens : tokens;
+            long generationNanos = lastTokenNanos - firstTokenNanos;
+            if (generationNanos <= 0) {
+                generationNanos = lastTokenNanos - startNanos;
+            }
+            if (generationNanos > 0) {
+                meters.tokensPerSecond.record(outputTokens * 1_000_000_000.0 / generationNanos);
+            }
+        }
+
+        public long getTokens() {
+            return tokens;
+        }
+    }
+}
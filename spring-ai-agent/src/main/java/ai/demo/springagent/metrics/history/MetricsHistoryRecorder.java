@@ -0,0 +1,106 @@
+package ai.demo.springagent.metrics.history;
+
+import ai.demo.agent.base.Agent;
+import ai.demo.agent.metrics.AgentMetrics;
+import ai.demo.agent.metrics.ChatAgentMetrics;
+import ai.demo.agent.metrics.TaskAgentMetrics;
+import ai.demo.springagent.config.MetricsHistoryConfiguration;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically snapshots the metrics of every agent bean (and the shared chat token
+ * metrics) into the {@link MetricsHistoryStore}, so performance history survives
+ * {@code reset()} and restarts without an external TSDB.
+ *
+ * <p>Series are named {@code <beanName>.<metric>}; durations are stored in microseconds.
+ */
+@Component
+@ConditionalOnProperty(name = "ai.metrics-history.enabled", havingValue = "true", matchIfMissing = true)
+public class MetricsHistoryRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsHistoryRecorder.class);
+
+    private final MetricsHistoryStore store;
+    private final Map<String, Agent> agents;
+    private final ChatAgentMetrics chatMetrics;
+    private final ScheduledExecutorService scheduler;
+
+    public MetricsHistoryRecorder(MetricsHistoryConfiguration config, @Nullable Map<String, Agent> agents,
+                                  ChatAgentMetrics chatMetrics) throws IOException {
+        this.store = new MetricsHistoryStore(Path.of(config.getDirectory()),
+                config.getSegmentBytes(), config.getMaxSegments());
+        // Sorted so the series order (and therefore the active segment) is stable across snapshots
+        this.agents = agents != null ? new TreeMap<>(agents) : Map.of();
+        this.chatMetrics = chatMetrics;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-history");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = Math.max(1000, config.getInterval().toMillis());
+        scheduler.scheduleAtFixedRate(this::snapshot, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Take a snapshot now.
+     */
+    public void snapshot() {
+        Map<String, Long> sample = new LinkedHashMap<>();
+        agents.forEach((name, agent) -> addAgentMetrics(sample, name, agent.getMetrics()));
+        if (chatMetrics != null) {
+            addAgentMetrics(sample, "chat", chatMetrics);
+            sample.put("chat.inputTokens", chatMetrics.getTotalInputTokens());
+            sample.put("chat.outputTokens", chatMetrics.getTotalOutputTokens());
+        }
+        try {
+            store.append(System.currentTimeMillis(), sample);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to record metrics history snapshot: {}", e.getMessage());
+        }
+    }
+
+    private static void addAgentMetrics(Map<String, Long> sample, String prefix, AgentMetrics metrics) {
+        sample.put(prefix + ".processed", metrics.getOperationsProcessed());
+        sample.put(prefix + ".succeeded", metrics.getOperationsSucceeded());
+        sample.put(prefix + ".failed", metrics.getOperationsFailed());
+        sample.put(prefix + ".avgProcessingMicros", metrics.getAverageProcessingTime().toNanos() / 1000);
+        sample.put(prefix + ".maxProcessingMicros", metrics.getMaxProcessingTime().toNanos() / 1000);
+        if (metrics instanceof TaskAgentMetrics taskMetrics) {
+            sample.put(prefix + ".retried", taskMetrics.getTasksRetried());
+        }
+    }
+
+    /**
+     * Downsampled history for a time range; see {@link MetricsHistoryStore#query}.
+     */
+    public Map<String, List<MetricsHistoryStore.Point>> query(long from, long to, long stepMillis,
+                                                              Collection<String> series) {
+        return store.query(from, to, stepMillis, series);
+    }
+
+    public Map<String, Object> getStatistics() {
+        return store.getStatistics();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        store.close();
+    }
+}
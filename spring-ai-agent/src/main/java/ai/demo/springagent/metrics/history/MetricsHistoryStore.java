@@ -0,0 +1,252 @@
+package ai.demo.springagent.metrics.history;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Embedded time-series store for metric snapshots, backed by rotating memory-mapped
+ * {@link TimeSeriesSegment} files in a single directory.
+ *
+ * <p>Disk use is bounded by {@code segmentBytes * maxSegments}: when the active segment is
+ * full (or the set of series changes) a new one is started, and the oldest segment is
+ * deleted once the limit is exceeded. Queries downsample into fixed-width buckets.
+ */
+public class MetricsHistoryStore implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsHistoryStore.class);
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final Deque<TimeSeriesSegment> segments = new ArrayDeque<>();
+    private TimeSeriesSegment active;
+
+    /**
+     * Open (or create) a store in the given directory, recovering existing segments.
+     *
+     * @param directory directory holding the segment files
+     * @param segmentBytes size of each memory-mapped segment file
+     * @param maxSegments number of segments to retain
+     */
+    public MetricsHistoryStore(Path directory, int segmentBytes, int maxSegments) throws IOException {
+        if (segmentBytes < 4096) {
+            throw new IllegalArgumentException("Segment size must be at least 4096 bytes");
+        }
+        if (maxSegments < 1) {
+            throw new IllegalArgumentException("At least one segment must be retained");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing
+                    .filter(p -> p.getFileName().toString().startsWith(TimeSeriesSegment.FILE_PREFIX))
+                    .filter(p -> p.getFileName().toString().endsWith(TimeSeriesSegment.FILE_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (Path file : files) {
+            try {
+                TimeSeriesSegment segment = TimeSeriesSegment.open(file);
+                if (segment != null) {
+                    segments.addLast(segment);
+                } else {
+                    logger.warn("Ignoring invalid metrics history segment {}", file);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Skipping unreadable metrics history segment {}: {}", file, e.getMessage());
+            }
+        }
+        active = segments.peekLast();
+        enforceRetention();
+        logger.info("Metrics history opened at {} with {} segment(s)", directory, segments.size());
+    }
+
+    /**
+     * Append one snapshot. Iteration order of {@code sample} defines the series order; a
+     * change in the set of series starts a new segment.
+     *
+     * @param timestamp epoch millis
+     * @param sample series name to value
+     */
+    public synchronized void append(long timestamp, Map<String, Long> sample) throws IOException {
+        List<String> series = List.copyOf(sample.keySet());
+        long[] values = new long[series.size()];
+        int i = 0;
+        for (Long value : sample.values()) {
+            values[i++] = value != null ? value : 0L;
+        }
+
+        if (active == null || !active.getSeries().equals(series)
+                || timestamp < active.getLastTimestamp() || !active.append(timestamp, values)) {
+            roll(timestamp, series);
+            if (!active.append(timestamp, values)) {
+                throw new IOException("Sample does not fit in an empty segment of " + segmentBytes + " bytes");
+            }
+        }
+    }
+
+    private void roll(long timestamp, List<String> series) throws IOException {
+        Path file = directory.resolve(String.format("%s%019d%s",
+                TimeSeriesSegment.FILE_PREFIX, timestamp, TimeSeriesSegment.FILE_SUFFIX));
+        if (Files.exists(file)) {
+            file = directory.resolve(String.format("%s%019d-%d%s",
+                    TimeSeriesSegment.FILE_PREFIX, timestamp, System.nanoTime(), TimeSeriesSegment.FILE_SUFFIX));
+        }
+        if (active != null) {
+            active.force();
+        }
+        active = TimeSeriesSegment.create(file, series, segmentBytes);
+        segments.addLast(active);
+        enforceRetention();
+    }
+
+    private void enforceRetention() {
+        while (segments.size() > maxSegments) {
+            TimeSeriesSegment oldest = segments.removeFirst();
+            try {
+                Files.deleteIfExists(oldest.getPath());
+            } catch (IOException e) {
+                logger.warn("Failed to delete expired metrics history segment {}", oldest.getPath(), e);
+            }
+        }
+    }
+
+    /**
+     * Return downsampled history for a time range. Each bucket holds the average of the
+     * samples that fall into it; empty buckets are omitted.
+     *
+     * @param from start of the range (epoch millis, inclusive)
+     * @param to end of the range (epoch millis, exclusive)
+     * @param stepMillis bucket width
+     * @param seriesFilter series names to return, or empty for all
+     * @return series name to points in time order
+     */
+    public Map<String, List<Point>> query(long from, long to, long stepMillis, Collection<String> seriesFilter) {
+        if (to <= from) {
+            return Map.of();
+        }
+        long step = Math.max(1, stepMillis);
+
+        // Snapshot segment bounds under the lock; published records are immutable after that
+        List<TimeSeriesSegment> candidates = new ArrayList<>();
+        List<int[]> limits = new ArrayList<>();
+        synchronized (this) {
+            for (TimeSeriesSegment segment : segments) {
+                if (segment.getRecordCount() > 0
+                        && segment.getLastTimestamp() >= from && segment.getFirstTimestamp() < to) {
+                    candidates.add(segment);
+                    limits.add(new int[]{segment.getWritePosition(), segment.getRecordCount()});
+                }
+            }
+        }
+
+        Map<String, TreeMap<Long, double[]>> buckets = new LinkedHashMap<>();
+        for (int s = 0; s < candidates.size(); s++) {
+            TimeSeriesSegment segment = candidates.get(s);
+            List<String> names = segment.getSeries();
+            List<Integer> columns = new ArrayList<>();
+            List<TreeMap<Long, double[]>> targets = new ArrayList<>();
+            for (int c = 0; c < names.size(); c++) {
+                String name = names.get(c);
+                if (seriesFilter == null || seriesFilter.isEmpty() || seriesFilter.contains(name)) {
+                    columns.add(c);
+                    targets.add(buckets.computeIfAbsent(name, k -> new TreeMap<>()));
+                }
+            }
+            if (columns.isEmpty()) {
+                continue;
+            }
+            int[] limit = limits.get(s);
+            segment.scan(limit[0], limit[1], (timestamp, values) -> {
+                if (timestamp < from || timestamp >= to) {
+                    return;
+                }
+                Long bucketStart = from + ((timestamp - from) / step) * step;
+                for (int i = 0; i < columns.size(); i++) {
+                    double[] acc = targets.get(i).computeIfAbsent(bucketStart, k -> new double[2]);
+                    acc[0] += values[columns.get(i)];
+                    acc[1]++;
+                }
+            });
+        }
+
+        Map<String, List<Point>> result = new LinkedHashMap<>();
+        buckets.forEach((name, points) -> {
+            List<Point> series = new ArrayList<>(points.size());
+            points.forEach((bucketStart, acc) -> series.add(new Point(bucketStart, acc[0] / acc[1])));
+            result.put(name, series);
+        });
+        return result;
+    }
+
+    /**
+     * Store statistics for diagnostics.
+     */
+    public synchronized Map<String, Object> getStatistics() {
+        long records = 0;
+        long usedBytes = 0;
+        for (TimeSeriesSegment segment : segments) {
+            records += segment.getRecordCount();
+            usedBytes += segment.getWritePosition();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("directory", directory.toString());
+        stats.put("segments", segments.size());
+        stats.put("maxSegments", maxSegments);
+        stats.put("segmentBytes", segmentBytes);
+        stats.put("records", records);
+        stats.put("usedBytes", usedBytes);
+        stats.put("oldestTimestamp", segments.isEmpty() ? null : segments.peekFirst().getFirstTimestamp());
+        stats.put("newestTimestamp", active != null ? active.getLastTimestamp() : null);
+        return stats;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (active != null) {
+            active.force();
+        }
+    }
+
+    /**
+     * A downsampled data point.
+     */
+    public static final class Point {
+        private final long timestamp;
+        private final double value;
+
+        public Point(long timestamp, double value) {
+            this.timestamp = timestamp;
+            this.value = value;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public double getValue() {
+            return value;
+        }
+    }
+}
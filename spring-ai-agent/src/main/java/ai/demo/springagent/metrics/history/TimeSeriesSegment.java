@@ -0,0 +1,282 @@
+package ai.demo.springagent.metrics.history;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One fixed-size, memory-mapped segment file of metric samples.
+ *
+ * <p>Layout:
+ * <pre>
+ * header  magic:int version:short seriesCount:short firstTs:long lastTs:long
+ *         writePosition:int recordCount:int (series name: short length + UTF-8)*
+ * records timestamp, value[0..seriesCount) as zigzag varints
+ * </pre>
+ * Every column (timestamp and each series) is delta-of-delta encoded: the first record
+ * stores raw values, the second stores deltas, and later records store the change in delta.
+ * Samples taken at a fixed interval from slowly moving counters therefore cost about one
+ * byte per value. The header's write position is updated only after a record is fully
+ * written, so a crash mid-append loses at most that record.
+ */
+final class TimeSeriesSegment {
+
+    static final String FILE_PREFIX = "segment-";
+    static final String FILE_SUFFIX = ".tsdb";
+
+    private static final int MAGIC = 0x54534442; // "TSDB"
+    private static final short VERSION = 1;
+    private static final int FIRST_TS_OFFSET = 8;
+    private static final int LAST_TS_OFFSET = 16;
+    private static final int WRITE_POSITION_OFFSET = 24;
+    private static final int RECORD_COUNT_OFFSET = 28;
+    private static final int NAMES_OFFSET = 32;
+    private static final int MAX_VARLONG_BYTES = 10;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final List<String> series;
+    private final int dataStart;
+
+    // Append state: previous values and deltas for each column (index 0 is the timestamp)
+    private final long[] previous;
+    private final long[] previousDelta;
+    private int writePosition;
+    private int recordCount;
+    private long firstTimestamp;
+    private long lastTimestamp;
+
+    private TimeSeriesSegment(Path path, MappedByteBuffer buffer, List<String> series, int dataStart) {
+        this.path = path;
+        this.buffer = buffer;
+        this.series = series;
+        this.dataStart = dataStart;
+        this.previous = new long[series.size() + 1];
+        this.previousDelta = new long[series.size() + 1];
+    }
+
+    /**
+     * Create a new segment file for the given series.
+     */
+    static TimeSeriesSegment create(Path path, List<String> series, int sizeBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, sizeBytes);
+            buffer.putInt(0, MAGIC);
+            buffer.putShort(4, VERSION);
+            buffer.putShort(6, (short) series.size());
+            buffer.position(NAMES_OFFSET);
+            for (String name : series) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                buffer.putShort((short) bytes.length);
+                buffer.put(bytes);
+            }
+            int dataStart = buffer.position();
+            buffer.putInt(WRITE_POSITION_OFFSET, dataStart);
+            buffer.putInt(RECORD_COUNT_OFFSET, 0);
+
+            TimeSeriesSegment segment = new TimeSeriesSegment(path, buffer, List.copyOf(series), dataStart);
+            segment.writePosition = dataStart;
+            return segment;
+        }
+    }
+
+    /**
+     * Open an existing segment, replaying its records to restore the append state.
+     *
+     * @return the segment, or null if the file is not a valid segment
+     */
+    static TimeSeriesSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < NAMES_OFFSET) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+                return null;
+            }
+            int seriesCount = buffer.getShort(6);
+            List<String> series = new ArrayList<>(seriesCount);
+            buffer.position(NAMES_OFFSET);
+            for (int i = 0; i < seriesCount; i++) {
+                byte[] bytes = new byte[buffer.getShort()];
+                buffer.get(bytes);
+                series.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+
+            TimeSeriesSegment segment = new TimeSeriesSegment(path, buffer,
+                    Collections.unmodifiableList(series), buffer.position());
+            segment.recover();
+            return segment;
+        }
+    }
+
+    private void recover() {
+        writePosition = buffer.getInt(WRITE_POSITION_OFFSET);
+        recordCount = buffer.getInt(RECORD_COUNT_OFFSET);
+        firstTimestamp = buffer.getLong(FIRST_TS_OFFSET);
+        lastTimestamp = buffer.getLong(LAST_TS_OFFSET);
+        if (writePosition < dataStart || writePosition > buffer.capacity()) {
+            writePosition = dataStart;
+            recordCount = 0;
+        }
+        // Rebuild the delta state so appends continue the same encoding
+        decode(writePosition, recordCount, (timestamp, values) -> {
+        }, previous, previousDelta);
+    }
+
+    /**
+     * Append a sample.
+     *
+     * @param timestamp epoch millis, not earlier than the previous sample
+     * @param values one value per series, in {@link #getSeries()} order
+     * @return false if the segment is full and nothing was written
+     */
+    boolean append(long timestamp, long[] values) {
+        int worstCase = (values.length + 1) * MAX_VARLONG_BYTES;
+        if (writePosition + worstCase > buffer.capacity()) {
+            return false;
+        }
+
+        ByteBuffer out = buffer.duplicate();
+        out.position(writePosition);
+        writeColumn(out, 0, timestamp);
+        for (int i = 0; i < values.length; i++) {
+            writeColumn(out, i + 1, values[i]);
+        }
+
+        if (recordCount == 0) {
+            firstTimestamp = timestamp;
+            buffer.putLong(FIRST_TS_OFFSET, timestamp);
+        }
+        lastTimestamp = timestamp;
+        writePosition = out.position();
+        recordCount++;
+        buffer.putLong(LAST_TS_OFFSET, timestamp);
+        buffer.putInt(RECORD_COUNT_OFFSET, recordCount);
+        // Publish the record last so a torn write is never visible after a crash
+        buffer.putInt(WRITE_POSITION_OFFSET, writePosition);
+        return true;
+    }
+
+    private void writeColumn(ByteBuffer out, int column, long value) {
+        long encoded;
+        if (recordCount == 0) {
+            encoded = value;
+        } else {
+            long delta = value - previous[column];
+            encoded = delta - previousDelta[column];
+            previousDelta[column] = delta;
+        }
+        previous[column] = value;
+        writeVarLong(out, zigZag(encoded));
+    }
+
+    /**
+     * Decode records up to the given limits, passing each to the visitor. The same
+     * {@code values} array is reused between calls.
+     */
+    void scan(int limitPosition, int limitRecords, SampleVisitor visitor) {
+        int columns = series.size() + 1;
+        decode(limitPosition, limitRecords, visitor, new long[columns], new long[columns]);
+    }
+
+    private void decode(int limitPosition, int limitRecords, SampleVisitor visitor, long[] prev, long[] prevDelta) {
+        ByteBuffer in = buffer.duplicate();
+        in.position(dataStart);
+        in.limit(limitPosition);
+
+        int columns = series.size() + 1;
+        long[] values = new long[series.size()];
+        for (int record = 0; record < limitRecords && in.hasRemaining(); record++) {
+            for (int column = 0; column < columns; column++) {
+                long decoded = unZigZag(readVarLong(in));
+                long value;
+                if (record == 0) {
+                    value = decoded;
+                } else {
+                    long delta = prevDelta[column] + decoded;
+                    prevDelta[column] = delta;
+                    value = prev[column] + delta;
+                }
+                prev[column] = value;
+                if (column > 0) {
+                    values[column - 1] = value;
+                }
+            }
+            visitor.visit(prev[0], values);
+        }
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    List<String> getSeries() {
+        return series;
+    }
+
+    int getWritePosition() {
+        return writePosition;
+    }
+
+    int getRecordCount() {
+        return recordCount;
+    }
+
+    long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    long getSizeBytes() {
+        return buffer.capacity();
+    }
+
+    @FunctionalInterface
+    interface SampleVisitor {
+        void visit(long timestamp, long[] values);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("Malformed varint in segment");
+    }
+}
@@ -0,0 +1,49 @@
+package ai.demo.springagent.model;
+
+/**
+ * Rolling summary of a thread's first {@link #getMessageCount()} messages, as persisted by
+ * the thread store. It is not a message: listings, search and export never see it.
+ */
+public class HistorySummary {
+
+    private String text;
+    private int messageCount;
+    private String lastMessageId;
+
+    public HistorySummary() {
+    }
+
+    public HistorySummary(String text, int messageCount, String lastMessageId) {
+        this.text = text;
+        this.messageCount = messageCount;
+        this.lastMessageId = lastMessageId;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    public void setMessageCount(int messageCount) {
+        this.messageCount = messageCount;
+    }
+
+    /**
+     * @return id of the last message the summary covers, used to tell whether it still
+     *         matches the stored history
+     */
+    public String getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public void setLastMessageId(String lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+}
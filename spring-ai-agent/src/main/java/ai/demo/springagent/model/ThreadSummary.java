@@ -0,0 +1,70 @@
+package ai.demo.springagent.model;
+
+/**
+ * Lightweight, read-only projection of a thread for listings. Built in O(1) from the
+ * thread and its message log without touching the message list.
+ */
+public class ThreadSummary {
+
+    public static final int PREVIEW_LENGTH = 120;
+
+    private final String id;
+    private final String title;
+    private final Object metadata;
+    private final long createdAt;
+    private final long lastActivity;
+    private final int messageCount;
+    private final String lastMessagePreview;
+
+    public ThreadSummary(String id, String title, Object metadata, long createdAt, long lastActivity,
+                         int messageCount, String lastMessagePreview) {
+        this.id = id;
+        this.title = title;
+        this.metadata = metadata;
+        this.createdAt = createdAt;
+        this.lastActivity = lastActivity;
+        this.messageCount = messageCount;
+        this.lastMessagePreview = lastMessagePreview;
+    }
+
+    /**
+     * Truncate message content to a single-line preview.
+     */
+    public static String preview(String content) {
+        if (content == null) {
+            return null;
+        }
+        String singleLine = content.strip().replace('\n', ' ').replace('\r', ' ');
+        return singleLine.length() <= PREVIEW_LENGTH
+                ? singleLine
+                : singleLine.substring(0, PREVIEW_LENGTH - 1) + "…";
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Object getMetadata() {
+        return metadata;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getLastActivity() {
+        return lastActivity;
+    }
+
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    public String getLastMessagePreview() {
+        return lastMessagePreview;
+    }
+}
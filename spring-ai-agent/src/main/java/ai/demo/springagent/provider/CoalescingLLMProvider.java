@@ -0,0 +1,143 @@
+package ai.demo.springagent.provider;
+
+import ai.demo.springagent.dto.ChatCompletionChunk;
+import ai.demo.springagent.dto.ChatRequest;
+import ai.demo.springagent.dto.ChatResponse;
+import ai.demo.springagent.provider.cache.RequestFingerprint;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link LLMProvider} that collapses concurrent identical requests into one upstream call.
+ *
+ * <p>Requests are keyed on their {@link RequestFingerprint}. While a completion for a key is
+ * in flight, further identical requests subscribe to the same upstream {@link Mono} and each
+ * get their own copy of the response. Identical streams share one upstream {@link Flux};
+ * late joiners are replayed every chunk from the start, then follow live. The upstream is
+ * cancelled only once every subscriber has gone. A key is released as soon as its upstream
+ * terminates, so this never serves stale results; it only removes duplicate work.
+ *
+ * <p>Only requests with a temperature of at most {@code maxTemperature} are coalesced:
+ * sharing one sample between clients is only equivalent to separate calls when the model
+ * output is (near-)deterministic.
+ */
+public class CoalescingLLMProvider implements LLMProvider {
+
+    private final LLMProvider delegate;
+    private final double maxTemperature;
+    private final Map<String, Mono<ChatResponse>> completions = new ConcurrentHashMap<>();
+    private final Map<String, Flux<ChatCompletionChunk>> streams = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedCompletions = new AtomicLong();
+    private final AtomicLong coalescedStreams = new AtomicLong();
+
+    /**
+     * @param delegate provider that makes the upstream calls
+     * @param maxTemperature highest request temperature that is coalesced
+     */
+    public CoalescingLLMProvider(LLMProvider delegate, double maxTemperature) {
+        this.delegate = delegate;
+        this.maxTemperature = maxTemperature;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Mono<ChatResponse> complete(ChatRequest request) {
+        if (!coalesces(request)) {
+            return delegate.complete(request);
+        }
+        String key = RequestFingerprint.of(request);
+        return Mono.defer(() -> {
+            boolean[] leader = new boolean[1];
+            Mono<ChatResponse> shared = completions.computeIfAbsent(key, k -> {
+                leader[0] = true;
+                return delegate.complete(request)
+                        .doFinally(signal -> completions.remove(k))
+                        .cache();
+            });
+            if (!leader[0]) {
+                coalescedCompletions.incrementAndGet();
+            }
+            // Callers may adjust the response they get, so none of them sees another's instance
+            return shared.map(CoalescingLLMProvider::copy);
+        });
+    }
+
+    @Override
+    public Flux<ChatCompletionChunk> stream(ChatRequest request) {
+        if (!coalesces(request)) {
+            return delegate.stream(request);
+        }
+        String key = RequestFingerprint.of(request);
+        return Flux.defer(() -> {
+            boolean[] leader = new boolean[1];
+            Flux<ChatCompletionChunk> shared = streams.computeIfAbsent(key, k -> {
+                leader[0] = true;
+                return delegate.stream(request)
+                        .doFinally(signal -> streams.remove(k))
+                        .replay()
+                        .refCount();
+            });
+            if (!leader[0]) {
+                coalescedStreams.incrementAndGet();
+            }
+            return shared;
+        });
+    }
+
+    /**
+     * Register counters of requests that joined another's upstream call, and the number of
+     * upstream calls currently shared.
+     */
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("llm.requests.coalesced", coalescedCompletions, AtomicLong::get)
+                .description("Requests served by another request's upstream call")
+                .tag("mode", "complete")
+                .register(registry);
+        FunctionCounter.builder("llm.requests.coalesced", coalescedStreams, AtomicLong::get)
+                .description("Requests served by another request's upstream call")
+                .tag("mode", "stream")
+                .register(registry);
+        Gauge.builder("llm.requests.inflight.shared", this, p -> p.completions.size() + p.streams.size())
+                .description("Upstream calls that identical requests can currently join")
+                .register(registry);
+    }
+
+    private boolean coalesces(ChatRequest request) {
+        Double temperature = request.getTemperature();
+        return temperature != null && temperature <= maxTemperature;
+    }
+
+    private static ChatResponse copy(ChatResponse response) {
+        ChatResponse copy = new ChatResponse();
+        copy.setId("chatcmpl-" + UUID.randomUUID().toString().replace("-", ""));
+        copy.setObject(response.getObject());
+        copy.setCreated(response.getCreated());
+        copy.setModel(response.getModel());
+        copy.setUsage(response.getUsage());
+        if (response.getChoices() != null) {
+            List<ChatResponse.Choice> choices = new ArrayList<>(response.getChoices().size());
+            for (ChatResponse.Choice choice : response.getChoices()) {
+                ChatResponse.Message message = choice.getMessage() != null
+                        ? new ChatResponse.Message(choice.getMessage().getRole(), choice.getMessage().getContent())
+                        : null;
+                choices.add(new ChatResponse.Choice(choice.getIndex(), message, choice.getFinishReason()));
+            }
+            copy.setChoices(choices);
+        }
+        return copy;
+    }
+}
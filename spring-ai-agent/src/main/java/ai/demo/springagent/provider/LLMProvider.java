@@ -9,4 +9,11 @@ import reactor.core.publisher.Mono;
 public interface LLMProvider {
     Mono<ChatResponse> complete(ChatRequest request);
     Flux<ChatCompletionChunk> stream(ChatRequest request);
+
+    /**
+     * Stable provider name used for metric tags and diagnostics.
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
 }
\ No newline at end of file
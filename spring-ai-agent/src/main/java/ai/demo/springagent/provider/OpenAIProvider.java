@@ -4,7 +4,12 @@ import ai.demo.springagent.config.AiModelConfiguration;
 import ai.demo.springagent.dto.ChatCompletionChunk;
 import ai.demo.springagent.dto.ChatRequest;
 import ai.demo.springagent.dto.ChatResponse;
+import ai.demo.springagent.jfr.ProviderCallEvent;
+import ai.demo.springagent.metrics.StreamingMetrics;
+import ai.demo.springagent.tokenizer.TokenCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -14,17 +19,36 @@ import java.time.Duration;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 @Component
 public class OpenAIProvider implements LLMProvider {
 
+    private static final String PROVIDER_NAME = "openai";
+
     private final ChatClient chatClient;
     private final AiModelConfiguration aiModelConfig;
+    private final StreamingMetrics streamingMetrics;
+    private final TokenCounter tokenCounter;
 
     public OpenAIProvider(ChatClient chatClient, AiModelConfiguration aiModelConfig) {
+        this(chatClient, aiModelConfig, new StreamingMetrics(new SimpleMeterRegistry()),
+                TokenCounter.heuristic(aiModelConfig.getCharsPerToken()));
+    }
+
+    @Autowired
+    public OpenAIProvider(ChatClient chatClient, AiModelConfiguration aiModelConfig,
+                          StreamingMetrics streamingMetrics, TokenCounter tokenCounter) {
         this.chatClient = chatClient;
         this.aiModelConfig = aiModelConfig;
+        this.streamingMetrics = streamingMetrics;
+        this.tokenCounter = tokenCounter;
+    }
+
+    @Override
+    public String getName() {
+        return PROVIDER_NAME;
     }
 
     @Override
@@ -34,10 +58,20 @@ public class OpenAIProvider implements LLMProvider {
                 .collect(Collectors.joining("\n"));
 
         return Mono.fromCallable(() -> {
-            var response = chatClient.prompt()
-                    .user(conversationText)
-                    .call()
-                    .content();
+            ProviderCallEvent event = new ProviderCallEvent(PROVIDER_NAME, aiModelConfig.getModel(), false);
+            event.begin();
+            long startedAt = System.nanoTime();
+            org.springframework.ai.chat.model.ChatResponse aiResponse;
+            try {
+                aiResponse = chatClient.prompt()
+                        .user(conversationText)
+                        .call()
+                        .chatResponse();
+            } catch (RuntimeException e) {
+                commitProviderEvent(event, null, "error");
+                throw e;
+            }
+            String response = contentOf(aiResponse);
 
             ChatResponse chatResponse = new ChatResponse();
             chatResponse.setId("chatcmpl-" + UUID.randomUUID().toString().replace("-", ""));
@@ -47,9 +81,14 @@ public class OpenAIProvider implements LLMProvider {
             ChatResponse.Choice choice = new ChatResponse.Choice(0, responseMessage, "stop");
             chatResponse.setChoices(List.of(choice));
 
-            ChatResponse.Usage usage = new ChatResponse.Usage(50, 100, 150);
+            ChatResponse.Usage usage = UsageMetadata.orCounted(UsageMetadata.from(aiResponse), tokenCounter,
+                    conversationText, response);
             chatResponse.setUsage(usage);
 
+            // Non-streaming calls deliver every token at once, so TTFT equals the call duration
+            event.timeToFirstToken = System.nanoTime() - startedAt;
+            event.chunks = 1;
+            commitProviderEvent(event, usage, "success");
             return chatResponse;
         })
         .retryWhen(Retry.backoff(3, Duration.ofSeconds(1))
@@ -73,13 +112,63 @@ public class OpenAIProvider implements LLMProvider {
                 .collect(Collectors.joining("\n"));
 
         String chatId = "chatcmpl-" + UUID.randomUUID().toString().replace("-", "");
-        AtomicBoolean isFirst = new AtomicBoolean(true);
 
+        return Flux.defer(() -> streamAttempt(chatId, conversationText))
+                .retryWhen(Retry.backoff(2, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(5))
+                        .jitter(0.3)
+                        .doBeforeRetry(retrySignal -> {
+                            System.out.println("Retrying OpenAI stream request due to: " +
+                                    retrySignal.failure().getClass().getSimpleName() +
+                                    ", attempt: " + (retrySignal.totalRetries() + 1));
+                        }));
+    }
+
+    /**
+     * One upstream subscription. Everything that accumulates over a stream lives here, so a
+     * retry starts from scratch: the retried attempt opens with the assistant role again and
+     * counts only its own completion.
+     */
+    private Flux<ChatCompletionChunk> streamAttempt(String chatId, String conversationText) {
+        AtomicBoolean isFirst = new AtomicBoolean(true);
+        AtomicReference<ChatResponse.Usage> reportedUsage = new AtomicReference<>();
+        // Kept only to count the completion locally if the provider reports no usage
+        StringBuilder completion = new StringBuilder();
+
+        // One event per upstream subscription, so retries are recorded separately
+        ProviderCallEvent event = new ProviderCallEvent(PROVIDER_NAME, aiModelConfig.getModel(), true);
+        event.begin();
+        long subscribedAt = System.nanoTime();
+        // Upstream side only: measures provider latency before any of our processing
+        StreamingMetrics.StreamTracker upstream = streamingMetrics.start(
+                StreamingMetrics.UPSTREAM, PROVIDER_NAME, aiModelConfig.getModel());
         return chatClient.prompt()
                 .user(conversationText)
                 .stream()
-                .content()
+                .chatResponse()
+                .doOnNext(aiResponse -> {
+                    // With stream usage enabled the provider reports totals on the last response
+                    ChatResponse.Usage usage = UsageMetadata.from(aiResponse);
+                    if (usage != null) {
+                        reportedUsage.set(usage);
+                    }
+                    if (event.chunks++ == 0) {
+                        event.timeToFirstToken = System.nanoTime() - subscribedAt;
+                    }
+                    String content = contentOf(aiResponse);
+                    if (content != null && !content.isEmpty()) {
+                        upstream.onToken();
+                    }
+                })
+                .doFinally(signal -> {
+                    ChatResponse.Usage usage = reportedUsage.get();
+                    upstream.complete(usage != null ? usage.getCompletionTokens() : 0);
+                    commitProviderEvent(event, usage, signal.toString().toLowerCase());
+                })
+                .mapNotNull(OpenAIProvider::contentOf)
+                .filter(content -> !content.isEmpty())
                 .map(content -> {
+                    completion.append(content);
                     ChatCompletionChunk chunk = new ChatCompletionChunk();
                     chunk.setId(chatId);
                     chunk.setModel(aiModelConfig.getModel());
@@ -96,18 +185,12 @@ public class OpenAIProvider implements LLMProvider {
 
                     return chunk;
                 })
-                .concatWith(Flux.just(createFinalChunk(chatId)))
-                .retryWhen(Retry.backoff(2, Duration.ofSeconds(1))
-                        .maxBackoff(Duration.ofSeconds(5))
-                        .jitter(0.3)
-                        .doBeforeRetry(retrySignal -> {
-                            System.out.println("Retrying OpenAI stream request due to: " +
-                                    retrySignal.failure().getClass().getSimpleName() +
-                                    ", attempt: " + (retrySignal.totalRetries() + 1));
-                        }));
+                .concatWith(Mono.fromSupplier(() -> createFinalChunk(chatId,
+                        UsageMetadata.orCounted(reportedUsage.get(), tokenCounter, conversationText,
+                                completion.toString()))));
     }
 
-    private ChatCompletionChunk createFinalChunk(String chatId) {
+    private ChatCompletionChunk createFinalChunk(String chatId, ChatResponse.Usage usage) {
         ChatCompletionChunk finalChunk = new ChatCompletionChunk();
         finalChunk.setId(chatId);
         finalChunk.setModel(aiModelConfig.getModel());
@@ -115,7 +198,27 @@ public class OpenAIProvider implements LLMProvider {
         ChatCompletionChunk.Delta delta = new ChatCompletionChunk.Delta();
         ChatCompletionChunk.ChunkChoice choice = new ChatCompletionChunk.ChunkChoice(0, delta, "stop");
         finalChunk.setChoices(List.of(choice));
+        finalChunk.setUsage(usage);
         
         return finalChunk;
     }
+
+    private static void commitProviderEvent(ProviderCallEvent event, ChatResponse.Usage usage, String outcome) {
+        event.end();
+        if (event.shouldCommit()) {
+            if (usage != null) {
+                event.promptTokens = usage.getPromptTokens();
+                event.completionTokens = usage.getCompletionTokens();
+            }
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    private static String contentOf(org.springframework.ai.chat.model.ChatResponse aiResponse) {
+        if (aiResponse == null || aiResponse.getResult() == null || aiResponse.getResult().getOutput() == null) {
+            return null;
+        }
+        return aiResponse.getResult().getOutput().getContent();
+    }
 }
\ No newline at end of file
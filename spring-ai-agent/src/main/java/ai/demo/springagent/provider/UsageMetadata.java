@@ -0,0 +1,109 @@
+package ai.demo.springagent.provider;
+
+import ai.demo.springagent.dto.ChatResponse;
+import ai.demo.springagent.tokenizer.TokenCounter;
+import org.springframework.ai.chat.metadata.Usage;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Converts provider-reported token usage from Spring AI response metadata into the
+ * OpenAI-compatible {@link ChatResponse.Usage} returned by this API.
+ *
+ * <p>Providers that do not report usage (some OpenAI-compatible local servers, or streams
+ * without {@code stream_options.include_usage}) fall back to counting tokens locally, or to a
+ * character-based estimate, so that downstream accounting never sees fabricated constants.
+ */
+public final class UsageMetadata {
+
+    private UsageMetadata() {
+    }
+
+    /**
+     * Extract the token usage reported by the provider.
+     *
+     * @param response the Spring AI chat response (may be null)
+     * @return usage with real token counts, or null if the provider did not report any
+     */
+    public static ChatResponse.Usage from(org.springframework.ai.chat.model.ChatResponse response) {
+        if (response == null || response.getMetadata() == null) {
+            return null;
+        }
+        return from(response.getMetadata().getUsage());
+    }
+
+    /**
+     * Convert a Spring AI {@link Usage} into the API representation.
+     *
+     * @param usage the Spring AI usage (may be null)
+     * @return usage with real token counts, or null if nothing was reported
+     */
+    public static ChatResponse.Usage from(Usage usage) {
+        if (usage == null) {
+            return null;
+        }
+        int prompt = toInt(usage.getPromptTokens());
+        int completion = toInt(usage.getGenerationTokens());
+        if (prompt == 0 && completion == 0) {
+            return null;
+        }
+        return new ChatResponse.Usage(prompt, completion, prompt + completion);
+    }
+
+    /**
+     * Estimate usage from character counts when the provider reported nothing.
+     *
+     * @param promptChars number of characters sent to the model
+     * @param completionChars number of characters generated by the model
+     * @param charsPerToken heuristic conversion factor
+     * @return estimated usage
+     */
+    public static ChatResponse.Usage estimate(long promptChars, long completionChars, int charsPerToken) {
+        int divisor = Math.max(1, charsPerToken);
+        int prompt = (int) Math.ceil((double) promptChars / divisor);
+        int completion = (int) Math.ceil((double) completionChars / divisor);
+        return new ChatResponse.Usage(prompt, completion, prompt + completion);
+    }
+
+    /**
+     * Return the reported usage, or an estimate if the provider reported nothing.
+     */
+    public static ChatResponse.Usage orEstimate(ChatResponse.Usage reported, long promptChars,
+                                                long completionChars, int charsPerToken) {
+        return reported != null ? reported : estimate(promptChars, completionChars, charsPerToken);
+    }
+
+    /**
+     * Return the reported usage, or one built from locally counted tokens if the provider
+     * reported nothing. The suppliers are only called on that fallback path, so callers
+     * never tokenize text the provider already accounted for.
+     *
+     * @param promptTokens counts the tokens sent to the model with a {@link TokenCounter}
+     * @param completionTokens counts the tokens generated by the model with a {@link TokenCounter}
+     */
+    public static ChatResponse.Usage orCounted(ChatResponse.Usage reported, IntSupplier promptTokens,
+                                               IntSupplier completionTokens) {
+        if (reported != null) {
+            return reported;
+        }
+        int prompt = promptTokens.getAsInt();
+        int completion = completionTokens.getAsInt();
+        return new ChatResponse.Usage(prompt, completion, prompt + completion);
+    }
+
+    /**
+     * Return the reported usage, or count the prompt and completion with {@code counter} if
+     * the provider reported nothing.
+     */
+    public static ChatResponse.Usage orCounted(ChatResponse.Usage reported, TokenCounter counter,
+                                               String prompt, String completion) {
+        return orCounted(reported, () -> counter.countTokens(prompt), () -> counter.countTokens(completion));
+    }
+
+    private static int toInt(Long value) {
+        if (value == null || value < 0) {
+            return 0;
+        }
+        return value > Integer.MAX_VALUE ? Integer.MAX_VALUE : value.intValue();
+    }
+}
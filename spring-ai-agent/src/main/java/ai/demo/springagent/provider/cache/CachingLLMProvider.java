@@ -0,0 +1,167 @@
+package ai.demo.springagent.provider.cache;
+
+import ai.demo.springagent.dto.ChatCompletionChunk;
+import ai.demo.springagent.dto.ChatRequest;
+import ai.demo.springagent.dto.ChatResponse;
+import ai.demo.springagent.provider.LLMProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link LLMProvider} that answers from a {@link ResponseCache} when it can and fills the
+ * cache from the wrapped provider when it cannot.
+ *
+ * <p>Streaming requests are served from the same cache: a hit is replayed as a synthetic
+ * stream of word-aligned chunks followed by the usual final chunk, and a streamed miss is
+ * cached once it completes.
+ */
+public class CachingLLMProvider implements LLMProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingLLMProvider.class);
+
+    private final LLMProvider delegate;
+    private final ResponseCache cache;
+    private final int streamChunkChars;
+
+    /**
+     * @param delegate provider asked on a miss
+     * @param cache the cache, or null to pass every request through
+     * @param streamChunkChars minimum size of a synthetic stream chunk
+     */
+    public CachingLLMProvider(LLMProvider delegate, ResponseCache cache, int streamChunkChars) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.streamChunkChars = Math.max(1, streamChunkChars);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Mono<ChatResponse> complete(ChatRequest request) {
+        if (cache == null) {
+            return delegate.complete(request);
+        }
+        return Mono.defer(() -> {
+            ResponseCache.Hit hit = cache.get(request);
+            if (hit != null) {
+                logger.debug("Serving completion from the {} cache tier", hit.getTier());
+                return Mono.just(toResponse(request, hit.getResponse()));
+            }
+            long startedAt = System.nanoTime();
+            return delegate.complete(request)
+                    .doOnNext(response -> {
+                        ChatResponse.Choice choice = response.getChoices() != null && !response.getChoices().isEmpty()
+                                ? response.getChoices().get(0) : null;
+                        if (choice != null && choice.getMessage() != null) {
+                            cache.put(request, response.getModel(), choice.getMessage().getContent(),
+                                    choice.getFinishReason(), response.getUsage(), System.nanoTime() - startedAt);
+                        }
+                    });
+        });
+    }
+
+    @Override
+    public Flux<ChatCompletionChunk> stream(ChatRequest request) {
+        if (cache == null) {
+            return delegate.stream(request);
+        }
+        return Flux.defer(() -> {
+            ResponseCache.Hit hit = cache.get(request);
+            if (hit != null) {
+                logger.debug("Streaming completion from the {} cache tier", hit.getTier());
+                return Flux.fromIterable(toChunks(request, hit.getResponse()));
+            }
+            long startedAt = System.nanoTime();
+            StringBuilder content = new StringBuilder();
+            AtomicReference<String> model = new AtomicReference<>();
+            AtomicReference<ChatResponse.Usage> usage = new AtomicReference<>();
+            AtomicReference<String> finishReason = new AtomicReference<>();
+            return delegate.stream(request)
+                    .doOnNext(chunk -> {
+                        model.compareAndSet(null, chunk.getModel());
+                        if (chunk.getUsage() != null) {
+                            usage.set(chunk.getUsage());
+                        }
+                        if (chunk.getChoices() != null && !chunk.getChoices().isEmpty()) {
+                            ChatCompletionChunk.ChunkChoice choice = chunk.getChoices().get(0);
+                            if (choice.getDelta() != null && choice.getDelta().getContent() != null) {
+                                content.append(choice.getDelta().getContent());
+                            }
+                            if (choice.getFinishReason() != null) {
+                                finishReason.set(choice.getFinishReason());
+                            }
+                        }
+                    })
+                    .doOnComplete(() -> cache.put(request, model.get(), content.toString(), finishReason.get(),
+                            usage.get(), System.nanoTime() - startedAt));
+        });
+    }
+
+    private static ChatResponse toResponse(ChatRequest request, ResponseCache.CachedResponse cached) {
+        ChatResponse response = new ChatResponse();
+        response.setId(newId());
+        response.setModel(modelOf(request, cached));
+        response.setChoices(List.of(new ChatResponse.Choice(0,
+                new ChatResponse.Message("assistant", cached.getContent()), finishReason(cached))));
+        response.setUsage(cached.getUsage());
+        return response;
+    }
+
+    /**
+     * Split cached content into chunks of at least {@code streamChunkChars} characters that
+     * end on a word boundary, then the final chunk carrying usage.
+     */
+    List<ChatCompletionChunk> toChunks(ChatRequest request, ResponseCache.CachedResponse cached) {
+        String id = newId();
+        String model = modelOf(request, cached);
+        String content = cached.getContent();
+        List<ChatCompletionChunk> chunks = new ArrayList<>(content.length() / streamChunkChars + 2);
+        int start = 0;
+        while (start < content.length()) {
+            int end = Math.min(content.length(), start + streamChunkChars);
+            while (end < content.length() && !Character.isWhitespace(content.charAt(end - 1))) {
+                end++;
+            }
+            ChatCompletionChunk.Delta delta = start == 0
+                    ? new ChatCompletionChunk.Delta("assistant", content.substring(start, end))
+                    : new ChatCompletionChunk.Delta(content.substring(start, end));
+            chunks.add(chunk(id, model, delta, null));
+            start = end;
+        }
+        ChatCompletionChunk last = chunk(id, model, new ChatCompletionChunk.Delta(), finishReason(cached));
+        last.setUsage(cached.getUsage());
+        chunks.add(last);
+        return chunks;
+    }
+
+    private static ChatCompletionChunk chunk(String id, String model, ChatCompletionChunk.Delta delta,
+                                             String finishReason) {
+        ChatCompletionChunk chunk = new ChatCompletionChunk();
+        chunk.setId(id);
+        chunk.setModel(model);
+        chunk.setChoices(List.of(new ChatCompletionChunk.ChunkChoice(0, delta, finishReason)));
+        return chunk;
+    }
+
+    private static String modelOf(ChatRequest request, ResponseCache.CachedResponse cached) {
+        return cached.getModel() != null ? cached.getModel() : request.getModel();
+    }
+
+    private static String finishReason(ResponseCache.CachedResponse cached) {
+        return cached.getFinishReason() != null ? cached.getFinishReason() : "stop";
+    }
+
+    private static String newId() {
+        return "chatcmpl-" + UUID.randomUUID().toString().replace("-", "");
+    }
+}
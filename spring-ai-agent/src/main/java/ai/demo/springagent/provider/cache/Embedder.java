@@ -0,0 +1,17 @@
+package ai.demo.springagent.provider.cache;
+
+/**
+ * Text embedding used by the semantic tier of the {@link ResponseCache}.
+ */
+public interface Embedder {
+
+    /**
+     * @return the embedding of {@code text}, or null if it has nothing to embed
+     */
+    float[] embed(String text);
+
+    /**
+     * @return length of the vectors returned by {@link #embed}
+     */
+    int dimensions();
+}
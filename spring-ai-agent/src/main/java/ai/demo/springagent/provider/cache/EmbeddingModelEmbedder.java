@@ -0,0 +1,32 @@
+package ai.demo.springagent.provider.cache;
+
+import org.springframework.ai.embedding.EmbeddingModel;
+
+/**
+ * {@link Embedder} backed by a Spring AI {@link EmbeddingModel}, i.e. a trained embedding
+ * model that captures word order and negation. Each lookup and insert in the semantic tier
+ * costs one embedding call.
+ */
+public class EmbeddingModelEmbedder implements Embedder {
+
+    private final EmbeddingModel model;
+    private final int dimensions;
+
+    public EmbeddingModelEmbedder(EmbeddingModel model) {
+        this.model = model;
+        this.dimensions = model.dimensions();
+    }
+
+    @Override
+    public float[] embed(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        return model.embed(text);
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+}
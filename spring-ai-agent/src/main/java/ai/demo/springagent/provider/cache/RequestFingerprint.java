@@ -0,0 +1,95 @@
+package ai.demo.springagent.provider.cache;
+
+import ai.demo.springagent.dto.ChatRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Fingerprints of chat requests over the model, temperature, token limit and every message's
+ * role and content. {@link #of} hashes contents exactly as sent: case and indentation carry
+ * meaning in code and YAML, so two prompts that differ only in formatting are different
+ * prompts. {@link #context} normalises contents (trimmed, case-folded, whitespace runs
+ * collapsed), since it only scopes semantic lookups.
+ */
+public final class RequestFingerprint {
+
+    private RequestFingerprint() {
+    }
+
+    /**
+     * @return SHA-256 fingerprint of the whole request
+     */
+    public static String of(ChatRequest request) {
+        List<ChatRequest.Message> messages = request.getMessages();
+        return digest(request, messages != null ? messages.size() : 0, false);
+    }
+
+    /**
+     * @return SHA-256 fingerprint of the request without its last message, i.e. the context
+     *         the last message is asked in
+     */
+    public static String context(ChatRequest request) {
+        List<ChatRequest.Message> messages = request.getMessages();
+        return digest(request, messages != null ? Math.max(0, messages.size() - 1) : 0, true);
+    }
+
+    /**
+     * @return {@code text} trimmed, lower-cased and with whitespace runs collapsed to one space
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = out.length() > 0;
+            } else {
+                if (space) {
+                    out.append(' ');
+                    space = false;
+                }
+                out.append(c);
+            }
+        }
+        return out.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static String digest(ChatRequest request, int messageCount, boolean normalized) {
+        MessageDigest sha256 = sha256();
+        update(sha256, String.valueOf(request.getModel()));
+        update(sha256, String.valueOf(request.getTemperature()));
+        update(sha256, String.valueOf(request.getMaxTokens()));
+        for (int i = 0; i < messageCount; i++) {
+            ChatRequest.Message message = request.getMessages().get(i);
+            update(sha256, String.valueOf(message.getRole()));
+            update(sha256, normalized ? normalize(message.getContent()) : String.valueOf(message.getContent()));
+        }
+        return HexFormat.of().formatHex(sha256.digest());
+    }
+
+    private static void update(MessageDigest digest, String field) {
+        byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+        // Length prefix keeps field boundaries unambiguous
+        digest.update((byte) (bytes.length >>> 24));
+        digest.update((byte) (bytes.length >>> 16));
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package ai.demo.springagent.provider.cache;
+
+import ai.demo.springagent.dto.ChatRequest;
+import ai.demo.springagent.dto.ChatResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache of chat completions.
+ *
+ * <p>The exact tier is keyed on the {@link RequestFingerprint} of the whole request. The
+ * optional semantic tier embeds the last user message with an {@link Embedder} and returns
+ * the cached answer to the most similar earlier question asked in the same context (same
+ * model, settings and preceding messages) if their cosine similarity reaches the threshold.
+ * A semantic hit returns another question's answer, so the tier is only as safe as the
+ * embedding: it must tell apart questions that differ in word order or negation. Both tiers
+ * expire entries after the TTL and hold at most {@code maxEntries} each, evicting the least
+ * recently used.
+ */
+public class ResponseCache {
+
+    /**
+     * Which tier answered a lookup.
+     */
+    public enum Tier {
+        EXACT, SEMANTIC
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final double similarityThreshold;
+    private final Embedder embedder;
+    private final SemanticIndex<CachedResponse> semantic;
+    private final Map<String, CachedResponse> exact;
+
+    private final AtomicLong exactHits = new AtomicLong();
+    private final AtomicLong semanticHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong savedNanos = new AtomicLong();
+
+    /**
+     * Cache with the exact tier only.
+     *
+     * @param maxEntries entries kept
+     * @param ttl how long an entry is served
+     */
+    public ResponseCache(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, Double.POSITIVE_INFINITY, null);
+    }
+
+    /**
+     * @param maxEntries entries kept per tier
+     * @param ttl how long an entry is served
+     * @param similarityThreshold minimum cosine similarity for a semantic hit; above 1 turns
+     *                            the semantic tier off
+     * @param embedder embeds questions for the semantic tier, or null to turn it off
+     */
+    public ResponseCache(int maxEntries, Duration ttl, double similarityThreshold, Embedder embedder) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = ttl.toNanos();
+        this.similarityThreshold = similarityThreshold;
+        boolean semanticEnabled = embedder != null && similarityThreshold <= 1.0;
+        this.embedder = semanticEnabled ? embedder : null;
+        this.semantic = semanticEnabled ? new SemanticIndex<>(embedder.dimensions(), this.maxEntries) : null;
+        this.exact = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > ResponseCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Look up a cached answer, counting the hit or miss.
+     *
+     * @return the hit, or null on a miss
+     */
+    public Hit get(ChatRequest request) {
+        long now = System.nanoTime();
+        String key = RequestFingerprint.of(request);
+        CachedResponse response;
+        synchronized (exact) {
+            response = exact.get(key);
+            if (response != null && now - response.expiresAtNanos >= 0) {
+                exact.remove(key);
+                response = null;
+            }
+        }
+        if (response != null) {
+            return hit(Tier.EXACT, response, exactHits);
+        }
+
+        float[] vector = semantic != null ? embedder.embed(question(request)) : null;
+        if (vector != null) {
+            SemanticIndex.Match<CachedResponse> match = semantic.nearest(
+                    RequestFingerprint.context(request), vector, similarityThreshold, now);
+            if (match != null) {
+                return hit(Tier.SEMANTIC, match.value, semanticHits);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Cache the answer to {@code request} in both tiers.
+     *
+     * @param upstreamNanos how long the provider took, credited as saved on every later hit
+     */
+    public void put(ChatRequest request, String model, String content, String finishReason,
+                    ChatResponse.Usage usage, long upstreamNanos) {
+        if (content == null || content.isEmpty()) {
+            return;
+        }
+        CachedResponse response = new CachedResponse(model, content, finishReason, usage, upstreamNanos,
+                System.nanoTime() + ttlNanos);
+        synchronized (exact) {
+            exact.put(RequestFingerprint.of(request), response);
+        }
+        float[] vector = semantic != null ? embedder.embed(question(request)) : null;
+        if (vector != null) {
+            semantic.put(RequestFingerprint.context(request), vector, response, response.expiresAtNanos);
+        }
+    }
+
+    public int size() {
+        synchronized (exact) {
+            return exact.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (exact) {
+            exact.clear();
+        }
+        if (semantic != null) {
+            semantic.clear();
+        }
+    }
+
+    /**
+     * Register hit/miss counters, the provider time saved by hits and the entry count.
+     */
+    public void bindTo(MeterRegistry registry) {
+        registerRequests(registry, "exact", exactHits);
+        registerRequests(registry, "semantic", semanticHits);
+        registerRequests(registry, "miss", misses);
+        FunctionCounter.builder("chat.response.cache.latency.saved", savedNanos,
+                        nanos -> nanos.get() / (double) TimeUnit.SECONDS.toNanos(1))
+                .description("Provider time avoided by serving cached responses")
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder("chat.response.cache.entries", this, ResponseCache::size)
+                .description("Responses held in the exact cache tier")
+                .register(registry);
+    }
+
+    private static void registerRequests(MeterRegistry registry, String result, AtomicLong counter) {
+        FunctionCounter.builder("chat.response.cache.requests", counter, AtomicLong::get)
+                .description("Response cache lookups by result")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private Hit hit(Tier tier, CachedResponse response, AtomicLong counter) {
+        counter.incrementAndGet();
+        savedNanos.addAndGet(response.upstreamNanos);
+        return new Hit(tier, response);
+    }
+
+    /**
+     * @return the content of the last message if a user asked it, otherwise null
+     */
+    private static String question(ChatRequest request) {
+        List<ChatRequest.Message> messages = request.getMessages();
+        if (messages == null || messages.isEmpty()) {
+            return null;
+        }
+        ChatRequest.Message last = messages.get(messages.size() - 1);
+        return "user".equals(last.getRole()) ? last.getContent() : null;
+    }
+
+    /**
+     * A cache lookup that found an answer.
+     */
+    public static final class Hit {
+        private final Tier tier;
+        private final CachedResponse response;
+
+        Hit(Tier tier, CachedResponse response) {
+            this.tier = tier;
+            this.response = response;
+        }
+
+        public Tier getTier() {
+            return tier;
+        }
+
+        public CachedResponse getResponse() {
+            return response;
+        }
+    }
+
+    /**
+     * A cached completion: the assistant content and what the provider reported for it.
+     */
+    public static final class CachedResponse {
+        private final String model;
+        private final String content;
+        private final String finishReason;
+        private final ChatResponse.Usage usage;
+        private final long upstreamNanos;
+        private final long expiresAtNanos;
+
+        CachedResponse(String model, String content, String finishReason, ChatResponse.Usage usage,
+                       long upstreamNanos, long expiresAtNanos) {
+            this.model = model;
+            this.content = content;
+            this.finishReason = finishReason;
+            this.usage = usage;
+            this.upstreamNanos = upstreamNanos;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        public String getFinishReason() {
+            return finishReason;
+        }
+
+        public ChatResponse.Usage getUsage() {
+            return usage;
+        }
+
+        public long getUpstreamNanos() {
+            return upstreamNanos;
+        }
+    }
+}
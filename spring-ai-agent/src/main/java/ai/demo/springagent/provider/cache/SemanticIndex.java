@@ -0,0 +1,217 @@
+package ai.demo.springagent.provider.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Bounded approximate-nearest-neighbour index over embedding vectors, using random-hyperplane
+ * locality-sensitive hashing. Vectors are scaled to unit length on the way in, so any
+ * embedding can be indexed and similarity is plain cosine.
+ *
+ * <p>Each of {@code TABLES} tables hashes a vector to the sign pattern of its dot products
+ * with {@code BITS} fixed random hyperplanes; vectors at a small angle share a bucket in at
+ * least one table with high probability. A query only scores the entries in its own buckets,
+ * so lookups stay cheap as the index fills. Entries are partitioned by an exact key, expire
+ * after their TTL and are evicted least recently used once {@code maxEntries} is reached.
+ */
+final class SemanticIndex<V> {
+
+    private static final int TABLES = 16;
+    private static final int BITS = 10;
+
+    private final int maxEntries;
+    private final float[][] hyperplanes;
+    private final List<Map<Integer, List<Entry<V>>>> tables = new ArrayList<>(TABLES);
+    private final LinkedHashMap<Long, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long nextId;
+    private long queries;
+
+    SemanticIndex(int dimensions, int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+        // Fixed seed: buckets only need to be consistent within one index
+        Random random = new Random(0x5eed);
+        this.hyperplanes = new float[TABLES * BITS][dimensions];
+        for (float[] plane : hyperplanes) {
+            for (int d = 0; d < dimensions; d++) {
+                plane[d] = (float) random.nextGaussian();
+            }
+        }
+        for (int t = 0; t < TABLES; t++) {
+            tables.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Index {@code value} under {@code vector}, evicting the least recently used entry if the
+     * index is full.
+     */
+    synchronized void put(String partition, float[] vector, V value, long expiresAtNanos) {
+        vector = unit(vector);
+        if (vector == null) {
+            return;
+        }
+        while (entries.size() >= maxEntries) {
+            remove(entries.values().iterator().next());
+        }
+        Entry<V> entry = new Entry<>(nextId++, partition, vector, value, expiresAtNanos, signatures(vector));
+        entries.put(entry.id, entry);
+        for (int t = 0; t < TABLES; t++) {
+            tables.get(t).computeIfAbsent(entry.signatures[t], k -> new ArrayList<>(2)).add(entry);
+        }
+    }
+
+    /**
+     * @return the value of the most similar live entry in {@code partition} with cosine
+     *         similarity of at least {@code threshold}, or null
+     */
+    synchronized Match<V> nearest(String partition, float[] vector, double threshold, long nowNanos) {
+        vector = unit(vector);
+        if (vector == null) {
+            return null;
+        }
+        int[] signatures = signatures(vector);
+        Entry<V> best = null;
+        double bestSimilarity = threshold;
+        List<Entry<V>> expired = null;
+        // Marks candidates scored by this query, so each is scored once even if it shares
+        // several buckets with the query
+        long probe = ++queries;
+        for (int t = 0; t < TABLES; t++) {
+            List<Entry<V>> bucket = tables.get(t).get(signatures[t]);
+            if (bucket == null) {
+                continue;
+            }
+            for (Entry<V> entry : bucket) {
+                if (entry.probe == probe) {
+                    continue;
+                }
+                entry.probe = probe;
+                if (nowNanos - entry.expiresAtNanos >= 0) {
+                    if (expired == null) {
+                        expired = new ArrayList<>();
+                    }
+                    expired.add(entry);
+                    continue;
+                }
+                if (!entry.partition.equals(partition)) {
+                    continue;
+                }
+                double similarity = dot(vector, entry.vector);
+                if (similarity >= bestSimilarity) {
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+        }
+        if (expired != null) {
+            expired.forEach(this::remove);
+        }
+        if (best == null) {
+            return null;
+        }
+        entries.get(best.id);
+        return new Match<>(best.value, bestSimilarity);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        tables.forEach(Map::clear);
+    }
+
+    private void remove(Entry<V> entry) {
+        entries.remove(entry.id);
+        for (int t = 0; t < TABLES; t++) {
+            Map<Integer, List<Entry<V>>> table = tables.get(t);
+            List<Entry<V>> bucket = table.get(entry.signatures[t]);
+            if (bucket != null) {
+                bucket.remove(entry);
+                if (bucket.isEmpty()) {
+                    table.remove(entry.signatures[t]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a unit-length copy of {@code vector}, or null for the zero vector
+     */
+    private static float[] unit(float[] vector) {
+        double norm = dot(vector, vector);
+        if (norm == 0) {
+            return null;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        float[] unit = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = vector[i] * scale;
+        }
+        return unit;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    private int[] signatures(float[] vector) {
+        int[] signatures = new int[TABLES];
+        for (int t = 0; t < TABLES; t++) {
+            int signature = 0;
+            for (int b = 0; b < BITS; b++) {
+                float[] plane = hyperplanes[t * BITS + b];
+                double dot = 0;
+                for (int d = 0; d < vector.length; d++) {
+                    dot += plane[d] * vector[d];
+                }
+                if (dot >= 0) {
+                    signature |= 1 << b;
+                }
+            }
+            signatures[t] = signature;
+        }
+        return signatures;
+    }
+
+    /**
+     * A lookup result and how similar it was to the query.
+     */
+    static final class Match<V> {
+        final V value;
+        final double similarity;
+
+        Match(V value, double similarity) {
+            this.value = value;
+            this.similarity = similarity;
+        }
+    }
+
+    private static final class Entry<V> {
+        final long id;
+        final String partition;
+        final float[] vector;
+        final V value;
+        final long expiresAtNanos;
+        final int[] signatures;
+        long probe = -1;
+
+        Entry(long id, String partition, float[] vector, V value, long expiresAtNanos, int[] signatures) {
+            this.id = id;
+            this.partition = partition;
+            this.vector = vector;
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+            this.signatures = signatures;
+        }
+    }
+}
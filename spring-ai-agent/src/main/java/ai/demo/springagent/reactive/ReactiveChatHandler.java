@@ -0,0 +1,139 @@
+package ai.demo.springagent.reactive;
+
+import ai.demo.springagent.dto.ChatRequest;
+import ai.demo.springagent.dto.ErrorResponse;
+import ai.demo.springagent.metrics.RequestTimings;
+import ai.demo.springagent.service.ChatService;
+import ai.demo.springagent.sse.SseFrameWriter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.Set;
+
+/**
+ * Functional routes for the reactive chat endpoints. They mirror {@code /v1/chat/completions}
+ * and {@code /v1/models} of the servlet API, including the SSE framing and the
+ * {@code Server-Timing} header and trailing event, but never block the calling thread.
+ */
+public class ReactiveChatHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveChatHandler.class);
+    private static final MediaType EVENT_STREAM =
+            new MediaType("text", "event-stream", StandardCharsets.UTF_8);
+
+    private final ChatService chatService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    public ReactiveChatHandler(ChatService chatService, ObjectMapper objectMapper, Validator validator) {
+        this.chatService = chatService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+                .POST("/v1/chat/completions", this::chatCompletions)
+                .GET("/v1/models", request -> ServerResponse.ok().bodyValue(chatService.getAvailableModels()))
+                .build();
+    }
+
+    Mono<ServerResponse> chatCompletions(ServerRequest serverRequest) {
+        String provider = serverRequest.headers().firstHeader("X-LLM-Provider");
+        String providerName = provider != null ? provider : "openai";
+        return serverRequest.bodyToMono(ChatRequest.class)
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Request body is required")))
+                .flatMap(request -> {
+                    validate(request);
+                    RequestTimings timings = new RequestTimings();
+                    if (request.isStream()) {
+                        DataBufferFactory bufferFactory = serverRequest.exchange().getResponse().bufferFactory();
+                        return ServerResponse.ok()
+                                .contentType(EVENT_STREAM)
+                                .body(BodyInserters.fromDataBuffers(events(request, providerName, timings, bufferFactory)));
+                    }
+                    return chatService.chat(request, providerName, timings)
+                            .flatMap(response -> {
+                                long serializeStart = System.nanoTime();
+                                byte[] json;
+                                try {
+                                    json = objectMapper.writeValueAsBytes(response);
+                                } catch (JsonProcessingException e) {
+                                    return Mono.error(e);
+                                }
+                                timings.record(RequestTimings.Phase.SERIALIZATION, serializeStart);
+                                return ServerResponse.ok()
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .header(RequestTimings.HEADER, timings.toHeaderValue())
+                                        .header("Timing-Allow-Origin", "*")
+                                        .bodyValue(json);
+                            });
+                })
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> error(HttpStatus.BAD_REQUEST, ErrorResponse.invalidRequest(e.getMessage())))
+                .onErrorResume(ServerWebInputException.class,
+                        e -> error(HttpStatus.BAD_REQUEST, ErrorResponse.invalidRequest("Malformed request body")))
+                .onErrorResume(e -> {
+                    logger.error("Reactive chat completion failed", e);
+                    return error(HttpStatus.INTERNAL_SERVER_ERROR,
+                            ErrorResponse.internalError("An unexpected error occurred"));
+                });
+    }
+
+    /**
+     * The stream as SSE frames in the same encoding as the servlet endpoint: one frame per
+     * chunk, then the {@code server-timing} event and {@code [DONE]}.
+     */
+    private Flux<DataBuffer> events(ChatRequest request, String provider, RequestTimings timings,
+                                    DataBufferFactory bufferFactory) {
+        return Flux.defer(() -> {
+            SseFrameWriter writer = new SseFrameWriter();
+            return chatService.stream(request, provider, timings)
+                    .map(chunk -> {
+                        long serializeStart = System.nanoTime();
+                        writer.chunk(chunk);
+                        DataBuffer frame = writer.drain(bufferFactory);
+                        timings.record(RequestTimings.Phase.SERIALIZATION, serializeStart);
+                        return frame;
+                    })
+                    .concatWith(Mono.fromCallable(() -> {
+                        writer.event("server-timing", objectMapper.writeValueAsString(timings.toMillis()));
+                        writer.done();
+                        return writer.drain(bufferFactory);
+                    }));
+        });
+    }
+
+    private void validate(ChatRequest request) {
+        Set<ConstraintViolation<ChatRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            // Same shape as the servlet handler's message: the first field error
+            ConstraintViolation<ChatRequest> first = violations.stream()
+                    .min(Comparator.comparing(v -> v.getPropertyPath().toString()))
+                    .orElseThrow();
+            throw new IllegalArgumentException(first.getPropertyPath() + ": " + first.getMessage());
+        }
+    }
+
+    private static Mono<ServerResponse> error(HttpStatus status, ErrorResponse body) {
+        return ServerResponse.status(status).contentType(MediaType.APPLICATION_JSON).bodyValue(body);
+    }
+}
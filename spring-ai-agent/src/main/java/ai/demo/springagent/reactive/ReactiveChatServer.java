@@ -0,0 +1,97 @@
+package ai.demo.springagent.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+
+/**
+ * Reactor Netty server for the {@link ReactiveChatHandler} routes, running beside the servlet
+ * container on its own port. Requests are served by a small pool of event-loop threads; a
+ * stream holds no thread between chunks, only its connection.
+ */
+public class ReactiveChatServer implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveChatServer.class);
+
+    private final ReactiveChatHandler handler;
+    private final ObjectMapper objectMapper;
+    private final int port;
+    private final int eventLoopThreads;
+    private final Duration shutdownTimeout;
+
+    private volatile LoopResources loops;
+    private volatile DisposableServer server;
+
+    /**
+     * @param port port to listen on; 0 picks a free one
+     * @param eventLoopThreads event-loop threads, or 0 for one per available processor
+     * @param shutdownTimeout how long in-flight requests get to finish on stop
+     */
+    public ReactiveChatServer(ReactiveChatHandler handler, ObjectMapper objectMapper, int port,
+                              int eventLoopThreads, Duration shutdownTimeout) {
+        this.handler = handler;
+        this.objectMapper = objectMapper;
+        this.port = port;
+        this.eventLoopThreads = eventLoopThreads > 0
+                ? eventLoopThreads : Runtime.getRuntime().availableProcessors();
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (server != null) {
+            return;
+        }
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                })
+                .build();
+        HttpHandler httpHandler = RouterFunctions.toHttpHandler(handler.routes(), strategies);
+        loops = LoopResources.create("chat-reactive", eventLoopThreads, true);
+        server = HttpServer.create()
+                .port(port)
+                .runOn(loops)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                .bindNow();
+        logger.info("Reactive chat server listening on port {} with {} event-loop threads",
+                server.port(), eventLoopThreads);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.disposeNow(shutdownTimeout);
+        loops.disposeLater(Duration.ZERO, shutdownTimeout).block(shutdownTimeout);
+        server = null;
+        loops = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * @return the bound port, or -1 when not running
+     */
+    public int getPort() {
+        DisposableServer current = server;
+        return current != null ? current.port() : -1;
+    }
+}
@@ -0,0 +1,244 @@
+package ai.demo.springagent.repository;
+
+import ai.demo.springagent.model.ThreadMessage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed table of message bodies shared by every thread of a store.
+ *
+ * <p>{@link #intern} hashes a message's content and either takes another reference on an
+ * identical body already in the table or adds a new one, compressed by the
+ * {@link MessageCompressor} when it is large. The stored message keeps only a handle to its
+ * body, so a long preamble repeated across thousands of threads is held once. Bodies are
+ * reference counted and dropped when the last message using them is {@link #release released}.
+ * Roles and thread ids are interned as well, so stored messages share those strings.
+ *
+ * <p>Bodies with the same 64-bit hash are chained under one map key and compared by content,
+ * so a collision costs a comparison, never a wrong answer.
+ */
+public class ContentTable {
+
+    private static final int MAX_ROLES = 64;
+
+    private final MessageCompressor compressor;
+    private final Map<Long, Body> bodies = new ConcurrentHashMap<>();
+    private final Map<String, String> roles = new ConcurrentHashMap<>();
+    private final AtomicLong bodyCount = new AtomicLong();
+    private final AtomicLong references = new AtomicLong();
+
+    public ContentTable() {
+        this(MessageCompressor.DISABLED);
+    }
+
+    /**
+     * @param compressor compresses large bodies when they are first stored
+     */
+    public ContentTable(MessageCompressor compressor) {
+        this.compressor = compressor;
+    }
+
+    /**
+     * Store a message's content in the table.
+     *
+     * @param message the message to store
+     * @param threadId the canonical id string of the message's thread
+     * @return the message to keep: it holds a referenced handle to the shared body
+     */
+    public ThreadMessage intern(ThreadMessage message, String threadId) {
+        String content = message.getContent();
+        Body body = content != null ? acquire(content) : null;
+        return new StoredMessage(message, threadId, role(message.getRole()), body);
+    }
+
+    /**
+     * Drop the reference a stored message holds on its body.
+     */
+    public void release(ThreadMessage message) {
+        if (!(message instanceof StoredMessage stored) || stored.body == null) {
+            return;
+        }
+        Body body = stored.body;
+        bodies.compute(body.hash, (hash, head) -> {
+            if (--body.refs > 0) {
+                return head;
+            }
+            bodyCount.decrementAndGet();
+            if (body.deflated != null) {
+                compressor.release(body);
+            }
+            if (head == body) {
+                return body.next;
+            }
+            for (Body b = head; b != null; b = b.next) {
+                if (b.next == body) {
+                    b.next = body.next;
+                    break;
+                }
+            }
+            return head;
+        });
+        references.decrementAndGet();
+    }
+
+    /**
+     * @return the number of distinct bodies held
+     */
+    public long getBodies() {
+        return bodyCount.get();
+    }
+
+    /**
+     * @return the number of stored messages referring to a body
+     */
+    public long getReferences() {
+        return references.get();
+    }
+
+    /**
+     * Publish body and reference gauges; their ratio is the deduplication factor.
+     */
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("thread.store.content.bodies", bodyCount, AtomicLong::get)
+                .description("Distinct message bodies held by the content table")
+                .register(registry);
+        Gauge.builder("thread.store.content.references", references, AtomicLong::get)
+                .description("Stored messages referring to a shared body")
+                .register(registry);
+    }
+
+    private Body acquire(String content) {
+        long hash = hash(content);
+        Body acquired = reference(hash, content, null);
+        if (acquired == null) {
+            // Deflate outside compute, which holds the lock of the map's bin while it runs
+            byte[] deflated = compressor.compress(content);
+            Body created = deflated != null
+                    ? new Body(hash, content.length(), null, deflated, utf8Length(content), compressor)
+                    : new Body(hash, content.length(), content, null, 0, compressor);
+            // Another thread may have added the same body meanwhile; then ours is dropped
+            acquired = reference(hash, content, created);
+        }
+        references.incrementAndGet();
+        return acquired;
+    }
+
+    /**
+     * Take a reference on the body with this content, or add {@code created} if there is none.
+     *
+     * @param created the body to add, or null to only look for an existing one
+     * @return the referenced body, or null if none exists and {@code created} is null
+     */
+    private Body reference(long hash, String content, Body created) {
+        Body[] acquired = new Body[1];
+        bodies.compute(hash, (key, head) -> {
+            for (Body b = head; b != null; b = b.next) {
+                if (b.matches(content)) {
+                    b.refs++;
+                    acquired[0] = b;
+                    return head;
+                }
+            }
+            if (created == null) {
+                return head;
+            }
+            if (created.deflated != null) {
+                compressor.track(created);
+            }
+            created.next = head;
+            bodyCount.incrementAndGet();
+            acquired[0] = created;
+            return created;
+        });
+        return acquired[0];
+    }
+
+    private String role(String role) {
+        if (role == null) {
+            return null;
+        }
+        String interned = roles.get(role);
+        if (interned != null) {
+            return interned;
+        }
+        // Roles are validated upstream; the cap only guards against unbounded growth
+        if (roles.size() >= MAX_ROLES) {
+            return role;
+        }
+        String previous = roles.putIfAbsent(role, role);
+        return previous != null ? previous : role;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 code units, finished with a Murmur3 mix.
+     */
+    static long hash(String content) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, n = content.length(); i < n; i++) {
+            h ^= content.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static int utf8Length(String content) {
+        int bytes = 0;
+        for (int i = 0, n = content.length(); i < n; i++) {
+            char c = content.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(content.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                bytes += 1; // Unpaired surrogates encode as '?'
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * A stored body: either the string itself or its deflated UTF-8. Reference count and chain
+     * link are only touched under the map's lock for {@code hash}.
+     */
+    static final class Body {
+        final long hash;
+        final int length;
+        final String text;
+        final byte[] deflated;
+        final int utf8Length;
+        final MessageCompressor compressor;
+        int refs = 1;
+        Body next;
+
+        Body(long hash, int length, String text, byte[] deflated, int utf8Length, MessageCompressor compressor) {
+            this.hash = hash;
+            this.length = length;
+            this.text = text;
+            this.deflated = deflated;
+            this.utf8Length = utf8Length;
+            this.compressor = compressor;
+        }
+
+        String content() {
+            return text != null ? text : compressor.inflate(this);
+        }
+
+        boolean matches(String content) {
+            return length == content.length() && content().equals(content);
+        }
+    }
+}
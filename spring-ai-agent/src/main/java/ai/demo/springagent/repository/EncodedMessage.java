@@ -0,0 +1,95 @@
+package ai.demo.springagent.repository;
+
+import ai.demo.springagent.model.ThreadMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A stored message in its JSON encoding. Lets listings copy message bytes straight to the
+ * response without materializing {@link ThreadMessage} objects; {@link #decode()} is only
+ * needed when the fields themselves are used.
+ */
+public interface EncodedMessage {
+
+    /**
+     * @return the message id, available without decoding the payload
+     */
+    String getId();
+
+    /**
+     * Write the message's JSON object to the stream. Messages kept encoded are copied as
+     * stored; others are serialized with {@code objectMapper}, the application's mapper.
+     */
+    void writeTo(OutputStream out, ObjectMapper objectMapper) throws IOException;
+
+    /**
+     * @return the decoded message
+     */
+    ThreadMessage decode();
+
+    /**
+     * Encoding adapter for stores that keep decoded messages: each message is serialized
+     * with the caller's mapper when it is written.
+     */
+    static List<EncodedMessage> of(List<ThreadMessage> messages) {
+        return new Encoding(messages);
+    }
+
+    /**
+     * Copy a buffer's remaining bytes to a stream without disturbing the buffer, using a
+     * small scratch array for direct (mapped) buffers.
+     */
+    static void copy(ByteBuffer source, OutputStream out) throws IOException {
+        ByteBuffer buffer = source.duplicate();
+        if (buffer.hasArray()) {
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            return;
+        }
+        byte[] scratch = new byte[Math.min(buffer.remaining(), 8192)];
+        while (buffer.hasRemaining()) {
+            int n = Math.min(scratch.length, buffer.remaining());
+            buffer.get(scratch, 0, n);
+            out.write(scratch, 0, n);
+        }
+    }
+
+    final class Encoding extends AbstractList<EncodedMessage> implements RandomAccess {
+        private final List<ThreadMessage> messages;
+
+        private Encoding(List<ThreadMessage> messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public EncodedMessage get(int index) {
+            ThreadMessage message = messages.get(index);
+            return new EncodedMessage() {
+                @Override
+                public String getId() {
+                    return message.getId();
+                }
+
+                @Override
+                public void writeTo(OutputStream out, ObjectMapper objectMapper) throws IOException {
+                    out.write(objectMapper.writeValueAsBytes(message));
+                }
+
+                @Override
+                public ThreadMessage decode() {
+                    return message;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return messages.size();
+        }
+    }
+}
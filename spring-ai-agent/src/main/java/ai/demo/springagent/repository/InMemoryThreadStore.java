@@ -0,0 +1,495 @@
+package ai.demo.springagent.repository;
+
+import ai.demo.springagent.model.HistorySummary;
+import ai.demo.springagent.model.Thread;
+import ai.demo.springagent.model.ThreadMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Heap {@link ThreadStore}: thread metadata in a map and messages in a {@link MessageLog}
+ * per thread. Nothing survives a restart.
+ *
+ * <p>With an {@link Eviction} policy, a background sweep moves the messages of threads that
+ * have been idle longer than the timeout (or that fall outside the most recently used
+ * {@code maxResidentThreads}) into a compressed {@link ThreadArchive} file. An evicted
+ * thread keeps its metadata, message count and last message on the heap, so listings never
+ * trigger a reload; reading or appending messages reloads the archive transparently.
+ *
+ * <p>Message bodies live in a {@link ContentTable}: identical contents are stored once and
+ * shared between threads, and large ones are kept compressed.
+ */
+public class InMemoryThreadStore implements ThreadStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryThreadStore.class);
+
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private final ContentTable contents;
+    private final ThreadArchive archive;
+    private final Eviction eviction;
+    private final ScheduledExecutorService sweeper;
+    private final AtomicInteger residentThreads = new AtomicInteger();
+    private final Counter evictions;
+    private final Counter reloads;
+    private final Timer reloadLatency;
+
+    public InMemoryThreadStore() {
+        this(new ContentTable());
+    }
+
+    /**
+     * Create a store without eviction.
+     *
+     * @param contents table holding the bodies of stored messages
+     */
+    public InMemoryThreadStore(ContentTable contents) {
+        this.contents = contents;
+        this.archive = null;
+        this.eviction = null;
+        this.sweeper = null;
+        this.evictions = null;
+        this.reloads = null;
+        this.reloadLatency = null;
+    }
+
+    /**
+     * Create a store that evicts idle threads to the given archive.
+     *
+     * @param contents table holding the bodies of stored messages
+     * @param archive where evicted threads' messages are written
+     * @param eviction when threads are evicted
+     * @param registry registry for eviction counters and reload latency
+     */
+    public InMemoryThreadStore(ContentTable contents, ThreadArchive archive, Eviction eviction,
+                               MeterRegistry registry) {
+        this.contents = contents;
+        this.archive = archive;
+        this.eviction = eviction;
+        this.evictions = Counter.builder("thread.store.evictions")
+                .description("Threads whose messages were moved to the archive")
+                .register(registry);
+        this.reloads = Counter.builder("thread.store.reloads")
+                .description("Evicted threads reloaded from the archive on access")
+                .register(registry);
+        this.reloadLatency = Timer.builder("thread.store.reload")
+                .description("Time to reload an evicted thread from the archive")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        Gauge.builder("thread.store.resident", residentThreads, AtomicInteger::get)
+                .description("Threads whose messages are held on the heap")
+                .register(registry);
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            java.lang.Thread thread = new java.lang.Thread(r, "thread-store-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = eviction.sweepInterval.toMillis();
+        this.sweeper.scheduleWithFixedDelay(this::sweepSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void saveThread(Thread thread) {
+        Slot created = new Slot(thread.getId(), thread);
+        Slot existing = slots.putIfAbsent(thread.getId(), created);
+        if (existing != null) {
+            existing.thread = thread;
+        } else {
+            residentThreads.incrementAndGet();
+        }
+    }
+
+    @Override
+    public Optional<Thread> findThread(String threadId) {
+        Slot slot = slots.get(threadId);
+        return Optional.ofNullable(slot != null ? slot.thread : null);
+    }
+
+    @Override
+    public Iterable<Thread> threads() {
+        List<Thread> threads = new ArrayList<>(slots.size());
+        for (Slot slot : slots.values()) {
+            if (slot.thread != null) {
+                threads.add(slot.thread);
+            }
+        }
+        return threads;
+    }
+
+    @Override
+    public boolean deleteThread(String threadId) {
+        Slot slot = slots.remove(threadId);
+        if (slot == null) {
+            return false;
+        }
+        slot.lock.lock();
+        try {
+            if (slot.log != null) {
+                release(slot.log);
+                residentThreads.decrementAndGet();
+            } else if (archive != null) {
+                try {
+                    archive.delete(threadId);
+                } catch (IOException e) {
+                    logger.warn("Failed to delete archive of thread {}: {}", threadId, e.getMessage());
+                }
+            }
+            slot.deleted = true;
+        } finally {
+            slot.lock.unlock();
+        }
+        return slot.thread != null;
+    }
+
+    @Override
+    public boolean existsThread(String threadId) {
+        Slot slot = slots.get(threadId);
+        return slot != null && slot.thread != null;
+    }
+
+    @Override
+    public long threadCount() {
+        long count = 0;
+        for (Slot slot : slots.values()) {
+            if (slot.thread != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the thread does not exist or has been deleted
+     */
+    @Override
+    public void appendMessage(ThreadMessage message) {
+        // Never create a slot here: a message for a missing thread would leave a slot that
+        // no delete can reach
+        Slot slot = slots.get(message.getThreadId());
+        if (slot == null) {
+            throw new IllegalArgumentException("No such thread: " + message.getThreadId());
+        }
+        // Appends hold the slot so an eviction cannot archive a log that is still growing
+        slot.lock.lock();
+        try {
+            if (slot.deleted || slot.thread == null) {
+                throw new IllegalArgumentException("No such thread: " + message.getThreadId());
+            }
+            resident(slot).append(contents.intern(message, slot.id));
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<ThreadMessage> messages(String threadId) {
+        MessageLog log = log(threadId);
+        return log != null ? log.snapshot() : List.of();
+    }
+
+    /**
+     * Evicted threads are streamed from the archive and stay evicted.
+     */
+    @Override
+    public void forEachMessage(String threadId, Predicate<ThreadMessage> visitor) {
+        Slot slot = slots.get(threadId);
+        if (slot == null) {
+            return;
+        }
+        MessageLog log = slot.log;
+        if (log == null) {
+            try {
+                archive.scan(slot.id, visitor);
+                return;
+            } catch (NoSuchFileException e) {
+                // Reloaded or deleted since the check; nothing was visited yet
+                log = slot.log;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read archived thread " + slot.id, e);
+            }
+        }
+        if (log != null) {
+            for (ThreadMessage message : log.snapshot()) {
+                if (!visitor.test(message)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Evicted threads are searched in the archive and stay evicted.
+     */
+    @Override
+    public ThreadMessage findMessage(String threadId, String messageId) {
+        Slot slot = slots.get(threadId);
+        MessageLog log = slot != null ? slot.log : null;
+        if (log != null) {
+            int index = log.indexOf(messageId);
+            return index < 0 ? null : log.snapshot().get(index);
+        }
+        ThreadMessage[] found = new ThreadMessage[1];
+        forEachMessage(threadId, message -> {
+            if (messageId.equals(message.getId())) {
+                found[0] = message;
+                return false;
+            }
+            return true;
+        });
+        return found[0];
+    }
+
+    /**
+     * Summaries stay on the heap even while the thread's messages are archived; they are
+     * small and read on every request to the thread.
+     */
+    @Override
+    public void saveHistorySummary(String threadId, HistorySummary summary) {
+        Slot slot = slots.get(threadId);
+        if (slot == null) {
+            throw new IllegalArgumentException("No such thread: " + threadId);
+        }
+        slot.lock.lock();
+        try {
+            if (slot.deleted || slot.thread == null) {
+                throw new IllegalArgumentException("No such thread: " + threadId);
+            }
+            slot.summary = summary;
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<HistorySummary> findHistorySummary(String threadId) {
+        Slot slot = slots.get(threadId);
+        return Optional.ofNullable(slot != null ? slot.summary : null);
+    }
+
+    @Override
+    public int messageCount(String threadId) {
+        Slot slot = slots.get(threadId);
+        if (slot == null) {
+            return 0;
+        }
+        MessageLog log = slot.log;
+        return log != null ? log.size() : slot.evictedCount;
+    }
+
+    @Override
+    public ThreadMessage lastMessage(String threadId) {
+        Slot slot = slots.get(threadId);
+        if (slot == null) {
+            return null;
+        }
+        MessageLog log = slot.log;
+        return log != null ? log.last() : slot.evictedLast;
+    }
+
+    @Override
+    public int indexOfMessage(String threadId, String messageId) {
+        MessageLog log = log(threadId);
+        return log != null ? log.indexOf(messageId) : -1;
+    }
+
+    @Override
+    public void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    /**
+     * Evict threads that are idle past the timeout, then the least recently used residents
+     * beyond the cap.
+     *
+     * @return the number of threads evicted
+     */
+    public int evictIdle() {
+        if (archive == null) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long idleNanos = eviction.idleTimeout.toNanos();
+        List<Map.Entry<String, Slot>> resident = new ArrayList<>();
+        int evicted = 0;
+        for (Map.Entry<String, Slot> entry : slots.entrySet()) {
+            Slot slot = entry.getValue();
+            if (slot.log == null) {
+                continue;
+            }
+            if (now - slot.lastAccess > idleNanos) {
+                evicted += evict(entry.getKey(), slot) ? 1 : 0;
+            } else {
+                resident.add(entry);
+            }
+        }
+
+        int excess = resident.size() - eviction.maxResidentThreads;
+        if (excess > 0) {
+            resident.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+            for (int i = 0; i < excess; i++) {
+                Map.Entry<String, Slot> entry = resident.get(i);
+                evicted += evict(entry.getKey(), entry.getValue()) ? 1 : 0;
+            }
+        }
+        if (evicted > 0) {
+            logger.debug("Evicted {} idle threads to the archive", evicted);
+        }
+        return evicted;
+    }
+
+    private void sweepSafely() {
+        try {
+            evictIdle();
+        } catch (RuntimeException e) {
+            logger.warn("Thread eviction sweep failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean evict(String threadId, Slot slot) {
+        slot.lock.lock();
+        try {
+            MessageLog log = slot.log;
+            if (log == null || slot.deleted) {
+                return false;
+            }
+            try {
+                archive.write(threadId, log.snapshot());
+            } catch (IOException e) {
+                logger.warn("Failed to archive thread {}; keeping it resident: {}", threadId, e.getMessage());
+                return false;
+            }
+            slot.evictedCount = log.size();
+            slot.evictedLast = log.last();
+            slot.log = null;
+            release(log);
+            residentThreads.decrementAndGet();
+            evictions.increment();
+            return true;
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the thread's log, reloading it if evicted, or null if the thread is unknown
+     */
+    private MessageLog log(String threadId) {
+        Slot slot = slots.get(threadId);
+        if (slot == null) {
+            return null;
+        }
+        MessageLog log = slot.log;
+        if (log != null) {
+            slot.lastAccess = System.nanoTime();
+            return log;
+        }
+        slot.lock.lock();
+        try {
+            return slot.deleted ? null : resident(slot);
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    /**
+     * Must be called holding the slot's lock.
+     */
+    private MessageLog resident(Slot slot) {
+        slot.lastAccess = System.nanoTime();
+        if (slot.log != null) {
+            return slot.log;
+        }
+        long start = System.nanoTime();
+        MessageLog log = new MessageLog();
+        try {
+            for (ThreadMessage message : archive.read(slot.id)) {
+                log.append(contents.intern(message, slot.id));
+            }
+            archive.delete(slot.id);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to reload archived thread " + slot.id, e);
+        }
+        slot.log = log;
+        slot.evictedLast = null;
+        residentThreads.incrementAndGet();
+        reloads.increment();
+        reloadLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return log;
+    }
+
+    private void release(MessageLog log) {
+        for (ThreadMessage message : log.snapshot()) {
+            contents.release(message);
+        }
+    }
+
+    /**
+     * Per-thread state. {@code log} is null while the thread's messages are archived.
+     *
+     * <p>{@code lock} is held across archive I/O, so it is a {@link ReentrantLock} rather than
+     * the slot's monitor: a virtual thread waiting on it unmounts instead of pinning its carrier.
+     */
+    private static final class Slot {
+        final String id;
+        final ReentrantLock lock = new ReentrantLock();
+        volatile Thread thread;
+        volatile MessageLog log = new MessageLog();
+        volatile long lastAccess = System.nanoTime();
+        volatile int evictedCount;
+        volatile ThreadMessage evictedLast;
+        volatile HistorySummary summary;
+        boolean deleted;
+
+        Slot(String id, Thread thread) {
+            this.id = id;
+            this.thread = thread;
+        }
+    }
+
+    /**
+     * When resident threads are moved to the archive.
+     */
+    public static final class Eviction {
+        private Duration idleTimeout = Duration.ofMinutes(30);
+        private int maxResidentThreads = 10_000;
+        private Duration sweepInterval = Duration.ofSeconds(30);
+
+        public Eviction idleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        public Eviction maxResidentThreads(int maxResidentThreads) {
+            this.maxResidentThreads = maxResidentThreads;
+            return this;
+        }
+
+        public Eviction sweepInterval(Duration sweepInterval) {
+            this.sweepInterval = sweepInterval;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package ai.demo.springagent.repository;
+
+import ai.demo.springagent.model.ThreadMessage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores large message content as deflated UTF-8 instead of a {@code String}.
+ *
+ * <p>The {@link ContentTable} asks the compressor to {@link #compress} each new body; content
+ * at least {@code thresholdChars} long is kept deflated and inflated again when a message's
+ * {@link ThreadMessage#getContent()} is read. Recently inflated contents are kept in a small
+ * LRU cache so that hot threads, whose history is re-read on every chat turn, do not pay for
+ * decompression each time. The cache is split into independently locked shards by content
+ * hash, so concurrent readers of different threads rarely wait on each other.
+ */
+public class MessageCompressor {
+
+    /**
+     * Compressor that never compresses.
+     */
+    public static final MessageCompressor DISABLED = new MessageCompressor(Integer.MAX_VALUE, 0);
+
+    private static final int MAX_CACHE_SHARDS = 16;
+
+    private final int thresholdChars;
+    private final CacheShard[] decoded;
+    private final AtomicLong compressedMessages = new AtomicLong();
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+
+    /**
+     * @param thresholdChars minimum content length to compress
+     * @param cacheEntries number of decoded contents to cache
+     */
+    public MessageCompressor(int thresholdChars, int cacheEntries) {
+        this.thresholdChars = Math.max(1, thresholdChars);
+        int shards = cacheEntries > 0 ? Integer.highestOneBit(Math.min(cacheEntries, MAX_CACHE_SHARDS)) : 0;
+        this.decoded = new CacheShard[shards];
+        for (int i = 0; i < shards; i++) {
+            // Spread the remainder so that the shards hold exactly cacheEntries in total
+            decoded[i] = new CacheShard(cacheEntries / shards + (i < cacheEntries % shards ? 1 : 0));
+        }
+    }
+
+    /**
+     * @return the deflated UTF-8 of the content, or null if it should be kept as a string
+     */
+    byte[] compress(String content) {
+        if (content.length() < thresholdChars) {
+            return null;
+        }
+        byte[] utf8 = content.getBytes(StandardCharsets.UTF_8);
+        byte[] deflated = deflate(utf8);
+        if (deflated.length >= utf8.length) {
+            return null; // Incompressible; keep the string
+        }
+        return deflated;
+    }
+
+    /**
+     * Count a compressed body that was stored; {@link #release} undoes this.
+     */
+    void track(ContentTable.Body body) {
+        compressedMessages.incrementAndGet();
+        rawBytes.addAndGet(body.utf8Length);
+        storedBytes.addAndGet(body.deflated.length);
+    }
+
+    String inflate(ContentTable.Body body) {
+        CacheShard shard = shardFor(body);
+        if (shard != null) {
+            String cached = shard.get(body);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        String content = new String(inflate(body.deflated, body.utf8Length), StandardCharsets.UTF_8);
+        if (shard != null) {
+            shard.put(body, content);
+        }
+        return content;
+    }
+
+    /**
+     * Forget a compressed body that is no longer referenced.
+     */
+    void release(ContentTable.Body body) {
+        compressedMessages.decrementAndGet();
+        rawBytes.addAndGet(-body.utf8Length);
+        storedBytes.addAndGet(-body.deflated.length);
+        CacheShard shard = shardFor(body);
+        if (shard != null) {
+            shard.remove(body);
+        }
+    }
+
+    /**
+     * @return the number of decoded contents currently cached
+     */
+    int cachedEntries() {
+        int entries = 0;
+        for (CacheShard shard : decoded) {
+            entries += shard.size();
+        }
+        return entries;
+    }
+
+    private CacheShard shardFor(ContentTable.Body body) {
+        if (decoded.length == 0) {
+            return null;
+        }
+        int h = (int) (body.hash ^ (body.hash >>> 32));
+        return decoded[(h ^ (h >>> 16)) & (decoded.length - 1)];
+    }
+
+    /**
+     * @return the number of bodies currently stored compressed
+     */
+    public long getCompressedMessages() {
+        return compressedMessages.get();
+    }
+
+    /**
+     * @return UTF-8 size of the content currently stored compressed
+     */
+    public long getRawBytes() {
+        return rawBytes.get();
+    }
+
+    /**
+     * @return deflated size of that content
+     */
+    public long getStoredBytes() {
+        return storedBytes.get();
+    }
+
+    /**
+     * Publish compression gauges.
+     */
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("thread.store.content.compressed", compressedMessages, AtomicLong::get)
+                .description("Message bodies stored compressed")
+                .register(registry);
+        Gauge.builder("thread.store.content.bytes", rawBytes, AtomicLong::get)
+                .description("Content bytes before and after compression")
+                .tag("form", "raw")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("thread.store.content.bytes", storedBytes, AtomicLong::get)
+                .description("Content bytes before and after compression")
+                .tag("form", "stored")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length / 3));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input, int length) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            byte[] output = new byte[length];
+            int offset = 0;
+            while (offset < length && !inflater.finished()) {
+                int n = inflater.inflate(output, offset, length - offset);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += n;
+            }
+            if (offset != length) {
+                throw new IllegalStateException("Compressed message content is truncated");
+            }
+            return output;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Compressed message content is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * One independently locked slice of the decoded-content LRU.
+     */
+    private static final class CacheShard {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<ContentTable.Body, String> entries;
+
+        CacheShard(int capacity) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ContentTable.Body, String> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        String get(ContentTable.Body body) {
+            lock.lock();
+            try {
+                return entries.get(body);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(ContentTable.Body body, String content) {
+            lock.lock();
+            try {
+                entries.put(body, content);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(ContentTable.Body body) {
+            lock.lock();
+            try {
+                entries.remove(body);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return entries.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
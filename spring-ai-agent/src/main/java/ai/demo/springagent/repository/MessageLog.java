@@ -0,0 +1,146 @@
+package ai.demo.springagent.repository;
+
+import ai.demo.springagent.model.ThreadMessage;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only, chunked message log for a single thread.
+ *
+ * <p>Messages are stored in fixed-size chunks referenced from a small directory array, so
+ * appends never copy existing messages. Appends are serialized per log; readers never lock.
+ * A message slot is written before the volatile {@code size} is published, and slots are
+ * never modified afterwards, so a {@link #snapshot()} is an immutable view that needs no
+ * copying and stays valid while writers keep appending. Message ids are indexed so that
+ * cursor-based pages cost O(page size) regardless of how long the thread is.
+ */
+public final class MessageLog {
+
+    static final int CHUNK_SHIFT = 6;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private volatile ThreadMessage[][] directory = new ThreadMessage[1][];
+    private volatile int size;
+    private final Map<String, Integer> indexById = new ConcurrentHashMap<>();
+
+    /**
+     * Append a message to the end of the log.
+     *
+     * @param message the message to append
+     * @return the index of the appended message
+     */
+    public synchronized int append(ThreadMessage message) {
+        int index = size;
+        int chunkIndex = index >>> CHUNK_SHIFT;
+        ThreadMessage[][] dir = directory;
+        if (chunkIndex == dir.length) {
+            dir = Arrays.copyOf(dir, dir.length * 2);
+        }
+        if (dir[chunkIndex] == null) {
+            dir[chunkIndex] = new ThreadMessage[CHUNK_SIZE];
+        }
+        dir[chunkIndex][index & CHUNK_MASK] = message;
+        if (message.getId() != null) {
+            indexById.put(message.getId(), index);
+        }
+        // Publish the directory before the size so readers that see the new size see the chunk
+        directory = dir;
+        size = index + 1;
+        return index;
+    }
+
+    /**
+     * @return the number of messages, in O(1)
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the most recent message, or null if the log is empty
+     */
+    public ThreadMessage last() {
+        int n = size;
+        return n == 0 ? null : get(directory, n - 1);
+    }
+
+    /**
+     * @return an immutable, random-access view of the messages appended so far
+     */
+    public List<ThreadMessage> snapshot() {
+        int n = size;
+        return n == 0 ? List.of() : new Snapshot(directory, n);
+    }
+
+    /**
+     * @return the position of the message with the given id, or -1 if it is not in this log
+     */
+    public int indexOf(String messageId) {
+        Integer index = messageId != null ? indexById.get(messageId) : null;
+        return index != null && index < size ? index : -1;
+    }
+
+    /**
+     * Return one page of messages relative to optional cursors, following the OpenAI list
+     * semantics: {@code after} and {@code before} are message ids interpreted in the
+     * requested order.
+     *
+     * @param limit maximum number of messages to return
+     * @param after return messages that come after this id in the requested order (optional)
+     * @param before return messages that come before this id in the requested order (optional)
+     * @param ascending true for oldest first, false for newest first
+     * @return the page
+     * @throws IllegalArgumentException if a cursor does not belong to this log
+     */
+    public Page<ThreadMessage> page(int limit, String after, String before, boolean ascending) {
+        return Page.slice(snapshot(), cursor(after, "after"), cursor(before, "before"), limit, ascending);
+    }
+
+    private int cursor(String messageId, String name) {
+        if (messageId == null || messageId.isEmpty()) {
+            return -1;
+        }
+        int index = indexOf(messageId);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown '" + name + "' cursor: " + messageId);
+        }
+        return index;
+    }
+
+    private static ThreadMessage get(ThreadMessage[][] dir, int index) {
+        return dir[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    private static final class Snapshot extends AbstractList<ThreadMessage> implements RandomAccess {
+        private final ThreadMessage[][] directory;
+        private final int size;
+
+        Snapshot(ThreadMessage[][] directory, int size) {
+            this.directory = directory;
+            this.size = size;
+        }
+
+        @Override
+        public ThreadMessage get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return MessageLog.get(directory, index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ai.demo.springagent.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of a cursor-paginated listing and whether more items exist beyond it in the
+ * same direction.
+ *
+ * @param <T> the item type
+ */
+public final class Page<T> {
+
+    private final List<T> items;
+    private final boolean hasMore;
+
+    public Page(List<T> items, boolean hasMore) {
+        this.items = items;
+        this.hasMore = hasMore;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public static <T> Page<T> empty() {
+        return new Page<>(List.of(), false);
+    }
+
+    /**
+     * Cut one page out of a random-access list using positional cursors, following the
+     * OpenAI list semantics: {@code afterIndex} and {@code beforeIndex} are interpreted in
+     * the requested order, and -1 means the cursor is absent.
+     *
+     * @param view the full listing in ascending order
+     * @param afterIndex position of the {@code after} cursor, or -1
+     * @param beforeIndex position of the {@code before} cursor, or -1
+     * @param limit maximum number of items to return
+     * @param ascending true for list order, false for reverse order
+     * @return the page
+     */
+    public static <T> Page<T> slice(List<T> view, int afterIndex, int beforeIndex, int limit, boolean ascending) {
+        int max = Math.max(1, limit);
+
+        if (ascending) {
+            int from = afterIndex >= 0 ? afterIndex + 1 : 0;
+            int to = beforeIndex >= 0 ? Math.min(beforeIndex, view.size()) : view.size();
+            if (from >= to) {
+                return empty();
+            }
+            int end = (int) Math.min((long) from + max, to);
+            return new Page<>(view.subList(from, end), end < to);
+        }
+
+        int from = afterIndex >= 0 ? Math.min(afterIndex, view.size()) : view.size();
+        int to = beforeIndex >= 0 ? beforeIndex + 1 : 0;
+        if (from <= to) {
+            return empty();
+        }
+        int end = Math.max(from - max, to);
+        List<T> items = new ArrayList<>(from - end);
+        for (int i = from - 1; i >= end; i--) {
+            items.add(view.get(i));
+        }
+        return new Page<>(items, end > to);
+    }
+}
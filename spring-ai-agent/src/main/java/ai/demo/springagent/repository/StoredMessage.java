@@ -0,0 +1,72 @@
+package ai.demo.springagent.repository;
+
+import ai.demo.springagent.model.ThreadMessage;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A message as kept by {@link InMemoryThreadStore}: its content is a handle into the
+ * {@link ContentTable}, shared with every other message that has the same body. Serializes
+ * exactly like a plain {@link ThreadMessage}.
+ *
+ * <p>Stored messages are handed out by reference, so they are read-only: every setter
+ * throws, and map metadata is copied into an unmodifiable map when the message is stored.
+ */
+final class StoredMessage extends ThreadMessage {
+
+    final ContentTable.Body body;
+
+    StoredMessage(ThreadMessage source, String threadId, String role, ContentTable.Body body) {
+        super(source.getId(), threadId, role, null, readOnly(source.getMetadata()));
+        super.setCreatedAt(source.getCreatedAt());
+        this.body = body;
+    }
+
+    @Override
+    public String getContent() {
+        return body != null ? body.content() : null;
+    }
+
+    @Override
+    public void setId(String id) {
+        throw immutable();
+    }
+
+    @Override
+    public void setThreadId(String threadId) {
+        throw immutable();
+    }
+
+    @Override
+    public void setRole(String role) {
+        throw immutable();
+    }
+
+    @Override
+    public void setContent(String content) {
+        throw immutable();
+    }
+
+    @Override
+    public void setCreatedAt(long createdAt) {
+        throw immutable();
+    }
+
+    @Override
+    public void setMetadata(Object metadata) {
+        throw immutable();
+    }
+
+    private static Object readOnly(Object metadata) {
+        if (metadata instanceof Map<?, ?> map) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(map));
+        }
+        return metadata;
+    }
+
+    private static UnsupportedOperationException immutable() {
+        return new UnsupportedOperationException("Stored messages are immutable");
+    }
+}
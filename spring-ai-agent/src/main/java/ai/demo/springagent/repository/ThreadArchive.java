@@ -0,0 +1,148 @@
+package ai.demo.springagent.repository;
+
+import ai.demo.springagent.model.ThreadMessage;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Per-thread archive files for messages of evicted threads: one gzip'd JSON array of
+ * messages per thread, streamed in and out with the Jackson token API so neither side
+ * builds an intermediate tree.
+ */
+public class ThreadArchive {
+
+    private static final String FILE_SUFFIX = ".json.gz";
+    private static final String TEMP_SUFFIX = FILE_SUFFIX + ".tmp";
+
+    private final Path directory;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * Open an archive directory. Archives left by a previous process are discarded, since
+     * the heap store they belonged to did not survive the restart. Other files in the
+     * directory are left alone.
+     */
+    public ThreadArchive(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (isArchiveFile(file) && Files.isRegularFile(file)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write (or replace) a thread's archive atomically.
+     */
+    public void write(String threadId, List<ThreadMessage> messages) throws IOException {
+        Path target = fileFor(threadId);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FastGzipOutputStream(Files.newOutputStream(temp)));
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            for (ThreadMessage message : messages) {
+                objectMapper.writeValue(generator, message);
+            }
+            generator.writeEndArray();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a thread's archived messages in order.
+     *
+     * @throws java.nio.file.NoSuchFileException if the thread has no archive
+     */
+    public List<ThreadMessage> read(String threadId) throws IOException {
+        List<ThreadMessage> messages = new ArrayList<>();
+        scan(threadId, messages::add);
+        return messages;
+    }
+
+    /**
+     * Stream a thread's archived messages in order without collecting them.
+     *
+     * @param visitor called with each message; returning false stops the scan
+     * @throws java.nio.file.NoSuchFileException if the thread has no archive
+     */
+    public void scan(String threadId, Predicate<ThreadMessage> visitor) throws IOException {
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(fileFor(threadId))));
+             JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Archive for thread " + threadId + " is not a message array");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                if (!visitor.test(objectMapper.readValue(parser, ThreadMessage.class))) {
+                    return;
+                }
+            }
+        }
+    }
+
+    public void delete(String threadId) throws IOException {
+        Files.deleteIfExists(fileFor(threadId));
+    }
+
+    /**
+     * @return total bytes of archive files on disk
+     */
+    public long diskBytes() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            long total = 0;
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (isArchiveFile(file)) {
+                    total += Files.size(file);
+                }
+            }
+            return total;
+        }
+    }
+
+    private static boolean isArchiveFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(FILE_SUFFIX) || name.endsWith(TEMP_SUFFIX);
+    }
+
+    private Path fileFor(String threadId) {
+        // Thread ids are UUIDs; anything else is hex-encoded so it cannot escape the directory
+        String name = threadId.matches("[A-Za-z0-9_-]{1,128}")
+                ? threadId
+                : "x" + HexFormat.of().formatHex(threadId.getBytes(StandardCharsets.UTF_8));
+        return directory.resolve(name + FILE_SUFFIX);
+    }
+
+    /**
+     * Eviction runs in the background, so trade ratio for speed.
+     */
+    private static final class FastGzipOutputStream extends GZIPOutputStream {
+        FastGzipOutputStream(OutputStream out) throws IOException {
+            super(out, 8192);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+}
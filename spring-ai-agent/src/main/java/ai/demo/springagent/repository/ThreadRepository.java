@@ -1,79 +1,369 @@
 package ai.demo.springagent.repository;
 
+import ai.demo.springagent.model.HistorySummary;
 import ai.demo.springagent.model.Thread;
 import ai.demo.springagent.model.ThreadMessage;
+import ai.demo.springagent.model.ThreadSummary;
+import ai.demo.springagent.repository.search.MessageIndex;
+import ai.demo.springagent.repository.search.SearchHits;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
 
+/**
+ * Thread and message access for the service layer.
+ *
+ * <p>Persistence is delegated to a {@link ThreadStore}; the repository keeps the
+ * cross-thread indexes, rebuilt from the store on startup: the activity index used for
+ * listings and the full-text {@link MessageIndex} used for search.
+ */
 @Repository
 public class ThreadRepository {
     
-    private final Map<String, Thread> threads = new ConcurrentHashMap<>();
-    private final Map<String, List<ThreadMessage>> threadMessages = new ConcurrentHashMap<>();
+    private final ThreadStore store;
+    // Threads ordered by most recent activity; activityKeys holds each thread's current key
+    private final NavigableSet<ActivityKey> activityIndex = new ConcurrentSkipListSet<>();
+    private final Map<String, ActivityKey> activityKeys = new ConcurrentHashMap<>();
+    private final MessageIndex searchIndex = new MessageIndex();
+
+    public ThreadRepository() {
+        this(new InMemoryThreadStore());
+    }
+
+    @Autowired
+    public ThreadRepository(ThreadStore store) {
+        this.store = store;
+        for (Thread thread : store.threads()) {
+            touch(thread.getId(), thread.getLastActivity());
+            for (ThreadMessage message : store.messages(thread.getId())) {
+                searchIndex.add(message);
+            }
+        }
+    }
     
     public Thread save(Thread thread) {
-        threads.put(thread.getId(), thread);
-        threadMessages.putIfAbsent(thread.getId(), new ArrayList<>());
+        // Messages belong to the store; a thread read back from findById carries a snapshot
+        // that must not stay reachable from the stored instance
+        List<ThreadMessage> messages = thread.getMessages();
+        store.saveThread(messages == null || messages.isEmpty()
+                ? thread : copyOf(thread, thread.getLastActivity(), new ArrayList<>()));
+        touch(thread.getId(), thread.getLastActivity());
         return thread;
     }
     
+    /**
+     * @return a copy of the thread holding a snapshot of its messages; the stored instance
+     *         is left without one, so eviction can release them
+     */
     public Optional<Thread> findById(String id) {
-        Thread thread = threads.get(id);
-        if (thread != null) {
-            List<ThreadMessage> messages = threadMessages.get(id);
-            if (messages != null) {
-                thread.setMessages(new ArrayList<>(messages));
+        return store.findThread(id)
+                .map(thread -> copyOf(thread, thread.getLastActivity(), store.messages(id)));
+    }
+    
+    /**
+     * @return a copy of the thread's metadata with no messages, for callers that stream the
+     *         messages separately
+     */
+    public Optional<Thread> findMetadataById(String id) {
+        return store.findThread(id).map(thread -> copyOf(thread, thread.getLastActivity(), List.of()));
+    }
+
+    /**
+     * Return all threads, most recently active first.
+     */
+    public List<Thread> findAll() {
+        List<Thread> result = new ArrayList<>(activityIndex.size());
+        for (ActivityKey key : activityIndex) {
+            Thread thread = store.findThread(key.threadId).orElse(null);
+            if (thread != null) {
+                result.add(copyOf(thread, key.lastActivity, store.messages(thread.getId())));
             }
         }
-        return Optional.ofNullable(thread);
+        return result;
+    }
+
+    /**
+     * Return one page of thread summaries ordered by activity, using thread ids as cursors.
+     * Cost is O(log n + page size) regardless of the number of threads.
+     *
+     * @param limit maximum number of summaries
+     * @param after return threads that follow this id in the requested order (optional)
+     * @param before return threads that precede this id in the requested order (optional)
+     * @param mostRecentFirst true for descending activity (the default listing order)
+     * @throws IllegalArgumentException if a cursor names an unknown thread
+     */
+    public Page<ThreadSummary> findSummaries(int limit, String after, String before, boolean mostRecentFirst) {
+        NavigableSet<ActivityKey> view = mostRecentFirst ? activityIndex : activityIndex.descendingSet();
+        if (after != null && !after.isEmpty()) {
+            view = view.tailSet(cursor(after, "after"), false);
+        }
+        boolean backwards = before != null && !before.isEmpty();
+        if (backwards) {
+            // Walk towards the start of the listing, then restore the listing order
+            view = view.headSet(cursor(before, "before"), false).descendingSet();
+        }
+
+        int max = Math.max(1, limit);
+        List<ThreadSummary> summaries = new ArrayList<>(Math.min(max, 256));
+        boolean hasMore = false;
+        for (ActivityKey key : view) {
+            if (summaries.size() == max) {
+                hasMore = true;
+                break;
+            }
+            ThreadSummary summary = summarize(key);
+            if (summary != null) {
+                summaries.add(summary);
+            }
+        }
+        if (backwards) {
+            Collections.reverse(summaries);
+        }
+        return new Page<>(summaries, hasMore);
+    }
+
+    public Optional<ThreadSummary> findSummaryById(String id) {
+        ActivityKey key = activityKeys.get(id);
+        return Optional.ofNullable(key != null ? summarize(key) : null);
+    }
+
+    private ThreadSummary summarize(ActivityKey key) {
+        Thread thread = store.findThread(key.threadId).orElse(null);
+        if (thread == null) {
+            return null;
+        }
+        ThreadMessage last = store.lastMessage(key.threadId);
+        return new ThreadSummary(thread.getId(), thread.getTitle(), thread.getMetadata(),
+                thread.getCreatedAt(), key.lastActivity, store.messageCount(key.threadId),
+                last != null ? ThreadSummary.preview(last.getContent()) : null);
+    }
+
+    private ActivityKey cursor(String threadId, String name) {
+        ActivityKey key = activityKeys.get(threadId);
+        if (key == null) {
+            throw new IllegalArgumentException("Unknown '" + name + "' cursor: " + threadId);
+        }
+        return key;
     }
     
-    public List<Thread> findAll() {
-        return threads.values().stream()
-                .map(thread -> {
-                    Thread threadCopy = new Thread(thread.getId(), thread.getTitle(), thread.getMetadata());
-                    threadCopy.setCreatedAt(thread.getCreatedAt());
-                    threadCopy.setLastActivity(thread.getLastActivity());
-                    List<ThreadMessage> messages = threadMessages.get(thread.getId());
-                    if (messages != null) {
-                        threadCopy.setMessages(new ArrayList<>(messages));
-                    }
-                    return threadCopy;
-                })
-                .sorted((t1, t2) -> Long.compare(t2.getLastActivity(), t1.getLastActivity()))
-                .collect(Collectors.toList());
+    private static Thread copyOf(Thread thread, long lastActivity, List<ThreadMessage> messages) {
+        Thread copy = new Thread(thread.getId(), thread.getTitle(), thread.getMetadata());
+        copy.setCreatedAt(thread.getCreatedAt());
+        copy.setLastActivity(lastActivity);
+        copy.setMessages(messages);
+        return copy;
     }
     
     public void deleteById(String id) {
-        threads.remove(id);
-        threadMessages.remove(id);
+        store.deleteThread(id);
+        searchIndex.removeThread(id);
+        activityKeys.computeIfPresent(id, (threadId, key) -> {
+            activityIndex.remove(key);
+            return null;
+        });
     }
     
     public void saveMessage(ThreadMessage message) {
-        threadMessages.computeIfAbsent(message.getThreadId(), k -> new ArrayList<>()).add(message);
+        store.appendMessage(message);
+        searchIndex.add(message);
         
-        Thread thread = threads.get(message.getThreadId());
+        Thread thread = store.findThread(message.getThreadId()).orElse(null);
         if (thread != null) {
-            thread.setLastActivity(message.getCreatedAt());
+            long lastActivity = touch(thread.getId(), message.getCreatedAt());
+            thread.setLastActivity(lastActivity);
         }
     }
+
+    /**
+     * Append a batch of messages, which may span threads, in one store call.
+     */
+    public void saveMessages(List<ThreadMessage> messages) {
+        store.appendMessages(messages);
+        
+        Map<String, Long> latest = new HashMap<>();
+        for (ThreadMessage message : messages) {
+            searchIndex.add(message);
+            latest.merge(message.getThreadId(), message.getCreatedAt(), Math::max);
+        }
+        latest.forEach((threadId, createdAt) -> store.findThread(threadId)
+                .ifPresent(thread -> thread.setLastActivity(touch(threadId, createdAt))));
+    }
+
+    /**
+     * Iterate thread ids in activity order without copying the index; threads created or
+     * deleted during iteration may or may not be seen.
+     */
+    public Iterable<String> findAllIds(boolean mostRecentFirst) {
+        NavigableSet<ActivityKey> view = mostRecentFirst ? activityIndex : activityIndex.descendingSet();
+        return () -> new Iterator<>() {
+            private final Iterator<ActivityKey> keys = view.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return keys.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return keys.next().threadId;
+            }
+        };
+    }
+
+    /**
+     * Move a thread to its new position in the activity index. Activity never moves
+     * backwards, and updates for the same thread are serialized by the key map.
+     *
+     * @return the thread's resulting last activity
+     */
+    private long touch(String threadId, long lastActivity) {
+        ActivityKey updated = activityKeys.compute(threadId, (id, current) -> {
+            if (current != null) {
+                if (current.lastActivity >= lastActivity) {
+                    return current;
+                }
+                activityIndex.remove(current);
+            }
+            ActivityKey key = new ActivityKey(lastActivity, id);
+            activityIndex.add(key);
+            return key;
+        });
+        return updated.lastActivity;
+    }
     
+    /**
+     * Return an immutable snapshot of a thread's messages in insertion order.
+     */
     public List<ThreadMessage> findMessagesByThreadId(String threadId) {
-        return threadMessages.getOrDefault(threadId, new ArrayList<>());
+        return store.messages(threadId);
     }
-    
-    public void deleteMessagesByThreadId(String threadId) {
-        threadMessages.remove(threadId);
+
+    /**
+     * Return one page of a thread's messages relative to optional message-id cursors;
+     * see {@link Page#slice}.
+     *
+     * @throws IllegalArgumentException if a cursor does not belong to the thread
+     */
+    public Page<ThreadMessage> findMessagePage(String threadId, int limit, String after, String before,
+                                               boolean ascending) {
+        int afterIndex = messageCursor(threadId, after, "after");
+        int beforeIndex = messageCursor(threadId, before, "before");
+        return Page.slice(store.messages(threadId), afterIndex, beforeIndex, limit, ascending);
+    }
+
+    /**
+     * Return a thread's messages in their stored JSON encoding, for responses that copy
+     * them out without decoding.
+     */
+    public List<EncodedMessage> findEncodedMessagesByThreadId(String threadId) {
+        return store.encodedMessages(threadId);
+    }
+
+    /**
+     * Encoded counterpart of {@link #findMessagePage}.
+     */
+    public Page<EncodedMessage> findEncodedMessagePage(String threadId, int limit, String after, String before,
+                                                       boolean ascending) {
+        int afterIndex = messageCursor(threadId, after, "after");
+        int beforeIndex = messageCursor(threadId, before, "before");
+        return Page.slice(store.encodedMessages(threadId), afterIndex, beforeIndex, limit, ascending);
+    }
+
+    private int messageCursor(String threadId, String messageId, String name) {
+        if (messageId == null || messageId.isEmpty()) {
+            return -1;
+        }
+        int index = store.indexOfMessage(threadId, messageId);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown '" + name + "' cursor: " + messageId);
+        }
+        return index;
+    }
+
+    /**
+     * Look up one message without loading its thread's history; see {@link ThreadStore#findMessage}.
+     */
+    public Optional<ThreadMessage> findMessage(String threadId, String messageId) {
+        return Optional.ofNullable(store.findMessage(threadId, messageId));
+    }
+
+    /**
+     * Visit a thread's messages in order without loading its history onto the heap; see
+     * {@link ThreadStore#forEachMessage}.
+     */
+    public void forEachMessage(String threadId, Predicate<ThreadMessage> visitor) {
+        store.forEachMessage(threadId, visitor);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the thread does not exist or has been deleted
+     */
+    public void saveHistorySummary(String threadId, HistorySummary summary) {
+        store.saveHistorySummary(threadId, summary);
+    }
+
+    public Optional<HistorySummary> findHistorySummary(String threadId) {
+        return store.findHistorySummary(threadId);
+    }
+
+    /**
+     * Rank messages and threads by relevance to a free-text query.
+     *
+     * @param query terms to look for; a message matches if it contains any of them
+     * @param limit maximum number of message hits and of thread hits
+     */
+    public SearchHits search(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    public int countMessagesByThreadId(String threadId) {
+        return store.messageCount(threadId);
+    }
+
+    public Optional<ThreadMessage> findLastMessageByThreadId(String threadId) {
+        return Optional.ofNullable(store.lastMessage(threadId));
     }
     
     public boolean existsById(String id) {
-        return threads.containsKey(id);
+        return store.existsThread(id);
     }
     
     public long count() {
-        return threads.size();
+        return store.threadCount();
+    }
+
+    /**
+     * Skip-list key: most recent activity first, ties broken by thread id.
+     */
+    private static final class ActivityKey implements Comparable<ActivityKey> {
+        private final long lastActivity;
+        private final String threadId;
+
+        ActivityKey(long lastActivity, String threadId) {
+            this.lastActivity = lastActivity;
+            this.threadId = threadId;
+        }
+
+        @Override
+        public int compareTo(ActivityKey other) {
+            int byActivity = Long.compare(other.lastActivity, lastActivity);
+            return byActivity != 0 ? byActivity : threadId.compareTo(other.threadId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ActivityKey that)) return false;
+            return lastActivity == that.lastActivity && threadId.equals(that.threadId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(lastActivity, threadId);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,137 @@
+package ai.demo.springagent.repository;
+
+import ai.demo.springagent.model.HistorySummary;
+import ai.demo.springagent.model.Thread;
+import ai.demo.springagent.model.ThreadMessage;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Storage SPI behind {@link ThreadRepository}.
+ *
+ * <p>A store owns thread metadata and each thread's append-only message sequence. Query
+ * structures that span threads (activity ordering, paging) stay in the repository, so a
+ * store only has to provide per-thread access.
+ *
+ * <p>Implementations must be thread-safe. Message lists returned by {@link #messages} are
+ * immutable, random-access snapshots.
+ */
+public interface ThreadStore extends Closeable {
+
+    /**
+     * Insert or replace a thread's metadata. Existing messages are kept.
+     */
+    void saveThread(Thread thread);
+
+    /**
+     * @return the stored thread (metadata only; messages are not populated)
+     */
+    Optional<Thread> findThread(String threadId);
+
+    /**
+     * @return every stored thread, in no particular order
+     */
+    Iterable<Thread> threads();
+
+    /**
+     * Delete a thread and all of its messages.
+     *
+     * @return true if the thread existed
+     */
+    boolean deleteThread(String threadId);
+
+    boolean existsThread(String threadId);
+
+    long threadCount();
+
+    /**
+     * Append a message to the end of its thread. Stores never create a thread implicitly, so
+     * a message that arrives after its thread was deleted is rejected rather than kept.
+     *
+     * @throws IllegalArgumentException if the thread does not exist or has been deleted
+     */
+    void appendMessage(ThreadMessage message);
+
+    /**
+     * Append messages in order; stores may share one durability wait across the batch.
+     *
+     * @throws IllegalArgumentException if a message's thread does not exist or has been deleted
+     */
+    default void appendMessages(List<ThreadMessage> messages) {
+        for (ThreadMessage message : messages) {
+            appendMessage(message);
+        }
+    }
+
+    /**
+     * @return an immutable, random-access snapshot of the thread's messages in append order
+     */
+    List<ThreadMessage> messages(String threadId);
+
+    /**
+     * @return an immutable, random-access snapshot of the thread's messages in their JSON
+     *         encoding; stores that keep encoded records should serve these without decoding
+     */
+    default List<EncodedMessage> encodedMessages(String threadId) {
+        return EncodedMessage.of(messages(threadId));
+    }
+
+    /**
+     * Visit a thread's messages in append order, for bulk readers such as export. Stores that
+     * move idle threads off the heap read them from where they are kept instead of making
+     * the thread resident again.
+     *
+     * @param visitor called with each message; returning false stops the walk
+     */
+    default void forEachMessage(String threadId, Predicate<ThreadMessage> visitor) {
+        for (ThreadMessage message : messages(threadId)) {
+            if (!visitor.test(message)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Look up one message, for readers such as search that need a few messages of many
+     * threads. Like {@link #forEachMessage}, this does not make an evicted thread resident.
+     *
+     * @return the message, or null if the thread has no such message
+     */
+    default ThreadMessage findMessage(String threadId, String messageId) {
+        int index = indexOfMessage(threadId, messageId);
+        return index < 0 ? null : messages(threadId).get(index);
+    }
+
+    /**
+     * Store the thread's rolling history summary, replacing any previous one. The summary is
+     * kept beside the messages, not among them, and is deleted with the thread.
+     *
+     * @throws IllegalArgumentException if the thread does not exist or has been deleted
+     */
+    void saveHistorySummary(String threadId, HistorySummary summary);
+
+    /**
+     * @return the thread's history summary, if one was stored
+     */
+    Optional<HistorySummary> findHistorySummary(String threadId);
+
+    int messageCount(String threadId);
+
+    /**
+     * @return the most recently appended message, or null if there is none
+     */
+    ThreadMessage lastMessage(String threadId);
+
+    /**
+     * @return the position of a message within its thread, or -1 if it is unknown
+     */
+    int indexOfMessage(String threadId, String messageId);
+
+    @Override
+    default void close() {
+        // Nothing to release by default
+    }
+}
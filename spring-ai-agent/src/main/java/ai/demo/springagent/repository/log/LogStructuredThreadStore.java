@@ -0,0 +1,1205 @@
+package ai.demo.springagent.repository.log;
+
+import ai.demo.springagent.model.HistorySummary;
+import ai.demo.springagent.model.Thread;
+import ai.demo.springagent.model.ThreadMessage;
+import ai.demo.springagent.repository.EncodedMessage;
+import ai.demo.springagent.repository.ThreadStore;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Embedded, log-structured {@link ThreadStore}.
+ *
+ * <p>Threads are hashed onto shards; each shard is a directory of append-only segment
+ * files holding CRC-framed {@link Record}s. An in-memory index maps every live thread and
+ * message to its record's location. Segments are memory-mapped, so a read is a slice of the
+ * page cache: messages are decoded lazily, only when a caller needs the fields, and
+ * {@link #encodedMessages} hands out the stored JSON bytes without decoding at all.
+ *
+ * <ul>
+ *   <li><b>Durability</b> — with {@link Durability#GROUP} a write returns only after its
+ *       bytes are fsync'd. A single flusher thread forces every dirty shard in turn, so all
+ *       writers that arrived during one fsync share the next one (group commit). Creating a
+ *       segment and renaming a compacted one also fsync the shard directory, so a crash
+ *       cannot drop the file that holds acknowledged writes.</li>
+ *   <li><b>Recovery</b> — on open, segments are replayed in order to rebuild the index. A
+ *       torn or corrupt tail is truncated at the last valid frame.</li>
+ *   <li><b>Compaction</b> — a background task rewrites sealed segments whose live ratio
+ *       drops below the threshold, keeping the segment's base number so replay order (and
+ *       therefore tombstone semantics) is unchanged. Message snapshots keep the segments
+ *       they were taken from readable for as long as they are referenced.</li>
+ * </ul>
+ */
+public class LogStructuredThreadStore implements ThreadStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogStructuredThreadStore.class);
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long NO_LOCATION = -1;
+    private static final int OFFSET_BITS = 40;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    /**
+     * When a write is considered complete.
+     */
+    public enum Durability {
+        /** Writes wait for a batched fsync. */
+        GROUP,
+        /** Writes return once handed to the OS; the flusher forces segments periodically. */
+        NONE
+    }
+
+    private final Options options;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final Shard[] shards;
+    private final Map<String, ThreadEntry> entries = new ConcurrentHashMap<>();
+    // Copy-on-write table of open segments by id; snapshots capture the table they were
+    // taken from, which keeps segments retired by compaction readable for them
+    private volatile Map<Integer, Segment> segments = Map.of();
+    private final ReentrantLock segmentsLock = new ReentrantLock();
+    private final AtomicInteger segmentIds = new AtomicInteger();
+    private final AtomicLong threadCount = new AtomicLong();
+    private final java.lang.Thread flusher;
+    private final ScheduledExecutorService compactor;
+    private volatile boolean closed;
+
+    /**
+     * Open (or create) a store in the given directory, replaying existing segments.
+     *
+     * @param directory root directory; one sub-directory is used per shard
+     * @param options tuning options
+     */
+    public LogStructuredThreadStore(Path directory, Options options) throws IOException {
+        if (options.shards < 1) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        if (options.segmentBytes < 4096 || options.segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size must be between 4096 bytes and 2 GiB");
+        }
+        this.options = options;
+        Files.createDirectories(directory);
+
+        long start = System.nanoTime();
+        this.shards = new Shard[options.shards];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(directory.resolve(String.format("shard-%02d", i)));
+            shards[i].recover();
+        }
+        finishRecovery();
+        logger.info("Opened thread store at {}: {} threads in {} segments, recovered in {} ms",
+                directory, threadCount.get(), segments.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        this.flusher = new java.lang.Thread(this::flushLoop, "thread-store-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            java.lang.Thread thread = new java.lang.Thread(r, "thread-store-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = options.compactionInterval.toMillis();
+        this.compactor.scheduleWithFixedDelay(this::compactSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // ---- ThreadStore -----------------------------------------------------------------
+
+    @Override
+    public void saveThread(Thread thread) {
+        byte[] payload = encodeThread(thread);
+        Shard shard = shardFor(thread.getId());
+        long location;
+        int length;
+        while (true) {
+            ThreadEntry entry = entries.computeIfAbsent(thread.getId(), id -> new ThreadEntry());
+            entry.lock.lock();
+            try {
+                if (entry.deleted) {
+                    continue;
+                }
+                ByteBuffer frame = Record.encode(Record.THREAD_PUT, 0, thread.getLastActivity(),
+                        thread.getId(), null, payload);
+                length = frame.remaining();
+                location = shard.append(frame);
+                if (entry.threadLocation != NO_LOCATION) {
+                    release(entry.threadLocation, entry.threadLength);
+                } else if (entry.thread == null) {
+                    threadCount.incrementAndGet();
+                }
+                entry.thread = thread;
+                entry.threadLocation = location;
+                entry.threadLength = length;
+                break;
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+        awaitDurable(shard, location, length);
+    }
+
+    @Override
+    public Optional<Thread> findThread(String threadId) {
+        ThreadEntry entry = entries.get(threadId);
+        return Optional.ofNullable(entry != null ? entry.thread : null);
+    }
+
+    @Override
+    public Iterable<Thread> threads() {
+        List<Thread> threads = new ArrayList<>(entries.size());
+        for (ThreadEntry entry : entries.values()) {
+            Thread thread = entry.thread;
+            if (thread != null) {
+                threads.add(thread);
+            }
+        }
+        return threads;
+    }
+
+    @Override
+    public boolean deleteThread(String threadId) {
+        ThreadEntry entry = entries.get(threadId);
+        if (entry == null) {
+            return false;
+        }
+        Shard shard = shardFor(threadId);
+        long location;
+        int length;
+        boolean existed;
+        entry.lock.lock();
+        try {
+            if (entry.deleted) {
+                return false;
+            }
+            ByteBuffer frame = Record.encode(Record.THREAD_DELETE, 0, 0, threadId, null, new byte[0]);
+            length = frame.remaining();
+            location = shard.append(frame);
+            existed = entry.thread != null;
+            entry.deleted = true;
+            entries.remove(threadId, entry);
+            releaseAll(entry);
+            if (existed) {
+                threadCount.decrementAndGet();
+            }
+        } finally {
+            entry.lock.unlock();
+        }
+        awaitDurable(shard, location, length);
+        return existed;
+    }
+
+    @Override
+    public boolean existsThread(String threadId) {
+        ThreadEntry entry = entries.get(threadId);
+        return entry != null && entry.thread != null;
+    }
+
+    @Override
+    public long threadCount() {
+        return threadCount.get();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the thread does not exist or has been deleted
+     */
+    @Override
+    public void appendMessage(ThreadMessage message) {
+        Shard shard = shardFor(message.getThreadId());
+        awaitDurable(shard, writeMessage(shard, message), 0);
+    }
+
+    /**
+     * Writes the whole batch before waiting, so one group commit covers it.
+     */
+    @Override
+    public void appendMessages(List<ThreadMessage> messages) {
+        long[] ends = new long[messages.size()];
+        for (int i = 0; i < ends.length; i++) {
+            ThreadMessage message = messages.get(i);
+            ends[i] = writeMessage(shardFor(message.getThreadId()), message);
+        }
+        for (int i = 0; i < ends.length; i++) {
+            awaitDurable(shardFor(messages.get(i).getThreadId()), ends[i], 0);
+        }
+    }
+
+    /**
+     * @return the location just past the written record
+     * @throws IllegalArgumentException if the thread does not exist or has been deleted
+     */
+    private long writeMessage(Shard shard, ThreadMessage message) {
+        byte[] payload = encode(message);
+        // Never create an entry here: a message for a missing thread would leave an entry
+        // no delete can reach, and records that replay as an orphan thread
+        ThreadEntry entry = entries.get(message.getThreadId());
+        if (entry == null) {
+            throw new IllegalArgumentException("No such thread: " + message.getThreadId());
+        }
+        entry.lock.lock();
+        try {
+            if (entry.deleted || entry.thread == null) {
+                throw new IllegalArgumentException("No such thread: " + message.getThreadId());
+            }
+            int seq = entry.count;
+            ByteBuffer frame = Record.encode(Record.MESSAGE_APPEND, seq, message.getCreatedAt(),
+                    message.getThreadId(), message.getId(), payload);
+            int length = frame.remaining();
+            long location = shard.append(frame);
+            entry.put(seq, location, length, message.getId(), message.getCreatedAt());
+            entry.lastMessage = message;
+            return location + length;
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<ThreadMessage> messages(String threadId) {
+        ThreadEntry entry = entries.get(threadId);
+        if (entry == null) {
+            return List.of();
+        }
+        entry.lock.lock();
+        try {
+            return entry.count == 0 ? List.of() : new MessageView(segments, entry.locations, entry.lengths, entry.count);
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<EncodedMessage> encodedMessages(String threadId) {
+        ThreadEntry entry = entries.get(threadId);
+        if (entry == null) {
+            return List.of();
+        }
+        entry.lock.lock();
+        try {
+            return entry.count == 0 ? List.of() : new EncodedView(segments, entry.locations, entry.lengths, entry.count);
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    /**
+     * Written as its own record, so replacing a summary leaves the thread's messages untouched
+     * and compaction drops the superseded one.
+     */
+    @Override
+    public void saveHistorySummary(String threadId, HistorySummary summary) {
+        byte[] payload = encode(summary);
+        ThreadEntry entry = entries.get(threadId);
+        if (entry == null) {
+            throw new IllegalArgumentException("No such thread: " + threadId);
+        }
+        Shard shard = shardFor(threadId);
+        long location;
+        int length;
+        entry.lock.lock();
+        try {
+            if (entry.deleted || entry.thread == null) {
+                throw new IllegalArgumentException("No such thread: " + threadId);
+            }
+            ByteBuffer frame = Record.encode(Record.THREAD_SUMMARY, 0, 0, threadId, null, payload);
+            length = frame.remaining();
+            location = shard.append(frame);
+            if (entry.summaryLocation != NO_LOCATION) {
+                release(entry.summaryLocation, entry.summaryLength);
+            }
+            entry.summary = summary;
+            entry.summaryLocation = location;
+            entry.summaryLength = length;
+        } finally {
+            entry.lock.unlock();
+        }
+        awaitDurable(shard, location, length);
+    }
+
+    @Override
+    public Optional<HistorySummary> findHistorySummary(String threadId) {
+        ThreadEntry entry = entries.get(threadId);
+        return Optional.ofNullable(entry != null ? entry.summary : null);
+    }
+
+    @Override
+    public int messageCount(String threadId) {
+        ThreadEntry entry = entries.get(threadId);
+        if (entry == null) {
+            return 0;
+        }
+        entry.lock.lock();
+        try {
+            return entry.count;
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    @Override
+    public ThreadMessage lastMessage(String threadId) {
+        ThreadEntry entry = entries.get(threadId);
+        if (entry == null) {
+            return null;
+        }
+        entry.lock.lock();
+        try {
+            if (entry.lastMessage == null && entry.count > 0) {
+                int last = entry.count - 1;
+                entry.lastMessage = readMessage(segments, entry.locations[last], entry.lengths[last]);
+            }
+            return entry.lastMessage;
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    @Override
+    public int indexOfMessage(String threadId, String messageId) {
+        ThreadEntry entry = entries.get(threadId);
+        if (entry == null || messageId == null) {
+            return -1;
+        }
+        entry.lock.lock();
+        try {
+            Integer index = entry.messageIds.get(messageId);
+            return index != null ? index : -1;
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        compactor.shutdownNow();
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+            compactor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            java.lang.Thread.currentThread().interrupt();
+        }
+        for (Shard shard : shards) {
+            shard.sync();
+            shard.seal();
+        }
+        for (Segment segment : segments.values()) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close segment {}: {}", segment.path, e.getMessage());
+            }
+        }
+        segments = Map.of();
+    }
+
+    // ---- Statistics --------------------------------------------------------------------
+
+    /**
+     * @return segment count, bytes on disk and the live fraction of those bytes
+     */
+    public Map<String, Object> getStatistics() {
+        long totalBytes = 0;
+        double liveBytes = 0;
+        int segmentCount = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                for (Segment segment : shard.segments.values()) {
+                    segmentCount++;
+                    totalBytes += segment.size();
+                    liveBytes += segment.liveRatio() * segment.size();
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threads", threadCount.get());
+        stats.put("shards", shards.length);
+        stats.put("segments", segmentCount);
+        stats.put("diskBytes", totalBytes);
+        stats.put("liveRatio", totalBytes == 0 ? 1.0 : liveBytes / totalBytes);
+        return stats;
+    }
+
+    // ---- Recovery ----------------------------------------------------------------------
+
+    private void apply(Segment segment, long offset, Record record) throws IOException {
+        long location = location(segment.id, offset);
+        int length = record.frameLength;
+        segment.addLive(length);
+
+        switch (record.type) {
+            case Record.THREAD_PUT -> {
+                ThreadEntry entry = entries.computeIfAbsent(record.threadId, id -> new ThreadEntry());
+                if (entry.threadLocation != NO_LOCATION) {
+                    release(entry.threadLocation, entry.threadLength);
+                }
+                entry.thread = objectMapper.readValue(record.payload(), Thread.class);
+                entry.threadLocation = location;
+                entry.threadLength = length;
+            }
+            case Record.MESSAGE_APPEND -> {
+                ThreadEntry entry = entries.computeIfAbsent(record.threadId, id -> new ThreadEntry());
+                if (record.seq < entry.count && entry.locations[record.seq] != 0) {
+                    release(entry.locations[record.seq], entry.lengths[record.seq]);
+                }
+                entry.put(record.seq, location, length, record.messageId, record.createdAt);
+            }
+            case Record.THREAD_SUMMARY -> {
+                ThreadEntry entry = entries.computeIfAbsent(record.threadId, id -> new ThreadEntry());
+                if (entry.summaryLocation != NO_LOCATION) {
+                    release(entry.summaryLocation, entry.summaryLength);
+                }
+                entry.summary = objectMapper.readValue(record.payload(), HistorySummary.class);
+                entry.summaryLocation = location;
+                entry.summaryLength = length;
+            }
+            case Record.THREAD_DELETE -> {
+                ThreadEntry entry = entries.remove(record.threadId);
+                if (entry != null) {
+                    releaseAll(entry);
+                }
+            }
+            default -> logger.warn("Skipping record of unknown type {} in {}", record.type, segment.path);
+        }
+    }
+
+    private void finishRecovery() {
+        for (ThreadEntry entry : entries.values()) {
+            entry.closeGaps();
+            if (entry.thread != null) {
+                threadCount.incrementAndGet();
+                if (entry.lastMessageAt > entry.thread.getLastActivity()) {
+                    entry.thread.setLastActivity(entry.lastMessageAt);
+                }
+            }
+        }
+    }
+
+    // ---- Durability --------------------------------------------------------------------
+
+    private void awaitDurable(Shard shard, long location, int length) {
+        if (options.durability != Durability.GROUP) {
+            return;
+        }
+        Segment segment = segments.get(segmentId(location));
+        if (segment == null) {
+            return;
+        }
+        LockSupport.unpark(flusher);
+        shard.awaitDurable(segment, offset(location) + length);
+    }
+
+    private void flushLoop() {
+        long idleNanos = options.flushInterval.toNanos();
+        while (!closed) {
+            boolean flushed = false;
+            for (Shard shard : shards) {
+                flushed |= shard.sync();
+            }
+            if (!flushed) {
+                // Writers unpark us; the timeout bounds the delay in NONE mode
+                LockSupport.parkNanos(this, idleNanos);
+            }
+        }
+    }
+
+    // ---- Compaction --------------------------------------------------------------------
+
+    private void compactSafely() {
+        try {
+            compact();
+        } catch (Exception e) {
+            logger.warn("Thread store compaction failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Rewrite every sealed segment whose live ratio is below the threshold.
+     */
+    void compact() throws IOException {
+        for (Shard shard : shards) {
+            List<Segment> candidates = new ArrayList<>();
+            shard.lock.lock();
+            try {
+                for (Segment segment : shard.segments.values()) {
+                    if (segment != shard.active && segment.liveRatio() < options.compactionThreshold) {
+                        candidates.add(segment);
+                    }
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+            for (Segment segment : candidates) {
+                if (closed) {
+                    return;
+                }
+                compact(shard, segment);
+            }
+        }
+    }
+
+    private void compact(Shard shard, Segment segment) throws IOException {
+        boolean oldest;
+        shard.lock.lock();
+        try {
+            oldest = shard.segments.firstKey() == segment.base;
+        } finally {
+            shard.lock.unlock();
+        }
+        long sizeBefore = segment.size();
+        int nextGeneration = segment.generation + 1;
+        Path target = shard.directory.resolve(Segment.fileName(segment.base, nextGeneration));
+        Path temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+
+        List<long[]> moved = new ArrayList<>();
+        List<Record> movedRecords = new ArrayList<>();
+        long written = 0;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long[] position = {0};
+            segment.scan((offset, record) -> {
+                long location = location(segment.id, offset);
+                if (!isLive(record, location, oldest)) {
+                    return;
+                }
+                ByteBuffer frame = record.frame();
+                long at = position[0];
+                while (frame.hasRemaining()) {
+                    position[0] += out.write(frame, position[0]);
+                }
+                moved.add(new long[] {location, at});
+                movedRecords.add(record);
+            });
+            written = position[0];
+            out.force(true);
+        }
+
+        Segment replacement = null;
+        if (written > 0) {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            // The rename must be durable before the old generation is deleted below
+            Segment.syncDirectory(shard.directory);
+            replacement = Segment.open(segmentIds.incrementAndGet(), target, segment.base, nextGeneration);
+            replacement.map(replacement.size());
+            publish(replacement);
+        } else {
+            Files.deleteIfExists(temp);
+        }
+
+        shard.lock.lock();
+        try {
+            if (replacement != null) {
+                shard.segments.put(segment.base, replacement);
+            } else {
+                shard.segments.remove(segment.base);
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+        if (replacement != null) {
+            for (int i = 0; i < moved.size(); i++) {
+                long[] move = moved.get(i);
+                Record record = movedRecords.get(i);
+                if (relocate(record, move[0], location(replacement.id, move[1]))) {
+                    replacement.addLive(record.frameLength);
+                }
+            }
+        }
+
+        // Snapshots taken before this point still resolve old locations through the table
+        // they captured; the segment's channel is closed once the last of them is collected
+        unpublish(segment);
+        Files.deleteIfExists(segment.path);
+        logger.debug("Compacted {} from {} to {} bytes", segment.path, sizeBefore, written);
+    }
+
+    private boolean isLive(Record record, long location, boolean oldestSegment) {
+        if (record.type == Record.THREAD_DELETE) {
+            // Older segments may still hold the thread's records; the tombstone must outlive them
+            return !oldestSegment;
+        }
+        ThreadEntry entry = entries.get(record.threadId);
+        if (entry == null) {
+            return false;
+        }
+        entry.lock.lock();
+        try {
+            if (record.type == Record.THREAD_PUT) {
+                return entry.threadLocation == location;
+            }
+            if (record.type == Record.THREAD_SUMMARY) {
+                return entry.summaryLocation == location;
+            }
+            return record.seq < entry.count && entry.locations[record.seq] == location;
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    private boolean relocate(Record record, long from, long to) {
+        if (record.type == Record.THREAD_DELETE) {
+            return true;
+        }
+        ThreadEntry entry = entries.get(record.threadId);
+        if (entry == null) {
+            return false;
+        }
+        entry.lock.lock();
+        try {
+            if (record.type == Record.THREAD_PUT) {
+                if (entry.threadLocation != from) {
+                    return false;
+                }
+                entry.threadLocation = to;
+                return true;
+            }
+            if (record.type == Record.THREAD_SUMMARY) {
+                if (entry.summaryLocation != from) {
+                    return false;
+                }
+                entry.summaryLocation = to;
+                return true;
+            }
+            if (record.seq >= entry.count || entry.locations[record.seq] != from) {
+                return false;
+            }
+            entry.locations[record.seq] = to;
+            return true;
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    // ---- Helpers -----------------------------------------------------------------------
+
+    private void publish(Segment segment) {
+        segmentsLock.lock();
+        try {
+            Map<Integer, Segment> next = new HashMap<>(segments);
+            next.put(segment.id, segment);
+            segments = Map.copyOf(next);
+        } finally {
+            segmentsLock.unlock();
+        }
+    }
+
+    private void unpublish(Segment segment) {
+        segmentsLock.lock();
+        try {
+            Map<Integer, Segment> next = new HashMap<>(segments);
+            next.remove(segment.id);
+            segments = Map.copyOf(next);
+        } finally {
+            segmentsLock.unlock();
+        }
+    }
+
+    private Shard shardFor(String threadId) {
+        return shards[Math.floorMod(threadId.hashCode(), shards.length)];
+    }
+
+    private void release(long location, int length) {
+        Segment segment = segments.get(segmentId(location));
+        if (segment != null) {
+            segment.addLive(-length);
+        }
+    }
+
+    private void releaseAll(ThreadEntry entry) {
+        if (entry.threadLocation != NO_LOCATION) {
+            release(entry.threadLocation, entry.threadLength);
+        }
+        if (entry.summaryLocation != NO_LOCATION) {
+            release(entry.summaryLocation, entry.summaryLength);
+        }
+        for (int i = 0; i < entry.count; i++) {
+            if (entry.locations[i] != 0) {
+                release(entry.locations[i], entry.lengths[i]);
+            }
+        }
+    }
+
+    private ThreadMessage readMessage(Map<Integer, Segment> table, long location, int length) {
+        Record record = readRecord(table, location, length);
+        try {
+            return objectMapper.readValue(new ByteBufferBackedInputStream(record.payloadBuffer()), ThreadMessage.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode message " + record.messageId, e);
+        }
+    }
+
+    /**
+     * Read a record through the current segment table, falling back to {@code table}: a
+     * snapshot's table still holds segments compacted away since, while compaction may
+     * have moved the snapshot's locations into segments created after it.
+     */
+    private Record readRecord(Map<Integer, Segment> table, long location, int length) {
+        Segment segment = segments.get(segmentId(location));
+        if (segment == null) {
+            segment = table.get(segmentId(location));
+        }
+        if (segment == null) {
+            throw new IllegalStateException("Message location refers to a closed segment");
+        }
+        try {
+            return Record.parse(segment.slice(offset(location), length));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read record from " + segment.path, e);
+        }
+    }
+
+    private byte[] encodeThread(Thread thread) {
+        // Messages live in their own records; only the metadata is written here
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("id", thread.getId());
+        metadata.put("title", thread.getTitle());
+        metadata.put("metadata", thread.getMetadata());
+        metadata.put("createdAt", thread.getCreatedAt());
+        metadata.put("lastActivity", thread.getLastActivity());
+        return encode(metadata);
+    }
+
+    private byte[] encode(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode record payload", e);
+        }
+    }
+
+    // Locations pack a runtime segment id with the byte offset; 0 never occurs because ids start at 1
+    private static long location(int segmentId, long offset) {
+        return ((long) segmentId << OFFSET_BITS) | offset;
+    }
+
+    private static int segmentId(long location) {
+        return (int) (location >>> OFFSET_BITS);
+    }
+
+    private static long offset(long location) {
+        return location & OFFSET_MASK;
+    }
+
+    // ---- Shards ------------------------------------------------------------------------
+
+    /**
+     * One directory of segments. Appends are serialized on the shard's lock; durability
+     * waiters block on a separate lock so they never hold up writers.
+     *
+     * <p>Both are {@link ReentrantLock}s rather than monitors: appends write, truncate and
+     * map files while holding the lock, and writers wait for fsync, so a virtual thread
+     * blocking inside {@code synchronized} here would pin its carrier.
+     */
+    private final class Shard {
+
+        private final Path directory;
+        private final TreeMap<Long, Segment> segments = new TreeMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ReentrantLock durableLock = new ReentrantLock();
+        private final Condition durable = durableLock.newCondition();
+        private Segment active;
+
+        Shard(Path directory) {
+            this.directory = directory;
+        }
+
+        void recover() throws IOException {
+            if (!Files.isDirectory(directory)) {
+                Files.createDirectories(directory);
+                Segment.syncDirectory(directory.getParent());
+            }
+            Map<Long, Path> files = new TreeMap<>();
+            Map<Long, Integer> generations = new HashMap<>();
+            List<Path> listing;
+            try (Stream<Path> stream = Files.list(directory)) {
+                listing = stream.toList();
+            }
+            for (Path file : listing) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    // Interrupted compaction; the original segment is still intact
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                long[] parsed = Segment.parseFileName(name);
+                if (parsed == null) {
+                    continue;
+                }
+                Integer current = generations.get(parsed[0]);
+                if (current == null || parsed[1] > current) {
+                    if (current != null) {
+                        Files.deleteIfExists(files.get(parsed[0]));
+                    }
+                    files.put(parsed[0], file);
+                    generations.put(parsed[0], (int) parsed[1]);
+                } else {
+                    // Superseded by a completed compaction that crashed before deleting it
+                    Files.deleteIfExists(file);
+                }
+            }
+
+            for (Map.Entry<Long, Path> file : files.entrySet()) {
+                Segment segment = Segment.open(segmentIds.incrementAndGet(), file.getValue(),
+                        file.getKey(), generations.get(file.getKey()));
+                publish(segment);
+                long valid = segment.scan((offset, record) -> apply(segment, offset, record));
+                if (valid < segment.size()) {
+                    // The active segment's pre-sized window is zero-filled; anything else is a torn write
+                    if (segment.hasDataAfter(valid)) {
+                        logger.warn("Truncating {} torn bytes at offset {} of {}",
+                                segment.size() - valid, valid, segment.path);
+                    }
+                    segment.truncate(valid);
+                }
+                segment.map(segment.size());
+                segments.put(segment.base, segment);
+            }
+
+            if (segments.isEmpty()) {
+                active = newSegment(1);
+            } else {
+                active = segments.lastEntry().getValue();
+                active.map(options.segmentBytes);
+            }
+        }
+
+        long append(ByteBuffer frame) {
+            lock.lock();
+            try {
+                if (closed) {
+                    throw new IllegalStateException("Thread store is closed");
+                }
+                if (active.size() > 0 && active.size() + frame.remaining() > options.segmentBytes) {
+                    roll();
+                }
+                return location(active.id, active.append(frame));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to append to " + active.path, e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void roll() throws IOException {
+            Segment sealed = active;
+            sealed.seal();
+            active = newSegment(sealed.base + 1);
+            signalDurable();
+        }
+
+        private Segment newSegment(long base) throws IOException {
+            Segment segment = Segment.create(segmentIds.incrementAndGet(), directory, base, 0);
+            segment.map(options.segmentBytes);
+            publish(segment);
+            segments.put(base, segment);
+            return segment;
+        }
+
+        /**
+         * Trim the active segment's pre-sized file on shutdown.
+         */
+        void seal() {
+            lock.lock();
+            try {
+                active.seal();
+            } catch (IOException e) {
+                logger.warn("Failed to seal {}: {}", active.path, e.getMessage());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Force the active segment if it has unsynced bytes and wake any waiters.
+         *
+         * @return true if an fsync was issued
+         */
+        boolean sync() {
+            Segment segment;
+            long size;
+            lock.lock();
+            try {
+                segment = active;
+                size = segment.size();
+            } finally {
+                lock.unlock();
+            }
+            if (size <= segment.syncedSize()) {
+                return false;
+            }
+            try {
+                segment.force();
+            } catch (IOException e) {
+                logger.error("Failed to fsync {}: {}", segment.path, e.getMessage());
+                return false;
+            }
+            segment.markSynced(size);
+            signalDurable();
+            return true;
+        }
+
+        void awaitDurable(Segment segment, long end) {
+            durableLock.lock();
+            try {
+                while (segment.syncedSize() < end && !closed) {
+                    try {
+                        durable.await(10, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        java.lang.Thread.currentThread().interrupt();
+                        throw new UncheckedIOException(new InterruptedIOException("Interrupted awaiting fsync"));
+                    }
+                }
+            } finally {
+                durableLock.unlock();
+            }
+        }
+
+        private void signalDurable() {
+            durableLock.lock();
+            try {
+                durable.signalAll();
+            } finally {
+                durableLock.unlock();
+            }
+        }
+    }
+
+    // ---- Index -------------------------------------------------------------------------
+
+    /**
+     * Index entry for one thread. Guarded by its own lock, which is held across the shard
+     * append and so is a {@link ReentrantLock} for the same reason as the shard's;
+     * {@code thread} and {@code summary} are volatile so lookups need no lock.
+     */
+    private static final class ThreadEntry {
+        final ReentrantLock lock = new ReentrantLock();
+        volatile Thread thread;
+        long threadLocation = NO_LOCATION;
+        int threadLength;
+        volatile HistorySummary summary;
+        long summaryLocation = NO_LOCATION;
+        int summaryLength;
+        long[] locations = new long[8];
+        int[] lengths = new int[8];
+        int count;
+        final Map<String, Integer> messageIds = new HashMap<>();
+        long lastMessageAt;
+        ThreadMessage lastMessage;
+        boolean deleted;
+
+        void put(int seq, long location, int length, String messageId, long createdAt) {
+            if (seq >= locations.length) {
+                int capacity = Math.max(locations.length * 2, seq + 1);
+                // Grow by copying so existing snapshots keep their own arrays
+                locations = Arrays.copyOf(locations, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+            }
+            locations[seq] = location;
+            lengths[seq] = length;
+            count = Math.max(count, seq + 1);
+            if (messageId != null) {
+                messageIds.put(messageId, seq);
+            }
+            lastMessageAt = Math.max(lastMessageAt, createdAt);
+        }
+
+        /**
+         * Squeeze out positions with no record, which only a damaged log can produce.
+         */
+        void closeGaps() {
+            int filled = 0;
+            for (int i = 0; i < count; i++) {
+                if (locations[i] != 0) {
+                    filled++;
+                }
+            }
+            if (filled == count) {
+                return;
+            }
+            logger.warn("Thread log has {} missing messages; compacting positions", count - filled);
+            long[] keptLocations = new long[Math.max(8, filled)];
+            int[] keptLengths = new int[keptLocations.length];
+            Map<Integer, Integer> remap = new HashMap<>();
+            int next = 0;
+            for (int i = 0; i < count; i++) {
+                if (locations[i] != 0) {
+                    remap.put(i, next);
+                    keptLocations[next] = locations[i];
+                    keptLengths[next++] = lengths[i];
+                }
+            }
+            messageIds.replaceAll((id, seq) -> remap.getOrDefault(seq, -1));
+            messageIds.values().removeIf(seq -> seq < 0);
+            locations = keptLocations;
+            lengths = keptLengths;
+            count = filled;
+        }
+    }
+
+    /**
+     * Random-access view over a prefix of a thread's locations; messages are read and
+     * decoded on access.
+     */
+    private final class MessageView extends AbstractList<ThreadMessage> implements RandomAccess {
+        private final Map<Integer, Segment> table;
+        private final long[] locations;
+        private final int[] lengths;
+        private final int size;
+
+        MessageView(Map<Integer, Segment> table, long[] locations, int[] lengths, int size) {
+            this.table = table;
+            this.locations = locations;
+            this.lengths = lengths;
+            this.size = size;
+        }
+
+        @Override
+        public ThreadMessage get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return readMessage(table, locations[index], lengths[index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Random-access view over a prefix of a thread's locations that exposes the stored
+     * JSON bytes; only the record header is parsed, to expose the message id.
+     */
+    private final class EncodedView extends AbstractList<EncodedMessage> implements RandomAccess {
+        private final Map<Integer, Segment> table;
+        private final long[] locations;
+        private final int[] lengths;
+        private final int size;
+
+        EncodedView(Map<Integer, Segment> table, long[] locations, int[] lengths, int size) {
+            this.table = table;
+            this.locations = locations;
+            this.lengths = lengths;
+            this.size = size;
+        }
+
+        @Override
+        public EncodedMessage get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            long location = locations[index];
+            int length = lengths[index];
+            Record record = readRecord(table, location, length);
+            return new EncodedMessage() {
+                @Override
+                public String getId() {
+                    return record.messageId;
+                }
+
+                @Override
+                public void writeTo(OutputStream out, ObjectMapper objectMapper) throws IOException {
+                    EncodedMessage.copy(record.payloadBuffer(), out);
+                }
+
+                @Override
+                public ThreadMessage decode() {
+                    return readMessage(table, location, length);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    // ---- Options -----------------------------------------------------------------------
+
+    /**
+     * Tuning options with sensible defaults.
+     */
+    public static final class Options {
+        private int shards = 8;
+        private long segmentBytes = 64L * 1024 * 1024;
+        private Durability durability = Durability.GROUP;
+        private Duration flushInterval = Duration.ofMillis(100);
+        private double compactionThreshold = 0.5;
+        private Duration compactionInterval = Duration.ofMinutes(1);
+
+        public Options shards(int shards) {
+            this.shards = shards;
+            return this;
+        }
+
+        public Options segmentBytes(long segmentBytes) {
+            this.segmentBytes = segmentBytes;
+            return this;
+        }
+
+        public Options durability(Durability durability) {
+            this.durability = durability;
+            return this;
+        }
+
+        public Options flushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+            return this;
+        }
+
+        public Options compactionThreshold(double compactionThreshold) {
+            this.compactionThreshold = compactionThreshold;
+            return this;
+        }
+
+        public Options compactionInterval(Duration compactionInterval) {
+            this.compactionInterval = compactionInterval;
+            return this;
+        }
+    }
+}
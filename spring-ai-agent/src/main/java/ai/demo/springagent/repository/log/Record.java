@@ -0,0 +1,151 @@
+package ai.demo.springagent.repository.log;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary framing for log records.
+ *
+ * <pre>
+ * frame  := bodyLength:int  crc32c(body):int  body
+ * body   := type:byte  seq:int  createdAt:long
+ *           threadIdLength:short  threadId:utf8
+ *           messageIdLength:short  messageId:utf8
+ *           payload:utf8-json
+ * </pre>
+ *
+ * <p>The header carries everything recovery needs to rebuild the offset index, so the
+ * JSON payload is only parsed for thread metadata, history summaries and when a message is
+ * actually read.
+ */
+final class Record {
+
+    static final byte THREAD_PUT = 1;
+    static final byte MESSAGE_APPEND = 2;
+    static final byte THREAD_DELETE = 3;
+    static final byte THREAD_SUMMARY = 4;
+
+    static final int FRAME_HEADER_BYTES = 8;
+    private static final int FIXED_BODY_BYTES = 1 + 4 + 8 + 2 + 2;
+    static final int MAX_BODY_BYTES = 64 * 1024 * 1024;
+
+    final byte type;
+    final int seq;
+    final long createdAt;
+    final String threadId;
+    final String messageId;
+    final int frameLength;
+    private final ByteBuffer frame;
+    private final int payloadOffset;
+
+    private Record(byte type, int seq, long createdAt, String threadId, String messageId,
+                   ByteBuffer frame, int payloadOffset) {
+        this.type = type;
+        this.seq = seq;
+        this.createdAt = createdAt;
+        this.threadId = threadId;
+        this.messageId = messageId;
+        this.frame = frame;
+        this.frameLength = frame.remaining();
+        this.payloadOffset = payloadOffset;
+    }
+
+    /**
+     * Encode a complete frame ready to be written.
+     */
+    static ByteBuffer encode(byte type, int seq, long createdAt, String threadId, String messageId,
+                             byte[] payload) {
+        byte[] threadIdBytes = threadId.getBytes(StandardCharsets.UTF_8);
+        byte[] messageIdBytes = messageId != null ? messageId.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int bodyLength = FIXED_BODY_BYTES + threadIdBytes.length + messageIdBytes.length + payload.length;
+        if (bodyLength > MAX_BODY_BYTES) {
+            throw new IllegalArgumentException("Record too large: " + bodyLength + " bytes");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(FRAME_HEADER_BYTES + bodyLength);
+        buffer.putInt(bodyLength);
+        buffer.putInt(0); // CRC placeholder
+        buffer.put(type);
+        buffer.putInt(seq);
+        buffer.putLong(createdAt);
+        buffer.putShort((short) threadIdBytes.length);
+        buffer.put(threadIdBytes);
+        buffer.putShort((short) messageIdBytes.length);
+        buffer.put(messageIdBytes);
+        buffer.put(payload);
+
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), FRAME_HEADER_BYTES, bodyLength);
+        buffer.putInt(4, (int) crc.getValue());
+        return buffer.flip();
+    }
+
+    /**
+     * @return the frame length declared by the header at the buffer's position, or -1 if the
+     *         header is not plausible (torn or zeroed tail)
+     */
+    static int frameLength(ByteBuffer buffer, int position) {
+        int bodyLength = buffer.getInt(position);
+        if (bodyLength < FIXED_BODY_BYTES || bodyLength > MAX_BODY_BYTES) {
+            return -1;
+        }
+        return FRAME_HEADER_BYTES + bodyLength;
+    }
+
+    /**
+     * @return true if the frame's body matches its checksum
+     */
+    static boolean verify(ByteBuffer frame) {
+        CRC32C crc = new CRC32C();
+        crc.update(frame.slice(FRAME_HEADER_BYTES, frame.remaining() - FRAME_HEADER_BYTES));
+        return (int) crc.getValue() == frame.getInt(4);
+    }
+
+    /**
+     * Parse the header of a complete frame. The payload is left undecoded.
+     */
+    static Record parse(ByteBuffer frame) {
+        int position = FRAME_HEADER_BYTES;
+        byte type = frame.get(position);
+        int seq = frame.getInt(position + 1);
+        long createdAt = frame.getLong(position + 5);
+        position += 13;
+        int threadIdLength = frame.getShort(position) & 0xFFFF;
+        String threadId = utf8(frame, position + 2, threadIdLength);
+        position += 2 + threadIdLength;
+        int messageIdLength = frame.getShort(position) & 0xFFFF;
+        String messageId = messageIdLength > 0 ? utf8(frame, position + 2, messageIdLength) : null;
+        position += 2 + messageIdLength;
+        return new Record(type, seq, createdAt, threadId, messageId, frame, position);
+    }
+
+    /**
+     * @return the complete frame, positioned at its start
+     */
+    ByteBuffer frame() {
+        return frame.duplicate();
+    }
+
+    /**
+     * @return a read-only view of the UTF-8 JSON payload, sharing the frame's storage
+     */
+    ByteBuffer payloadBuffer() {
+        return frame.slice(payloadOffset, frameLength - payloadOffset).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a copy of the UTF-8 JSON payload
+     */
+    byte[] payload() {
+        byte[] bytes = new byte[frameLength - payloadOffset];
+        frame.get(payloadOffset, bytes);
+        return bytes;
+    }
+
+    private static String utf8(ByteBuffer buffer, int position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
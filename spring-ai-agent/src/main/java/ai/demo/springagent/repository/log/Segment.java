@@ -0,0 +1,296 @@
+package ai.demo.springagent.repository.log;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One append-only segment file of a shard.
+ *
+ * <p>Reads are served from a read-only memory mapping, so message bytes stay in the page
+ * cache rather than on the heap. The active segment is mapped over its full window up
+ * front (which pre-sizes the file) and trimmed back to its logical size when sealed.
+ *
+ * <p>Segments are ordered by {@code base}; compaction rewrites a segment into a file with
+ * the same base and a higher {@code generation}, so replay order is preserved. The runtime
+ * {@code id} is unique per open segment and is what index locations refer to.
+ *
+ * <p>A segment compacted away is no longer closed explicitly: message snapshots may still
+ * read it, so its channel is closed once the segment becomes unreachable.
+ */
+final class Segment implements Closeable {
+
+    static final String FILE_SUFFIX = ".log";
+    private static final Pattern FILE_NAME = Pattern.compile("(\\d{10})-(\\d{3})\\.log");
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    final int id;
+    final long base;
+    final int generation;
+    final Path path;
+    private final FileChannel channel;
+    private volatile long size;
+    private volatile long syncedSize;
+    // Read-only window over the file; null until mapped, and may be shorter than the file
+    private volatile MappedByteBuffer mapping;
+    // Bytes of records still referenced by the index (tombstones always count)
+    private final AtomicLong liveBytes = new AtomicLong();
+    private final Cleaner.Cleanable closer;
+
+    private Segment(int id, long base, int generation, Path path, FileChannel channel, long size) {
+        this.id = id;
+        this.base = base;
+        this.generation = generation;
+        this.path = path;
+        this.channel = channel;
+        this.size = size;
+        this.syncedSize = size;
+        this.closer = CLEANER.register(this, new Closer(channel));
+    }
+
+    static Segment create(int id, Path directory, long base, int generation) throws IOException {
+        Path path = directory.resolve(fileName(base, generation));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // Forcing the file makes its data durable, not its name; without this a crash
+            // could lose the whole segment along with every write acknowledged in it
+            syncDirectory(directory);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new Segment(id, base, generation, path, channel, 0);
+    }
+
+    static Segment open(int id, Path path, long base, int generation) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(id, base, generation, path, channel, channel.size());
+    }
+
+    /**
+     * Make entries created, renamed or removed in {@code directory} durable.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // Windows cannot open a directory, and commits its entries without being asked
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    static String fileName(long base, int generation) {
+        return String.format("%010d-%03d%s", base, generation, FILE_SUFFIX);
+    }
+
+    /**
+     * @return {base, generation} parsed from a segment file name, or null if it is not one
+     */
+    static long[] parseFileName(String fileName) {
+        Matcher matcher = FILE_NAME.matcher(fileName);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new long[] {Long.parseLong(matcher.group(1)), Integer.parseInt(matcher.group(2))};
+    }
+
+    /**
+     * Append a frame at the end of the file. Callers serialize appends per segment.
+     *
+     * @return the offset the frame was written at
+     */
+    long append(ByteBuffer frame) throws IOException {
+        long offset = size;
+        int length = frame.remaining();
+        long position = offset;
+        while (frame.hasRemaining()) {
+            position += channel.write(frame, position);
+        }
+        liveBytes.addAndGet(length);
+        size = offset + length;
+        return offset;
+    }
+
+    /**
+     * Map the first {@code capacity} bytes of the file for reading, extending the file if
+     * it is shorter. Bytes past {@link #size()} are never read.
+     */
+    void map(long capacity) throws IOException {
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("Segment window too large to map: " + capacity);
+        }
+        mapping = capacity == 0 ? null : channel.map(FileChannel.MapMode.READ_ONLY, 0, capacity);
+    }
+
+    /**
+     * Return a frame as a read-only view of the mapping, without copying. Frames outside
+     * the mapped window (a record larger than the segment window) fall back to a read.
+     */
+    ByteBuffer slice(long offset, int length) throws IOException {
+        MappedByteBuffer map = mapping;
+        if (map != null && offset + length <= map.capacity()) {
+            return map.slice((int) offset, length).asReadOnlyBuffer();
+        }
+        return read(offset, length);
+    }
+
+    /**
+     * Trim the pre-sized file back to the bytes actually written and make that durable.
+     */
+    void seal() throws IOException {
+        truncate(size);
+    }
+
+    /**
+     * Read one frame with a positional read into the heap; safe to call concurrently with
+     * appends.
+     */
+    ByteBuffer read(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Record at " + offset + " extends past the end of " + path);
+            }
+            position += read;
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Scan frames from the start of the file, stopping at the first torn or corrupt frame.
+     *
+     * @return the length of the valid prefix
+     */
+    long scan(RecordVisitor visitor) throws IOException {
+        long limit = channel.size();
+        if (limit == 0) {
+            return 0;
+        }
+        if (limit > Integer.MAX_VALUE) {
+            throw new IOException("Segment too large to scan: " + path);
+        }
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, limit);
+        int position = 0;
+        while (position + Record.FRAME_HEADER_BYTES <= limit) {
+            int frameLength = Record.frameLength(map, position);
+            if (frameLength < 0 || position + (long) frameLength > limit) {
+                break;
+            }
+            ByteBuffer frame = map.slice(position, frameLength);
+            if (!Record.verify(frame)) {
+                break;
+            }
+            visitor.visit(position, Record.parse(frame));
+            position += frameLength;
+        }
+        return position;
+    }
+
+    /**
+     * @return true if any byte from {@code position} to the end of the file is non-zero
+     */
+    boolean hasDataAfter(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long limit = channel.size();
+        while (position < limit) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return false;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) != 0) {
+                    return true;
+                }
+            }
+            position += read;
+        }
+        return false;
+    }
+
+    /**
+     * Drop a torn tail found by {@link #scan}.
+     */
+    void truncate(long validLength) throws IOException {
+        channel.truncate(validLength);
+        channel.force(true);
+        size = validLength;
+        syncedSize = validLength;
+    }
+
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    long size() {
+        return size;
+    }
+
+    long syncedSize() {
+        return syncedSize;
+    }
+
+    void markSynced(long syncedSize) {
+        this.syncedSize = syncedSize;
+    }
+
+    void addLive(long bytes) {
+        liveBytes.addAndGet(bytes);
+    }
+
+    double liveRatio() {
+        long total = size;
+        return total == 0 ? 1.0 : (double) liveBytes.get() / total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            closer.clean();
+        }
+    }
+
+    /**
+     * Closes the channel of a segment that was dropped without {@link #close()}; must not
+     * refer to the segment itself.
+     */
+    private static final class Closer implements Runnable {
+        private final FileChannel channel;
+
+        Closer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void run() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing is waiting on this channel any more
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface RecordVisitor {
+        void visit(long offset, Record record) throws IOException;
+    }
+}
@@ -0,0 +1,233 @@
+package ai.demo.springagent.repository.search;
+
+import ai.demo.springagent.model.ThreadMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over message content.
+ *
+ * <p>Each indexed message gets a dense document id; every term maps to a {@link PostingList}
+ * of delta-varint encoded (document, frequency) pairs. Queries walk the posting lists of
+ * their terms in document order and rank messages with BM25, keeping only the top hits in a
+ * bounded heap, so a query costs time proportional to the postings of its terms rather than
+ * the number of messages. Deleting a thread only marks its documents; posting lists are
+ * rewritten without them once those outnumber the live ones. Document ids are never reused.
+ *
+ * <p>Updates take a write lock for the time it takes to append postings (tokenizing happens
+ * before); queries share a read lock.
+ */
+public class MessageIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<String, DocList> threadDocs = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private String[] docThreads = new String[1024];
+    private String[] docMessages = new String[1024];
+    private int[] docLengths = new int[1024];
+    private int docCount;
+    private int liveCount;
+    private int unpurgedCount;
+    private long totalLength;
+
+    /**
+     * Index a message's content. Messages without indexable terms are skipped.
+     */
+    public void add(ThreadMessage message) {
+        List<String> terms = Tokenizer.tokenize(message.getContent());
+        if (terms.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : terms) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+
+        lock.writeLock().lock();
+        try {
+            int doc = docCount++;
+            if (doc == docThreads.length) {
+                int capacity = docThreads.length * 2;
+                docThreads = Arrays.copyOf(docThreads, capacity);
+                docMessages = Arrays.copyOf(docMessages, capacity);
+                docLengths = Arrays.copyOf(docLengths, capacity);
+            }
+            docThreads[doc] = message.getThreadId();
+            docMessages[doc] = message.getId();
+            docLengths[doc] = terms.size();
+            totalLength += terms.size();
+            liveCount++;
+            threadDocs.computeIfAbsent(message.getThreadId(), id -> new DocList()).add(doc);
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), t -> new PostingList()).add(doc, entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drop every message of a thread from search results.
+     */
+    public void removeThread(String threadId) {
+        lock.writeLock().lock();
+        try {
+            DocList docs = threadDocs.remove(threadId);
+            if (docs == null) {
+                return;
+            }
+            for (int i = 0; i < docs.size; i++) {
+                int doc = docs.docs[i];
+                deleted.set(doc);
+                totalLength -= docLengths[doc];
+                docThreads[doc] = null;
+                docMessages[doc] = null;
+            }
+            liveCount -= docs.size;
+            unpurgedCount += docs.size;
+            if (unpurgedCount > liveCount) {
+                purge();
+                unpurgedCount = 0;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rank messages matching any of the query's terms.
+     *
+     * @param query free text; tokenized like message content
+     * @param limit maximum number of message and thread hits
+     */
+    public SearchHits search(String query, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(Tokenizer.tokenize(query)));
+        if (terms.isEmpty()) {
+            return new SearchHits(terms, List.of(), List.of());
+        }
+
+        lock.readLock().lock();
+        try {
+            int live = liveCount;
+            if (live == 0) {
+                return new SearchHits(terms, List.of(), List.of());
+            }
+            float averageLength = (float) totalLength / live;
+            List<PostingList.Cursor> cursors = new ArrayList<>(terms.size());
+            List<Float> idfs = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                PostingList list = postings.get(term);
+                if (list != null) {
+                    PostingList.Cursor cursor = list.cursor();
+                    cursor.next();
+                    cursors.add(cursor);
+                    int df = list.docCount();
+                    idfs.add((float) Math.log(1 + (live - df + 0.5) / (df + 0.5)));
+                }
+            }
+
+            PriorityQueue<SearchHits.MessageHit> top =
+                    new PriorityQueue<>(Comparator.comparingDouble(SearchHits.MessageHit::getScore));
+            Map<String, SearchHits.ThreadHit> threads = new HashMap<>();
+            while (true) {
+                int doc = Integer.MAX_VALUE;
+                for (PostingList.Cursor cursor : cursors) {
+                    doc = Math.min(doc, cursor.doc);
+                }
+                if (doc == Integer.MAX_VALUE) {
+                    break;
+                }
+                float score = 0;
+                float norm = K1 * (1 - B + B * docLengths[doc] / averageLength);
+                for (int i = 0; i < cursors.size(); i++) {
+                    PostingList.Cursor cursor = cursors.get(i);
+                    if (cursor.doc == doc) {
+                        score += idfs.get(i) * cursor.frequency * (K1 + 1) / (cursor.frequency + norm);
+                        cursor.next();
+                    }
+                }
+                if (deleted.get(doc)) {
+                    continue;
+                }
+                threads.computeIfAbsent(docThreads[doc], SearchHits.ThreadHit::new).record(score);
+                if (top.size() < limit) {
+                    top.add(new SearchHits.MessageHit(docThreads[doc], docMessages[doc], score));
+                } else if (score > top.peek().getScore()) {
+                    top.poll();
+                    top.add(new SearchHits.MessageHit(docThreads[doc], docMessages[doc], score));
+                }
+            }
+
+            List<SearchHits.MessageHit> messages = new ArrayList<>(top);
+            messages.sort(Comparator.comparingDouble(SearchHits.MessageHit::getScore).reversed());
+            List<SearchHits.ThreadHit> rankedThreads = new ArrayList<>(threads.values());
+            rankedThreads.sort(Comparator.comparingDouble(SearchHits.ThreadHit::getScore).reversed()
+                    .thenComparing(Comparator.comparingInt(SearchHits.ThreadHit::getHits).reversed()));
+            if (rankedThreads.size() > limit) {
+                rankedThreads = new ArrayList<>(rankedThreads.subList(0, limit));
+            }
+            return new SearchHits(terms, rankedThreads, messages);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return index size figures: documents, terms and posting bytes
+     */
+    public Map<String, Object> getStatistics() {
+        lock.readLock().lock();
+        try {
+            long postingBytes = 0;
+            for (PostingList list : postings.values()) {
+                postingBytes += list.sizeInBytes();
+            }
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("documents", liveCount);
+            stats.put("deletedDocuments", docCount - liveCount);
+            stats.put("terms", postings.size());
+            stats.put("postingBytes", postingBytes);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrite posting lists without deleted documents. Document ids are kept, so the
+     * per-document arrays are not compacted. Must hold the write lock.
+     */
+    private void purge() {
+        postings.replaceAll((term, list) -> list.retain(deleted::get));
+        postings.values().removeIf(list -> list == null);
+    }
+
+    /**
+     * Growable list of one thread's document ids.
+     */
+    private static final class DocList {
+        int[] docs = new int[4];
+        int size;
+
+        void add(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+    }
+}
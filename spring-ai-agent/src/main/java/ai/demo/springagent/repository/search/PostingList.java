@@ -0,0 +1,103 @@
+package ai.demo.springagent.repository.search;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Documents containing one term, in ascending document order. Each posting is the gap from
+ * the previous document id followed by the term frequency, both as unsigned LEB128 varints,
+ * so a common term costs about two bytes per message.
+ */
+final class PostingList {
+
+    private byte[] data = new byte[8];
+    private int length;
+    private int lastDoc = -1;
+    private int docCount;
+
+    /**
+     * @param doc document id, greater than any added before
+     * @param frequency occurrences of the term in the document
+     */
+    void add(int doc, int frequency) {
+        if (length + 10 > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 10));
+        }
+        length = writeVarint(data, length, doc - lastDoc);
+        length = writeVarint(data, length, frequency);
+        lastDoc = doc;
+        docCount++;
+    }
+
+    int docCount() {
+        return docCount;
+    }
+
+    int sizeInBytes() {
+        return data.length;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * @return a copy without the documents for which {@code dead} is true, or null if none remain
+     */
+    PostingList retain(IntPredicate dead) {
+        PostingList kept = new PostingList();
+        for (Cursor cursor = cursor(); cursor.next(); ) {
+            if (!dead.test(cursor.doc)) {
+                kept.add(cursor.doc, cursor.frequency);
+            }
+        }
+        if (kept.docCount == 0) {
+            return null;
+        }
+        kept.data = Arrays.copyOf(kept.data, kept.length);
+        return kept;
+    }
+
+    private static int writeVarint(byte[] out, int pos, int value) {
+        while ((value & ~0x7f) != 0) {
+            out[pos++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+
+    /**
+     * Forward-only decoder over the postings.
+     */
+    final class Cursor {
+        private int pos;
+        int doc = -1;
+        int frequency;
+
+        /**
+         * @return false when the list is exhausted
+         */
+        boolean next() {
+            if (pos >= length) {
+                doc = Integer.MAX_VALUE;
+                return false;
+            }
+            doc += readVarint();
+            frequency = readVarint();
+            return true;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[pos++];
+                value |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
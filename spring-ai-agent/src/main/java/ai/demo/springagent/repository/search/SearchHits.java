@@ -0,0 +1,95 @@
+package ai.demo.springagent.repository.search;
+
+import java.util.List;
+
+/**
+ * Ranked result of a {@link MessageIndex} query: the best matching messages and the threads
+ * they belong to, each ordered by descending BM25 score.
+ */
+public class SearchHits {
+
+    private final List<String> terms;
+    private final List<ThreadHit> threads;
+    private final List<MessageHit> messages;
+
+    public SearchHits(List<String> terms, List<ThreadHit> threads, List<MessageHit> messages) {
+        this.terms = terms;
+        this.threads = threads;
+        this.messages = messages;
+    }
+
+    /**
+     * @return the distinct query terms that were looked up
+     */
+    public List<String> getTerms() {
+        return terms;
+    }
+
+    public List<ThreadHit> getThreads() {
+        return threads;
+    }
+
+    public List<MessageHit> getMessages() {
+        return messages;
+    }
+
+    /**
+     * A matching message.
+     */
+    public static final class MessageHit {
+        private final String threadId;
+        private final String messageId;
+        private final float score;
+
+        public MessageHit(String threadId, String messageId, float score) {
+            this.threadId = threadId;
+            this.messageId = messageId;
+            this.score = score;
+        }
+
+        public String getThreadId() {
+            return threadId;
+        }
+
+        public String getMessageId() {
+            return messageId;
+        }
+
+        public float getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * A thread with at least one matching message, scored by its best message.
+     */
+    public static final class ThreadHit {
+        private final String threadId;
+        private float score;
+        private int hits;
+
+        public ThreadHit(String threadId) {
+            this.threadId = threadId;
+        }
+
+        void record(float messageScore) {
+            score = Math.max(score, messageScore);
+            hits++;
+        }
+
+        public String getThreadId() {
+            return threadId;
+        }
+
+        public float getScore() {
+            return score;
+        }
+
+        /**
+         * @return the number of matching messages in the thread
+         */
+        public int getHits() {
+            return hits;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ai.demo.springagent.repository.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits text into lower-cased terms for the {@link MessageIndex}: maximal runs of letters
+ * and digits, between {@value #MIN_TERM_LENGTH} and {@value #MAX_TERM_LENGTH} characters.
+ */
+public final class Tokenizer {
+
+    static final int MIN_TERM_LENGTH = 2;
+    static final int MAX_TERM_LENGTH = 64;
+
+    private Tokenizer() {
+    }
+
+    /**
+     * @return the terms of {@code text} in order of appearance, with repeats
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        StringBuilder term = new StringBuilder(16);
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            int c = i < n ? text.codePointAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                term.appendCodePoint(Character.toLowerCase(c));
+                if (Character.isSupplementaryCodePoint(c)) {
+                    i++;
+                }
+                continue;
+            }
+            if (term.length() >= MIN_TERM_LENGTH && term.length() <= MAX_TERM_LENGTH) {
+                terms.add(term.toString());
+            }
+            term.setLength(0);
+        }
+        return terms;
+    }
+}
@@ -1,15 +1,18 @@
 package ai.demo.springagent.service;
 
 import ai.demo.agent.base.AgentException;
+import ai.demo.agent.metrics.ChatAgentMetrics;
 import ai.demo.springagent.agent.ChatCompletionAgent;
 import ai.demo.springagent.dto.ChatRequest;
 import ai.demo.springagent.dto.ChatResponse;
-import ai.demo.springagent.model.ThreadMessage;
+import ai.demo.springagent.metrics.RequestTimings;
 import ai.demo.springagent.task.ChatTask;
+import ai.demo.springagent.tokenizer.TokenCounter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
@@ -27,10 +30,18 @@ public class AgentChatService {
 
     private final ChatCompletionAgent chatAgent;
     private final ThreadService threadService;
+    private final ConversationContextBuilder contextBuilder;
+    private final ChatAgentMetrics chatMetrics;
+    private final TokenCounter tokenCounter;
 
-    public AgentChatService(ChatCompletionAgent chatAgent, ThreadService threadService) {
+    public AgentChatService(ChatCompletionAgent chatAgent, ThreadService threadService,
+                            ConversationContextBuilder contextBuilder, ChatAgentMetrics chatMetrics,
+                            TokenCounter tokenCounter) {
         this.chatAgent = chatAgent;
         this.threadService = threadService;
+        this.contextBuilder = contextBuilder;
+        this.chatMetrics = chatMetrics;
+        this.tokenCounter = tokenCounter;
 
         // Start the agent when service is initialized
         try {
@@ -49,22 +60,36 @@ public class AgentChatService {
      * @return chat response from the agent
      */
     public ChatResponse processChat(ChatRequest request) {
+        return processChat(request, new RequestTimings());
+    }
+
+    /**
+     * Process a chat request using the agent framework, recording phase timings.
+     *
+     * @param request the chat request to process
+     * @param timings per-request timings to record history, truncation, queue, enhance and provider phases into
+     * @return chat response from the agent
+     */
+    public ChatResponse processChat(ChatRequest request, RequestTimings timings) {
         logger.debug("Processing chat request using agent framework - threadId: {}",
                     request.getThreadId());
 
         // Create a ChatTask from the request
-        ChatTask task = new ChatTask(request);
+        ChatTask task = new ChatTask(request, timings, tokenCounter);
 
         // Process thread history if needed
         ChatTask processedTask = processThreadHistory(task);
+        long startNanos = System.nanoTime();
 
         try {
-            // Use the agent to process the task
+            // Use the agent to process the task; queue wait ends when a worker picks it up
+            timings.begin(RequestTimings.Phase.QUEUE);
             CompletableFuture<ChatResponse> future = chatAgent.process(processedTask);
             ChatResponse response = future.get();
 
             // Save assistant response to thread if applicable
             saveAssistantResponse(request.getThreadId(), response);
+            recordTokenUsage(request.getThreadId(), response, System.nanoTime() - startNanos);
 
             // Log metrics
             logAgentMetrics();
@@ -75,6 +100,7 @@ public class AgentChatService {
             return response;
 
         } catch (Exception e) {
+            chatMetrics.recordMessageProcessingFailed(System.nanoTime() - startNanos, 0, false);
             logger.error("Agent-based chat completion failed", e);
             throw new RuntimeException("Failed to process chat with agent", e);
         }
@@ -93,6 +119,7 @@ public class AgentChatService {
 
         // Create a ChatTask with memory context
         ChatTask task = createMemoryEnhancedTask(request);
+        long startNanos = System.nanoTime();
 
         try {
             // Use the agent to process the task (agent handles memory internally)
@@ -101,11 +128,13 @@ public class AgentChatService {
 
             // Save to thread storage
             saveAssistantResponse(request.getThreadId(), response);
+            recordTokenUsage(request.getThreadId(), response, System.nanoTime() - startNanos);
 
             logger.info("Agent-based chat with memory completed successfully");
             return response;
 
         } catch (Exception e) {
+            chatMetrics.recordMessageProcessingFailed(System.nanoTime() - startNanos, 0, false);
             logger.error("Agent-based chat with memory failed", e);
             throw new RuntimeException("Failed to process chat with agent and memory", e);
         }
@@ -131,6 +160,12 @@ public class AgentChatService {
                 "successRate", chatAgent.getMetrics().getSuccessRate(),
                 "averageProcessingTime", chatAgent.getMetrics().getAverageProcessingTime()
             ),
+            "tokens", java.util.Map.of(
+                "inputTokens", chatMetrics.getTotalInputTokens(),
+                "outputTokens", chatMetrics.getTotalOutputTokens(),
+                "outputTokensPerSecond", chatMetrics.getOutputTokensPerSecond(),
+                "byModel", chatMetrics.getTokensByModel()
+            ),
             "memory", java.util.Map.of(
                 "size", chatAgent.getMemory().size(),
                 "isEmpty", chatAgent.getMemory().isEmpty(),
@@ -156,10 +191,11 @@ public class AgentChatService {
     }
 
     private ChatTask processThreadHistory(ChatTask task) {
+        long historyStart = System.nanoTime();
         String threadId = task.getChatRequest().getThreadId();
         ChatRequest request = task.getChatRequest();
 
-        if (threadId != null && threadService.getThread(threadId).isPresent()) {
+        if (threadId != null && threadService.threadExists(threadId)) {
             // Save user message to thread
             if (!request.getMessages().isEmpty()) {
                 ChatRequest.Message lastMessage = request.getMessages().get(request.getMessages().size() - 1);
@@ -168,23 +204,21 @@ public class AgentChatService {
                 }
             }
 
-            // Get complete thread history for context
-            var threadHistory = threadService.getThreadMessages(threadId);
-            if (!threadHistory.isEmpty()) {
+            task.getTimings().record(RequestTimings.Phase.HISTORY, historyStart);
+
+            // Recent history within the token budget, maintained incrementally per thread
+            List<ChatRequest.Message> recentHistory = contextBuilder.recentHistory(threadId, task.getTimings());
+            if (!recentHistory.isEmpty()) {
                 // Update the chat request with thread history
                 ChatRequest enhancedRequest = new ChatRequest();
                 enhancedRequest.setModel(request.getModel());
-                enhancedRequest.setMessages(
-                    threadHistory.stream()
-                            .map(tm -> new ChatRequest.Message(tm.getRole(), tm.getContent()))
-                            .toList()
-                );
+                enhancedRequest.setMessages(recentHistory);
                 enhancedRequest.setTemperature(request.getTemperature());
                 enhancedRequest.setMaxTokens(request.getMaxTokens());
                 enhancedRequest.setStream(request.isStream());
                 enhancedRequest.setThreadId(request.getThreadId());
 
-                return new ChatTask(enhancedRequest);
+                return new ChatTask(enhancedRequest, task.getTimings(), tokenCounter);
             }
         }
 
@@ -193,7 +227,7 @@ public class AgentChatService {
 
     private ChatTask createMemoryEnhancedTask(ChatRequest request) {
         // Add memory context to the task metadata
-        ChatTask task = new ChatTask(request);
+        ChatTask task = new ChatTask(request, new RequestTimings(), tokenCounter);
 
         // The agent will automatically use its internal memory system
         // when processing the task through the transformation pipeline
@@ -202,13 +236,21 @@ public class AgentChatService {
     }
 
     private void saveAssistantResponse(String threadId, ChatResponse response) {
-        if (threadId != null && threadService.getThread(threadId).isPresent() &&
+        if (threadId != null && threadService.threadExists(threadId) &&
             response.getChoices() != null && !response.getChoices().isEmpty()) {
             String content = response.getChoices().get(0).getMessage().getContent();
             threadService.addMessageToThread(threadId, "assistant", content);
         }
     }
 
+    private void recordTokenUsage(String threadId, ChatResponse response, long processingTimeNanos) {
+        ChatResponse.Usage usage = response.getUsage();
+        long inputTokens = usage != null ? usage.getPromptTokens() : 0;
+        long outputTokens = usage != null ? usage.getCompletionTokens() : 0;
+        chatMetrics.recordMessageProcessed(processingTimeNanos, inputTokens, outputTokens, false);
+        chatMetrics.recordTokenUsage(threadId, response.getModel(), inputTokens, outputTokens);
+    }
+
     private void logAgentMetrics() {
         var metrics = chatAgent.getMetrics();
         var memory = chatAgent.getMemory();
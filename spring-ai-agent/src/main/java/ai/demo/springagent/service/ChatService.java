@@ -1,76 +1,100 @@
 package ai.demo.springagent.service;
 
+import ai.demo.agent.metrics.ChatAgentMetrics;
 import ai.demo.springagent.dto.ChatCompletionChunk;
 import ai.demo.springagent.dto.ChatRequest;
 import ai.demo.springagent.dto.ChatResponse;
 import ai.demo.springagent.config.AiModelConfiguration;
-import ai.demo.springagent.model.ThreadMessage;
+import ai.demo.springagent.metrics.RequestTimings;
+import ai.demo.springagent.metrics.StreamingMetrics;
 import ai.demo.springagent.provider.LLMProvider;
-import ai.demo.springagent.provider.OpenAIProvider;
+import ai.demo.springagent.provider.UsageMetadata;
+import ai.demo.springagent.provider.cache.CachingLLMProvider;
+import ai.demo.springagent.sse.DeltaCoalescer;
+import ai.demo.springagent.sse.SseFrameWriter;
+import ai.demo.springagent.tokenizer.TokenCounter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.memory.ChatMemory;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ChatService {
 
     private static final Logger logger = LoggerFactory.getLogger(ChatService.class);
+    private static final ObjectMapper TIMINGS_MAPPER = new ObjectMapper();
     
     private final ChatClient chatClient;
     private final AiModelConfiguration aiModelConfig;
     private final ThreadService threadService;
-    private final OpenAIProvider openAIProvider;
+    private final ConversationContextBuilder contextBuilder;
+    private final CachingLLMProvider cachingProvider;
     private final SessionMappingService sessionMappingService;
+    private final ChatAgentMetrics chatMetrics;
+    private final StreamingMetrics streamingMetrics;
+    private final TokenCounter tokenCounter;
+    private final DeltaCoalescer deltaCoalescer;
 
     public ChatService(ChatClient chatClient, AiModelConfiguration aiModelConfig, ThreadService threadService,
-                      OpenAIProvider openAIProvider, SessionMappingService sessionMappingService) {
+                      ConversationContextBuilder contextBuilder, CachingLLMProvider cachingProvider,
+                      SessionMappingService sessionMappingService, ChatAgentMetrics chatMetrics,
+                      StreamingMetrics streamingMetrics, TokenCounter tokenCounter,
+                      DeltaCoalescer deltaCoalescer) {
         this.chatClient = chatClient;
         this.aiModelConfig = aiModelConfig;
         this.threadService = threadService;
-        this.openAIProvider = openAIProvider;
+        this.contextBuilder = contextBuilder;
+        this.cachingProvider = cachingProvider;
         this.sessionMappingService = sessionMappingService;
+        this.chatMetrics = chatMetrics;
+        this.streamingMetrics = streamingMetrics;
+        this.tokenCounter = tokenCounter;
+        this.deltaCoalescer = deltaCoalescer;
+        threadService.onThreadDeleted(chatMetrics::removeThread);
     }
 
     public ChatResponse processChat(ChatRequest request, String provider) {
+        return processChat(request, provider, new RequestTimings());
+    }
+
+    public ChatResponse processChat(ChatRequest request, String provider, RequestTimings timings) {
         logger.debug("Processing chat request - provider: {}, model: {}, threadId: {}",
                     provider, request.getModel(), request.getThreadId());
 
         long startTime = System.currentTimeMillis();
-        ChatRequest processedRequest = processThreadHistory(request);
+        long startNanos = System.nanoTime();
+        ChatRequest processedRequest = processThreadHistory(request, timings);
         LLMProvider llmProvider = getProvider(provider);
 
-        ChatResponse response = llmProvider.complete(processedRequest).block();
-
-        // Validate response content
-        if (response == null) {
-            throw new RuntimeException("Received null response from provider");
-        }
-
-        if (response.getChoices() == null || response.getChoices().isEmpty()) {
-            logger.warn("Received response with no choices, creating default response");
-            response = createDefaultResponse(request.getModel());
-        } else {
-            ChatResponse.Choice choice = response.getChoices().get(0);
-            if (choice.getMessage() == null || choice.getMessage().getContent() == null ||
-                choice.getMessage().getContent().trim().isEmpty()) {
-                logger.warn("Received empty response content, using fallback");
-                choice.setMessage(new ChatResponse.Message("assistant", "I apologize, but I couldn't generate a response. Please try again."));
-            }
+        ChatResponse response;
+        long providerStart = System.nanoTime();
+        try {
+            response = llmProvider.complete(processedRequest).block();
+            timings.record(RequestTimings.Phase.PROVIDER, providerStart);
+        } catch (RuntimeException e) {
+            chatMetrics.recordMessageProcessingFailed(System.nanoTime() - startNanos, 0, false);
+            throw e;
         }
 
+        response = validateResponse(request, response);
         saveAssistantResponse(request.getThreadId(), response);
+        recordTokenUsage(request.getThreadId(), response.getModel(), response.getUsage(),
+                System.nanoTime() - startNanos);
 
         long duration = System.currentTimeMillis() - startTime;
         logger.info("Chat completion successful - provider: {}, model: {}, duration: {}ms",
@@ -79,11 +103,96 @@ public class ChatService {
         return response;
     }
 
+    /**
+     * Non-blocking counterpart of {@link #processChat} for the reactive endpoints. The
+     * provider is consumed as a stream and assembled into one response, and thread store
+     * access runs on the bounded-elastic scheduler, so no event-loop thread ever waits.
+     */
+    public Mono<ChatResponse> chat(ChatRequest request, String provider, RequestTimings timings) {
+        long startNanos = System.nanoTime();
+        LLMProvider llmProvider = getProvider(provider);
+        return Mono.fromCallable(() -> processThreadHistory(request, timings))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(processedRequest -> {
+                    long providerStart = System.nanoTime();
+                    return assemble(llmProvider.stream(processedRequest))
+                            .doOnNext(response -> timings.record(RequestTimings.Phase.PROVIDER, providerStart));
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> createDefaultResponse(request.getModel())))
+                .map(response -> validateResponse(request, response))
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(response -> {
+                    saveAssistantResponse(request.getThreadId(), response);
+                    recordTokenUsage(request.getThreadId(), response.getModel(), response.getUsage(),
+                            System.nanoTime() - startNanos);
+                })
+                .doOnError(error -> chatMetrics.recordMessageProcessingFailed(
+                        System.nanoTime() - startNanos, 0, false));
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #streamChat}: the provider's chunks, with the
+     * assistant message saved and usage recorded once the provider completes, or with the
+     * partial message if the subscriber cancels first. Framing and the trailing events are
+     * left to the caller.
+     */
+    public Flux<ChatCompletionChunk> stream(ChatRequest request, String provider, RequestTimings timings) {
+        long startNanos = System.nanoTime();
+        LLMProvider llmProvider = getProvider(provider);
+        return Mono.fromCallable(() -> processThreadHistory(request, timings))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(processedRequest -> {
+                    StreamingMetrics.StreamTracker downstream = streamingMetrics.start(
+                            StreamingMetrics.DOWNSTREAM, llmProvider.getName(), aiModelConfig.getModel());
+                    StringBuilder fullResponse = new StringBuilder();
+                    AtomicReference<ChatResponse.Usage> streamUsage = new AtomicReference<>();
+                    long providerStart = System.nanoTime();
+                    Runnable finish = () -> {
+                        timings.record(RequestTimings.Phase.PROVIDER, providerStart);
+                        if (request.getThreadId() != null && fullResponse.length() > 0) {
+                            saveAssistantMessage(request.getThreadId(), fullResponse.toString());
+                        }
+                        ChatResponse.Usage usage = UsageMetadata.orCounted(streamUsage.get(),
+                                () -> promptTokens(processedRequest),
+                                () -> tokenCounter.countTokens(fullResponse.toString()));
+                        downstream.complete(usage.getCompletionTokens());
+                        recordTokenUsage(request.getThreadId(), aiModelConfig.getModel(), usage,
+                                System.nanoTime() - startNanos);
+                    };
+                    return deltaCoalescer.apply(llmProvider.stream(processedRequest), request.getStreamOptions())
+                            .doOnNext(chunk -> {
+                                if (chunk.getUsage() != null) {
+                                    streamUsage.set(chunk.getUsage());
+                                }
+                                String content = contentOf(chunk);
+                                if (content != null) {
+                                    fullResponse.append(content);
+                                    downstream.onToken();
+                                }
+                            })
+                            // Cancellation reaches here when the client disconnects mid-stream and
+                            // travels on to the provider; keep what it has sent so far
+                            .doOnCancel(() -> {
+                                streamingMetrics.recordCancelled(llmProvider.getName(), aiModelConfig.getModel());
+                                Schedulers.boundedElastic().schedule(finish);
+                            })
+                            .concatWith(Mono.<ChatCompletionChunk>fromRunnable(finish)
+                                    .subscribeOn(Schedulers.boundedElastic()));
+                })
+                .doOnError(error -> chatMetrics.recordMessageProcessingFailed(
+                        System.nanoTime() - startNanos, 0, false));
+    }
+
     public ChatResponse processChatWithMemoryAdvisor(ChatRequest request, String provider) {
+        return processChatWithMemoryAdvisor(request, provider, new RequestTimings());
+    }
+
+    public ChatResponse processChatWithMemoryAdvisor(ChatRequest request, String provider, RequestTimings timings) {
         logger.debug("Processing chat request with memory advisor - provider: {}, model: {}, threadId: {}", 
                     provider, request.getModel(), request.getThreadId());
         
         long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
         
         // Map thread ID to session ID for model-level session management
         String sessionId = sessionMappingService.getOrCreateSessionId(request.getThreadId());
@@ -102,15 +211,23 @@ public class ChatService {
         }
         
         // Use ChatClient with memory advisor and session mapping
-        String response = chatClient.prompt()
+        long providerStart = System.nanoTime();
+        var aiResponse = chatClient.prompt()
                 .user(userMessage)
                 // Use conversation scoping for memory advisor; compatible with Spring AI M4
                 .advisors(a -> a.param("conversationId", conversationId))
                 .call()
-                .content();
+                .chatResponse();
+        timings.record(RequestTimings.Phase.PROVIDER, providerStart);
+        String response = aiResponse != null && aiResponse.getResult() != null && aiResponse.getResult().getOutput() != null
+                ? aiResponse.getResult().getOutput().getContent()
+                : null;
         
         // Create ChatResponse in OpenAI format
-        ChatResponse chatResponse = createChatResponse(response, request.getModel());
+        ChatResponse.Usage usage = UsageMetadata.orCounted(UsageMetadata.from(aiResponse), tokenCounter,
+                userMessage, response);
+        ChatResponse chatResponse = createChatResponse(response, request.getModel(), usage);
+        recordTokenUsage(request.getThreadId(), request.getModel(), usage, System.nanoTime() - startNanos);
         
         long duration = System.currentTimeMillis() - startTime;
         logger.info("Chat completion with memory advisor successful - provider: {}, model: {}, threadId: {}, sessionId: {}, conversationId: {}, duration: {}ms", 
@@ -119,59 +236,116 @@ public class ChatService {
         return chatResponse;
     }
     
-    @Async
-    public void streamChatAsync(ChatRequest request, String provider, SseEmitter emitter) {
+    /**
+     * Stream a chat completion to {@code out} as Server-Sent Events, blocking until the
+     * provider finishes. Deltas are batched by the {@link DeltaCoalescer} before framing.
+     * Phase timings are sent as a trailing {@code server-timing} event just before
+     * {@code [DONE]}, since headers are already committed by the time the provider finishes.
+     *
+     * <p>If the client disconnects, the next write fails and the provider is cancelled
+     * straight away; the content streamed so far is saved to the thread and its usage
+     * recorded as for a finished stream.
+     */
+    public void streamChat(ChatRequest request, String provider, OutputStream out, RequestTimings timings)
+            throws IOException {
+        timings.end(RequestTimings.Phase.QUEUE);
         logger.debug("Starting streaming chat - provider: {}, model: {}, threadId: {}", 
                     provider, request.getModel(), request.getThreadId());
         
         long startTime = System.currentTimeMillis();
-        ChatRequest processedRequest = processThreadHistory(request);
+        long startNanos = System.nanoTime();
         LLMProvider llmProvider = getProvider(provider);
+        // Downstream side: from request start to frames handed to the client, including history
+        // processing and serialization, so it can be compared with the provider's upstream timings
+        StreamingMetrics.StreamTracker downstream = streamingMetrics.start(
+                StreamingMetrics.DOWNSTREAM, llmProvider.getName(), aiModelConfig.getModel());
+        ChatRequest processedRequest = processThreadHistory(request, timings);
         
         StringBuilder fullResponse = new StringBuilder();
-        ObjectMapper objectMapper = new ObjectMapper();
+        ChatResponse.Usage streamUsage = null;
+        SseFrameWriter writer = new SseFrameWriter(out);
+        boolean cancelled = false;
+        boolean interrupted = false;
         
-        llmProvider.stream(processedRequest)
-                .doOnNext(chunk -> {
-                    try {
-                        String data = "data: " + objectMapper.writeValueAsString(chunk) + "\n\n";
-                        emitter.send(data);
-                        
-                        if (chunk.getChoices() != null && !chunk.getChoices().isEmpty() &&
-                            chunk.getChoices().get(0).getDelta() != null &&
-                            chunk.getChoices().get(0).getDelta().getContent() != null) {
-                            fullResponse.append(chunk.getChoices().get(0).getDelta().getContent());
-                        }
-                    } catch (IOException e) {
-                        emitter.completeWithError(e);
-                    }
-                })
-                .doOnComplete(() -> {
-                    try {
-                        emitter.send("data: [DONE]\n\n");
-                        emitter.complete();
-                        
-                        if (request.getThreadId() != null && fullResponse.length() > 0) {
-                            saveAssistantMessage(request.getThreadId(), fullResponse.toString());
-                        }
-                        
-                        long duration = System.currentTimeMillis() - startTime;
-                        logger.info("Streaming chat completed - provider: {}, model: {}, duration: {}ms, chars: {}", 
-                                   provider, request.getModel(), duration, fullResponse.length());
-                    } catch (IOException e) {
-                        logger.error("Error completing streaming chat", e);
-                        emitter.completeWithError(e);
-                    }
-                })
-                .doOnError(emitter::completeWithError)
-                .subscribe();
+        // Closing the stream cancels the provider if we stop early, e.g. on a failed write
+        try (Stream<ChatCompletionChunk> chunks = deltaCoalescer.apply(llmProvider.stream(processedRequest),
+                request.getStreamOptions()).toStream()) {
+            Iterator<ChatCompletionChunk> iterator = chunks.iterator();
+            // Time spent in hasNext() is time spent waiting on the provider; the rest is ours
+            // and is attributed to serialization
+            long providerWaitStart = System.nanoTime();
+            while (iterator.hasNext()) {
+                ChatCompletionChunk chunk = iterator.next();
+                long callbackStart = timings.record(RequestTimings.Phase.PROVIDER, providerWaitStart);
+                if (chunk.getUsage() != null) {
+                    streamUsage = chunk.getUsage();
+                }
+                writer.chunk(chunk);
+                long sendStart = timings.record(RequestTimings.Phase.SERIALIZATION, callbackStart);
+                writer.flush();
+                streamingMetrics.recordSend(llmProvider.getName(), aiModelConfig.getModel(),
+                        System.nanoTime() - sendStart);
+                
+                String content = contentOf(chunk);
+                if (content != null) {
+                    fullResponse.append(content);
+                    downstream.onToken();
+                }
+                providerWaitStart = System.nanoTime();
+            }
+            timings.record(RequestTimings.Phase.PROVIDER, providerWaitStart);
+            
+            writer.event("server-timing", TIMINGS_MAPPER.writeValueAsString(timings.toMillis()));
+            writer.done();
+            writer.flush();
+        } catch (IOException e) {
+            // The client went away; leaving the try block has already cancelled the provider
+            cancelled = true;
+            streamingMetrics.recordCancelled(llmProvider.getName(), aiModelConfig.getModel());
+            logger.debug("Client disconnected from stream - provider: {}, threadId: {}: {}",
+                        provider, request.getThreadId(), e.getMessage());
+        } catch (RuntimeException e) {
+            if (!(Exceptions.unwrap(e) instanceof InterruptedException)) {
+                chatMetrics.recordMessageProcessingFailed(System.nanoTime() - startNanos, 0, false);
+                throw e;
+            }
+            // The async request timed out and the container interrupted this thread while it
+            // waited on the provider; like a disconnect, keep what was streamed so far. The
+            // flag is cleared so that saving does not trip over interruptible file channels.
+            interrupted = java.lang.Thread.interrupted();
+            cancelled = true;
+            streamingMetrics.recordCancelled(llmProvider.getName(), aiModelConfig.getModel());
+            logger.debug("Stream interrupted - provider: {}, threadId: {}", provider, request.getThreadId());
+        }
+        
+        try {
+            if (request.getThreadId() != null && fullResponse.length() > 0) {
+                saveAssistantMessage(request.getThreadId(), fullResponse.toString());
+            }
+        } finally {
+            if (interrupted) {
+                java.lang.Thread.currentThread().interrupt();
+            }
+        }
+
+        ChatResponse.Usage usage = UsageMetadata.orCounted(streamUsage,
+                () -> promptTokens(processedRequest), () -> tokenCounter.countTokens(fullResponse.toString()));
+        downstream.complete(usage.getCompletionTokens());
+        recordTokenUsage(request.getThreadId(), aiModelConfig.getModel(), usage,
+                System.nanoTime() - startNanos);
+        
+        long duration = System.currentTimeMillis() - startTime;
+        logger.info("Streaming chat {} - provider: {}, model: {}, duration: {}ms, chars: {}, chunks: {}", 
+                   cancelled ? "cancelled" : "completed", provider, request.getModel(), duration,
+                   fullResponse.length(), downstream.getTokens());
     }
     
-    private ChatRequest processThreadHistory(ChatRequest request) {
+    private ChatRequest processThreadHistory(ChatRequest request, RequestTimings timings) {
+        long historyStart = System.nanoTime();
         String threadId = request.getThreadId();
         List<ChatRequest.Message> messages = request.getMessages();
         
-        if (threadId != null && threadService.getThread(threadId).isPresent()) {
+        if (threadId != null && threadService.threadExists(threadId)) {
             // Save user message to thread
             if (!messages.isEmpty()) {
                 ChatRequest.Message lastMessage = messages.get(messages.size() - 1);
@@ -180,15 +354,12 @@ public class ChatService {
                 }
             }
             
-            // Get complete thread history for better context
-            List<ThreadMessage> threadHistory = threadService.getThreadMessages(threadId);
-            if (!threadHistory.isEmpty()) {
-                messages = threadHistory.stream()
-                        .map(tm -> new ChatRequest.Message(tm.getRole(), tm.getContent()))
-                        .collect(Collectors.toList());
-
-                // Apply approximate token-based truncation to fit within budget
-                messages = truncateByTokenBudget(messages, aiModelConfig.getMaxHistoryTokens(), aiModelConfig.getCharsPerToken());
+            timings.record(RequestTimings.Phase.HISTORY, historyStart);
+            
+            // Recent history within the token budget, maintained incrementally per thread
+            List<ChatRequest.Message> recentHistory = contextBuilder.recentHistory(threadId, timings);
+            if (!recentHistory.isEmpty()) {
+                messages = recentHistory;
             }
         }
         
@@ -204,37 +375,12 @@ public class ChatService {
         return processedRequest;
     }
 
-    private List<ChatRequest.Message> truncateByTokenBudget(List<ChatRequest.Message> messages, int maxTokens, int charsPerToken) {
-        if (messages == null || messages.isEmpty()) return messages;
-        int budgetChars = Math.max(1, maxTokens) * Math.max(1, charsPerToken);
-
-        int totalChars = 0;
-        for (ChatRequest.Message m : messages) {
-            totalChars += (m.getContent() != null ? m.getContent().length() : 0);
-        }
-        if (totalChars <= budgetChars) return messages;
-
-        // Keep latest messages within budget; always keep last user message if possible
-        int running = 0;
-        java.util.LinkedList<ChatRequest.Message> deque = new java.util.LinkedList<>();
-        for (int i = messages.size() - 1; i >= 0; i--) {
-            ChatRequest.Message m = messages.get(i);
-            int len = (m.getContent() != null ? m.getContent().length() : 0);
-            if (running + len > budgetChars && !deque.isEmpty()) {
-                break;
-            }
-            deque.addFirst(m);
-            running += len;
-        }
-        return List.copyOf(deque);
-    }
-    
     private LLMProvider getProvider(String provider) {
-        return openAIProvider;
+        return cachingProvider;
     }
     
     private void saveAssistantResponse(String threadId, ChatResponse response) {
-        if (threadId != null && threadService.getThread(threadId).isPresent() &&
+        if (threadId != null && threadService.threadExists(threadId) &&
             response.getChoices() != null && !response.getChoices().isEmpty()) {
             String content = response.getChoices().get(0).getMessage().getContent();
             threadService.addMessageToThread(threadId, "assistant", content);
@@ -242,12 +388,100 @@ public class ChatService {
     }
     
     private void saveAssistantMessage(String threadId, String content) {
-        if (threadId != null && threadService.getThread(threadId).isPresent()) {
-            threadService.addMessageToThread(threadId, "assistant", content);
+        if (threadId != null && threadService.threadExists(threadId)) {
+            try {
+                threadService.addMessageToThread(threadId, "assistant", content);
+            } catch (IllegalArgumentException e) {
+                // The store rejects appends to a thread deleted while the response was generated
+                logger.debug("Thread {} was deleted before its response was saved", threadId);
+            }
+        }
+    }
+
+    private void recordTokenUsage(String threadId, String model, ChatResponse.Usage usage, long processingTimeNanos) {
+        long inputTokens = usage != null ? usage.getPromptTokens() : 0;
+        long outputTokens = usage != null ? usage.getCompletionTokens() : 0;
+        chatMetrics.recordMessageProcessed(processingTimeNanos, inputTokens, outputTokens, false);
+        // Only existing threads get a per-thread breakdown; deleting a thread drops its entry
+        String trackedThread = threadId != null && threadService.threadExists(threadId) ? threadId : null;
+        chatMetrics.recordTokenUsage(trackedThread, model, inputTokens, outputTokens);
+    }
+
+    private int promptTokens(ChatRequest request) {
+        int tokens = 0;
+        if (request.getMessages() != null) {
+            for (ChatRequest.Message m : request.getMessages()) {
+                tokens += tokenCounter.countTokens(m.getContent());
+            }
+        }
+        return tokens;
+    }
+
+    private ChatResponse validateResponse(ChatRequest request, ChatResponse response) {
+        if (response == null) {
+            throw new RuntimeException("Received null response from provider");
         }
+
+        if (response.getChoices() == null || response.getChoices().isEmpty()) {
+            logger.warn("Received response with no choices, creating default response");
+            return createDefaultResponse(request.getModel());
+        }
+        ChatResponse.Choice choice = response.getChoices().get(0);
+        if (choice.getMessage() == null || choice.getMessage().getContent() == null ||
+            choice.getMessage().getContent().trim().isEmpty()) {
+            logger.warn("Received empty response content, using fallback");
+            choice.setMessage(new ChatResponse.Message("assistant", "I apologize, but I couldn't generate a response. Please try again."));
+        }
+        return response;
     }
 
-    private ChatResponse createChatResponse(String content, String model) {
+    /**
+     * Collect a chunk stream into the equivalent non-streaming response; empty if the stream
+     * carried nothing.
+     */
+    private static Mono<ChatResponse> assemble(Flux<ChatCompletionChunk> chunks) {
+        return chunks.collectList().mapNotNull(list -> {
+            if (list.isEmpty()) {
+                return null;
+            }
+            ChatCompletionChunk first = list.get(0);
+            StringBuilder content = new StringBuilder();
+            String finishReason = null;
+            ChatResponse.Usage usage = null;
+            for (ChatCompletionChunk chunk : list) {
+                String text = contentOf(chunk);
+                if (text != null) {
+                    content.append(text);
+                }
+                if (chunk.getChoices() != null && !chunk.getChoices().isEmpty()
+                        && chunk.getChoices().get(0).getFinishReason() != null) {
+                    finishReason = chunk.getChoices().get(0).getFinishReason();
+                }
+                if (chunk.getUsage() != null) {
+                    usage = chunk.getUsage();
+                }
+            }
+            ChatResponse response = new ChatResponse();
+            response.setId(first.getId());
+            response.setCreated(first.getCreated());
+            response.setModel(first.getModel());
+            response.setChoices(List.of(new ChatResponse.Choice(0,
+                    new ChatResponse.Message("assistant", content.toString()),
+                    finishReason != null ? finishReason : "stop")));
+            response.setUsage(usage);
+            return response;
+        });
+    }
+
+    private static String contentOf(ChatCompletionChunk chunk) {
+        if (chunk.getChoices() == null || chunk.getChoices().isEmpty()
+                || chunk.getChoices().get(0).getDelta() == null) {
+            return null;
+        }
+        return chunk.getChoices().get(0).getDelta().getContent();
+    }
+
+    private ChatResponse createChatResponse(String content, String model, ChatResponse.Usage usage) {
         ChatResponse response = new ChatResponse();
         response.setId("chatcmpl-" + UUID.randomUUID().toString().replace("-", ""));
         response.setObject("chat.completion");
@@ -264,18 +498,14 @@ public class ChatService {
         choice.setMessage(message);
 
         response.setChoices(List.of(choice));
-
-        ChatResponse.Usage usage = new ChatResponse.Usage();
-        usage.setPromptTokens(0); // Would need token counting implementation
-        usage.setCompletionTokens(0);
-        usage.setTotalTokens(0);
-        response.setUsage(usage);
+        response.setUsage(usage != null ? usage : new ChatResponse.Usage(0, 0, 0));
 
         return response;
     }
 
     private ChatResponse createDefaultResponse(String model) {
-        return createChatResponse("I apologize, but I'm having trouble generating a response. Please try again.", model);
+        // Fallback text is not model output, so no tokens are attributed to it
+        return createChatResponse("I apologize, but I'm having trouble generating a response. Please try again.", model, null);
     }
 
     public Map<String, Object> getAvailableModels() {
@@ -291,6 +521,17 @@ public class ChatService {
         );
     }
 
+    public Map<String, Object> getUsageStatistics() {
+        return Map.of(
+            "prompt_tokens", chatMetrics.getTotalInputTokens(),
+            "completion_tokens", chatMetrics.getTotalOutputTokens(),
+            "total_tokens", chatMetrics.getTotalTokens(),
+            "output_tokens_per_second", chatMetrics.getOutputTokensPerSecond(),
+            "by_model", chatMetrics.getTokensByModel(),
+            "by_thread", chatMetrics.getTokensByThread()
+        );
+    }
+
     public Map<String, Object> getSessionStatistics() {
         return Map.of(
             "sessionMappings", sessionMappingService.getAllMappings(),
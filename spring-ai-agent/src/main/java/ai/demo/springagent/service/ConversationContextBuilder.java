@@ -0,0 +1,205 @@
+package ai.demo.springagent.service;
+
+import ai.demo.springagent.config.AiModelConfiguration;
+import ai.demo.springagent.dto.ChatRequest;
+import ai.demo.springagent.metrics.RequestTimings;
+import ai.demo.springagent.model.ThreadMessage;
+import ai.demo.springagent.tokenizer.TokenCounter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Builds the recent-history context sent to the model for a thread, incrementally.
+ *
+ * <p>Each cached thread keeps the token count of every message it has seen as a prefix-sum
+ * array, plus the message list it last returned. A new turn only counts the messages appended
+ * since the previous call, finds where the newest suffix that fits the token budget starts
+ * with a binary search over the prefix sums, and reuses the already built messages that are
+ * still inside the window, so building context for turn N costs O(window + new messages)
+ * instead of decoding and counting the whole thread.
+ *
+ * <p>Caches are validated against the stored history on every call (message count and first
+ * message id), so appends from any path are picked up without explicit invalidation. Only
+ * the {@code contextCacheThreads} most recently used threads are cached.
+ *
+ * <p>Messages that no longer fit are not simply dropped: once enough of them have fallen out
+ * of the window, the {@link ThreadSummarizer} folds them into a rolling summary in the
+ * background, and the summary is sent ahead of the window with its tokens charged against
+ * the same budget.
+ */
+@Service
+public class ConversationContextBuilder {
+
+    private final ThreadService threadService;
+    private final AiModelConfiguration aiModelConfig;
+    private final TokenCounter tokenCounter;
+    private final ThreadSummarizer summarizer;
+    private final Map<String, ContextWindow> windows;
+
+    public ConversationContextBuilder(ThreadService threadService, AiModelConfiguration aiModelConfig,
+                                      TokenCounter tokenCounter) {
+        this(threadService, aiModelConfig, tokenCounter, null);
+    }
+
+    @Autowired
+    public ConversationContextBuilder(ThreadService threadService, AiModelConfiguration aiModelConfig,
+                                      TokenCounter tokenCounter, ThreadSummarizer summarizer) {
+        this.threadService = threadService;
+        this.aiModelConfig = aiModelConfig;
+        this.tokenCounter = tokenCounter;
+        this.summarizer = summarizer != null && summarizer.isEnabled() ? summarizer : null;
+        int capacity = Math.max(1, aiModelConfig.getContextCacheThreads());
+        this.windows = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ContextWindow> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Return the latest messages of a thread that fit the configured history budget, oldest
+     * first; always at least the newest message. If older messages were left out and a
+     * summary of them exists, it comes first as a system message. The list is immutable and
+     * may be shared.
+     */
+    public List<ChatRequest.Message> recentHistory(String threadId) {
+        return recentHistory(threadId, new RequestTimings());
+    }
+
+    /**
+     * Like {@link #recentHistory(String)}, recording the history load as
+     * {@link RequestTimings.Phase#HISTORY} and fitting it to the token budget (summary
+     * included) as {@link RequestTimings.Phase#TRUNCATION}.
+     */
+    public List<ChatRequest.Message> recentHistory(String threadId, RequestTimings timings) {
+        long historyStart = System.nanoTime();
+        List<ThreadMessage> history = threadService.getThreadMessages(threadId);
+        long truncateStart = timings.record(RequestTimings.Phase.HISTORY, historyStart);
+        if (history.isEmpty()) {
+            return List.of();
+        }
+        List<ChatRequest.Message> recent = fit(threadId, history);
+        timings.record(RequestTimings.Phase.TRUNCATION, truncateStart);
+        return recent;
+    }
+
+    private List<ChatRequest.Message> fit(String threadId, List<ThreadMessage> history) {
+        ContextWindow window;
+        synchronized (windows) {
+            window = windows.computeIfAbsent(threadId, id -> new ContextWindow());
+        }
+        long budget = (long) Math.max(1, aiModelConfig.getMaxHistoryTokens());
+        if (summarizer == null) {
+            synchronized (window) {
+                return window.build(history, budget, tokenCounter);
+            }
+        }
+
+        ThreadSummarizer.Summary summary = summarizer.current(threadId, history);
+        // Summaries are trimmed to their share of the budget; one whose preamble alone is over
+        // it is not sent, though it still marks what has been summarised
+        boolean send = summary != null && summary.getTokens() <= summarizer.tokenLimit();
+        if (send) {
+            budget = Math.max(1, budget - summary.getTokens());
+        }
+        List<ChatRequest.Message> recent;
+        synchronized (window) {
+            recent = window.build(history, budget, tokenCounter);
+        }
+        int windowStart = history.size() - recent.size();
+        summarizer.summarizeBefore(threadId, windowStart, summary);
+        if (!send || windowStart == 0) {
+            return recent;
+        }
+        List<ChatRequest.Message> withSummary = new ArrayList<>(recent.size() + 1);
+        withSummary.add(summary.asMessage());
+        withSummary.addAll(recent);
+        return Collections.unmodifiableList(withSummary);
+    }
+
+    /**
+     * Cached state for one thread.
+     */
+    static final class ContextWindow {
+        private String firstId;
+        private int count;
+        // prefix[i] = tokens of messages [0, i)
+        private long[] prefix = new long[16];
+        private List<ChatRequest.Message> messages = List.of();
+        private int start;
+        private int end;
+
+        List<ChatRequest.Message> build(List<ThreadMessage> history, long budget, TokenCounter tokenCounter) {
+            int size = history.size();
+            if (size < count || (count > 0 && !Objects.equals(firstId, history.get(0).getId()))) {
+                reset();
+            }
+            if (count == 0) {
+                firstId = history.get(0).getId();
+            }
+            if (size + 1 > prefix.length) {
+                prefix = Arrays.copyOf(prefix, Math.max(prefix.length * 2, size + 1));
+            }
+            for (int i = count; i < size; i++) {
+                prefix[i + 1] = prefix[i] + tokenCounter.countTokens(history.get(i).getContent());
+            }
+            count = size;
+
+            int windowStart = windowStart(budget);
+            if (windowStart == start && size == end) {
+                return messages;
+            }
+
+            List<ChatRequest.Message> window = new ArrayList<>(size - windowStart);
+            for (int i = windowStart; i < size; i++) {
+                // Reuse messages still inside the previous window instead of decoding them again
+                if (i >= start && i < end) {
+                    window.add(messages.get(i - start));
+                } else {
+                    ThreadMessage message = history.get(i);
+                    window.add(new ChatRequest.Message(message.getRole(), message.getContent()));
+                }
+            }
+            messages = Collections.unmodifiableList(window);
+            start = windowStart;
+            end = size;
+            return messages;
+        }
+
+        /**
+         * @return the first index of the longest suffix within the budget, or the newest
+         *         message alone if even that exceeds it
+         */
+        private int windowStart(long budget) {
+            long total = prefix[count];
+            int low = 0;
+            int high = count - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (total - prefix[mid] <= budget) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+
+        private void reset() {
+            firstId = null;
+            count = 0;
+            messages = List.of();
+            start = 0;
+            end = 0;
+        }
+    }
+}
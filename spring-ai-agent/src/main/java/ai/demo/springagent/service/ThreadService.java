@@ -2,25 +2,46 @@ package ai.demo.springagent.service;
 
 import ai.demo.springagent.dto.ThreadRequest;
 import ai.demo.springagent.dto.ThreadResponse;
+import ai.demo.springagent.dto.ThreadSearchResponse;
 import ai.demo.springagent.model.Thread;
+import ai.demo.springagent.model.HistorySummary;
 import ai.demo.springagent.model.ThreadMessage;
+import ai.demo.springagent.model.ThreadSummary;
+import ai.demo.springagent.repository.EncodedMessage;
+import ai.demo.springagent.repository.Page;
 import ai.demo.springagent.repository.ThreadRepository;
+import ai.demo.springagent.repository.search.SearchHits;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 public class ThreadService {
     
+    private static final int SNIPPET_CONTEXT = 60;
+    
     private final ThreadRepository threadRepository;
+    private final List<Consumer<String>> deleteListeners = new CopyOnWriteArrayList<>();
     
     public ThreadService(ThreadRepository threadRepository) {
         this.threadRepository = threadRepository;
     }
     
+    /**
+     * Call {@code listener} with the id of every thread deleted through this service, so
+     * state kept per thread elsewhere can be dropped with it.
+     */
+    public void onThreadDeleted(Consumer<String> listener) {
+        deleteListeners.add(listener);
+    }
+    
     public ThreadResponse createThread(ThreadRequest request) {
         String threadId = "thread_" + UUID.randomUUID().toString().replace("-", "");
         String title = request.getTitle() != null ? request.getTitle() : "New Chat";
@@ -37,9 +58,14 @@ public class ThreadService {
     }
     
     public List<ThreadResponse> getAllThreads() {
-        return threadRepository.findAll().stream()
+        return getThreads(Integer.MAX_VALUE, null, null, true).getItems();
+    }
+    
+    public Page<ThreadResponse> getThreads(int limit, String after, String before, boolean mostRecentFirst) {
+        Page<ThreadSummary> page = threadRepository.findSummaries(limit, after, before, mostRecentFirst);
+        return new Page<>(page.getItems().stream()
                 .map(this::convertToResponse)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()), page.hasMore());
     }
     
     public Optional<ThreadResponse> updateThread(String threadId, ThreadRequest request) {
@@ -59,21 +85,113 @@ public class ThreadService {
     public boolean deleteThread(String threadId) {
         if (threadRepository.existsById(threadId)) {
             threadRepository.deleteById(threadId);
+            deleteListeners.forEach(listener -> listener.accept(threadId));
             return true;
         }
         return false;
     }
     
-    public void addMessageToThread(String threadId, String role, String content) {
+    public boolean threadExists(String threadId) {
+        return threadRepository.existsById(threadId);
+    }
+    
+    public ThreadMessage addMessageToThread(String threadId, String role, String content) {
         String messageId = "msg_" + UUID.randomUUID().toString().replace("-", "");
         ThreadMessage message = new ThreadMessage(messageId, threadId, role, content);
         threadRepository.saveMessage(message);
+        return message;
     }
     
     public List<ThreadMessage> getThreadMessages(String threadId) {
         return threadRepository.findMessagesByThreadId(threadId);
     }
     
+    /**
+     * Persist the thread's rolling history summary; see {@link ThreadSummarizer}.
+     *
+     * @throws IllegalArgumentException if the thread does not exist or has been deleted
+     */
+    public void saveHistorySummary(String threadId, HistorySummary summary) {
+        threadRepository.saveHistorySummary(threadId, summary);
+    }
+    
+    public Optional<HistorySummary> getHistorySummary(String threadId) {
+        return threadRepository.findHistorySummary(threadId);
+    }
+    
+    public Page<ThreadMessage> getThreadMessagesPage(String threadId, int limit, String after, String before,
+                                                 boolean ascending) {
+        return threadRepository.findMessagePage(threadId, limit, after, before, ascending);
+    }
+    
+    /**
+     * Messages in their stored JSON encoding, for listings that copy bytes to the response.
+     */
+    public List<EncodedMessage> getEncodedThreadMessages(String threadId) {
+        return threadRepository.findEncodedMessagesByThreadId(threadId);
+    }
+    
+    public Page<EncodedMessage> getEncodedThreadMessagesPage(String threadId, int limit, String after, String before,
+                                                             boolean ascending) {
+        return threadRepository.findEncodedMessagePage(threadId, limit, after, before, ascending);
+    }
+    
+    /**
+     * Search message content across all threads; see {@link ThreadRepository#search}.
+     */
+    public ThreadSearchResponse search(String query, int limit) {
+        SearchHits hits = threadRepository.search(query, limit);
+        
+        List<ThreadSearchResponse.ThreadHit> threads = new ArrayList<>(hits.getThreads().size());
+        for (SearchHits.ThreadHit hit : hits.getThreads()) {
+            threadRepository.findSummaryById(hit.getThreadId()).ifPresent(summary ->
+                    threads.add(new ThreadSearchResponse.ThreadHit(hit.getThreadId(), summary.getTitle(),
+                            hit.getScore(), hit.getHits())));
+        }
+        List<ThreadSearchResponse.MessageHit> messages = new ArrayList<>(hits.getMessages().size());
+        for (SearchHits.MessageHit hit : hits.getMessages()) {
+            threadRepository.findMessage(hit.getThreadId(), hit.getMessageId()).ifPresent(message ->
+                    messages.add(new ThreadSearchResponse.MessageHit(message.getId(), message.getThreadId(),
+                            message.getRole(), message.getCreatedAt(), hit.getScore(),
+                            snippet(message.getContent(), hits.getTerms()))));
+        }
+        return new ThreadSearchResponse(query, threads, messages);
+    }
+    
+    /**
+     * Single-line excerpt around the first occurrence of any query term.
+     */
+    static String snippet(String content, List<String> terms) {
+        if (content == null) {
+            return null;
+        }
+        String lower = content.toLowerCase(Locale.ROOT);
+        int match = -1;
+        for (String term : terms) {
+            int index = lower.indexOf(term);
+            if (index >= 0 && (match < 0 || index < match)) {
+                match = index;
+            }
+        }
+        int start = Math.min(Math.max(0, match - SNIPPET_CONTEXT), content.length());
+        int end = Math.min(content.length(), Math.max(match, 0) + SNIPPET_CONTEXT * 2);
+        String excerpt = content.substring(start, end).strip().replace('\n', ' ').replace('\r', ' ');
+        return (start > 0 ? "…" : "") + excerpt + (end < content.length() ? "…" : "");
+    }
+    
+    public int getMessageCount(String threadId) {
+        return threadRepository.countMessagesByThreadId(threadId);
+    }
+    
+    private ThreadResponse convertToResponse(ThreadSummary summary) {
+        ThreadResponse response = new ThreadResponse(summary.getId(), summary.getTitle(), summary.getMetadata());
+        response.setCreatedAt(summary.getCreatedAt());
+        response.setLastActivity(summary.getLastActivity());
+        response.setMessageCount(summary.getMessageCount());
+        response.setLastMessagePreview(summary.getLastMessagePreview());
+        return response;
+    }
+    
     private ThreadResponse convertToResponse(Thread thread) {
         ThreadResponse response = new ThreadResponse(thread.getId(), thread.getTitle(), thread.getMetadata());
         response.setCreatedAt(thread.getCreatedAt());
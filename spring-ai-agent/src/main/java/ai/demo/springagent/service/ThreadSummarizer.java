@@ -0,0 +1,317 @@
+package ai.demo.springagent.service;
+
+import ai.demo.springagent.config.AiModelConfiguration;
+import ai.demo.springagent.config.SummaryConfiguration;
+import ai.demo.springagent.dto.ChatRequest;
+import ai.demo.springagent.dto.ChatResponse;
+import ai.demo.springagent.model.HistorySummary;
+import ai.demo.springagent.model.ThreadMessage;
+import ai.demo.springagent.provider.OpenAIProvider;
+import ai.demo.springagent.tokenizer.TokenCounter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Folds the older part of long threads into a rolling summary, in the background.
+ *
+ * <p>When messages fall out of a thread's history window, {@link ConversationContextBuilder}
+ * asks for them to be summarised. A single worker thread merges them into the thread's
+ * current summary with a model call, a segment at a time, so the model keeps long-range
+ * context while the prompt stays within the history budget. Summarisation never runs on
+ * the request path: until a pass finishes, requests use the previous summary (or none).
+ *
+ * <p>A summary is trimmed with the {@link TokenCounter} to {@code maxSummaryTokens} and to
+ * {@code maxHistoryShare} of the history budget, whichever is smaller; the provider is not
+ * relied on to honour the requested length. Summaries are saved through the thread store,
+ * so they outlive a restart when the store does, and the {@code maxThreads} most recently
+ * used are cached here.
+ *
+ * <p>A summary records the id of the last message it covers and is discarded when that no
+ * longer matches the stored history, so deleted or replaced threads start over. Summaries
+ * of deleted threads are dropped right away.
+ */
+@Service
+public class ThreadSummarizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadSummarizer.class);
+
+    private static final String INSTRUCTIONS = "You maintain a running summary of a conversation. "
+            + "Merge the new messages into the existing summary. Keep facts, decisions, names, numbers "
+            + "and open questions; drop pleasantries. Reply with the updated summary only, in at most %d tokens.";
+    private static final String PREFIX = "Summary of the earlier conversation:\n";
+
+    private final ThreadService threadService;
+    private final OpenAIProvider provider;
+    private final TokenCounter tokenCounter;
+    private final AiModelConfiguration aiModelConfig;
+    private final SummaryConfiguration config;
+    private final Map<String, Summary> summaries;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final ExecutorService worker;
+
+    public ThreadSummarizer(ThreadService threadService, OpenAIProvider provider, TokenCounter tokenCounter,
+                            AiModelConfiguration aiModelConfig, SummaryConfiguration config) {
+        this.threadService = threadService;
+        this.provider = provider;
+        this.tokenCounter = tokenCounter;
+        this.aiModelConfig = aiModelConfig;
+        this.config = config;
+        int capacity = Math.max(1, config.getMaxThreads());
+        this.summaries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Summary> eldest) {
+                return size() > capacity;
+            }
+        };
+        threadService.onThreadDeleted(this::remove);
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            java.lang.Thread thread = new java.lang.Thread(r, "thread-summarizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * @return the largest number of tokens a summary message may take
+     */
+    public int tokenLimit() {
+        double share = Math.min(1, Math.max(0, config.getMaxHistoryShare()));
+        long ofBudget = (long) (Math.max(1, aiModelConfig.getMaxHistoryTokens()) * share);
+        return (int) Math.max(1, Math.min(config.getMaxSummaryTokens(), ofBudget));
+    }
+
+    /**
+     * @return the thread's summary if it still matches {@code history}, otherwise null. A
+     *         summary not cached here is loaded from the thread store.
+     */
+    public Summary current(String threadId, List<ThreadMessage> history) {
+        Summary summary;
+        synchronized (summaries) {
+            summary = summaries.get(threadId);
+        }
+        if (summary == null) {
+            HistorySummary stored = threadService.getHistorySummary(threadId).orElse(null);
+            if (stored == null || stored.getText() == null) {
+                return null;
+            }
+            summary = new Summary(stored.getText(), stored.getMessageCount(), stored.getLastMessageId(),
+                    tokenCounter, tokenLimit());
+        }
+        int covered = summary.getMessageCount();
+        if (covered < 1 || covered > history.size()
+                || !history.get(covered - 1).getId().equals(summary.lastMessageId)) {
+            remove(threadId);
+            return null;
+        }
+        int limit = tokenLimit();
+        if (summary.tokenLimit != limit) {
+            // The history budget changed since the summary was trimmed
+            summary = new Summary(summary.source, covered, summary.lastMessageId, tokenCounter, limit);
+        }
+        synchronized (summaries) {
+            summaries.put(threadId, summary);
+        }
+        return summary;
+    }
+
+    /**
+     * Forget the thread's summary, e.g. because the thread was deleted.
+     */
+    public void remove(String threadId) {
+        synchronized (summaries) {
+            summaries.remove(threadId);
+        }
+    }
+
+    /**
+     * Schedule a summary pass once at least {@code segmentMessages} messages before
+     * {@code windowStart} are not yet covered. Returns immediately; at most one pass per
+     * thread is queued at a time.
+     *
+     * @param windowStart index of the oldest message still sent verbatim
+     * @param summary the thread's current summary, or null
+     */
+    public void summarizeBefore(String threadId, int windowStart, Summary summary) {
+        int covered = summary != null ? summary.getMessageCount() : 0;
+        if (!config.isEnabled() || windowStart - covered < Math.max(1, config.getSegmentMessages())) {
+            return;
+        }
+        if (pending.add(threadId)) {
+            try {
+                worker.execute(() -> {
+                    try {
+                        summarize(threadId, windowStart);
+                    } catch (RuntimeException e) {
+                        logger.warn("Summarising thread {} failed: {}", threadId, e.getMessage());
+                    } finally {
+                        pending.remove(threadId);
+                    }
+                });
+            } catch (RuntimeException e) {
+                pending.remove(threadId);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Extend the thread's summary to cover messages {@code [0, through)}, one model call per
+     * segment of at most {@code maxHistoryTokens} tokens.
+     */
+    void summarize(String threadId, int through) {
+        List<ThreadMessage> history = threadService.getThreadMessages(threadId);
+        int end = Math.min(through, history.size());
+        Summary summary = current(threadId, history);
+        int covered = summary != null ? summary.getMessageCount() : 0;
+        long segmentBudget = Math.max(1, aiModelConfig.getMaxHistoryTokens());
+
+        while (covered < end) {
+            StringBuilder prompt = new StringBuilder();
+            if (summary != null) {
+                prompt.append("Existing summary:\n").append(summary.getText()).append("\n\n");
+            }
+            prompt.append("New messages:\n");
+            long tokens = 0;
+            int next = covered;
+            while (next < end && (next == covered || tokens < segmentBudget)) {
+                ThreadMessage message = history.get(next++);
+                tokens += tokenCounter.countTokens(message.getContent());
+                prompt.append(message.getRole()).append(": ").append(message.getContent()).append('\n');
+            }
+
+            String text = complete(prompt.toString());
+            if (text == null || text.isBlank()) {
+                logger.warn("Model returned an empty summary for thread {}", threadId);
+                return;
+            }
+            summary = new Summary(text.strip(), next, history.get(next - 1).getId(), tokenCounter, tokenLimit());
+            covered = next;
+        }
+        if (summary == null) {
+            return;
+        }
+        try {
+            threadService.saveHistorySummary(threadId,
+                    new HistorySummary(summary.getText(), summary.getMessageCount(), summary.lastMessageId));
+        } catch (IllegalArgumentException e) {
+            // Deleted while the pass ran
+            return;
+        }
+        synchronized (summaries) {
+            summaries.put(threadId, summary);
+        }
+        logger.debug("Thread {} summarised through message {} ({} tokens)",
+                threadId, summary.getMessageCount(), summary.getTokens());
+    }
+
+    private String complete(String prompt) {
+        int limit = tokenLimit();
+        ChatRequest request = new ChatRequest();
+        request.setModel(aiModelConfig.getModel());
+        request.setMessages(List.of(
+                new ChatRequest.Message("system", String.format(INSTRUCTIONS, limit)),
+                new ChatRequest.Message("user", prompt)));
+        request.setMaxTokens(limit);
+        ChatResponse response = provider.complete(request).block(config.getTimeout());
+        if (response == null || response.getChoices() == null || response.getChoices().isEmpty()
+                || response.getChoices().get(0).getMessage() == null) {
+            return null;
+        }
+        return response.getChoices().get(0).getMessage().getContent();
+    }
+
+    @PreDestroy
+    public void close() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * Summary of a thread's first {@link #getMessageCount()} messages.
+     */
+    public static final class Summary {
+        // Untrimmed model output, kept so a larger budget can use more of it
+        private final String source;
+        private final String text;
+        private final int messageCount;
+        private final String lastMessageId;
+        private final int tokenLimit;
+        private final int tokens;
+        private final ChatRequest.Message message;
+
+        /**
+         * @param tokenLimit tokens the summary message may take; longer text is cut at a word
+         *                   boundary. Only the fixed preamble can exceed it.
+         */
+        Summary(String text, int messageCount, String lastMessageId, TokenCounter tokenCounter, int tokenLimit) {
+            this.source = text;
+            this.text = trim(text, tokenLimit, tokenCounter);
+            this.messageCount = messageCount;
+            this.lastMessageId = lastMessageId;
+            this.tokenLimit = tokenLimit;
+            this.message = new ChatRequest.Message("system", PREFIX + this.text);
+            this.tokens = tokenCounter.countTokens(message.getContent());
+        }
+
+        private static String trim(String text, int tokenLimit, TokenCounter tokenCounter) {
+            if (tokenCounter.countTokens(PREFIX + text) <= tokenLimit) {
+                return text;
+            }
+            // Longest prefix that fits; token counts grow with length, so binary search it
+            int low = 0;
+            int high = text.length();
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (tokenCounter.countTokens(PREFIX + text.substring(0, mid)) <= tokenLimit) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            int cut = low;
+            while (cut > 0 && !Character.isWhitespace(text.charAt(cut))) {
+                cut--;
+            }
+            if (cut < low / 2) {
+                // No word boundary nearby
+                cut = low;
+            }
+            if (cut > 0 && Character.isHighSurrogate(text.charAt(cut - 1))) {
+                cut--;
+            }
+            return text.substring(0, cut).strip();
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public int getMessageCount() {
+            return messageCount;
+        }
+
+        public int getTokens() {
+            return tokens;
+        }
+
+        /**
+         * @return the system message that stands in for the summarised messages
+         */
+        public ChatRequest.Message asMessage() {
+            return message;
+        }
+    }
+}
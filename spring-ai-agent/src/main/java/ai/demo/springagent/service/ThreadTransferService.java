@@ -0,0 +1,249 @@
+package ai.demo.springagent.service;
+
+import ai.demo.springagent.model.Thread;
+import ai.demo.springagent.model.ThreadMessage;
+import ai.demo.springagent.repository.ThreadRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Bulk export and import of threads as NDJSON.
+ *
+ * <p>Each line is one record: a {@code "type":"thread"} record followed by the
+ * {@code "type":"message"} records of that thread, oldest first. Export walks the activity
+ * index and streams each thread's messages from the store through a Jackson generator (an
+ * evicted thread is read from its archive, not reloaded), and import parses one record at a
+ * time and appends messages in batches, so memory use does not depend on how many threads
+ * or messages are moved.
+ */
+@Service
+public class ThreadTransferService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadTransferService.class);
+
+    static final int IMPORT_BATCH_SIZE = 500;
+
+    private final ThreadRepository threadRepository;
+    private final ObjectMapper objectMapper;
+
+    public ThreadTransferService(ThreadRepository threadRepository, ObjectMapper objectMapper) {
+        this.threadRepository = threadRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Write every thread and its messages, least recently active thread first.
+     *
+     * @return the number of threads written
+     */
+    public int exportThreads(OutputStream out) throws IOException {
+        int exported = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            for (String threadId : threadRepository.findAllIds(false)) {
+                Thread thread = threadRepository.findMetadataById(threadId).orElse(null);
+                if (thread == null) {
+                    continue; // Deleted while exporting
+                }
+                writeThread(generator, thread);
+                threadRepository.forEachMessage(threadId, message -> {
+                    try {
+                        writeMessage(generator, message);
+                        return true;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                exported++;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return exported;
+    }
+
+    /**
+     * Read records until the end of the stream. Threads that already exist are skipped along
+     * with their messages. Records before a malformed one stay imported.
+     *
+     * @throws IllegalArgumentException if a record is malformed or a message does not follow
+     *                                  its thread
+     */
+    public ImportResult importThreads(InputStream in) throws IOException {
+        ImportResult result = new ImportResult();
+        List<ThreadMessage> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        String currentThread = null;
+        boolean skipping = false;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            while (true) {
+                JsonNode record;
+                try {
+                    JsonToken token = parser.nextToken();
+                    if (token == null) {
+                        break;
+                    }
+                    if (token != JsonToken.START_OBJECT) {
+                        throw invalid(parser, "expected a JSON object");
+                    }
+                    record = parser.readValueAsTree();
+                } catch (JsonProcessingException e) {
+                    throw invalid(parser, e.getOriginalMessage());
+                }
+
+                String type = record.path("type").asText();
+                if ("thread".equals(type)) {
+                    currentThread = requireText(parser, record, "id");
+                    skipping = threadRepository.existsById(currentThread);
+                    if (skipping) {
+                        result.threadsSkipped++;
+                        continue;
+                    }
+                    threadRepository.save(toThread(record, currentThread));
+                    result.threadsImported++;
+                } else if ("message".equals(type)) {
+                    String threadId = requireText(parser, record, "thread_id");
+                    if (!threadId.equals(currentThread)) {
+                        throw invalid(parser, "message does not follow its thread " + threadId);
+                    }
+                    if (skipping) {
+                        continue;
+                    }
+                    batch.add(toMessage(parser, record, threadId));
+                    if (batch.size() == IMPORT_BATCH_SIZE) {
+                        flush(batch, result);
+                    }
+                } else {
+                    throw invalid(parser, "unknown record type '" + type + "'");
+                }
+            }
+        } finally {
+            flush(batch, result);
+        }
+        logger.info("Imported {} threads ({} skipped) and {} messages",
+                result.threadsImported, result.threadsSkipped, result.messagesImported);
+        return result;
+    }
+
+    private void flush(List<ThreadMessage> batch, ImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        threadRepository.saveMessages(batch);
+        result.messagesImported += batch.size();
+        batch.clear();
+    }
+
+    private static void writeThread(JsonGenerator generator, Thread thread) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", "thread");
+        generator.writeStringField("id", thread.getId());
+        generator.writeStringField("title", thread.getTitle());
+        if (thread.getMetadata() != null) {
+            generator.writeObjectField("metadata", thread.getMetadata());
+        }
+        generator.writeNumberField("created_at", thread.getCreatedAt());
+        generator.writeNumberField("last_activity", thread.getLastActivity());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private static void writeMessage(JsonGenerator generator, ThreadMessage message) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", "message");
+        generator.writeStringField("id", message.getId());
+        generator.writeStringField("thread_id", message.getThreadId());
+        generator.writeStringField("role", message.getRole());
+        generator.writeStringField("content", message.getContent());
+        generator.writeNumberField("created_at", message.getCreatedAt());
+        if (message.getMetadata() != null) {
+            generator.writeObjectField("metadata", message.getMetadata());
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private Thread toThread(JsonNode record, String id) throws IOException {
+        Thread thread = new Thread(id, record.path("title").asText(null), metadata(record));
+        if (record.has("created_at")) {
+            thread.setCreatedAt(record.get("created_at").asLong());
+        }
+        thread.setLastActivity(record.has("last_activity")
+                ? record.get("last_activity").asLong()
+                : thread.getCreatedAt());
+        return thread;
+    }
+
+    private ThreadMessage toMessage(JsonParser parser, JsonNode record, String threadId) throws IOException {
+        String id = record.path("id").asText(null);
+        if (id == null || id.isEmpty()) {
+            id = "msg_" + UUID.randomUUID().toString().replace("-", "");
+        }
+        ThreadMessage message = new ThreadMessage(id, threadId, requireText(parser, record, "role"),
+                requireText(parser, record, "content"), metadata(record));
+        if (record.has("created_at")) {
+            message.setCreatedAt(record.get("created_at").asLong());
+        }
+        return message;
+    }
+
+    private Object metadata(JsonNode record) throws IOException {
+        JsonNode metadata = record.get("metadata");
+        if (metadata == null || metadata.getNodeType() == JsonNodeType.NULL) {
+            return null;
+        }
+        return objectMapper.treeToValue(metadata, Object.class);
+    }
+
+    private static String requireText(JsonParser parser, JsonNode record, String field) {
+        JsonNode value = record.get(field);
+        if (value == null || !value.isTextual()) {
+            throw invalid(parser, "'" + field + "' must be a string");
+        }
+        return value.asText();
+    }
+
+    private static IllegalArgumentException invalid(JsonParser parser, String reason) {
+        return new IllegalArgumentException("Invalid import record at line "
+                + parser.currentLocation().getLineNr() + ": " + reason);
+    }
+
+    /**
+     * Counts reported by {@link #importThreads}.
+     */
+    public static class ImportResult {
+        private int threadsImported;
+        private int threadsSkipped;
+        private long messagesImported;
+
+        public int getThreadsImported() {
+            return threadsImported;
+        }
+
+        public int getThreadsSkipped() {
+            return threadsSkipped;
+        }
+
+        public long getMessagesImported() {
+            return messagesImported;
+        }
+    }
+}
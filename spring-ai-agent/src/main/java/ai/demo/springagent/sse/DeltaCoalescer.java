@@ -0,0 +1,214 @@
+package ai.demo.springagent.sse;
+
+import ai.demo.springagent.dto.ChatCompletionChunk;
+import ai.demo.springagent.dto.ChatRequest;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Merges consecutive content deltas of a completion stream into fewer, larger chunks, so a
+ * stream costs one SSE frame, write and packet per batch rather than per token.
+ *
+ * <p>A batch is emitted once its content reaches {@code maxBytes} (UTF-8) or {@code maxDelay}
+ * after its first delta, whichever comes first. The first content delta of a stream is never
+ * held back, so time to first token is unchanged. Chunks that carry anything besides content,
+ * such as the finish reason or usage, end the pending batch and pass through as they are.
+ */
+public class DeltaCoalescer {
+
+    private final Duration maxDelay;
+    private final int maxBytes;
+    private final Scheduler timer;
+    private final AtomicLong merged = new AtomicLong();
+
+    /**
+     * @param maxDelay default longest time a delta is held back; zero turns coalescing off
+     * @param maxBytes default batch size that is sent without waiting for {@code maxDelay}
+     */
+    public DeltaCoalescer(Duration maxDelay, int maxBytes) {
+        this(maxDelay, maxBytes, Schedulers.parallel());
+    }
+
+    DeltaCoalescer(Duration maxDelay, int maxBytes, Scheduler timer) {
+        this.maxDelay = maxDelay;
+        this.maxBytes = maxBytes;
+        this.timer = timer;
+    }
+
+    /**
+     * Coalesce {@code chunks} with the limits of {@code options}, falling back to the defaults
+     * for those it leaves unset.
+     */
+    public Flux<ChatCompletionChunk> apply(Flux<ChatCompletionChunk> chunks, ChatRequest.StreamOptions options) {
+        long delayMillis = options != null && options.getCoalesceMs() != null
+                ? options.getCoalesceMs() : maxDelay.toMillis();
+        int bytes = options != null && options.getCoalesceBytes() != null
+                ? options.getCoalesceBytes() : maxBytes;
+        if (delayMillis <= 0) {
+            return chunks;
+        }
+        return Flux.create(sink -> {
+            Batch batch = new Batch(sink, delayMillis, bytes > 0 ? bytes : Integer.MAX_VALUE);
+            Disposable upstream = chunks.subscribe(batch::add, batch::error, batch::complete);
+            sink.onDispose(() -> {
+                upstream.dispose();
+                batch.cancelTimer();
+            });
+        });
+    }
+
+    /**
+     * Register the counter of deltas that were merged into another delta's frame.
+     */
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("chat.stream.deltas.coalesced", merged, AtomicLong::get)
+                .description("Streamed deltas sent in the same frame as an earlier delta")
+                .register(registry);
+    }
+
+    /**
+     * Pending batch of one stream. Upstream signals and the flush timer both land here, so
+     * every method holds the batch's monitor; none of them block.
+     */
+    private final class Batch {
+        private final FluxSink<ChatCompletionChunk> sink;
+        private final long delayMillis;
+        private final int maxBytes;
+
+        private boolean sentFirstContent;
+        private ChatCompletionChunk first;
+        private StringBuilder content;
+        private int bytes;
+        private Disposable flushTimer;
+
+        Batch(FluxSink<ChatCompletionChunk> sink, long delayMillis, int maxBytes) {
+            this.sink = sink;
+            this.delayMillis = delayMillis;
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized void add(ChatCompletionChunk chunk) {
+            String delta = mergeableContent(chunk);
+            if (delta == null) {
+                flush();
+                sink.next(chunk);
+                return;
+            }
+            if (!sentFirstContent) {
+                sentFirstContent = true;
+                sink.next(chunk);
+                return;
+            }
+            if (first != null && !sameStream(first, chunk)) {
+                flush();
+            }
+            if (first == null) {
+                first = chunk;
+                content = new StringBuilder(delta);
+                flushTimer = timer.schedule(this::flushOnTimer, delayMillis, TimeUnit.MILLISECONDS);
+            } else {
+                content.append(delta);
+                merged.incrementAndGet();
+            }
+            bytes += utf8Length(delta);
+            if (bytes >= maxBytes) {
+                flush();
+            }
+        }
+
+        synchronized void complete() {
+            flush();
+            sink.complete();
+        }
+
+        synchronized void error(Throwable error) {
+            flush();
+            sink.error(error);
+        }
+
+        synchronized void cancelTimer() {
+            if (flushTimer != null) {
+                flushTimer.dispose();
+                flushTimer = null;
+            }
+        }
+
+        private synchronized void flushOnTimer() {
+            flushTimer = null;
+            flush();
+        }
+
+        private void flush() {
+            if (first == null) {
+                return;
+            }
+            cancelTimer();
+            ChatCompletionChunk chunk;
+            if (content.length() == first.getChoices().get(0).getDelta().getContent().length()) {
+                chunk = first;
+            } else {
+                ChatCompletionChunk.ChunkChoice choice = first.getChoices().get(0);
+                chunk = new ChatCompletionChunk();
+                chunk.setId(first.getId());
+                chunk.setObject(first.getObject());
+                chunk.setCreated(first.getCreated());
+                chunk.setModel(first.getModel());
+                chunk.setChoices(List.of(new ChatCompletionChunk.ChunkChoice(choice.getIndex(),
+                        new ChatCompletionChunk.Delta(choice.getDelta().getRole(), content.toString()), null)));
+            }
+            first = null;
+            content = null;
+            bytes = 0;
+            sink.next(chunk);
+        }
+    }
+
+    /**
+     * @return the delta's content if the chunk carries nothing else, otherwise null
+     */
+    private static String mergeableContent(ChatCompletionChunk chunk) {
+        if (chunk.getUsage() != null || chunk.getChoices() == null || chunk.getChoices().size() != 1) {
+            return null;
+        }
+        ChatCompletionChunk.ChunkChoice choice = chunk.getChoices().get(0);
+        if (choice.getFinishReason() != null || choice.getDelta() == null) {
+            return null;
+        }
+        return choice.getDelta().getContent();
+    }
+
+    private static boolean sameStream(ChatCompletionChunk a, ChatCompletionChunk b) {
+        return Objects.equals(a.getId(), b.getId())
+                && a.getChoices().get(0).getIndex() == b.getChoices().get(0).getIndex();
+    }
+
+    private static int utf8Length(String text) {
+        int length = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                // The pair encodes to four bytes; count them on the high surrogate
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,345 @@
+package ai.demo.springagent.sse;
+
+import ai.demo.springagent.dto.ChatCompletionChunk;
+import ai.demo.springagent.dto.ChatResponse;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes streamed completion chunks as Server-Sent Events straight to an output stream.
+ *
+ * <p>Chunks of one stream share their id, object, created time and model, so the JSON up to
+ * the first choice is encoded once into a template. Each chunk then copies the template and
+ * encodes only its delta, escaping content directly from the string's characters into a
+ * reusable byte buffer. After warm-up, writing a chunk allocates nothing. The output is the
+ * same JSON Jackson would produce for the chunk.
+ *
+ * <p>Frames accumulate in the buffer until {@link #flush()} or {@link #drain}, so several
+ * chunks can go out in one write. Not thread-safe: one writer serves one stream.
+ */
+public class SseFrameWriter {
+
+    private static final byte[] DATA = bytes("data: ");
+    private static final byte[] FRAME_END = bytes("\n\n");
+    private static final byte[] DONE = bytes("data: [DONE]\n\n");
+    private static final byte[] NULL = bytes("null");
+    private static final byte[] CHOICE_INDEX = bytes("{\"index\":");
+    private static final byte[] DELTA_ROLE = bytes(",\"delta\":{\"role\":");
+    private static final byte[] DELTA_CONTENT = bytes(",\"content\":");
+    private static final byte[] FINISH_REASON = bytes("},\"finishReason\":");
+    private static final byte[] NULL_DELTA = bytes(",\"delta\":null,\"finishReason\":");
+    private static final byte[] USAGE_PROMPT = bytes("],\"usage\":{\"promptTokens\":");
+    private static final byte[] USAGE_COMPLETION = bytes(",\"completionTokens\":");
+    private static final byte[] USAGE_TOTAL = bytes(",\"totalTokens\":");
+    private static final byte[] HEX = bytes("0123456789ABCDEF");
+
+    private final OutputStream out;
+    private byte[] buffer = new byte[4096];
+    private int length;
+
+    // Template: everything before the first choice, for the current id/object/created/model
+    private byte[] prefix = new byte[0];
+    private String prefixId;
+    private String prefixObject;
+    private long prefixCreated = Long.MIN_VALUE;
+    private String prefixModel;
+
+    public SseFrameWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writer whose frames are taken with {@link #drain(DataBufferFactory)} rather than
+     * flushed to a stream.
+     */
+    public SseFrameWriter() {
+        this(OutputStream.nullOutputStream());
+    }
+
+    /**
+     * Append a {@code data:} frame holding {@code chunk}.
+     */
+    public void chunk(ChatCompletionChunk chunk) {
+        writeBytes(DATA);
+        writeBytes(prefixFor(chunk));
+        List<ChatCompletionChunk.ChunkChoice> choices = chunk.getChoices();
+        if (choices == null) {
+            // Replace the opening bracket the template ends with
+            length--;
+            writeBytes(NULL);
+        } else {
+            for (int i = 0; i < choices.size(); i++) {
+                if (i > 0) {
+                    writeByte(',');
+                }
+                writeChoice(choices.get(i));
+            }
+        }
+        ChatResponse.Usage usage = chunk.getUsage();
+        if (usage != null) {
+            if (choices == null) {
+                writeByte(',');
+                writeAscii("\"usage\":{\"promptTokens\":");
+            } else {
+                writeBytes(USAGE_PROMPT);
+            }
+            writeInt(usage.getPromptTokens());
+            writeBytes(USAGE_COMPLETION);
+            writeInt(usage.getCompletionTokens());
+            writeBytes(USAGE_TOTAL);
+            writeInt(usage.getTotalTokens());
+            writeByte('}');
+        } else if (choices != null) {
+            writeByte(']');
+        }
+        writeByte('}');
+        writeBytes(FRAME_END);
+    }
+
+    /**
+     * Append a named event, e.g. {@code event:server-timing}. {@code json} must not contain
+     * line breaks.
+     */
+    public void event(String name, String json) {
+        writeAscii("event:");
+        writeAscii(name);
+        writeAscii("\ndata:");
+        writeUtf8(json);
+        writeBytes(FRAME_END);
+    }
+
+    /**
+     * Append the {@code data: [DONE]} terminator.
+     */
+    public void done() {
+        writeBytes(DONE);
+    }
+
+    /**
+     * Write everything appended so far to the stream and flush it.
+     */
+    public void flush() throws IOException {
+        if (length > 0) {
+            out.write(buffer, 0, length);
+            length = 0;
+        }
+        out.flush();
+    }
+
+    /**
+     * Move everything appended so far into one buffer for a reactive response.
+     */
+    public DataBuffer drain(DataBufferFactory bufferFactory) {
+        DataBuffer dataBuffer = bufferFactory.allocateBuffer(length);
+        dataBuffer.write(buffer, 0, length);
+        length = 0;
+        return dataBuffer;
+    }
+
+    /**
+     * @return bytes appended but not yet flushed
+     */
+    public int pending() {
+        return length;
+    }
+
+    private byte[] prefixFor(ChatCompletionChunk chunk) {
+        if (chunk.getCreated() != prefixCreated || !same(chunk.getId(), prefixId)
+                || !same(chunk.getObject(), prefixObject) || !same(chunk.getModel(), prefixModel)) {
+            int mark = length;
+            writeAscii("{\"id\":");
+            writeString(chunk.getId());
+            writeAscii(",\"object\":");
+            writeString(chunk.getObject());
+            writeAscii(",\"created\":");
+            writeLong(chunk.getCreated());
+            writeAscii(",\"model\":");
+            writeString(chunk.getModel());
+            writeAscii(",\"choices\":[");
+            prefix = Arrays.copyOfRange(buffer, mark, length);
+            length = mark;
+            prefixId = chunk.getId();
+            prefixObject = chunk.getObject();
+            prefixCreated = chunk.getCreated();
+            prefixModel = chunk.getModel();
+        }
+        return prefix;
+    }
+
+    private void writeChoice(ChatCompletionChunk.ChunkChoice choice) {
+        if (choice == null) {
+            writeBytes(NULL);
+            return;
+        }
+        writeBytes(CHOICE_INDEX);
+        writeInt(choice.getIndex());
+        ChatCompletionChunk.Delta delta = choice.getDelta();
+        if (delta == null) {
+            writeBytes(NULL_DELTA);
+        } else {
+            writeBytes(DELTA_ROLE);
+            writeString(delta.getRole());
+            writeBytes(DELTA_CONTENT);
+            writeString(delta.getContent());
+            writeBytes(FINISH_REASON);
+        }
+        writeString(choice.getFinishReason());
+        writeByte('}');
+    }
+
+    /**
+     * Write {@code value} as a JSON string, or {@code null}.
+     */
+    private void writeString(String value) {
+        if (value == null) {
+            writeBytes(NULL);
+            return;
+        }
+        writeByte('"');
+        int n = value.length();
+        // Worst case per char is a six-byte escape
+        ensure(n * 6 + 1);
+        byte[] buf = buffer;
+        int pos = length;
+        for (int i = 0; i < n; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c < 0x80) {
+                if (c == '"' || c == '\\') {
+                    buf[pos++] = '\\';
+                }
+                buf[pos++] = (byte) c;
+            } else if (c < 0x20) {
+                buf[pos++] = '\\';
+                switch (c) {
+                    case '\n' -> buf[pos++] = 'n';
+                    case '\r' -> buf[pos++] = 'r';
+                    case '\t' -> buf[pos++] = 't';
+                    case '\b' -> buf[pos++] = 'b';
+                    case '\f' -> buf[pos++] = 'f';
+                    default -> {
+                        buf[pos++] = 'u';
+                        buf[pos++] = '0';
+                        buf[pos++] = '0';
+                        buf[pos++] = HEX[c >> 4];
+                        buf[pos++] = HEX[c & 0xf];
+                    }
+                }
+            } else {
+                pos = encodeUtf8(value, i, c, buf, pos);
+                if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    i++;
+                }
+            }
+        }
+        length = pos;
+        writeByte('"');
+    }
+
+    private void writeUtf8(String value) {
+        int n = value.length();
+        ensure(n * 3);
+        byte[] buf = buffer;
+        int pos = length;
+        for (int i = 0; i < n; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buf[pos++] = (byte) c;
+            } else {
+                pos = encodeUtf8(value, i, c, buf, pos);
+                if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    i++;
+                }
+            }
+        }
+        length = pos;
+    }
+
+    /**
+     * Encode the non-ASCII char at {@code i}, with its low surrogate if it has one; unpaired
+     * surrogates become '?' as in {@link String#getBytes}.
+     */
+    private static int encodeUtf8(String value, int i, char c, byte[] buf, int pos) {
+        if (c < 0x800) {
+            buf[pos++] = (byte) (0xc0 | (c >> 6));
+            buf[pos++] = (byte) (0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, value.charAt(i + 1));
+            buf[pos++] = (byte) (0xf0 | (cp >> 18));
+            buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+            buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+            buf[pos++] = (byte) (0x80 | (cp & 0x3f));
+        } else if (Character.isSurrogate(c)) {
+            buf[pos++] = '?';
+        } else {
+            buf[pos++] = (byte) (0xe0 | (c >> 12));
+            buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            buf[pos++] = (byte) (0x80 | (c & 0x3f));
+        }
+        return pos;
+    }
+
+    private void writeInt(int value) {
+        writeLong(value);
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    private void writeAscii(String value) {
+        int n = value.length();
+        ensure(n);
+        for (int i = 0; i < n; i++) {
+            buffer[length++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void writeByte(char c) {
+        ensure(1);
+        buffer[length++] = (byte) c;
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    private static boolean same(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static byte[] bytes(String ascii) {
+        return ascii.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -5,6 +5,8 @@ import ai.demo.agent.base.task.TaskPriority;
 import ai.demo.agent.base.task.TaskSize;
 import ai.demo.agent.base.task.TaskStatus;
 import ai.demo.springagent.dto.ChatRequest;
+import ai.demo.springagent.metrics.RequestTimings;
+import ai.demo.springagent.tokenizer.TokenCounter;
 
 import java.time.Instant;
 import java.util.List;
@@ -19,6 +21,8 @@ import java.util.UUID;
  */
 public class ChatTask implements Task {
 
+    private static final TokenCounter DEFAULT_TOKEN_COUNTER = TokenCounter.heuristic(4);
+
     private final String id;
     private final Instant createdAt;
     private final String description;
@@ -27,9 +31,22 @@ public class ChatTask implements Task {
     private final TaskSize size;
     private final String completionCriteria;
     private final Map<String, Object> metadata;
+    private final RequestTimings timings;
 
     public ChatTask(ChatRequest chatRequest) {
+        this(chatRequest, new RequestTimings());
+    }
+
+    public ChatTask(ChatRequest chatRequest, RequestTimings timings) {
+        this(chatRequest, timings, DEFAULT_TOKEN_COUNTER);
+    }
+
+    /**
+     * @param tokenCounter counts the request's tokens to size the task
+     */
+    public ChatTask(ChatRequest chatRequest, RequestTimings timings, TokenCounter tokenCounter) {
         this.id = UUID.randomUUID().toString();
+        this.timings = timings;
         this.createdAt = Instant.now();
         this.chatRequest = chatRequest;
 
@@ -45,7 +62,7 @@ public class ChatTask implements Task {
 
         // Determine task characteristics
         this.priority = determinePriority(chatRequest);
-        this.size = determineSize(chatRequest);
+        this.size = determineSize(chatRequest, tokenCounter);
         this.completionCriteria = "Generate appropriate response based on chat context";
         this.metadata = Map.of(
             "model", chatRequest.getModel() != null ? chatRequest.getModel() : "unknown",
@@ -71,17 +88,17 @@ public class ChatTask implements Task {
         return TaskPriority.LOW;
     }
 
-    private TaskSize determineSize(ChatRequest request) {
+    private TaskSize determineSize(ChatRequest request, TokenCounter tokenCounter) {
         if (request.getMessages() == null || request.getMessages().isEmpty()) {
             return TaskSize.SMALL;
         }
 
-        int totalChars = request.getMessages().stream()
-                .mapToInt(msg -> msg.getContent() != null ? msg.getContent().length() : 0)
+        int totalTokens = request.getMessages().stream()
+                .mapToInt(msg -> tokenCounter.countTokens(msg.getContent()))
                 .sum();
 
-        if (totalChars < 200) return TaskSize.SMALL;
-        if (totalChars < 1000) return TaskSize.MEDIUM;
+        if (totalTokens < 50) return TaskSize.SMALL;
+        if (totalTokens < 250) return TaskSize.MEDIUM;
         return TaskSize.LARGE;
     }
 
@@ -159,6 +176,13 @@ public class ChatTask implements Task {
         return chatRequest;
     }
 
+    /**
+     * Per-request phase timings, reported to the client as a {@code Server-Timing} header.
+     */
+    public RequestTimings getTimings() {
+        return timings;
+    }
+
     @Override
     public String toString() {
         return String.format("ChatTask{id='%s', model='%s', threadId='%s'}",
@@ -0,0 +1,277 @@
+package ai.demo.springagent.tokenizer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Byte-pair-encoding tokenizer compatible with OpenAI's tiktoken encodings.
+ *
+ * <p>Text is split into pieces by the encoding's pre-tokenization pattern; each piece is
+ * UTF-8 encoded and, unless it is a token on its own, merged pairwise by ascending rank until
+ * no adjacent pair forms a token. Vocabularies are read from tiktoken files (one
+ * {@code base64-token rank} pair per line), which are not bundled and must be supplied
+ * locally.
+ *
+ * <p>Encoding reuses per-thread scratch buffers and a reset matcher, and vocabulary lookups
+ * compare slices of those buffers, so counting tokens allocates nothing per piece.
+ */
+public class BpeTokenizer implements TokenCounter {
+
+    /**
+     * Supported encodings and their pre-tokenization patterns.
+     */
+    public enum Encoding {
+        CL100K_BASE("cl100k_base",
+                "'(?i:[sdmt]|ll|ve|re)|[^\\r\\n\\p{L}\\p{N}]?+\\p{L}++|\\p{N}{1,3}+| ?[^\\s\\p{L}\\p{N}]++[\\r\\n]*+"
+                        + "|\\s++$|\\s*[\\r\\n]|\\s+(?!\\S)|\\s"),
+        O200K_BASE("o200k_base",
+                "[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]*[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]+"
+                        + "(?i:'s|'t|'re|'ve|'m|'ll|'d)?"
+                        + "|[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]+[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]*"
+                        + "(?i:'s|'t|'re|'ve|'m|'ll|'d)?"
+                        + "|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n/]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+");
+
+        private final String encodingName;
+        private final Pattern pattern;
+
+        Encoding(String encodingName, String regex) {
+            this.encodingName = encodingName;
+            this.pattern = Pattern.compile(regex, Pattern.UNICODE_CHARACTER_CLASS);
+        }
+
+        public String getEncodingName() {
+            return encodingName;
+        }
+
+        /**
+         * @throws IllegalArgumentException if the name is not a supported encoding
+         */
+        public static Encoding fromName(String name) {
+            for (Encoding encoding : values()) {
+                if (encoding.encodingName.equalsIgnoreCase(name)) {
+                    return encoding;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported tokenizer encoding: " + name);
+        }
+    }
+
+    private final Encoding encoding;
+    private final RankTable ranks;
+    private final ThreadLocal<Scratch> scratch;
+
+    private BpeTokenizer(Encoding encoding, RankTable ranks) {
+        this.encoding = encoding;
+        this.ranks = ranks;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(encoding.pattern));
+    }
+
+    /**
+     * Load a vocabulary in tiktoken format.
+     *
+     * @throws IllegalArgumentException if a line is malformed or a single byte has no rank
+     */
+    public static BpeTokenizer load(Encoding encoding, InputStream vocabulary) throws IOException {
+        RankTable table = new RankTable(encoding == Encoding.O200K_BASE ? 200_000 : 100_000);
+        Base64.Decoder base64 = Base64.getDecoder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(vocabulary, StandardCharsets.US_ASCII))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                int space = line.indexOf(' ');
+                if (space <= 0) {
+                    throw new IllegalArgumentException("Malformed vocabulary line " + lineNumber);
+                }
+                try {
+                    table.put(base64.decode(line.substring(0, space)),
+                            Integer.parseInt(line.substring(space + 1).trim()));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Malformed vocabulary line " + lineNumber, e);
+                }
+            }
+        }
+        byte[] single = new byte[1];
+        for (int b = 0; b < 256; b++) {
+            single[0] = (byte) b;
+            if (table.rank(single, 0, 1) < 0) {
+                throw new IllegalArgumentException("Vocabulary has no token for byte " + b);
+            }
+        }
+        return new BpeTokenizer(encoding, table);
+    }
+
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    public int getVocabularySize() {
+        return ranks.size();
+    }
+
+    @Override
+    public int countTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        Scratch s = scratch.get();
+        Matcher matcher = s.matcher.reset(text);
+        int count = 0;
+        while (matcher.find()) {
+            count += mergePiece(s, s.utf8(text, matcher.start(), matcher.end()));
+        }
+        matcher.reset("");
+        return count;
+    }
+
+    /**
+     * @return the token ids (ranks) of {@code text}
+     */
+    public int[] encode(String text) {
+        if (text == null || text.isEmpty()) {
+            return new int[0];
+        }
+        Scratch s = scratch.get();
+        Matcher matcher = s.matcher.reset(text);
+        int[] tokens = new int[Math.max(16, text.length() / 3)];
+        int count = 0;
+        while (matcher.find()) {
+            int length = s.utf8(text, matcher.start(), matcher.end());
+            int parts = mergePiece(s, length);
+            if (count + parts > tokens.length) {
+                tokens = Arrays.copyOf(tokens, Math.max(tokens.length * 2, count + parts));
+            }
+            for (int i = 0; i < parts; i++) {
+                int start = s.starts[i];
+                tokens[count++] = ranks.rank(s.bytes, start, s.starts[i + 1] - start);
+            }
+        }
+        matcher.reset("");
+        return Arrays.copyOf(tokens, count);
+    }
+
+    /**
+     * Merge the piece in {@code s.bytes[0, length)}; on return {@code s.starts[0..n]} holds the
+     * boundaries of its n tokens.
+     *
+     * @return the number of tokens in the piece
+     */
+    private int mergePiece(Scratch s, int length) {
+        byte[] bytes = s.bytes;
+        if (ranks.rank(bytes, 0, length) >= 0) {
+            s.ensureParts(2);
+            s.starts[0] = 0;
+            s.starts[1] = length;
+            return 1;
+        }
+
+        // starts[i] is where part i begins; pairRanks[i] is the rank of parts i and i+1 joined
+        s.ensureParts(length + 1);
+        int[] starts = s.starts;
+        int[] pairRanks = s.pairRanks;
+        int parts = length;
+        for (int i = 0; i <= length; i++) {
+            starts[i] = i;
+        }
+        for (int i = 0; i < parts - 1; i++) {
+            pairRanks[i] = rankOrMax(bytes, starts[i], starts[i + 2]);
+        }
+
+        while (parts > 1) {
+            int best = -1;
+            int bestRank = Integer.MAX_VALUE;
+            for (int i = 0; i < parts - 1; i++) {
+                if (pairRanks[i] < bestRank) {
+                    bestRank = pairRanks[i];
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            // Join parts best and best+1, then refresh the two pair ranks that changed
+            System.arraycopy(starts, best + 2, starts, best + 1, parts - best - 1);
+            System.arraycopy(pairRanks, best + 1, pairRanks, best, parts - best - 2);
+            parts--;
+            if (best < parts - 1) {
+                pairRanks[best] = rankOrMax(bytes, starts[best], starts[best + 2]);
+            }
+            if (best > 0) {
+                pairRanks[best - 1] = rankOrMax(bytes, starts[best - 1], starts[best + 1]);
+            }
+        }
+        return parts;
+    }
+
+    private int rankOrMax(byte[] bytes, int start, int end) {
+        int rank = ranks.rank(bytes, start, end - start);
+        return rank < 0 ? Integer.MAX_VALUE : rank;
+    }
+
+    /**
+     * Per-thread buffers: the UTF-8 of the current piece and the merge state.
+     */
+    private static final class Scratch {
+        final Matcher matcher;
+        byte[] bytes = new byte[256];
+        int[] starts = new int[257];
+        int[] pairRanks = new int[257];
+
+        Scratch(Pattern pattern) {
+            this.matcher = pattern.matcher("");
+        }
+
+        void ensureParts(int n) {
+            if (starts.length < n) {
+                starts = new int[n * 2];
+                pairRanks = new int[n * 2];
+            }
+        }
+
+        /**
+         * Encode {@code text[start, end)} into {@link #bytes}, replacing unpaired surrogates
+         * with '?' as {@link String#getBytes} does.
+         *
+         * @return the number of bytes written
+         */
+        int utf8(String text, int start, int end) {
+            if (bytes.length < (end - start) * 3) {
+                bytes = new byte[(end - start) * 3 * 2];
+            }
+            byte[] out = bytes;
+            int n = 0;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    out[n++] = (byte) c;
+                } else if (c < 0x800) {
+                    out[n++] = (byte) (0xc0 | (c >> 6));
+                    out[n++] = (byte) (0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, text.charAt(++i));
+                    out[n++] = (byte) (0xf0 | (cp >> 18));
+                    out[n++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                    out[n++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                    out[n++] = (byte) (0x80 | (cp & 0x3f));
+                } else if (Character.isSurrogate(c)) {
+                    out[n++] = '?';
+                } else {
+                    out[n++] = (byte) (0xe0 | (c >> 12));
+                    out[n++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    out[n++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+            return n;
+        }
+    }
+}
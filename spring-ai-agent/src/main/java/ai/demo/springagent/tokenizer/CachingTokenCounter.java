@@ -0,0 +1,50 @@
+package ai.demo.springagent.tokenizer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the counts of recently counted texts. Chat history is re-sent on every turn, so
+ * most messages are counted many times; texts shorter than {@code minLength} are cheaper to
+ * count again than to look up and are not cached.
+ */
+public class CachingTokenCounter implements TokenCounter {
+
+    private final TokenCounter delegate;
+    private final int minLength;
+    private final Map<String, Integer> counts;
+
+    /**
+     * @param delegate counter to cache
+     * @param entries maximum number of cached counts
+     * @param minLength shortest text worth caching
+     */
+    public CachingTokenCounter(TokenCounter delegate, int entries, int minLength) {
+        this.delegate = delegate;
+        this.minLength = minLength;
+        this.counts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > entries;
+            }
+        };
+    }
+
+    @Override
+    public int countTokens(String text) {
+        if (text == null || text.length() < minLength) {
+            return delegate.countTokens(text);
+        }
+        synchronized (counts) {
+            Integer cached = counts.get(text);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        int count = delegate.countTokens(text);
+        synchronized (counts) {
+            counts.put(text, count);
+        }
+        return count;
+    }
+}
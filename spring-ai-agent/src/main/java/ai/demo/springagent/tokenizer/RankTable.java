@@ -0,0 +1,93 @@
+package ai.demo.springagent.tokenizer;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from byte sequences to BPE ranks. Keys live back to back in one byte
+ * arena, so a lookup hashes and compares a slice of the caller's buffer without allocating.
+ */
+final class RankTable {
+
+    private final int[] slots;
+    private final int mask;
+    private byte[] arena = new byte[1 << 16];
+    private int arenaLength;
+    private int[] offsets;
+    private int[] lengths;
+    private int[] ranks;
+    private int size;
+
+    RankTable(int expectedEntries) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedEntries * 2 - 1)) << 1;
+        this.slots = new int[capacity];
+        Arrays.fill(slots, -1);
+        this.mask = capacity - 1;
+        this.offsets = new int[Math.max(16, expectedEntries)];
+        this.lengths = new int[offsets.length];
+        this.ranks = new int[offsets.length];
+    }
+
+    void put(byte[] key, int rank) {
+        if (size == offsets.length) {
+            int capacity = size * 2;
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            ranks = Arrays.copyOf(ranks, capacity);
+        }
+        if (size * 2 > slots.length) {
+            throw new IllegalStateException("Rank table is full");
+        }
+        if (arenaLength + key.length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLength + key.length));
+        }
+        int slot = hash(key, 0, key.length) & mask;
+        while (slots[slot] >= 0) {
+            int entry = slots[slot];
+            if (matches(entry, key, 0, key.length)) {
+                ranks[entry] = rank;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        System.arraycopy(key, 0, arena, arenaLength, key.length);
+        offsets[size] = arenaLength;
+        lengths[size] = key.length;
+        ranks[size] = rank;
+        arenaLength += key.length;
+        slots[slot] = size++;
+    }
+
+    /**
+     * @return the rank of {@code bytes[offset, offset + length)}, or -1 if it is not a token
+     */
+    int rank(byte[] bytes, int offset, int length) {
+        int slot = hash(bytes, offset, length) & mask;
+        while (true) {
+            int entry = slots[slot];
+            if (entry < 0) {
+                return -1;
+            }
+            if (matches(entry, bytes, offset, length)) {
+                return ranks[entry];
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private boolean matches(int entry, byte[] bytes, int offset, int length) {
+        return lengths[entry] == length
+                && Arrays.equals(arena, offsets[entry], offsets[entry] + length, bytes, offset, offset + length);
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        int h = 0x811c9dc5;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            h = (h ^ bytes[i]) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,22 @@
+package ai.demo.springagent.tokenizer;
+
+/**
+ * Counts the model tokens in a piece of text, for history budgets, task sizing and usage
+ * estimates.
+ */
+@FunctionalInterface
+public interface TokenCounter {
+
+    /**
+     * @return the number of tokens in {@code text}; 0 for null or empty text
+     */
+    int countTokens(String text);
+
+    /**
+     * Counter that assumes a fixed number of characters per token, rounding up.
+     */
+    static TokenCounter heuristic(int charsPerToken) {
+        int divisor = Math.max(1, charsPerToken);
+        return text -> text == null || text.isEmpty() ? 0 : (text.length() + divisor - 1) / divisor;
+    }
+}
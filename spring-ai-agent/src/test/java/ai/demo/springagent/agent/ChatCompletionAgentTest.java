@@ -0,0 +1,40 @@
+package ai.demo.springagent.agent;
+
+import ai.demo.agent.jfr.PipelineStageEvent;
+import ai.demo.springagent.dto.ChatRequest;
+import ai.demo.springagent.metrics.RequestTimings;
+import ai.demo.springagent.task.ChatTask;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ChatCompletionAgentTest {
+
+    private final ChatCompletionAgent agent = new ChatCompletionAgent(mock(ChatClient.class));
+
+    @Test
+    void eachPipelineStageIsAttributedToItsOwnPhase() {
+        ChatRequest request = new ChatRequest();
+        request.setModel("gpt-4");
+        request.setTemperature(0.7);
+        request.setMaxTokens(100);
+        request.setMessages(List.of(new ChatRequest.Message("user", "Hi")));
+        RequestTimings timings = new RequestTimings();
+        ChatTask task = new ChatTask(request, timings);
+
+        agent.onStageCompleted(task, PipelineStageEvent.TRANSFORM_TO_PROMPT, 1_000);
+        agent.onStageCompleted(task, PipelineStageEvent.ENHANCE_PROMPT, 2_000);
+        agent.onStageCompleted(task, PipelineStageEvent.CALL, 3_000);
+        agent.onStageCompleted(task, PipelineStageEvent.TRANSFORM_FROM_RESPONSE, 4_000);
+        agent.onStageCompleted(task, "unknownStage", 5_000);
+
+        assertThat(timings.getNanos(RequestTimings.Phase.PROMPT)).isEqualTo(1_000);
+        assertThat(timings.getNanos(RequestTimings.Phase.ENHANCE)).isEqualTo(2_000);
+        assertThat(timings.getNanos(RequestTimings.Phase.PROVIDER)).isEqualTo(3_000);
+        assertThat(timings.getNanos(RequestTimings.Phase.SERIALIZATION)).isEqualTo(4_000);
+    }
+}
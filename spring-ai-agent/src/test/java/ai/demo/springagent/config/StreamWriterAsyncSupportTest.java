@@ -0,0 +1,113 @@
+package ai.demo.springagent.config;
+
+import ai.demo.agent.metrics.ChatAgentMetrics;
+import ai.demo.springagent.dto.ChatCompletionChunk;
+import ai.demo.springagent.dto.ChatRequest;
+import ai.demo.springagent.dto.ChatResponse;
+import ai.demo.springagent.metrics.RequestTimings;
+import ai.demo.springagent.metrics.StreamingMetrics;
+import ai.demo.springagent.provider.LLMProvider;
+import ai.demo.springagent.provider.cache.CachingLLMProvider;
+import ai.demo.springagent.repository.ThreadRepository;
+import ai.demo.springagent.service.ChatService;
+import ai.demo.springagent.service.ConversationContextBuilder;
+import ai.demo.springagent.service.SessionMappingService;
+import ai.demo.springagent.service.ThreadService;
+import ai.demo.springagent.sse.DeltaCoalescer;
+import ai.demo.springagent.tokenizer.TokenCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamWriterAsyncSupportTest {
+
+    private static final int STREAMS = 12;
+
+    private final StreamWriterAsyncSupport support = new StreamWriterAsyncSupport(
+            new StreamingConfiguration().getWriterThreads(), new StreamingConfiguration().getWriterQueueCapacity());
+
+    @AfterEach
+    void shutdown() {
+        support.shutdown();
+    }
+
+    @Test
+    void writesMoreStreamsAtOnceThanBootsDefaultExecutorHasThreads() throws Exception {
+        // Every stream's provider holds its first chunk until all streams are being written,
+        // so this only finishes if all of them hold a writer thread at the same time
+        AtomicInteger started = new AtomicInteger();
+        CompletableFuture<Void> allStarted = new CompletableFuture<>();
+        LLMProvider upstream = new LLMProvider() {
+            @Override
+            public Mono<ChatResponse> complete(ChatRequest request) {
+                return Mono.error(new AssertionError("streaming must not call complete"));
+            }
+
+            @Override
+            public Flux<ChatCompletionChunk> stream(ChatRequest request) {
+                return Mono.defer(() -> {
+                            if (started.incrementAndGet() == STREAMS) {
+                                allStarted.complete(null);
+                            }
+                            return Mono.fromFuture(allStarted);
+                        })
+                        .thenMany(Flux.just(chunk("Hello")));
+            }
+        };
+        ChatService chatService = chatService(upstream);
+
+        List<Future<String>> streams = new ArrayList<>();
+        for (int i = 0; i < STREAMS; i++) {
+            streams.add(support.getExecutor().submit(() -> {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                chatService.streamChat(request(), "openai", out, new RequestTimings());
+                return out.toString(StandardCharsets.UTF_8);
+            }));
+        }
+
+        allStarted.get(10, TimeUnit.SECONDS);
+        for (Future<String> stream : streams) {
+            assertThat(stream.get(10, TimeUnit.SECONDS)).contains("\"content\":\"Hello\"").endsWith("data: [DONE]\n\n");
+        }
+    }
+
+    private static ChatService chatService(LLMProvider upstream) {
+        AiModelConfiguration config = new AiModelConfiguration();
+        TokenCounter tokenCounter = TokenCounter.heuristic(4);
+        ThreadService threadService = new ThreadService(new ThreadRepository());
+        return new ChatService(null, config, threadService,
+                new ConversationContextBuilder(threadService, config, tokenCounter),
+                new CachingLLMProvider(upstream, null, 16), new SessionMappingService(), new ChatAgentMetrics(),
+                new StreamingMetrics(new SimpleMeterRegistry()), tokenCounter, new DeltaCoalescer(Duration.ZERO, 0));
+    }
+
+    private static ChatRequest request() {
+        ChatRequest request = new ChatRequest();
+        request.setModel("gpt");
+        request.setStream(true);
+        request.setMessages(List.of(new ChatRequest.Message("user", "Hi")));
+        return request;
+    }
+
+    private static ChatCompletionChunk chunk(String content) {
+        ChatCompletionChunk chunk = new ChatCompletionChunk();
+        chunk.setId("chatcmpl-test");
+        chunk.setModel("gpt");
+        chunk.setChoices(List.of(new ChatCompletionChunk.ChunkChoice(0, new ChatCompletionChunk.Delta(content), null)));
+        return chunk;
+    }
+}
@@ -0,0 +1,68 @@
+package ai.demo.springagent.controller;
+
+import ai.demo.springagent.model.ThreadMessage;
+import ai.demo.springagent.repository.EncodedMessage;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageListResponsesTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void streamsListEnvelopeAroundEncodedMessages() throws Exception {
+        List<ThreadMessage> messages = List.of(
+                new ThreadMessage("m1", "t1", "user", "Hi"),
+                new ThreadMessage("m2", "t1", "assistant", "Hello \"there\""));
+
+        JsonNode json = render(EncodedMessage.of(messages), true);
+
+        assertThat(json.get("object").asText()).isEqualTo("list");
+        assertThat(json.get("has_more").asBoolean()).isTrue();
+        assertThat(json.get("first_id").asText()).isEqualTo("m1");
+        assertThat(json.get("last_id").asText()).isEqualTo("m2");
+        assertThat(json.get("data")).hasSize(2);
+        assertThat(json.get("data").get(1).toString()).isEqualTo(objectMapper.writeValueAsString(messages.get(1)));
+    }
+
+    @Test
+    void decodedMessagesAreWrittenWithTheApplicationMapper() throws Exception {
+        ObjectMapper snakeCase = new ObjectMapper().setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
+        List<ThreadMessage> messages = List.of(new ThreadMessage("m1", "t1", "user", "Hi"));
+
+        ResponseEntity<StreamingResponseBody> response = MessageListResponses.stream(snakeCase,
+                EncodedMessage.of(messages), false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        JsonNode message = objectMapper.readTree(out.toByteArray()).get("data").get(0);
+        assertThat(message.has("thread_id")).isTrue();
+        assertThat(message.has("threadId")).isFalse();
+    }
+
+    @Test
+    void emptyListHasNullCursors() throws Exception {
+        JsonNode json = render(List.of(), false);
+
+        assertThat(json.get("data")).isEmpty();
+        assertThat(json.get("has_more").asBoolean()).isFalse();
+        assertThat(json.get("first_id").isNull()).isTrue();
+        assertThat(json.get("last_id").isNull()).isTrue();
+    }
+
+    private JsonNode render(List<EncodedMessage> messages, boolean hasMore) throws Exception {
+        ResponseEntity<StreamingResponseBody> response = MessageListResponses.stream(objectMapper, messages, hasMore);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return objectMapper.readTree(out.toByteArray());
+    }
+}
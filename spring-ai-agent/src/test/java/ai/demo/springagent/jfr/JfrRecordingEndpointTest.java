@@ -0,0 +1,65 @@
+package ai.demo.springagent.jfr;
+
+import ai.demo.springagent.config.JfrConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JfrRecordingEndpointTest {
+
+    private JfrRecordingEndpoint endpoint;
+
+    @AfterEach
+    void closeRecordings() {
+        endpoint.destroy();
+    }
+
+    @Test
+    void capsRunningAndHeldRecordings() throws Exception {
+        JfrConfiguration config = new JfrConfiguration();
+        config.setMaxRunning(1);
+        config.setMaxRecordings(2);
+        endpoint = new JfrRecordingEndpoint(config);
+
+        WebEndpointResponse<Map<String, Object>> first = endpoint.start(60L, 1L, null);
+        assertThat(first.getStatus()).isEqualTo(WebEndpointResponse.STATUS_OK);
+        assertThat(endpoint.start(60L, 1L, null).getStatus()).isEqualTo(WebEndpointResponse.STATUS_TOO_MANY_REQUESTS);
+
+        download((Long) first.getBody().get("id"));
+        assertThat(endpoint.start(60L, 1L, null).getStatus()).isEqualTo(WebEndpointResponse.STATUS_OK);
+        // One running, one finished: the held cap applies even though nothing else runs
+        WebEndpointResponse<Map<String, Object>> rejected = endpoint.start(60L, 1L, null);
+        assertThat(rejected.getStatus()).isEqualTo(WebEndpointResponse.STATUS_TOO_MANY_REQUESTS);
+        assertThat(rejected.getBody().get("error").toString()).contains("2 of 2 held");
+    }
+
+    @Test
+    void closesFinishedRecordingsAfterRetention() throws Exception {
+        JfrConfiguration config = new JfrConfiguration();
+        config.setRetention(Duration.ZERO);
+        endpoint = new JfrRecordingEndpoint(config);
+
+        long finished = (Long) endpoint.start(60L, 1L, null).getBody().get("id");
+        download(finished);
+        long running = (Long) endpoint.start(60L, 1L, null).getBody().get("id");
+        endpoint.closeExpired();
+
+        @SuppressWarnings("unchecked")
+        Map<Long, Object> held = (Map<Long, Object>) endpoint.recordings().get("recordings");
+        assertThat(held).containsOnlyKeys(running);
+    }
+
+    private void download(long id) throws Exception {
+        WebEndpointResponse<Resource> response = endpoint.download(id);
+        try (InputStream in = response.getBody().getInputStream()) {
+            in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ai.demo.springagent.jfr;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PinnedThreadMonitorTest {
+
+    private final Object lock = new Object();
+
+    @Test
+    void reportsSleepingInsideSynchronizedAtTheApplicationFrame() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (PinnedThreadMonitor monitor = new PinnedThreadMonitor(registry, Duration.ofMillis(10), 8)) {
+            monitor.start();
+
+            java.lang.Thread.ofVirtual().start(this::sleepWhileHoldingLock).join();
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (monitor.getSites().isEmpty() && System.nanoTime() < deadline) {
+                java.lang.Thread.sleep(50);
+            }
+
+            Map<String, Long> sites = monitor.getSites();
+            assertThat(sites).hasSize(1);
+            String site = sites.keySet().iterator().next();
+            assertThat(site).startsWith(PinnedThreadMonitorTest.class.getName() + ".sleepWhileHoldingLock:");
+            Timer timer = registry.get("jvm.threads.virtual.pinned").tag("site", site).timer();
+            assertThat(timer.count()).isEqualTo(1);
+            assertThat(timer.totalTime(java.util.concurrent.TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(50);
+        }
+    }
+
+    private void sleepWhileHoldingLock() {
+        synchronized (lock) {
+            try {
+                java.lang.Thread.sleep(60);
+            } catch (InterruptedException e) {
+                java.lang.Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
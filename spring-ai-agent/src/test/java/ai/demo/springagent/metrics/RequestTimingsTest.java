@@ -0,0 +1,34 @@
+package ai.demo.springagent.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestTimingsTest {
+
+    @Test
+    void headerListsOnlyRecordedPhasesFollowedByTotal() {
+        RequestTimings timings = new RequestTimings();
+        timings.add(RequestTimings.Phase.HISTORY, 1_500_000);
+        timings.add(RequestTimings.Phase.PROVIDER, 250_000_000);
+        timings.add(RequestTimings.Phase.PROVIDER, 250_000_000);
+
+        String header = timings.toHeaderValue();
+
+        assertThat(header).startsWith("history;desc=\"Thread history load\";dur=1.50, provider;desc=\"Provider call\";dur=500.00, total;dur=");
+        assertThat(header).doesNotContain("enhance").doesNotContain("queue");
+        assertThat(timings.toMillis()).containsKeys("history", "provider", "total").hasSize(3);
+    }
+
+    @Test
+    void endWithoutBeginIsIgnored() {
+        RequestTimings timings = new RequestTimings();
+        timings.end(RequestTimings.Phase.QUEUE);
+        assertThat(timings.getNanos(RequestTimings.Phase.QUEUE)).isZero();
+
+        timings.begin(RequestTimings.Phase.QUEUE);
+        timings.end(RequestTimings.Phase.QUEUE);
+        timings.end(RequestTimings.Phase.QUEUE);
+        assertThat(timings.getNanos(RequestTimings.Phase.QUEUE)).isPositive();
+    }
+}
@@ -0,0 +1,43 @@
+package ai.demo.springagent.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final StreamingMetrics metrics = new StreamingMetrics(registry);
+
+    @Test
+    void recordsFirstTokenOnceAndGapsBetweenTokens() {
+        StreamingMetrics.StreamTracker tracker = metrics.start(StreamingMetrics.UPSTREAM, "openai", "test-model");
+        tracker.onToken();
+        tracker.onToken();
+        tracker.onToken();
+        tracker.complete(0);
+        tracker.complete(0);
+
+        Timer ttft = registry.get("llm.stream.ttft").tag("side", "upstream").tag("model", "test-model").timer();
+        Timer gaps = registry.get("llm.stream.inter.token").tag("side", "upstream").timer();
+        DistributionSummary tps = registry.get("llm.stream.tokens.per.second").tag("side", "upstream").summary();
+
+        assertThat(ttft.count()).isEqualTo(1);
+        assertThat(gaps.count()).isEqualTo(2);
+        assertThat(tps.count()).isEqualTo(1);
+        assertThat(tracker.getTokens()).isEqualTo(3);
+    }
+
+    @Test
+    void keepsUpstreamAndDownstreamSeparate() {
+        metrics.start(StreamingMetrics.UPSTREAM, "openai", "m").onToken();
+        metrics.recordSend("openai", "m", 1_000);
+
+        assertThat(registry.get("llm.stream.ttft").tag("side", "downstream").timer().count()).isZero();
+        assertThat(registry.get("llm.stream.ttft").tag("side", "upstream").timer().count()).isEqualTo(1);
+        assertThat(registry.get("llm.stream.send").tag("side", "downstream").timer().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,79 @@
+package ai.demo.springagent.metrics.history;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricsHistoryStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsSamplesAndDownsamples() throws Exception {
+        try (MetricsHistoryStore store = new MetricsHistoryStore(dir, 64 * 1024, 4)) {
+            for (int i = 0; i < 100; i++) {
+                store.append(1_000_000L + i * 10_000L, sample(i * 3L, 500 - i, -i * i));
+            }
+
+            Map<String, List<MetricsHistoryStore.Point>> raw = store.query(1_000_000L, 2_000_000L, 10_000L, List.of());
+            assertThat(raw.get("a.processed")).hasSize(100);
+            assertThat(raw.get("a.processed").get(42).getValue()).isEqualTo(126.0);
+            assertThat(raw.get("a.gauge").get(42).getValue()).isEqualTo(458.0);
+            assertThat(raw.get("a.negative").get(99).getValue()).isEqualTo(-9801.0);
+
+            Map<String, List<MetricsHistoryStore.Point>> coarse =
+                    store.query(1_000_000L, 1_100_000L, 50_000L, List.of("a.processed"));
+            assertThat(coarse).containsOnlyKeys("a.processed");
+            assertThat(coarse.get("a.processed")).hasSize(2);
+            assertThat(coarse.get("a.processed").get(0).getValue()).isEqualTo(6.0); // avg of 0,3,6,9,12
+        }
+    }
+
+    @Test
+    void recoversAndContinuesAppendingAfterReopen() throws Exception {
+        try (MetricsHistoryStore store = new MetricsHistoryStore(dir, 64 * 1024, 4)) {
+            for (int i = 0; i < 10; i++) {
+                store.append(1_000L * i, sample(i, i, i));
+            }
+        }
+        try (MetricsHistoryStore store = new MetricsHistoryStore(dir, 64 * 1024, 4)) {
+            for (int i = 10; i < 20; i++) {
+                store.append(1_000L * i, sample(i, i, i));
+            }
+            List<MetricsHistoryStore.Point> points = store.query(0, 100_000, 1_000, List.of()).get("a.processed");
+            assertThat(points).hasSize(20);
+            assertThat(points.get(19).getValue()).isEqualTo(19.0);
+            assertThat(store.getStatistics().get("segments")).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void retentionBoundsTheNumberOfSegments() throws Exception {
+        try (MetricsHistoryStore store = new MetricsHistoryStore(dir, 4096, 2)) {
+            for (int i = 0; i < 5_000; i++) {
+                store.append(1_000L * i, sample(i * 7919L, i * 104729L, i));
+            }
+            assertThat(store.getStatistics().get("segments")).isEqualTo(2);
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files.count()).isEqualTo(2);
+        }
+    }
+
+    private static Map<String, Long> sample(long processed, long gauge, long negative) {
+        Map<String, Long> sample = new LinkedHashMap<>();
+        sample.put("a.processed", processed);
+        sample.put("a.gauge", gauge);
+        sample.put("a.negative", negative);
+        return sample;
+    }
+}
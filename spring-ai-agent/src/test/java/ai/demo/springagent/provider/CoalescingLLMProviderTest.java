@@ -0,0 +1,103 @@
+package ai.demo.springagent.provider;
+
+import ai.demo.springagent.dto.ChatCompletionChunk;
+import ai.demo.springagent.dto.ChatRequest;
+import ai.demo.springagent.dto.ChatResponse;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoalescingLLMProviderTest {
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private Sinks.One<ChatResponse> completion = Sinks.one();
+    private Sinks.Many<ChatCompletionChunk> chunks = Sinks.many().unicast().onBackpressureBuffer();
+
+    private final LLMProvider upstream = new LLMProvider() {
+        @Override
+        public Mono<ChatResponse> complete(ChatRequest request) {
+            return completion.asMono().doOnSubscribe(s -> upstreamCalls.incrementAndGet());
+        }
+
+        @Override
+        public Flux<ChatCompletionChunk> stream(ChatRequest request) {
+            return chunks.asFlux().doOnSubscribe(s -> upstreamCalls.incrementAndGet());
+        }
+    };
+
+    private final CoalescingLLMProvider provider = new CoalescingLLMProvider(upstream, 0.0);
+
+    @Test
+    void identicalDeterministicCompletionsShareOneCall() {
+        List<ChatResponse> responses = new CopyOnWriteArrayList<>();
+        provider.complete(request(0.0, "hi")).subscribe(responses::add);
+        provider.complete(request(0.0, "hi")).subscribe(responses::add);
+        assertThat(upstreamCalls).hasValue(1);
+
+        completion.tryEmitValue(response("hello"));
+        assertThat(responses).hasSize(2);
+        assertThat(responses.get(0)).isNotSameAs(responses.get(1));
+        assertThat(responses).allSatisfy(r ->
+                assertThat(r.getChoices().get(0).getMessage().getContent()).isEqualTo("hello"));
+
+        // Finished calls are not reused
+        completion = Sinks.one();
+        provider.complete(request(0.0, "hi")).subscribe();
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void sampledRequestsAreNotCoalesced() {
+        provider.complete(request(0.7, "hi")).subscribe();
+        provider.complete(request(0.7, "hi")).subscribe();
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void lateStreamSubscribersAreReplayedFromTheStart() {
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> second = new CopyOnWriteArrayList<>();
+        provider.stream(request(0.0, "hi")).subscribe(chunk -> first.add(content(chunk)));
+        chunks.tryEmitNext(chunk("Hello"));
+        chunks.tryEmitNext(chunk(" world"));
+
+        provider.stream(request(0.0, "hi")).subscribe(chunk -> second.add(content(chunk)));
+        assertThat(second).containsExactly("Hello", " world");
+        chunks.tryEmitNext(chunk("!"));
+        chunks.tryEmitComplete();
+
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(first).containsExactly("Hello", " world", "!");
+        assertThat(second).containsExactly("Hello", " world", "!");
+    }
+
+    private static ChatRequest request(double temperature, String question) {
+        ChatRequest request = new ChatRequest();
+        request.setTemperature(temperature);
+        request.setMessages(List.of(new ChatRequest.Message("user", question)));
+        return request;
+    }
+
+    private static ChatResponse response(String content) {
+        ChatResponse response = new ChatResponse();
+        response.setChoices(List.of(new ChatResponse.Choice(0, new ChatResponse.Message("assistant", content), "stop")));
+        return response;
+    }
+
+    private static ChatCompletionChunk chunk(String content) {
+        ChatCompletionChunk chunk = new ChatCompletionChunk();
+        chunk.setChoices(List.of(new ChatCompletionChunk.ChunkChoice(0, new ChatCompletionChunk.Delta(content), null)));
+        return chunk;
+    }
+
+    private static String content(ChatCompletionChunk chunk) {
+        return chunk.getChoices().get(0).getDelta().getContent();
+    }
+}
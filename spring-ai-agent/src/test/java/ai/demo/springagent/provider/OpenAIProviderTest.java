@@ -0,0 +1,59 @@
+package ai.demo.springagent.provider;
+
+import ai.demo.springagent.config.AiModelConfiguration;
+import ai.demo.springagent.dto.ChatCompletionChunk;
+import ai.demo.springagent.dto.ChatRequest;
+import ai.demo.springagent.metrics.StreamingMetrics;
+import ai.demo.springagent.tokenizer.TokenCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OpenAIProviderTest {
+
+    @Test
+    void retriedStreamStartsOverAndCountsOnlyItsOwnCompletion() {
+        Flux<ChatResponse> failsAfterOneChunk = Flux.concat(Flux.just(response("12345678")),
+                Flux.error(new IOException("connection reset")));
+        Flux<ChatResponse> succeeds = Flux.just(response("1234"), response("5678"));
+        ChatClient chatClient = mock(ChatClient.class, RETURNS_DEEP_STUBS);
+        when(chatClient.prompt().user(anyString()).stream().chatResponse()).thenReturn(failsAfterOneChunk, succeeds);
+        AiModelConfiguration config = new AiModelConfiguration();
+        OpenAIProvider provider = new OpenAIProvider(chatClient, config,
+                new StreamingMetrics(new SimpleMeterRegistry()), TokenCounter.heuristic(4));
+
+        ChatRequest request = new ChatRequest();
+        request.setMessages(List.of(new ChatRequest.Message("user", "Hi")));
+        List<ChatCompletionChunk> chunks = provider.stream(request).collectList().block(Duration.ofSeconds(10));
+
+        // The failed attempt's chunk, then the retried attempt opening with the role again
+        assertThat(chunks).hasSize(4);
+        assertThat(chunks.get(0).getChoices().get(0).getDelta().getRole()).isEqualTo("assistant");
+        assertThat(chunks.get(1).getChoices().get(0).getDelta().getRole()).isEqualTo("assistant");
+        assertThat(chunks.get(2).getChoices().get(0).getDelta().getRole()).isNull();
+        // Only the retried attempt's 8 characters are counted, not 16
+        assertThat(chunks.get(3).getUsage().getCompletionTokens()).isEqualTo(2);
+    }
+
+    private static ChatResponse response(String content) {
+        Generation generation = mock(Generation.class);
+        when(generation.getOutput()).thenReturn(new AssistantMessage(content));
+        ChatResponse response = mock(ChatResponse.class);
+        when(response.getResult()).thenReturn(generation);
+        return response;
+    }
+}
@@ -0,0 +1,39 @@
+package ai.demo.springagent.provider;
+
+import ai.demo.springagent.dto.ChatResponse;
+import ai.demo.springagent.tokenizer.TokenCounter;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UsageMetadataTest {
+
+    private final AtomicInteger counted = new AtomicInteger();
+    private final TokenCounter counter = text -> {
+        counted.incrementAndGet();
+        return TokenCounter.heuristic(4).countTokens(text);
+    };
+
+    @Test
+    void reportedUsageIsReturnedWithoutCountingTokens() {
+        ChatResponse.Usage reported = new ChatResponse.Usage(10, 20, 30);
+
+        assertThat(UsageMetadata.orCounted(reported, counter, "a long prompt", "a long completion"))
+                .isSameAs(reported);
+        assertThat(UsageMetadata.orCounted(reported, () -> counter.countTokens("prompt"),
+                () -> counter.countTokens("completion"))).isSameAs(reported);
+        assertThat(counted).hasValue(0);
+    }
+
+    @Test
+    void missingUsageIsCountedLocally() {
+        ChatResponse.Usage usage = UsageMetadata.orCounted(null, counter, "12345678", "1234");
+
+        assertThat(usage.getPromptTokens()).isEqualTo(2);
+        assertThat(usage.getCompletionTokens()).isEqualTo(1);
+        assertThat(usage.getTotalTokens()).isEqualTo(3);
+        assertThat(counted).hasValue(2);
+    }
+}
@@ -0,0 +1,107 @@
+package ai.demo.springagent.provider.cache;
+
+import java.util.Arrays;
+
+/**
+ * Test {@link Embedder} using the hashing trick: lower-cased words and the character trigrams
+ * of each word are hashed into a fixed number of signed buckets, and the vector is
+ * L2-normalised. Rephrasings that share most words land close together, but so do sentences
+ * that only differ in word order or a negation, so this is not fit to back a real cache.
+ */
+final class HashingEmbedder implements Embedder {
+
+    private static final float WORD_WEIGHT = 1.0f;
+    private static final float TRIGRAM_WEIGHT = 0.5f;
+
+    private final int dimensions;
+
+    HashingEmbedder(int dimensions) {
+        if (dimensions < 8) {
+            throw new IllegalArgumentException("dimensions must be at least 8");
+        }
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * @return the unit-length embedding of {@code text}, or null if it has no words
+     */
+    @Override
+    public float[] embed(String text) {
+        if (text == null) {
+            return null;
+        }
+        float[] vector = new float[dimensions];
+        char[] word = new char[64];
+        int length = 0;
+        boolean any = false;
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (length == word.length) {
+                    word = Arrays.copyOf(word, length * 2);
+                }
+                word[length++] = Character.toLowerCase(c);
+            } else if (length > 0) {
+                addWord(vector, word, length);
+                any = true;
+                length = 0;
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            return null;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+
+    private void addWord(float[] vector, char[] word, int length) {
+        add(vector, hash(word, 0, length, 0x9e3779b9), WORD_WEIGHT);
+        // Trigrams of the word padded with boundary markers, so short words contribute too
+        for (int start = -1; start + 3 <= length + 1; start++) {
+            int h = 0x85ebca6b;
+            for (int i = start; i < start + 3; i++) {
+                char c = i < 0 || i >= length ? '#' : word[i];
+                h = (h ^ c) * 0x01000193;
+            }
+            add(vector, mix(h), TRIGRAM_WEIGHT);
+        }
+    }
+
+    private void add(float[] vector, int hash, float weight) {
+        int bucket = (hash >>> 1) % dimensions;
+        // The top bit picks the sign, so unrelated collisions tend to cancel out
+        vector[bucket] += hash < 0 ? -weight : weight;
+    }
+
+    private static int hash(char[] chars, int offset, int length, int seed) {
+        int h = seed;
+        for (int i = offset; i < offset + length; i++) {
+            h = (h ^ chars[i]) * 0x01000193;
+        }
+        return mix(h);
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+}
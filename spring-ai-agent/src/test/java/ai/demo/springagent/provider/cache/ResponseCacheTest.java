@@ -0,0 +1,169 @@
+package ai.demo.springagent.provider.cache;
+
+import ai.demo.springagent.config.CoalescingConfiguration;
+import ai.demo.springagent.config.ResponseCacheBeanConfiguration;
+import ai.demo.springagent.config.ResponseCacheConfiguration;
+import ai.demo.springagent.dto.ChatCompletionChunk;
+import ai.demo.springagent.dto.ChatRequest;
+import ai.demo.springagent.dto.ChatResponse;
+import ai.demo.springagent.provider.LLMProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResponseCacheTest {
+
+    @Test
+    void exactTierMatchesContentAndSettingsExactly() {
+        ResponseCache cache = new ResponseCache(16, Duration.ofMinutes(1));
+        cache.put(request(0.7, "What is  the capital of France?"), "m", "Paris", "stop", null, 1_000);
+
+        ResponseCache.Hit hit = cache.get(request(0.7, "What is  the capital of France?"));
+        assertThat(hit.getTier()).isEqualTo(ResponseCache.Tier.EXACT);
+        assertThat(hit.getResponse().getContent()).isEqualTo("Paris");
+        assertThat(cache.get(request(0.2, "What is  the capital of France?"))).isNull();
+    }
+
+    @Test
+    void exactTierKeepsPromptsThatDifferInCaseOrIndentationApart() {
+        ResponseCache cache = new ResponseCache(16, Duration.ofMinutes(1));
+        cache.put(request(0.7, "Fix this YAML:\nroot:\n  child: 1"), "m", "nested", "stop", null, 1);
+        cache.put(request(0.7, "Is FOO the same as foo in C?"), "m", "No", "stop", null, 1);
+
+        assertThat(cache.get(request(0.7, "Fix this YAML:\nroot:\nchild: 1"))).isNull();
+        assertThat(cache.get(request(0.7, "is foo the same as foo in c?"))).isNull();
+    }
+
+    @Test
+    void semanticTierMatchesRephrasingsInTheSameContext() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ResponseCache cache = new ResponseCache(16, Duration.ofMinutes(1), 0.9, new HashingEmbedder(256));
+        cache.bindTo(registry);
+        cache.put(request(0.7, "How do I reset my password?"), "m", "Use the link.", "stop", null, 2_000_000_000L);
+
+        ResponseCache.Hit hit = cache.get(request(0.7, "how do I reset my password please"));
+        assertThat(hit.getTier()).isEqualTo(ResponseCache.Tier.SEMANTIC);
+        assertThat(hit.getResponse().getContent()).isEqualTo("Use the link.");
+        assertThat(cache.get(request(0.7, "How do I change my email address?"))).isNull();
+
+        // Same question after a different conversation is a different question
+        ChatRequest otherContext = request(0.7, "How do I reset my password?");
+        otherContext.setMessages(List.of(new ChatRequest.Message("user", "I use the mobile app"),
+                new ChatRequest.Message("user", "How do I reset my password?")));
+        assertThat(cache.get(otherContext)).isNull();
+
+        assertThat(registry.get("chat.response.cache.requests").tag("result", "semantic").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("chat.response.cache.requests").tag("result", "miss").functionCounter().count())
+                .isEqualTo(2);
+        assertThat(registry.get("chat.response.cache.latency.saved").functionCounter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void defaultThresholdKeepsReorderedAndNegatedQuestionsApart() {
+        // The hashing embedder scores all of these pairs at 0.93 or above
+        double threshold = new ResponseCacheConfiguration().getSimilarityThreshold();
+        ResponseCache cache = new ResponseCache(16, Duration.ofMinutes(1), threshold, new HashingEmbedder(256));
+        cache.put(request(0.7, "Convert 100 USD to EUR"), "m", "92 EUR", "stop", null, 1);
+        cache.put(request(0.7, "Is Alice older than Bob?"), "m", "Yes", "stop", null, 1);
+        cache.put(request(0.7, "Should I sell my shares now?"), "m", "Yes", "stop", null, 1);
+
+        assertThat(cache.get(request(0.7, "Convert 100 EUR to USD"))).isNull();
+        assertThat(cache.get(request(0.7, "Is Bob older than Alice?"))).isNull();
+        assertThat(cache.get(request(0.7, "Should I not sell my shares now?"))).isNull();
+    }
+
+    @Test
+    void semanticTierRequiresAnEmbeddingModel() {
+        ResponseCacheConfiguration config = new ResponseCacheConfiguration();
+        config.setSimilarityThreshold(0.92);
+        ObjectProvider<EmbeddingModel> noModel = new StaticListableBeanFactory().getBeanProvider(EmbeddingModel.class);
+
+        assertThatThrownBy(() -> new ResponseCacheBeanConfiguration().cachingLLMProvider(null, config,
+                new CoalescingConfiguration(), noModel, new SimpleMeterRegistry()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("EmbeddingModel");
+    }
+
+    @Test
+    void expiresAndEvictsEntries() {
+        ResponseCache expiring = new ResponseCache(16, Duration.ZERO, 0.9, new HashingEmbedder(64));
+        expiring.put(request(0.7, "hello"), "m", "hi", "stop", null, 1);
+        assertThat(expiring.get(request(0.7, "hello"))).isNull();
+
+        ResponseCache small = new ResponseCache(2, Duration.ofMinutes(1));
+        small.put(request(0.7, "one"), "m", "1", "stop", null, 1);
+        small.put(request(0.7, "two"), "m", "2", "stop", null, 1);
+        small.get(request(0.7, "one"));
+        small.put(request(0.7, "three"), "m", "3", "stop", null, 1);
+        assertThat(small.size()).isEqualTo(2);
+        assertThat(small.get(request(0.7, "two"))).isNull();
+        assertThat(small.get(request(0.7, "one"))).isNotNull();
+    }
+
+    @Test
+    void servesCachedCompletionsToStreamingRequests() {
+        AtomicInteger calls = new AtomicInteger();
+        LLMProvider upstream = new LLMProvider() {
+            @Override
+            public Mono<ChatResponse> complete(ChatRequest request) {
+                calls.incrementAndGet();
+                ChatResponse response = new ChatResponse();
+                response.setModel("upstream-model");
+                response.setChoices(List.of(new ChatResponse.Choice(0,
+                        new ChatResponse.Message("assistant", "The quick brown fox jumps over the lazy dog."), "stop")));
+                response.setUsage(new ChatResponse.Usage(5, 10, 15));
+                return Mono.just(response);
+            }
+
+            @Override
+            public Flux<ChatCompletionChunk> stream(ChatRequest request) {
+                calls.incrementAndGet();
+                return Flux.empty();
+            }
+        };
+        CachingLLMProvider provider = new CachingLLMProvider(upstream,
+                new ResponseCache(16, Duration.ofMinutes(1), 0.92, new HashingEmbedder(64)), 8);
+
+        provider.complete(request(0.7, "Tell me a pangram")).block();
+        ChatResponse cached = provider.complete(request(0.7, "Tell me a pangram")).block();
+        assertThat(cached.getModel()).isEqualTo("upstream-model");
+        assertThat(cached.getChoices().get(0).getMessage().getContent())
+                .isEqualTo("The quick brown fox jumps over the lazy dog.");
+
+        List<ChatCompletionChunk> chunks = provider.stream(request(0.7, "Tell me a pangram")).collectList().block();
+        assertThat(calls).hasValue(1);
+        assertThat(chunks).hasSizeGreaterThan(2);
+        assertThat(chunks.get(0).getChoices().get(0).getDelta().getRole()).isEqualTo("assistant");
+        assertThat(chunks.subList(0, chunks.size() - 1)).allSatisfy(chunk ->
+                assertThat(chunk.getChoices().get(0).getDelta().getContent()).matches("\\S.*(\\s|\\.)$"));
+        assertThat(chunks.stream()
+                .map(chunk -> chunk.getChoices().get(0).getDelta().getContent())
+                .filter(content -> content != null)
+                .collect(Collectors.joining()))
+                .isEqualTo("The quick brown fox jumps over the lazy dog.");
+        ChatCompletionChunk last = chunks.get(chunks.size() - 1);
+        assertThat(last.getChoices().get(0).getFinishReason()).isEqualTo("stop");
+        assertThat(last.getUsage().getTotalTokens()).isEqualTo(15);
+    }
+
+    private static ChatRequest request(double temperature, String question) {
+        ChatRequest request = new ChatRequest();
+        request.setModel("test-model");
+        request.setTemperature(temperature);
+        request.setMessages(List.of(new ChatRequest.Message("user", question)));
+        return request;
+    }
+}
@@ -0,0 +1,142 @@
+package ai.demo.springagent.reactive;
+
+import ai.demo.agent.metrics.ChatAgentMetrics;
+import ai.demo.springagent.config.AiModelConfiguration;
+import ai.demo.springagent.dto.ChatCompletionChunk;
+import ai.demo.springagent.dto.ChatRequest;
+import ai.demo.springagent.dto.ChatResponse;
+import ai.demo.springagent.dto.ThreadRequest;
+import ai.demo.springagent.metrics.StreamingMetrics;
+import ai.demo.springagent.model.ThreadMessage;
+import ai.demo.springagent.provider.LLMProvider;
+import ai.demo.springagent.provider.cache.CachingLLMProvider;
+import ai.demo.springagent.repository.ThreadRepository;
+import ai.demo.springagent.service.ChatService;
+import ai.demo.springagent.service.ConversationContextBuilder;
+import ai.demo.springagent.service.SessionMappingService;
+import ai.demo.springagent.service.ThreadService;
+import ai.demo.springagent.sse.DeltaCoalescer;
+import ai.demo.springagent.tokenizer.TokenCounter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReactiveChatServerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ThreadService threadService = new ThreadService(new ThreadRepository());
+    private ReactiveChatServer server;
+    private WebClient client;
+
+    private final LLMProvider upstream = new LLMProvider() {
+        @Override
+        public Mono<ChatResponse> complete(ChatRequest request) {
+            return Mono.error(new AssertionError("the reactive path must not call complete"));
+        }
+
+        @Override
+        public Flux<ChatCompletionChunk> stream(ChatRequest request) {
+            return Flux.just(chunk(new ChatCompletionChunk.Delta("assistant", "Hello"), null),
+                            chunk(new ChatCompletionChunk.Delta(" world"), null),
+                            chunk(new ChatCompletionChunk.Delta(), "stop"))
+                    .doOnNext(chunk -> {
+                        if ("stop".equals(chunk.getChoices().get(0).getFinishReason())) {
+                            chunk.setUsage(new ChatResponse.Usage(3, 2, 5));
+                        }
+                    });
+        }
+    };
+
+    @BeforeEach
+    void startServer() {
+        AiModelConfiguration config = new AiModelConfiguration();
+        TokenCounter tokenCounter = TokenCounter.heuristic(4);
+        ChatService chatService = new ChatService(null, config, threadService,
+                new ConversationContextBuilder(threadService, config, tokenCounter),
+                new CachingLLMProvider(upstream, null, 16), new SessionMappingService(), new ChatAgentMetrics(),
+                new StreamingMetrics(new SimpleMeterRegistry()), tokenCounter,
+                new DeltaCoalescer(Duration.ofMillis(30), 512));
+        ReactiveChatHandler handler = new ReactiveChatHandler(chatService, objectMapper,
+                Validation.buildDefaultValidatorFactory().getValidator());
+        server = new ReactiveChatServer(handler, objectMapper, 0, 2, Duration.ofSeconds(1));
+        server.start();
+        client = WebClient.create("http://localhost:" + server.getPort());
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void completesFromTheProviderStream() throws Exception {
+        String threadId = threadService.createThread(new ThreadRequest()).getId();
+
+        var response = client.post().uri("/v1/chat/completions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request(false, threadId))
+                .retrieve()
+                .toEntity(String.class)
+                .block(Duration.ofSeconds(5));
+
+        JsonNode body = objectMapper.readTree(response.getBody());
+        assertThat(body.at("/choices/0/message/content").asText()).isEqualTo("Hello world");
+        assertThat(body.at("/usage/totalTokens").asInt()).isEqualTo(5);
+        assertThat(response.getHeaders().getFirst("Server-Timing")).contains("provider");
+        assertThat(threadService.getThreadMessages(threadId)).extracting(ThreadMessage::getContent)
+                .containsExactly("Hi", "Hello world");
+    }
+
+    @Test
+    void streamsTheSameFramesAsTheServletEndpoint() {
+        String body = client.post().uri("/v1/chat/completions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request(true, null))
+                .retrieve()
+                .bodyToMono(String.class)
+                .block(Duration.ofSeconds(5));
+
+        assertThat(body).startsWith("data: {\"id\":\"chatcmpl-test\"");
+        assertThat(body).contains("\"content\":\"Hello\"", "\"content\":\" world\"", "event:server-timing\ndata:{");
+        assertThat(body).endsWith("data: [DONE]\n\n");
+    }
+
+    @Test
+    void rejectsInvalidRequests() {
+        var response = client.post().uri("/v1/chat/completions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"model\":\"gpt\",\"messages\":[{\"role\":\"robot\",\"content\":\"Hi\"}]}")
+                .exchangeToMono(r -> r.toEntity(String.class))
+                .block(Duration.ofSeconds(5));
+
+        assertThat(response.getStatusCode().value()).isEqualTo(400);
+        assertThat(response.getBody()).contains("role must be user, assistant, or system");
+    }
+
+    private static String request(boolean stream, String threadId) {
+        return "{\"model\":\"gpt\",\"stream\":" + stream
+                + (threadId != null ? ",\"threadId\":\"" + threadId + "\"" : "")
+                + ",\"messages\":[{\"role\":\"user\",\"content\":\"Hi\"}]}";
+    }
+
+    private static ChatCompletionChunk chunk(ChatCompletionChunk.Delta delta, String finishReason) {
+        ChatCompletionChunk chunk = new ChatCompletionChunk();
+        chunk.setId("chatcmpl-test");
+        chunk.setModel("gpt");
+        chunk.setChoices(List.of(new ChatCompletionChunk.ChunkChoice(0, delta, finishReason)));
+        return chunk;
+    }
+}
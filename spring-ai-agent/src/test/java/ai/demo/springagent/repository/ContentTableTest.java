@@ -0,0 +1,106 @@
+package ai.demo.springagent.repository;
+
+import ai.demo.springagent.model.Thread;
+import ai.demo.springagent.model.ThreadMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContentTableTest {
+
+    private static final String PREAMBLE = "You are a helpful assistant for the billing team. ".repeat(20);
+
+    @Test
+    void identicalBodiesAreStoredOnce() {
+        ContentTable contents = new ContentTable();
+        ThreadMessage first = contents.intern(new ThreadMessage("m1", "t1", new String("system"), PREAMBLE), "t1");
+        ThreadMessage second = contents.intern(new ThreadMessage("m2", "t2", new String("system"), new String(PREAMBLE)), "t2");
+        ThreadMessage other = contents.intern(new ThreadMessage("m3", "t2", "user", "question"), "t2");
+
+        assertThat(contents.getBodies()).isEqualTo(2);
+        assertThat(contents.getReferences()).isEqualTo(3);
+        assertThat(first.getContent()).isSameAs(second.getContent());
+        assertThat(first.getRole()).isSameAs(second.getRole());
+        assertThat(other.getContent()).isEqualTo("question");
+    }
+
+    @Test
+    void bodiesAreDroppedWithTheirLastReference() {
+        ContentTable contents = new ContentTable();
+        ThreadMessage first = contents.intern(new ThreadMessage("m1", "t1", "system", PREAMBLE), "t1");
+        ThreadMessage second = contents.intern(new ThreadMessage("m2", "t2", "system", PREAMBLE), "t2");
+
+        contents.release(first);
+        assertThat(contents.getBodies()).isEqualTo(1);
+        contents.release(second);
+        assertThat(contents.getBodies()).isZero();
+        assertThat(contents.getReferences()).isZero();
+
+        // Released messages stay readable; a new copy starts a fresh body
+        assertThat(second.getContent()).isEqualTo(PREAMBLE);
+        contents.intern(new ThreadMessage("m3", "t3", "system", PREAMBLE), "t3");
+        assertThat(contents.getBodies()).isEqualTo(1);
+    }
+
+    @Test
+    void storedMessagesAreReadOnly() {
+        Map<String, Object> metadata = new HashMap<>(Map.of("k", "v"));
+        ThreadMessage stored = new ContentTable().intern(new ThreadMessage("m1", "t1", "user", "hi", metadata), "t1");
+        metadata.put("k", "changed");
+
+        assertThatThrownBy(() -> stored.setContent("x")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> stored.setRole("system")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> stored.setThreadId("t2")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> stored.setMetadata(null)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> stored.setCreatedAt(0)).isInstanceOf(UnsupportedOperationException.class);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> storedMetadata = (Map<String, Object>) stored.getMetadata();
+        assertThat(storedMetadata).containsEntry("k", "v");
+        assertThatThrownBy(() -> storedMetadata.put("k", "x")).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void concurrentlyInternedBodiesAreStoredAndCountedOnce() throws Exception {
+        MessageCompressor compressor = new MessageCompressor(256, 8);
+        ContentTable contents = new ContentTable(compressor);
+        try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 200; i++) {
+                String id = "m" + i;
+                pool.submit(() -> contents.intern(new ThreadMessage(id, "t1", "system", new String(PREAMBLE)), "t1"));
+            }
+        }
+
+        assertThat(contents.getBodies()).isEqualTo(1);
+        assertThat(contents.getReferences()).isEqualTo(200);
+        assertThat(compressor.getCompressedMessages()).isEqualTo(1);
+    }
+
+    @Test
+    void storeSharesTemplateBodiesAcrossThreads() {
+        ContentTable contents = new ContentTable(new MessageCompressor(256, 8));
+        InMemoryThreadStore store = new InMemoryThreadStore(contents);
+        for (int t = 0; t < 100; t++) {
+            String threadId = "t" + t;
+            store.saveThread(new Thread(threadId, threadId, null));
+            store.appendMessage(new ThreadMessage(threadId + "-0", threadId, "system", PREAMBLE));
+            store.appendMessage(new ThreadMessage(threadId + "-1", threadId, "user", "question " + t));
+        }
+
+        assertThat(contents.getReferences()).isEqualTo(200);
+        assertThat(contents.getBodies()).isEqualTo(101);
+        List<ThreadMessage> messages = store.messages("t7");
+        assertThat(messages).extracting(ThreadMessage::getContent).containsExactly(PREAMBLE, "question 7");
+
+        for (int t = 0; t < 100; t++) {
+            store.deleteThread("t" + t);
+        }
+        assertThat(contents.getBodies()).isZero();
+    }
+}
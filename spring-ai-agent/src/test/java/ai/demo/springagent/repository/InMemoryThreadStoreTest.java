@@ -0,0 +1,173 @@
+package ai.demo.springagent.repository;
+
+import ai.demo.springagent.model.Thread;
+import ai.demo.springagent.model.ThreadMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryThreadStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void archiveOnlyDiscardsItsOwnFilesOnStartup() throws Exception {
+        Files.writeString(dir.resolve("thread_old.json.gz"), "stale");
+        Files.writeString(dir.resolve("thread_old.json.gz.tmp"), "partial");
+        Files.writeString(dir.resolve("notes.txt"), "keep me");
+        Files.createDirectory(dir.resolve("nested"));
+
+        new ThreadArchive(dir);
+
+        assertThat(dir.resolve("thread_old.json.gz")).doesNotExist();
+        assertThat(dir.resolve("thread_old.json.gz.tmp")).doesNotExist();
+        assertThat(dir.resolve("notes.txt")).hasContent("keep me");
+        assertThat(dir.resolve("nested")).isDirectory();
+    }
+
+    @Test
+    void evictedThreadsServeSummariesWithoutReloading() throws Exception {
+        try (InMemoryThreadStore store = store(Duration.ZERO, 100)) {
+            store.saveThread(new Thread("t1", "Title", null));
+            store.appendMessage(new ThreadMessage("m1", "t1", "user", "first"));
+            store.appendMessage(new ThreadMessage("m2", "t1", "assistant", "second"));
+
+            assertThat(store.evictIdle()).isEqualTo(1);
+            assertThat(registry.counter("thread.store.evictions").count()).isEqualTo(1.0);
+            assertThat(registry.get("thread.store.resident").gauge().value()).isEqualTo(0.0);
+
+            assertThat(store.findThread("t1")).isPresent();
+            assertThat(store.messageCount("t1")).isEqualTo(2);
+            assertThat(store.lastMessage("t1").getContent()).isEqualTo("second");
+            assertThat(registry.counter("thread.store.reloads").count()).isEqualTo(0.0);
+
+            assertThat(store.messages("t1")).extracting(ThreadMessage::getContent).containsExactly("first", "second");
+            assertThat(store.indexOfMessage("t1", "m2")).isEqualTo(1);
+            assertThat(registry.counter("thread.store.reloads").count()).isEqualTo(1.0);
+            assertThat(registry.timer("thread.store.reload").count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void bulkReadersStreamEvictedThreadsWithoutReloading() throws Exception {
+        try (InMemoryThreadStore store = store(Duration.ZERO, 100)) {
+            store.saveThread(new Thread("t1", "Title", null));
+            for (int i = 0; i < 5; i++) {
+                store.appendMessage(new ThreadMessage("m" + i, "t1", "user", "message " + i));
+            }
+            store.evictIdle();
+
+            List<String> visited = new ArrayList<>();
+            store.forEachMessage("t1", message -> visited.add(message.getContent()));
+            assertThat(visited).containsExactly("message 0", "message 1", "message 2", "message 3", "message 4");
+
+            visited.clear();
+            store.forEachMessage("t1", message -> visited.add(message.getId()) && visited.size() < 2);
+            assertThat(visited).containsExactly("m0", "m1");
+
+            assertThat(store.findMessage("t1", "m3").getContent()).isEqualTo("message 3");
+            assertThat(store.findMessage("t1", "missing")).isNull();
+            assertThat(registry.counter("thread.store.reloads").count()).isEqualTo(0.0);
+            assertThat(registry.get("thread.store.resident").gauge().value()).isEqualTo(0.0);
+
+            store.deleteThread("t1");
+            store.forEachMessage("t1", message -> visited.add("after delete"));
+            assertThat(visited).doesNotContain("after delete");
+        }
+    }
+
+    @Test
+    void appendReloadsEvictedThread() throws Exception {
+        try (InMemoryThreadStore store = store(Duration.ZERO, 100)) {
+            store.saveThread(new Thread("t1", "Title", null));
+            store.appendMessage(new ThreadMessage("m1", "t1", "user", "before"));
+            store.evictIdle();
+
+            store.appendMessage(new ThreadMessage("m2", "t1", "user", "after"));
+
+            assertThat(store.messages("t1")).extracting(ThreadMessage::getContent).containsExactly("before", "after");
+            assertThat(store.deleteThread("t1")).isTrue();
+            assertThat(store.messages("t1")).isEmpty();
+        }
+    }
+
+    @Test
+    void rejectsMessagesForUnknownOrDeletedThreads() throws Exception {
+        try (InMemoryThreadStore store = store(Duration.ofHours(1), 100)) {
+            assertThatThrownBy(() -> store.appendMessage(new ThreadMessage("m1", "missing", "user", "hello")))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThat(store.messageCount("missing")).isZero();
+
+            store.saveThread(new Thread("t1", "Title", null));
+            store.appendMessage(new ThreadMessage("m1", "t1", "user", "hello"));
+            store.deleteThread("t1");
+            assertThatThrownBy(() -> store.appendMessage(new ThreadMessage("m2", "t1", "assistant", "late reply")))
+                    .isInstanceOf(IllegalArgumentException.class);
+
+            assertThat(store.messageCount("t1")).isZero();
+            assertThat(store.messages("t1")).isEmpty();
+            assertThat(registry.get("thread.store.resident").gauge().value()).isEqualTo(0.0);
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondCap() throws Exception {
+        try (InMemoryThreadStore store = store(Duration.ofHours(1), 1)) {
+            for (String id : new String[] {"a", "b", "c"}) {
+                store.saveThread(new Thread(id, id, null));
+                store.appendMessage(new ThreadMessage(id + "1", id, "user", "hello " + id));
+            }
+            store.messages("b");
+
+            assertThat(store.evictIdle()).isEqualTo(2);
+            assertThat(registry.counter("thread.store.reloads").count()).isEqualTo(0.0);
+            store.messages("b");
+            assertThat(registry.counter("thread.store.reloads").count()).isEqualTo(0.0);
+            assertThat(store.messages("a")).extracting(ThreadMessage::getContent).containsExactly("hello a");
+            assertThat(registry.counter("thread.store.reloads").count()).isEqualTo(1.0);
+        }
+    }
+
+    @Test
+    void virtualThreadWritersRaceEvictionWithoutLosingMessages() throws Exception {
+        try (InMemoryThreadStore store = store(Duration.ZERO, 100)) {
+            store.saveThread(new Thread("t1", "Busy", null));
+            try (ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 200; i++) {
+                    String id = "m" + i;
+                    writers.submit(() -> store.appendMessage(new ThreadMessage(id, "t1", "user", "content of " + id)));
+                    if (i % 20 == 0) {
+                        writers.submit(store::evictIdle);
+                    }
+                }
+            }
+
+            List<ThreadMessage> messages = store.messages("t1");
+            assertThat(messages).hasSize(200);
+            assertThat(messages).extracting(ThreadMessage::getId).doesNotHaveDuplicates();
+            assertThat(store.messageCount("t1")).isEqualTo(200);
+        }
+    }
+
+    private InMemoryThreadStore store(Duration idleTimeout, int maxResidentThreads) throws Exception {
+        return new InMemoryThreadStore(new ContentTable(), new ThreadArchive(dir), new InMemoryThreadStore.Eviction()
+                .idleTimeout(idleTimeout)
+                .maxResidentThreads(maxResidentThreads)
+                .sweepInterval(Duration.ofHours(1)), registry);
+    }
+}
@@ -0,0 +1,104 @@
+package ai.demo.springagent.repository;
+
+import ai.demo.springagent.model.Thread;
+import ai.demo.springagent.model.ThreadMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageCompressorTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void compressedMessagesReadAndSerializeLikePlainOnes() throws Exception {
+        MessageCompressor compressor = new MessageCompressor(64, 4);
+        ThreadMessage message = new ThreadMessage("m1", "t1", "assistant", "Résumé: ".repeat(50), Map.of("k", "v"));
+
+        ThreadMessage stored = new ContentTable(compressor).intern(message, "t1");
+
+        assertThat(((StoredMessage) stored).body.deflated).isNotNull();
+        assertThat(stored.getContent()).isEqualTo(message.getContent());
+        assertThat(stored.getCreatedAt()).isEqualTo(message.getCreatedAt());
+        assertThat(objectMapper.writeValueAsString(stored)).isEqualTo(objectMapper.writeValueAsString(message));
+    }
+
+    @Test
+    void leavesShortContentAlone() {
+        MessageCompressor compressor = new MessageCompressor(64, 4);
+
+        assertThat(compressor.compress("hi")).isNull();
+        assertThat(MessageCompressor.DISABLED.compress("x".repeat(10_000))).isNull();
+        assertThat(compressor.getCompressedMessages()).isZero();
+    }
+
+    @Test
+    void syntheticCorpusStoresFarFewerBytes() {
+        MessageCompressor compressor = new MessageCompressor(1024, 16);
+        ContentTable contents = new ContentTable(compressor);
+        String paragraph = "The agent answers questions about the thread store, its segments and compaction. ";
+        for (int i = 0; i < 1_000; i++) {
+            contents.intern(new ThreadMessage("m" + i, "t1", "assistant", i + " " + paragraph.repeat(40)), "t1");
+        }
+
+        assertThat(compressor.getCompressedMessages()).isEqualTo(1_000);
+        assertThat(compressor.getStoredBytes()).isLessThan(compressor.getRawBytes() / 10);
+    }
+
+    @Test
+    void inMemoryStoreKeepsLargeContentCompressed() {
+        MessageCompressor compressor = new MessageCompressor(64, 4);
+        InMemoryThreadStore store = new InMemoryThreadStore(new ContentTable(compressor));
+        String large = "lorem ipsum ".repeat(100);
+        store.saveThread(new Thread("t1", "Title", null));
+        store.appendMessage(new ThreadMessage("m1", "t1", "user", "short"));
+        store.appendMessage(new ThreadMessage("m2", "t1", "assistant", large));
+
+        List<ThreadMessage> messages = store.messages("t1");
+        assertThat(compressor.getCompressedMessages()).isEqualTo(1);
+        assertThat(messages).extracting(ThreadMessage::getContent).containsExactly("short", large);
+        assertThat(store.lastMessage("t1").getContent()).isEqualTo(large);
+
+        store.deleteThread("t1");
+        assertThat(compressor.getCompressedMessages()).isZero();
+        assertThat(compressor.getStoredBytes()).isZero();
+    }
+
+    @Test
+    void decodedCacheStaysBoundedUnderConcurrentReaders() throws Exception {
+        MessageCompressor compressor = new MessageCompressor(64, 10);
+        ContentTable contents = new ContentTable(compressor);
+        List<ThreadMessage> stored = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            stored.add(contents.intern(new ThreadMessage("m" + i, "t1", "assistant", i + " body ".repeat(40)), "t1"));
+        }
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < 8; r++) {
+                readers.add(executor.submit(() -> {
+                    for (int round = 0; round < 20; round++) {
+                        for (int i = 0; i < stored.size(); i++) {
+                            assertThat(stored.get(i).getContent()).isEqualTo(i + " body ".repeat(40));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        }
+
+        assertThat(compressor.cachedEntries()).isBetween(1, 10);
+        stored.forEach(contents::release);
+        assertThat(compressor.cachedEntries()).isZero();
+    }
+}
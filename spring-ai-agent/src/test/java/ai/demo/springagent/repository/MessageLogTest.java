@@ -0,0 +1,97 @@
+package ai.demo.springagent.repository;
+
+import ai.demo.springagent.model.ThreadMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MessageLogTest {
+
+    @Test
+    void snapshotIsStableWhileWritersAppend() {
+        MessageLog log = new MessageLog();
+        for (int i = 0; i < MessageLog.CHUNK_SIZE + 5; i++) {
+            log.append(message(i));
+        }
+        List<ThreadMessage> snapshot = log.snapshot();
+
+        for (int i = 0; i < MessageLog.CHUNK_SIZE * 3; i++) {
+            log.append(message(1000 + i));
+        }
+
+        assertThat(snapshot).hasSize(MessageLog.CHUNK_SIZE + 5);
+        assertThat(snapshot.get(MessageLog.CHUNK_SIZE).getId()).isEqualTo("msg_" + MessageLog.CHUNK_SIZE);
+        assertThat(log.size()).isEqualTo(MessageLog.CHUNK_SIZE * 4 + 5);
+        assertThat(log.last().getId()).isEqualTo("msg_" + (1000 + MessageLog.CHUNK_SIZE * 3 - 1));
+        assertThatThrownBy(() -> snapshot.add(message(-1))).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void concurrentAppendsAreNotLost() throws Exception {
+        MessageLog log = new MessageLog();
+        int writers = 8;
+        int perWriter = 2_000;
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int w = 0; w < writers; w++) {
+            int base = w * perWriter;
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perWriter; i++) {
+                    log.append(message(base + i));
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        List<ThreadMessage> all = log.snapshot();
+        assertThat(all).hasSize(writers * perWriter);
+        Set<String> ids = new HashSet<>();
+        all.forEach(m -> ids.add(m.getId()));
+        assertThat(ids).hasSize(writers * perWriter);
+    }
+
+    @Test
+    void pagesWithCursorsInBothOrders() {
+        MessageLog log = new MessageLog();
+        for (int i = 0; i < 10; i++) {
+            log.append(message(i));
+        }
+
+        Page<ThreadMessage> first = log.page(3, null, null, true);
+        assertThat(first.getItems()).extracting(ThreadMessage::getId).containsExactly("msg_0", "msg_1", "msg_2");
+        assertThat(first.hasMore()).isTrue();
+
+        Page<ThreadMessage> next = log.page(3, "msg_8", null, true);
+        assertThat(next.getItems()).extracting(ThreadMessage::getId).containsExactly("msg_9");
+        assertThat(next.hasMore()).isFalse();
+
+        Page<ThreadMessage> newest = log.page(2, null, null, false);
+        assertThat(newest.getItems()).extracting(ThreadMessage::getId).containsExactly("msg_9", "msg_8");
+        assertThat(newest.hasMore()).isTrue();
+
+        Page<ThreadMessage> older = log.page(5, "msg_8", "msg_4", false);
+        assertThat(older.getItems()).extracting(ThreadMessage::getId)
+                .containsExactly("msg_7", "msg_6", "msg_5");
+        assertThat(older.hasMore()).isFalse();
+
+        assertThatThrownBy(() -> log.page(3, "msg_missing", null, true))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ThreadMessage message(int i) {
+        return new ThreadMessage("msg_" + i, "thread_1", "user", "content " + i);
+    }
+}
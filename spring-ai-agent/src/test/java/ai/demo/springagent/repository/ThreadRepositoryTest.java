@@ -0,0 +1,72 @@
+package ai.demo.springagent.repository;
+
+import ai.demo.springagent.model.Thread;
+import ai.demo.springagent.model.ThreadMessage;
+import ai.demo.springagent.model.ThreadSummary;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ThreadRepositoryTest {
+
+    private final ThreadRepository repository = new ThreadRepository();
+
+    @Test
+    void listsThreadsByActivityWithCursors() {
+        for (int i = 0; i < 5; i++) {
+            Thread thread = new Thread("thread_" + i, "Thread " + i, null);
+            thread.setLastActivity(100 + i);
+            repository.save(thread);
+        }
+        // New activity moves thread_1 to the front
+        ThreadMessage message = new ThreadMessage("msg_1", "thread_1", "user", "Hello\nthere");
+        message.setCreatedAt(200);
+        repository.saveMessage(message);
+
+        Page<ThreadSummary> first = repository.findSummaries(2, null, null, true);
+        assertThat(first.getItems()).extracting(ThreadSummary::getId).containsExactly("thread_1", "thread_4");
+        assertThat(first.hasMore()).isTrue();
+        assertThat(first.getItems().get(0).getMessageCount()).isEqualTo(1);
+        assertThat(first.getItems().get(0).getLastMessagePreview()).isEqualTo("Hello there");
+
+        Page<ThreadSummary> next = repository.findSummaries(2, "thread_4", null, true);
+        assertThat(next.getItems()).extracting(ThreadSummary::getId).containsExactly("thread_3", "thread_2");
+
+        Page<ThreadSummary> previous = repository.findSummaries(2, null, "thread_2", true);
+        assertThat(previous.getItems()).extracting(ThreadSummary::getId).containsExactly("thread_4", "thread_3");
+
+        Page<ThreadSummary> oldestFirst = repository.findSummaries(10, null, null, false);
+        assertThat(oldestFirst.getItems()).extracting(ThreadSummary::getId)
+                .containsExactly("thread_0", "thread_2", "thread_3", "thread_4", "thread_1");
+        assertThat(oldestFirst.hasMore()).isFalse();
+    }
+
+    @Test
+    void deletedThreadsLeaveTheIndex() {
+        repository.save(new Thread("thread_a", "A", null));
+        repository.save(new Thread("thread_b", "B", null));
+        repository.deleteById("thread_a");
+
+        assertThat(repository.findSummaries(10, null, null, true).getItems())
+                .extracting(ThreadSummary::getId).containsExactly("thread_b");
+        assertThatThrownBy(() -> repository.findSummaries(10, "thread_a", null, true))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void findByIdKeepsMessageSnapshotsOffTheStoredThread() {
+        InMemoryThreadStore store = new InMemoryThreadStore();
+        ThreadRepository repository = new ThreadRepository(store);
+        repository.save(new Thread("thread_a", "A", null));
+        repository.saveMessage(new ThreadMessage("msg_1", "thread_a", "user", "Hello"));
+
+        Thread found = repository.findById("thread_a").orElseThrow();
+        found.setTitle("Renamed");
+        repository.save(found);
+
+        assertThat(found.getMessages()).extracting(ThreadMessage::getContent).containsExactly("Hello");
+        assertThat(store.findThread("thread_a").orElseThrow().getMessages()).isEmpty();
+        assertThat(repository.findById("thread_a").orElseThrow().getTitle()).isEqualTo("Renamed");
+    }
+}
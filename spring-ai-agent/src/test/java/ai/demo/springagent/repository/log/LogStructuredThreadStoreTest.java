@@ -0,0 +1,284 @@
+package ai.demo.springagent.repository.log;
+
+import ai.demo.springagent.model.HistorySummary;
+import ai.demo.springagent.model.Thread;
+import ai.demo.springagent.model.ThreadMessage;
+import ai.demo.springagent.repository.EncodedMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LogStructuredThreadStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recoversThreadsAndMessagesAfterReopen() throws Exception {
+        try (LogStructuredThreadStore store = open()) {
+            Thread thread = new Thread("t1", "First", Map.of("k", "v"));
+            store.saveThread(thread);
+            for (int i = 0; i < 10; i++) {
+                ThreadMessage message = new ThreadMessage("m" + i, "t1", i % 2 == 0 ? "user" : "assistant", "msg " + i);
+                message.setCreatedAt(thread.getCreatedAt() + i);
+                store.appendMessage(message);
+            }
+        }
+
+        try (LogStructuredThreadStore store = open()) {
+            assertThat(store.threadCount()).isEqualTo(1);
+            Thread thread = store.findThread("t1").orElseThrow();
+            assertThat(thread.getTitle()).isEqualTo("First");
+            assertThat(thread.getMetadata()).isEqualTo(Map.of("k", "v"));
+            assertThat(thread.getLastActivity()).isEqualTo(thread.getCreatedAt() + 9);
+
+            List<ThreadMessage> messages = store.messages("t1");
+            assertThat(messages).extracting(ThreadMessage::getContent)
+                    .containsExactly("msg 0", "msg 1", "msg 2", "msg 3", "msg 4",
+                            "msg 5", "msg 6", "msg 7", "msg 8", "msg 9");
+            assertThat(store.lastMessage("t1").getId()).isEqualTo("m9");
+            assertThat(store.indexOfMessage("t1", "m4")).isEqualTo(4);
+
+            // Appends continue the recovered sequence
+            store.appendMessage(new ThreadMessage("m10", "t1", "user", "msg 10"));
+            assertThat(store.messageCount("t1")).isEqualTo(11);
+        }
+    }
+
+    @Test
+    void servesEncodedMessagesFromMappedSegments() throws Exception {
+        try (LogStructuredThreadStore store = open()) {
+            store.saveThread(new Thread("t1", "Title", null));
+            ThreadMessage message = new ThreadMessage("m1", "t1", "user", "héllo \"quoted\"");
+            store.appendMessage(message);
+
+            List<EncodedMessage> encoded = store.encodedMessages("t1");
+            assertThat(encoded).hasSize(1);
+            assertThat(encoded.get(0).getId()).isEqualTo("m1");
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            encoded.get(0).writeTo(out, new ObjectMapper());
+            assertThat(out.toString(StandardCharsets.UTF_8))
+                    .isEqualTo(new ObjectMapper().writeValueAsString(message));
+            assertThat(encoded.get(0).decode().getContent()).isEqualTo("héllo \"quoted\"");
+        }
+
+        // The pre-sized active segment is trimmed back to its records on close
+        assertThat(Files.size(segmentFiles().get(0))).isLessThan(4096);
+        try (LogStructuredThreadStore store = open()) {
+            assertThat(store.messages("t1").get(0).getRole()).isEqualTo("user");
+        }
+    }
+
+    @Test
+    void deletesSurviveReopen() throws Exception {
+        try (LogStructuredThreadStore store = open()) {
+            store.saveThread(new Thread("keep", "Keep", null));
+            store.saveThread(new Thread("drop", "Drop", null));
+            store.appendMessage(new ThreadMessage("m1", "drop", "user", "gone"));
+            assertThat(store.deleteThread("drop")).isTrue();
+            assertThat(store.deleteThread("drop")).isFalse();
+        }
+
+        try (LogStructuredThreadStore store = open()) {
+            assertThat(store.existsThread("keep")).isTrue();
+            assertThat(store.existsThread("drop")).isFalse();
+            assertThat(store.messages("drop")).isEmpty();
+            assertThat(store.threadCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void rejectsMessagesForUnknownOrDeletedThreads() throws Exception {
+        try (LogStructuredThreadStore store = open()) {
+            assertThatThrownBy(() -> store.appendMessage(new ThreadMessage("m1", "missing", "user", "hello")))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThat(store.messageCount("missing")).isZero();
+
+            store.saveThread(new Thread("t1", "Title", null));
+            store.deleteThread("t1");
+            assertThatThrownBy(() -> store.appendMessage(new ThreadMessage("m2", "t1", "user", "late")))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThat(store.messageCount("t1")).isZero();
+        }
+
+        try (LogStructuredThreadStore store = open()) {
+            assertThat(store.threadCount()).isZero();
+            assertThat(store.messageCount("missing")).isZero();
+        }
+    }
+
+    @Test
+    void historySummariesSurviveReopenAndCompactionWithoutBecomingMessages() throws Exception {
+        try (LogStructuredThreadStore store = open()) {
+            store.saveThread(new Thread("t1", "Title", null));
+            store.appendMessage(new ThreadMessage("m1", "t1", "user", "hello"));
+            for (int i = 0; i < 100; i++) {
+                store.saveHistorySummary("t1", new HistorySummary("summary " + i, 1, "m1"));
+            }
+            store.compact();
+
+            assertThat(store.findHistorySummary("t1").orElseThrow().getText()).isEqualTo("summary 99");
+            assertThat(store.messages("t1")).extracting(ThreadMessage::getContent).containsExactly("hello");
+            assertThatThrownBy(() -> store.saveHistorySummary("missing", new HistorySummary("s", 1, "m1")))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+
+        try (LogStructuredThreadStore store = open()) {
+            HistorySummary summary = store.findHistorySummary("t1").orElseThrow();
+            assertThat(summary.getText()).isEqualTo("summary 99");
+            assertThat(summary.getMessageCount()).isEqualTo(1);
+            assertThat(summary.getLastMessageId()).isEqualTo("m1");
+            assertThat(store.messageCount("t1")).isEqualTo(1);
+
+            store.deleteThread("t1");
+            assertThat(store.findHistorySummary("t1")).isEmpty();
+        }
+
+        try (LogStructuredThreadStore store = open()) {
+            assertThat(store.findHistorySummary("t1")).isEmpty();
+        }
+    }
+
+    @Test
+    void truncatesTornTailOnRecovery() throws Exception {
+        try (LogStructuredThreadStore store = open()) {
+            store.saveThread(new Thread("t1", "Title", null));
+            store.appendMessage(new ThreadMessage("m1", "t1", "user", "intact"));
+        }
+
+        Path segment = segmentFiles().get(0);
+        long validLength = Files.size(segment);
+        // Simulate a crash halfway through writing the next frame
+        Files.write(segment, new byte[] {0, 0, 0, 90, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (LogStructuredThreadStore store = open()) {
+            assertThat(store.messages("t1")).extracting(ThreadMessage::getContent).containsExactly("intact");
+            store.appendMessage(new ThreadMessage("m2", "t1", "user", "after crash"));
+        }
+
+        try (LogStructuredThreadStore store = open()) {
+            assertThat(store.messages("t1")).extracting(ThreadMessage::getContent)
+                    .containsExactly("intact", "after crash");
+        }
+        assertThat(Files.size(segment)).isGreaterThan(validLength).isLessThan(4096);
+    }
+
+    @Test
+    void compactionReclaimsDeadRecordsAndPreservesOrder() throws Exception {
+        try (LogStructuredThreadStore store = open()) {
+            Thread thread = new Thread("t1", "v0", null);
+            store.saveThread(thread);
+            for (int i = 0; i < 200; i++) {
+                store.saveThread(new Thread("churn", "title " + i, null));
+                store.appendMessage(new ThreadMessage("m" + i, "t1", "user", "message " + i));
+            }
+            store.saveThread(new Thread("doomed", "doomed", null));
+            store.appendMessage(new ThreadMessage("d1", "doomed", "user", "bye"));
+            store.deleteThread("doomed");
+
+            long before = (long) store.getStatistics().get("diskBytes");
+            store.compact();
+            long after = (long) store.getStatistics().get("diskBytes");
+            assertThat(after).isLessThan(before);
+
+            // Reads resolve relocated records
+            assertThat(store.messages("t1").get(150).getContent()).isEqualTo("message 150");
+            assertThat(store.findThread("churn").orElseThrow().getTitle()).isEqualTo("title 199");
+        }
+
+        try (LogStructuredThreadStore store = open()) {
+            assertThat(store.findThread("churn").orElseThrow().getTitle()).isEqualTo("title 199");
+            assertThat(store.existsThread("doomed")).isFalse();
+            List<ThreadMessage> messages = store.messages("t1");
+            assertThat(messages).hasSize(200);
+            for (int i = 0; i < messages.size(); i++) {
+                assertThat(messages.get(i).getContent()).isEqualTo("message " + i);
+            }
+        }
+    }
+
+    @Test
+    void snapshotsStayReadableAfterTheirSegmentIsCompactedAway() throws Exception {
+        try (LogStructuredThreadStore store = new LogStructuredThreadStore(dir, new LogStructuredThreadStore.Options()
+                .shards(1)
+                .segmentBytes(4096)
+                .compactionThreshold(0.9)
+                .compactionInterval(Duration.ofMillis(20)))) {
+            store.saveThread(new Thread("t1", "Title", null));
+            for (int i = 0; i < 4; i++) {
+                store.appendMessage(new ThreadMessage("m" + i, "t1", "user", "message " + i));
+            }
+            List<ThreadMessage> snapshot = store.messages("t1");
+            List<EncodedMessage> encoded = store.encodedMessages("t1");
+            Path first = segmentFiles().get(0);
+
+            // Supersede most of the first segment, and grow the thread past the snapshot's arrays
+            for (int i = 4; i < 100; i++) {
+                store.saveThread(new Thread("churn", "title " + i, null));
+                store.appendMessage(new ThreadMessage("m" + i, "t1", "user", "message " + i));
+            }
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (Files.exists(first) && System.nanoTime() < deadline) {
+                java.lang.Thread.sleep(10);
+            }
+            assertThat(first).doesNotExist();
+            // Several more compaction passes, well past any grace period tied to the interval
+            java.lang.Thread.sleep(200);
+
+            assertThat(snapshot).extracting(ThreadMessage::getContent)
+                    .containsExactly("message 0", "message 1", "message 2", "message 3");
+            assertThat(encoded.get(3).decode().getId()).isEqualTo("m3");
+        }
+    }
+
+    @Test
+    void concurrentVirtualThreadWritersKeepEveryMessage() throws Exception {
+        try (LogStructuredThreadStore store = open()) {
+            store.saveThread(new Thread("t1", "Busy", Map.of()));
+            try (ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 200; i++) {
+                    String id = "m" + i;
+                    writers.submit(() -> store.appendMessage(new ThreadMessage(id, "t1", "user", "content of " + id)));
+                }
+            }
+
+            List<ThreadMessage> messages = store.messages("t1");
+            assertThat(messages).hasSize(200);
+            assertThat(messages).extracting(ThreadMessage::getId).doesNotHaveDuplicates();
+            for (int i = 0; i < 200; i++) {
+                assertThat(messages.get(store.indexOfMessage("t1", "m" + i)).getContent()).isEqualTo("content of m" + i);
+            }
+            assertThat(segmentFiles()).hasSizeGreaterThan(1);
+        }
+    }
+
+    private LogStructuredThreadStore open() throws Exception {
+        return new LogStructuredThreadStore(dir, new LogStructuredThreadStore.Options()
+                .shards(1)
+                .segmentBytes(4096)
+                .compactionThreshold(0.9)
+                .compactionInterval(Duration.ofHours(1)));
+    }
+
+    private List<Path> segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+}
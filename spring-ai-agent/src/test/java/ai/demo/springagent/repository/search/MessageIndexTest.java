@@ -0,0 +1,70 @@
+package ai.demo.springagent.repository.search;
+
+import ai.demo.springagent.model.ThreadMessage;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageIndexTest {
+
+    private final MessageIndex index = new MessageIndex();
+
+    @Test
+    void ranksMessagesAndThreadsByRelevance() {
+        index.add(new ThreadMessage("m1", "t1", "user", "How do I configure the Kafka consumer?"));
+        index.add(new ThreadMessage("m2", "t1", "assistant", "Set the consumer group id and the bootstrap servers."));
+        index.add(new ThreadMessage("m3", "t2", "user", "Kafka, Kafka, Kafka: why is my Kafka topic lagging?"));
+        index.add(new ThreadMessage("m4", "t3", "user", "Unrelated question about the weather"));
+
+        SearchHits hits = index.search("kafka consumer", 10);
+
+        assertThat(hits.getTerms()).containsExactly("kafka", "consumer");
+        assertThat(hits.getMessages()).extracting(SearchHits.MessageHit::getMessageId)
+                .containsExactly("m1", "m3", "m2");
+        assertThat(hits.getThreads()).extracting(SearchHits.ThreadHit::getThreadId).containsExactly("t1", "t2");
+        assertThat(hits.getThreads().get(0).getHits()).isEqualTo(2);
+        assertThat(index.search("weather", 10).getMessages()).extracting(SearchHits.MessageHit::getMessageId)
+                .containsExactly("m4");
+        assertThat(index.search("nothing matches", 10).getMessages()).isEmpty();
+    }
+
+    @Test
+    void limitsHitsToTheBestScores() {
+        for (int i = 0; i < 1_000; i++) {
+            String content = i == 500 ? "needle needle needle in a haystack" : "haystack number " + i;
+            index.add(new ThreadMessage("m" + i, "t" + (i % 10), "user", content));
+        }
+
+        SearchHits hits = index.search("needle haystack", 3);
+
+        assertThat(hits.getMessages()).hasSize(3);
+        assertThat(hits.getMessages().get(0).getMessageId()).isEqualTo("m500");
+        assertThat(hits.getThreads()).hasSize(3);
+        assertThat(hits.getThreads().get(0).getThreadId()).isEqualTo("t0");
+    }
+
+    @Test
+    void deletedThreadsDisappearFromResults() {
+        for (int t = 0; t < 10; t++) {
+            for (int m = 0; m < 50; m++) {
+                index.add(new ThreadMessage("m" + t + "_" + m, "t" + t, "user", "shared term " + (t * 50 + m)));
+            }
+        }
+
+        index.removeThread("t3");
+        assertThat(index.search("shared", 1_000).getThreads()).extracting(SearchHits.ThreadHit::getThreadId)
+                .doesNotContain("t3")
+                .hasSize(9);
+
+        // Deleting most threads rewrites the posting lists without them
+        for (int t = 0; t < 9; t++) {
+            index.removeThread("t" + t);
+        }
+        assertThat(index.getStatistics()).containsEntry("documents", 50);
+        SearchHits hits = index.search("shared", 1_000);
+        assertThat(hits.getMessages()).hasSize(50).allMatch(hit -> hit.getThreadId().equals("t9"));
+        assertThat(index.search("149", 10).getMessages()).isEmpty();
+        assertThat(index.search("499", 10).getMessages()).extracting(SearchHits.MessageHit::getMessageId)
+                .containsExactly("m9_49");
+    }
+}
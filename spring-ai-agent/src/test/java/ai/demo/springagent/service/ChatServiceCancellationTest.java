@@ -0,0 +1,173 @@
+package ai.demo.springagent.service;
+
+import ai.demo.agent.metrics.ChatAgentMetrics;
+import ai.demo.springagent.config.AiModelConfiguration;
+import ai.demo.springagent.dto.ChatCompletionChunk;
+import ai.demo.springagent.dto.ChatRequest;
+import ai.demo.springagent.dto.ChatResponse;
+import ai.demo.springagent.dto.ThreadRequest;
+import ai.demo.springagent.metrics.RequestTimings;
+import ai.demo.springagent.metrics.StreamingMetrics;
+import ai.demo.springagent.model.ThreadMessage;
+import ai.demo.springagent.provider.LLMProvider;
+import ai.demo.springagent.provider.cache.CachingLLMProvider;
+import ai.demo.springagent.repository.ThreadRepository;
+import ai.demo.springagent.sse.DeltaCoalescer;
+import ai.demo.springagent.tokenizer.TokenCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatServiceCancellationTest {
+
+    private final ThreadService threadService = new ThreadService(new ThreadRepository());
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicBoolean upstreamCancelled = new AtomicBoolean();
+    private final AtomicInteger upstreamChunks = new AtomicInteger();
+    private ChatService chatService;
+
+    private final LLMProvider upstream = new LLMProvider() {
+        @Override
+        public Mono<ChatResponse> complete(ChatRequest request) {
+            return Mono.error(new AssertionError("streaming must not call complete"));
+        }
+
+        @Override
+        public Flux<ChatCompletionChunk> stream(ChatRequest request) {
+            // Endless generation: only a cancellation ends it
+            return Flux.interval(Duration.ofMillis(5))
+                    .map(i -> chunk(i == 0 ? "Hello" : " again"))
+                    .doOnNext(chunk -> upstreamChunks.incrementAndGet())
+                    .doOnCancel(() -> upstreamCancelled.set(true));
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        AiModelConfiguration config = new AiModelConfiguration();
+        TokenCounter tokenCounter = TokenCounter.heuristic(4);
+        chatService = new ChatService(null, config, threadService,
+                new ConversationContextBuilder(threadService, config, tokenCounter),
+                new CachingLLMProvider(upstream, null, 16), new SessionMappingService(), new ChatAgentMetrics(),
+                new StreamingMetrics(registry), tokenCounter, new DeltaCoalescer(Duration.ZERO, 0));
+    }
+
+    @Test
+    void failedWriteCancelsProviderAndSavesPartialResponse() throws Exception {
+        String threadId = threadService.createThread(new ThreadRequest()).getId();
+
+        chatService.streamChat(request(threadId), "openai", new DisconnectingStream(3), new RequestTimings());
+
+        assertThat(upstreamCancelled).isTrue();
+        assertThat(upstreamChunks.get()).isLessThan(10);
+        assertThat(threadService.getThreadMessages(threadId)).extracting(ThreadMessage::getContent)
+                .containsExactly("Hi", "Hello again again");
+        assertThat(registry.get("llm.stream.cancelled").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void interruptedStreamCancelsProviderAndSavesPartialResponse() throws Exception {
+        String threadId = threadService.createThread(new ThreadRequest()).getId();
+        AtomicBoolean interruptRestored = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        java.lang.Thread worker = new java.lang.Thread(() -> {
+            try {
+                chatService.streamChat(request(threadId), "openai", OutputStream.nullOutputStream(),
+                        new RequestTimings());
+                interruptRestored.set(java.lang.Thread.currentThread().isInterrupted());
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+
+        worker.start();
+        // Interrupt the way an async request timeout does, once something has been streamed
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (upstreamChunks.get() < 2 && System.nanoTime() < deadline) {
+            java.lang.Thread.sleep(5);
+        }
+        worker.interrupt();
+        worker.join(5_000);
+
+        assertThat(failure.get()).isNull();
+        assertThat(interruptRestored).isTrue();
+        assertThat(upstreamCancelled).isTrue();
+        assertThat(threadService.getThreadMessages(threadId)).extracting(ThreadMessage::getContent)
+                .hasSize(2)
+                .first().isEqualTo("Hi");
+        assertThat(threadService.getThreadMessages(threadId).get(1).getContent()).startsWith("Hello again");
+        assertThat(registry.get("llm.stream.cancelled").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void cancelledSubscriptionCancelsProviderAndSavesPartialResponse() throws Exception {
+        String threadId = threadService.createThread(new ThreadRequest()).getId();
+
+        List<ChatCompletionChunk> received = chatService.stream(request(threadId), "openai", new RequestTimings())
+                .take(2)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(received).hasSize(2);
+        assertThat(upstreamCancelled).isTrue();
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (threadService.getThreadMessages(threadId).size() < 2 && System.nanoTime() < deadline) {
+            java.lang.Thread.sleep(5);
+        }
+        assertThat(threadService.getThreadMessages(threadId)).extracting(ThreadMessage::getContent)
+                .containsExactly("Hi", "Hello again");
+        assertThat(registry.get("llm.stream.cancelled").counter().count()).isEqualTo(1.0);
+    }
+
+    private static ChatRequest request(String threadId) {
+        ChatRequest request = new ChatRequest();
+        request.setModel("gpt");
+        request.setStream(true);
+        request.setThreadId(threadId);
+        request.setMessages(List.of(new ChatRequest.Message("user", "Hi")));
+        return request;
+    }
+
+    private static ChatCompletionChunk chunk(String content) {
+        ChatCompletionChunk chunk = new ChatCompletionChunk();
+        chunk.setId("chatcmpl-test");
+        chunk.setModel("gpt");
+        chunk.setChoices(List.of(new ChatCompletionChunk.ChunkChoice(0, new ChatCompletionChunk.Delta(content), null)));
+        return chunk;
+    }
+
+    /**
+     * Accepts {@code writes} writes, then fails like a connection the client has closed.
+     */
+    private static final class DisconnectingStream extends OutputStream {
+        private int writes;
+
+        DisconnectingStream(int writes) {
+            this.writes = writes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (writes-- <= 0) {
+                throw new IOException("Broken pipe");
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ai.demo.springagent.service;
+
+import ai.demo.agent.metrics.ChatAgentMetrics;
+import ai.demo.springagent.config.AiModelConfiguration;
+import ai.demo.springagent.dto.ChatCompletionChunk;
+import ai.demo.springagent.dto.ChatRequest;
+import ai.demo.springagent.dto.ChatResponse;
+import ai.demo.springagent.dto.ThreadRequest;
+import ai.demo.springagent.metrics.RequestTimings;
+import ai.demo.springagent.metrics.StreamingMetrics;
+import ai.demo.springagent.provider.LLMProvider;
+import ai.demo.springagent.provider.cache.CachingLLMProvider;
+import ai.demo.springagent.repository.ThreadRepository;
+import ai.demo.springagent.sse.DeltaCoalescer;
+import ai.demo.springagent.tokenizer.TokenCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatServiceTokenUsageTest {
+
+    private final ThreadService threadService = new ThreadService(new ThreadRepository());
+    private final ChatAgentMetrics chatMetrics = new ChatAgentMetrics();
+
+    private final LLMProvider upstream = new LLMProvider() {
+        @Override
+        public Mono<ChatResponse> complete(ChatRequest request) {
+            return Mono.error(new AssertionError("streaming must not call complete"));
+        }
+
+        @Override
+        public Flux<ChatCompletionChunk> stream(ChatRequest request) {
+            ChatCompletionChunk last = chunk("");
+            last.setUsage(new ChatResponse.Usage(3, 2, 5));
+            return Flux.just(chunk("Hello"), last);
+        }
+    };
+
+    private final ChatService chatService = chatService();
+
+    @Test
+    void deletingThreadDropsItsTokenBreakdown() throws Exception {
+        String threadId = threadService.createThread(new ThreadRequest()).getId();
+        chatService.streamChat(request(threadId), "openai", OutputStream.nullOutputStream(), new RequestTimings());
+        assertThat(chatMetrics.getThreadTokens(threadId)).isNotNull();
+
+        threadService.deleteThread(threadId);
+
+        assertThat(chatMetrics.getThreadTokens(threadId)).isNull();
+        assertThat(chatMetrics.getTokensByModel()).containsKey("gpt-4");
+    }
+
+    @Test
+    void unknownThreadsGetNoTokenBreakdown() throws Exception {
+        chatService.streamChat(request("thread_gone"), "openai", OutputStream.nullOutputStream(),
+                new RequestTimings());
+
+        assertThat(chatMetrics.getTokensByThread()).isEmpty();
+        assertThat(chatMetrics.getTotalTokens()).isEqualTo(5);
+    }
+
+    private ChatService chatService() {
+        AiModelConfiguration config = new AiModelConfiguration();
+        config.setModel("gpt-4");
+        TokenCounter tokenCounter = TokenCounter.heuristic(4);
+        return new ChatService(null, config, threadService,
+                new ConversationContextBuilder(threadService, config, tokenCounter),
+                new CachingLLMProvider(upstream, null, 16), new SessionMappingService(), chatMetrics,
+                new StreamingMetrics(new SimpleMeterRegistry()), tokenCounter, new DeltaCoalescer(Duration.ZERO, 0));
+    }
+
+    private static ChatRequest request(String threadId) {
+        ChatRequest request = new ChatRequest();
+        request.setModel("gpt-4");
+        request.setStream(true);
+        request.setThreadId(threadId);
+        request.setMessages(List.of(new ChatRequest.Message("user", "Hi")));
+        return request;
+    }
+
+    private static ChatCompletionChunk chunk(String content) {
+        ChatCompletionChunk chunk = new ChatCompletionChunk();
+        chunk.setId("chatcmpl-test");
+        chunk.setModel("gpt-4");
+        chunk.setChoices(List.of(new ChatCompletionChunk.ChunkChoice(0, new ChatCompletionChunk.Delta(content), null)));
+        return chunk;
+    }
+}
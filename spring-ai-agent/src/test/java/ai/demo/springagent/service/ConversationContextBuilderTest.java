@@ -0,0 +1,258 @@
+package ai.demo.springagent.service;
+
+import ai.demo.springagent.config.AiModelConfiguration;
+import ai.demo.springagent.config.SummaryConfiguration;
+import ai.demo.springagent.dto.ChatRequest;
+import ai.demo.springagent.dto.ChatResponse;
+import ai.demo.springagent.dto.ThreadRequest;
+import ai.demo.springagent.metrics.RequestTimings;
+import ai.demo.springagent.model.ThreadMessage;
+import ai.demo.springagent.provider.OpenAIProvider;
+import ai.demo.springagent.repository.ThreadRepository;
+import ai.demo.springagent.tokenizer.TokenCounter;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversationContextBuilderTest {
+
+    private final ThreadService threadService = new ThreadService(new ThreadRepository());
+    private final AiModelConfiguration config = new AiModelConfiguration();
+    private final ConversationContextBuilder builder = new ConversationContextBuilder(threadService, config,
+            TokenCounter.heuristic(1));
+
+    @Test
+    void keepsTheNewestMessagesWithinTheBudget() {
+        config.setMaxHistoryTokens(10);
+        String threadId = threadService.createThread(new ThreadRequest()).getId();
+        threadService.addMessageToThread(threadId, "user", "aaaa");
+        threadService.addMessageToThread(threadId, "assistant", "bbbb");
+        threadService.addMessageToThread(threadId, "user", "cccc");
+
+        assertThat(builder.recentHistory(threadId)).extracting(ChatRequest.Message::getContent)
+                .containsExactly("bbbb", "cccc");
+
+        // A message over the budget on its own is still sent
+        threadService.addMessageToThread(threadId, "assistant", "x".repeat(50));
+        assertThat(builder.recentHistory(threadId)).extracting(ChatRequest.Message::getContent)
+                .containsExactly("x".repeat(50));
+    }
+
+    @Test
+    void timesHistoryLoadAndTruncationSeparately() {
+        config.setMaxHistoryTokens(10);
+        String threadId = threadService.createThread(new ThreadRequest()).getId();
+        for (int i = 0; i < 50; i++) {
+            threadService.addMessageToThread(threadId, "user", "message " + i);
+        }
+        RequestTimings timings = new RequestTimings();
+
+        builder.recentHistory(threadId, timings);
+
+        assertThat(timings.getNanos(RequestTimings.Phase.HISTORY)).isPositive();
+        assertThat(timings.getNanos(RequestTimings.Phase.TRUNCATION)).isPositive();
+        assertThat(timings.toMillis()).containsKeys("history", "truncate");
+    }
+
+    @Test
+    void reusesTheCachedWindowUntilTheThreadChanges() {
+        config.setMaxHistoryTokens(6);
+        String threadId = threadService.createThread(new ThreadRequest()).getId();
+        threadService.addMessageToThread(threadId, "user", "one");
+        threadService.addMessageToThread(threadId, "assistant", "two");
+
+        List<ChatRequest.Message> first = builder.recentHistory(threadId);
+        assertThat(builder.recentHistory(threadId)).isSameAs(first);
+
+        threadService.addMessageToThread(threadId, "user", "six");
+        List<ChatRequest.Message> second = builder.recentHistory(threadId);
+        assertThat(second).extracting(ChatRequest.Message::getContent).containsExactly("two", "six");
+        // Messages still inside the window are carried over, not rebuilt
+        assertThat(second.get(0)).isSameAs(first.get(1));
+
+        config.setMaxHistoryTokens(100);
+        assertThat(builder.recentHistory(threadId)).extracting(ChatRequest.Message::getContent)
+                .containsExactly("one", "two", "six");
+    }
+
+    @Test
+    void deletedThreadsStartOver() {
+        String threadId = threadService.createThread(new ThreadRequest()).getId();
+        threadService.addMessageToThread(threadId, "user", "before");
+        assertThat(builder.recentHistory(threadId)).hasSize(1);
+
+        threadService.deleteThread(threadId);
+        assertThat(builder.recentHistory(threadId)).isEmpty();
+    }
+
+    @Test
+    void sendsTheSummaryOfDroppedMessagesAheadOfTheWindow() {
+        config.setMaxHistoryTokens(100);
+        List<String> prompts = new ArrayList<>();
+        OpenAIProvider provider = new OpenAIProvider(null, config) {
+            @Override
+            public Mono<ChatResponse> complete(ChatRequest request) {
+                prompts.add(request.getMessages().get(1).getContent());
+                ChatResponse response = new ChatResponse();
+                response.setChoices(List.of(new ChatResponse.Choice(0,
+                        new ChatResponse.Message("assistant", "s" + prompts.size()), "stop")));
+                return Mono.just(response);
+            }
+        };
+        SummaryConfiguration summaryConfig = new SummaryConfiguration();
+        // Passes are only run explicitly below
+        summaryConfig.setSegmentMessages(Integer.MAX_VALUE);
+        ThreadSummarizer summarizer = new ThreadSummarizer(threadService, provider, TokenCounter.heuristic(1),
+                config, summaryConfig);
+        ConversationContextBuilder summarizing = new ConversationContextBuilder(threadService, config,
+                TokenCounter.heuristic(1), summarizer);
+
+        String threadId = threadService.createThread(new ThreadRequest()).getId();
+        for (String letter : List.of("a", "b", "c", "d", "e")) {
+            threadService.addMessageToThread(threadId, "user", letter.repeat(30));
+        }
+        assertThat(summarizing.recentHistory(threadId)).extracting(ChatRequest.Message::getContent)
+                .containsExactly("c".repeat(30), "d".repeat(30), "e".repeat(30));
+
+        summarizer.summarize(threadId, 2);
+        assertThat(prompts).singleElement().asString()
+                .contains("user: aaaa", "user: bbbb").doesNotContain("cccc");
+        // The summary message costs 39 tokens here, so two messages still fit
+        List<ChatRequest.Message> history = summarizing.recentHistory(threadId);
+        assertThat(history).extracting(ChatRequest.Message::getRole).containsExactly("system", "user", "user");
+        assertThat(history.get(0).getContent()).endsWith("s1");
+        assertThat(history.get(2).getContent()).isEqualTo("e".repeat(30));
+
+        // Later passes extend the existing summary
+        summarizer.summarize(threadId, 4);
+        assertThat(prompts.get(1)).contains("Existing summary:\ns1", "user: cccc", "user: dddd");
+        assertThat(summarizing.recentHistory(threadId).get(0).getContent()).endsWith("s2");
+
+        threadService.deleteThread(threadId);
+        assertThat(summarizer.current(threadId, List.of())).isNull();
+    }
+
+    @Test
+    void trimsSummariesToTheirShareOfTheHistoryBudget() {
+        config.setMaxHistoryTokens(100);
+        OpenAIProvider provider = new OpenAIProvider(null, config) {
+            @Override
+            public Mono<ChatResponse> complete(ChatRequest request) {
+                // Ignores the requested length, as providers that only see the prompt text do
+                ChatResponse response = new ChatResponse();
+                response.setChoices(List.of(new ChatResponse.Choice(0,
+                        new ChatResponse.Message("assistant", "word ".repeat(200)), "stop")));
+                return Mono.just(response);
+            }
+        };
+        SummaryConfiguration summaryConfig = new SummaryConfiguration();
+        summaryConfig.setSegmentMessages(Integer.MAX_VALUE);
+        ThreadSummarizer summarizer = new ThreadSummarizer(threadService, provider, TokenCounter.heuristic(1),
+                config, summaryConfig);
+        ConversationContextBuilder summarizing = new ConversationContextBuilder(threadService, config,
+                TokenCounter.heuristic(1), summarizer);
+
+        String threadId = threadService.createThread(new ThreadRequest()).getId();
+        for (String letter : List.of("a", "b", "c", "d", "e")) {
+            threadService.addMessageToThread(threadId, "user", letter.repeat(20));
+        }
+        summarizer.summarize(threadId, 2);
+
+        // Half of the budget goes to the summary, cut at a word boundary
+        List<ChatRequest.Message> history = summarizing.recentHistory(threadId);
+        assertThat(history.get(0).getContent()).hasSizeLessThanOrEqualTo(50).endsWith("word");
+        assertThat(history).extracting(ChatRequest.Message::getContent).endsWith(
+                "d".repeat(20), "e".repeat(20));
+
+        // The smaller of the two limits applies, and a changed budget re-trims the summary
+        summaryConfig.setMaxSummaryTokens(45);
+        assertThat(summarizing.recentHistory(threadId).get(0).getContent()).hasSizeLessThanOrEqualTo(45);
+        config.setMaxHistoryTokens(80);
+        assertThat(summarizing.recentHistory(threadId).get(0).getContent()).hasSizeLessThanOrEqualTo(40);
+
+        // A budget too small for the summary's preamble sends the plain window
+        config.setMaxHistoryTokens(40);
+        assertThat(summarizing.recentHistory(threadId)).extracting(ChatRequest.Message::getRole)
+                .containsOnly("user");
+        // ...and is trimmed from the full text again once the budget grows
+        config.setMaxHistoryTokens(100);
+        summaryConfig.setMaxSummaryTokens(512);
+        assertThat(summarizing.recentHistory(threadId).get(0).getContent()).endsWith(":\nword word");
+    }
+
+    @Test
+    void loadsSummariesSavedByAnEarlierSummarizer() {
+        config.setMaxHistoryTokens(100);
+        OpenAIProvider provider = new OpenAIProvider(null, config) {
+            @Override
+            public Mono<ChatResponse> complete(ChatRequest request) {
+                ChatResponse response = new ChatResponse();
+                response.setChoices(List.of(new ChatResponse.Choice(0,
+                        new ChatResponse.Message("assistant", "saved summary"), "stop")));
+                return Mono.just(response);
+            }
+        };
+        SummaryConfiguration summaryConfig = new SummaryConfiguration();
+        summaryConfig.setSegmentMessages(Integer.MAX_VALUE);
+        String threadId = threadService.createThread(new ThreadRequest()).getId();
+        threadService.addMessageToThread(threadId, "user", "aaaa");
+        threadService.addMessageToThread(threadId, "user", "bbbb");
+        new ThreadSummarizer(threadService, provider, TokenCounter.heuristic(1), config, summaryConfig)
+                .summarize(threadId, 1);
+
+        // A new summarizer, as after a restart, starts from the stored summary
+        ThreadSummarizer restarted = new ThreadSummarizer(threadService, provider, TokenCounter.heuristic(1),
+                config, summaryConfig);
+        List<ThreadMessage> history = threadService.getThreadMessages(threadId);
+        assertThat(restarted.current(threadId, history).getText()).isEqualTo("saved summary");
+        assertThat(restarted.current(threadId, history).getMessageCount()).isEqualTo(1);
+
+        // It is not a message, so listings and exports are unchanged
+        assertThat(threadService.getThreadMessages(threadId)).extracting(ThreadMessage::getContent)
+                .containsExactly("aaaa", "bbbb");
+    }
+
+    @Test
+    void summariesAreDroppedWithTheirThreadAndBounded() {
+        OpenAIProvider provider = new OpenAIProvider(null, config) {
+            @Override
+            public Mono<ChatResponse> complete(ChatRequest request) {
+                ChatResponse response = new ChatResponse();
+                response.setChoices(List.of(new ChatResponse.Choice(0,
+                        new ChatResponse.Message("assistant", "summary"), "stop")));
+                return Mono.just(response);
+            }
+        };
+        SummaryConfiguration summaryConfig = new SummaryConfiguration();
+        summaryConfig.setSegmentMessages(Integer.MAX_VALUE);
+        summaryConfig.setMaxThreads(1);
+        ThreadSummarizer summarizer = new ThreadSummarizer(threadService, provider, TokenCounter.heuristic(1),
+                config, summaryConfig);
+
+        String first = threadService.createThread(new ThreadRequest()).getId();
+        String second = threadService.createThread(new ThreadRequest()).getId();
+        for (String threadId : List.of(first, second)) {
+            threadService.addMessageToThread(threadId, "user", "aaaa");
+            threadService.addMessageToThread(threadId, "user", "bbbb");
+        }
+        List<ThreadMessage> firstHistory = threadService.getThreadMessages(first);
+        List<ThreadMessage> secondHistory = threadService.getThreadMessages(second);
+
+        summarizer.summarize(first, 1);
+        ThreadSummarizer.Summary cached = summarizer.current(first, firstHistory);
+        assertThat(cached).isNotNull();
+        assertThat(summarizer.current(first, firstHistory)).isSameAs(cached);
+        summarizer.summarize(second, 1);
+        // Pushed out of the cache, the summary is loaded again from the thread store
+        assertThat(summarizer.current(first, firstHistory)).isNotSameAs(cached)
+                .extracting(ThreadSummarizer.Summary::getText).isEqualTo("summary");
+        assertThat(summarizer.current(second, secondHistory)).isNotNull();
+
+        threadService.deleteThread(second);
+        assertThat(summarizer.current(second, secondHistory)).isNull();
+    }
+}
@@ -0,0 +1,130 @@
+package ai.demo.springagent.service;
+
+import ai.demo.springagent.model.Thread;
+import ai.demo.springagent.model.ThreadMessage;
+import ai.demo.springagent.repository.ContentTable;
+import ai.demo.springagent.repository.InMemoryThreadStore;
+import ai.demo.springagent.repository.ThreadArchive;
+import ai.demo.springagent.repository.ThreadRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ThreadTransferServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void exportedThreadsImportIntoAnotherRepository() throws Exception {
+        ThreadRepository source = new ThreadRepository();
+        for (int t = 0; t < 3; t++) {
+            Thread thread = new Thread("thread_" + t, "Thread " + t, Map.of("team", "t" + t));
+            thread.setCreatedAt(1_000 + t);
+            thread.setLastActivity(1_000 + t);
+            source.save(thread);
+        }
+        int messages = ThreadTransferService.IMPORT_BATCH_SIZE + 10;
+        for (int i = 0; i < messages; i++) {
+            ThreadMessage message = new ThreadMessage("msg_" + i, "thread_1", i % 2 == 0 ? "user" : "assistant",
+                    "line " + i + "\nwith \"quotes\"");
+            message.setCreatedAt(2_000 + i);
+            source.saveMessage(message);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(new ThreadTransferService(source, objectMapper).exportThreads(out)).isEqualTo(3);
+        String ndjson = out.toString(StandardCharsets.UTF_8);
+        assertThat(ndjson.lines()).hasSize(3 + messages)
+                .allMatch(line -> line.startsWith("{\"type\":"));
+
+        ThreadRepository target = new ThreadRepository();
+        ThreadTransferService.ImportResult result = new ThreadTransferService(target, objectMapper)
+                .importThreads(new ByteArrayInputStream(out.toByteArray()));
+
+        assertThat(result.getThreadsImported()).isEqualTo(3);
+        assertThat(result.getMessagesImported()).isEqualTo(messages);
+        Thread imported = target.findById("thread_1").orElseThrow();
+        assertThat(imported.getTitle()).isEqualTo("Thread 1");
+        assertThat(imported.getMetadata()).isEqualTo(Map.of("team", "t1"));
+        assertThat(imported.getCreatedAt()).isEqualTo(1_001);
+        assertThat(imported.getLastActivity()).isEqualTo(2_000 + messages - 1);
+        List<ThreadMessage> importedMessages = target.findMessagesByThreadId("thread_1");
+        assertThat(importedMessages).hasSize(messages);
+        assertThat(importedMessages.get(7).getContent()).isEqualTo("line 7\nwith \"quotes\"");
+        assertThat(importedMessages.get(7).getRole()).isEqualTo("assistant");
+        assertThat(importedMessages.get(7).getCreatedAt()).isEqualTo(2_007);
+        // Least recently active thread is exported first, so activity order survives the move
+        assertThat(target.findSummaries(3, null, null, true).getItems())
+                .extracting(summary -> summary.getId())
+                .containsExactly("thread_1", "thread_2", "thread_0");
+    }
+
+    @Test
+    void exportLeavesEvictedThreadsInTheArchive(@TempDir Path dir) throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (InMemoryThreadStore store = new InMemoryThreadStore(new ContentTable(), new ThreadArchive(dir),
+                new InMemoryThreadStore.Eviction().idleTimeout(Duration.ZERO).sweepInterval(Duration.ofHours(1)),
+                registry)) {
+            ThreadRepository repository = new ThreadRepository(store);
+            repository.save(new Thread("thread_a", "Archived", null));
+            repository.saveMessage(new ThreadMessage("msg_1", "thread_a", "user", "from the archive"));
+            store.evictIdle();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertThat(new ThreadTransferService(repository, objectMapper).exportThreads(out)).isEqualTo(1);
+
+            assertThat(out.toString(StandardCharsets.UTF_8)).contains("\"content\":\"from the archive\"");
+            assertThat(registry.counter("thread.store.reloads").count()).isEqualTo(0.0);
+            assertThat(repository.findMessage("thread_a", "msg_1")).map(ThreadMessage::getContent)
+                    .hasValue("from the archive");
+            assertThat(registry.counter("thread.store.reloads").count()).isEqualTo(0.0);
+        }
+    }
+
+    @Test
+    void skipsExistingThreadsAndRejectsOrphanMessages() throws Exception {
+        ThreadRepository repository = new ThreadRepository();
+        repository.save(new Thread("thread_a", "Existing", null));
+        ThreadTransferService service = new ThreadTransferService(repository, objectMapper);
+
+        String ndjson = """
+                {"type":"thread","id":"thread_a","title":"Duplicate"}
+                {"type":"message","thread_id":"thread_a","role":"user","content":"ignored"}
+                {"type":"thread","id":"thread_b","title":"New"}
+                {"type":"message","thread_id":"thread_b","role":"user","content":"kept"}
+                """;
+        ThreadTransferService.ImportResult result = service.importThreads(stream(ndjson));
+
+        assertThat(result.getThreadsImported()).isEqualTo(1);
+        assertThat(result.getThreadsSkipped()).isEqualTo(1);
+        assertThat(repository.findById("thread_a").orElseThrow().getTitle()).isEqualTo("Existing");
+        assertThat(repository.countMessagesByThreadId("thread_a")).isZero();
+        assertThat(repository.findMessagesByThreadId("thread_b")).extracting(ThreadMessage::getContent)
+                .containsExactly("kept");
+
+        assertThatThrownBy(() -> service.importThreads(stream("""
+                {"type":"thread","id":"thread_c","title":"C"}
+                {"type":"message","thread_id":"thread_x","role":"user","content":"orphan"}
+                """)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("line 2");
+        assertThatThrownBy(() -> service.importThreads(stream("{\"type\":\"thread\",")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
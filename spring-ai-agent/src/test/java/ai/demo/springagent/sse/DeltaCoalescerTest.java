@@ -0,0 +1,91 @@
+package ai.demo.springagent.sse;
+
+import ai.demo.springagent.dto.ChatCompletionChunk;
+import ai.demo.springagent.dto.ChatRequest;
+import ai.demo.springagent.dto.ChatResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeltaCoalescerTest {
+
+    private final DeltaCoalescer coalescer = new DeltaCoalescer(Duration.ofSeconds(10), 1024);
+
+    @Test
+    void sendsFirstDeltaAloneAndMergesTheRestUntilTheFinalChunk() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        coalescer.bindTo(registry);
+        ChatCompletionChunk last = chunk(new ChatCompletionChunk.Delta(), "stop");
+        last.setUsage(new ChatResponse.Usage(3, 4, 7));
+
+        List<ChatCompletionChunk> frames = coalescer.apply(Flux.just(
+                chunk(new ChatCompletionChunk.Delta("assistant", "Hello"), null),
+                chunk(new ChatCompletionChunk.Delta(","), null),
+                chunk(new ChatCompletionChunk.Delta(" wor"), null),
+                chunk(new ChatCompletionChunk.Delta("ld"), null),
+                last), null).collectList().block();
+
+        assertThat(frames).extracting(DeltaCoalescerTest::content).containsExactly("Hello", ", world", null);
+        assertThat(frames.get(1).getId()).isEqualTo("chatcmpl-test");
+        assertThat(frames.get(2)).isSameAs(last);
+        assertThat(registry.get("chat.stream.deltas.coalesced").functionCounter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void sendsBatchOnceItReachesTheByteLimit() {
+        List<ChatCompletionChunk> frames = coalescer.apply(Flux.just(
+                chunk(new ChatCompletionChunk.Delta("assistant", "a"), null),
+                chunk(new ChatCompletionChunk.Delta("é"), null),
+                chunk(new ChatCompletionChunk.Delta("bc"), null),
+                chunk(new ChatCompletionChunk.Delta("d"), null)),
+                new ChatRequest.StreamOptions(null, 4)).collectList().block();
+
+        assertThat(frames).extracting(DeltaCoalescerTest::content).containsExactly("a", "ébc", "d");
+    }
+
+    @Test
+    void sendsBatchWhenTheDelayExpires() throws Exception {
+        Sinks.Many<ChatCompletionChunk> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        List<String> received = new CopyOnWriteArrayList<>();
+        coalescer.apply(upstream.asFlux(), new ChatRequest.StreamOptions(20, null))
+                .subscribe(chunk -> received.add(content(chunk)));
+
+        upstream.tryEmitNext(chunk(new ChatCompletionChunk.Delta("assistant", "Hi"), null));
+        upstream.tryEmitNext(chunk(new ChatCompletionChunk.Delta(" there"), null));
+        assertThat(received).containsExactly("Hi");
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (received.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(received).containsExactly("Hi", " there");
+        upstream.tryEmitComplete();
+    }
+
+    @Test
+    void zeroDelayPassesChunksThrough() {
+        Flux<ChatCompletionChunk> chunks = Flux.just(chunk(new ChatCompletionChunk.Delta("a"), null));
+
+        assertThat(coalescer.apply(chunks, new ChatRequest.StreamOptions(0, null))).isSameAs(chunks);
+    }
+
+    private static String content(ChatCompletionChunk chunk) {
+        return chunk.getChoices().get(0).getDelta().getContent();
+    }
+
+    private static ChatCompletionChunk chunk(ChatCompletionChunk.Delta delta, String finishReason) {
+        ChatCompletionChunk chunk = new ChatCompletionChunk();
+        chunk.setId("chatcmpl-test");
+        chunk.setModel("gpt-4o-mini");
+        chunk.setCreated(1_700_000_000L);
+        chunk.setChoices(List.of(new ChatCompletionChunk.ChunkChoice(0, delta, finishReason)));
+        return chunk;
+    }
+}
@@ -0,0 +1,80 @@
+package ai.demo.springagent.sse;
+
+import ai.demo.springagent.dto.ChatCompletionChunk;
+import ai.demo.springagent.dto.ChatResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SseFrameWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final SseFrameWriter writer = new SseFrameWriter(out);
+
+    @Test
+    void framesMatchJacksonSerialization() throws Exception {
+        ChatCompletionChunk first = chunk(new ChatCompletionChunk.Delta("assistant", "Hello"), null);
+        ChatCompletionChunk escaped = chunk(new ChatCompletionChunk.Delta(
+                "say \"hi\"\\\n\ttab\r\b\f\u0001 café 中文 😀"), null);
+        ChatCompletionChunk last = chunk(new ChatCompletionChunk.Delta(), "stop");
+        last.setUsage(new ChatResponse.Usage(12, 3, 15));
+
+        for (ChatCompletionChunk chunk : List.of(first, escaped, last)) {
+            writer.chunk(chunk);
+        }
+        writer.flush();
+
+        String expected = "data: " + objectMapper.writeValueAsString(first) + "\n\n"
+                + "data: " + objectMapper.writeValueAsString(escaped) + "\n\n"
+                + "data: " + objectMapper.writeValueAsString(last) + "\n\n";
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(expected);
+    }
+
+    @Test
+    void templateFollowsChangesInStreamIdentity() throws Exception {
+        ChatCompletionChunk first = chunk(new ChatCompletionChunk.Delta("a"), null);
+        ChatCompletionChunk other = chunk(new ChatCompletionChunk.Delta("b"), null);
+        other.setId("chatcmpl-other");
+        other.setModel(null);
+
+        writer.chunk(first);
+        writer.chunk(other);
+        writer.flush();
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "data: " + objectMapper.writeValueAsString(first) + "\n\n"
+                        + "data: " + objectMapper.writeValueAsString(other) + "\n\n");
+    }
+
+    @Test
+    void buffersUntilFlushedAndEndsWithDone() throws Exception {
+        writer.chunk(chunk(new ChatCompletionChunk.Delta("x"), null));
+        writer.event("server-timing", "{\"provider\":1.5}");
+        writer.done();
+
+        assertThat(out.size()).isZero();
+        assertThat(writer.pending()).isPositive();
+
+        writer.flush();
+
+        String body = out.toString(StandardCharsets.UTF_8);
+        assertThat(writer.pending()).isZero();
+        assertThat(body).contains("event:server-timing\ndata:{\"provider\":1.5}\n\n");
+        assertThat(body).endsWith("data: [DONE]\n\n");
+    }
+
+    private static ChatCompletionChunk chunk(ChatCompletionChunk.Delta delta, String finishReason) {
+        ChatCompletionChunk chunk = new ChatCompletionChunk();
+        chunk.setId("chatcmpl-test");
+        chunk.setModel("gpt-4o-mini");
+        chunk.setCreated(1_700_000_000L);
+        chunk.setChoices(List.of(new ChatCompletionChunk.ChunkChoice(0, delta, finishReason)));
+        return chunk;
+    }
+}
@@ -0,0 +1,82 @@
+package ai.demo.springagent.tokenizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BpeTokenizerTest {
+
+    @Test
+    void mergesPairsByRank() throws IOException {
+        BpeTokenizer tokenizer = BpeTokenizer.load(BpeTokenizer.Encoding.CL100K_BASE,
+                vocabulary(true, "he", "ll", "hell", "hi"));
+
+        // h e l l o -> he l l o -> he ll o -> hell o
+        assertThat(tokenizer.encode("hello")).containsExactly(258, 'o');
+        // A piece that is a token on its own is not merged
+        assertThat(tokenizer.encode("hi")).containsExactly(259);
+        // " hello" and " world" are separate pieces
+        assertThat(tokenizer.encode(" hello world")).containsExactly(' ', 258, 'o', ' ', 'w', 'o', 'r', 'l', 'd');
+        assertThat(tokenizer.countTokens(" hello world")).isEqualTo(9);
+        // Multi-byte characters fall back to their UTF-8 bytes
+        assertThat(tokenizer.encode("é")).containsExactly(0xc3, 0xa9);
+        assertThat(tokenizer.countTokens("")).isZero();
+        assertThat(tokenizer.countTokens(null)).isZero();
+        assertThat(tokenizer.getVocabularySize()).isEqualTo(260);
+    }
+
+    @Test
+    void rejectsIncompleteVocabularies() {
+        assertThatThrownBy(() -> BpeTokenizer.load(BpeTokenizer.Encoding.CL100K_BASE, vocabulary(false)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("byte 255");
+        assertThatThrownBy(() -> BpeTokenizer.load(BpeTokenizer.Encoding.CL100K_BASE,
+                new ByteArrayInputStream("not-a-rank-line".getBytes(StandardCharsets.US_ASCII))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("line 1");
+        assertThatThrownBy(() -> BpeTokenizer.Encoding.fromName("p50k_base"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void cachesCountsOfLongTexts() {
+        AtomicInteger calls = new AtomicInteger();
+        TokenCounter counter = new CachingTokenCounter(text -> {
+            calls.incrementAndGet();
+            return TokenCounter.heuristic(4).countTokens(text);
+        }, 2, 8);
+
+        String longText = "a message long enough to cache";
+        assertThat(counter.countTokens(longText)).isEqualTo(8);
+        assertThat(counter.countTokens(longText)).isEqualTo(8);
+        assertThat(calls).hasValue(1);
+
+        counter.countTokens("short");
+        counter.countTokens("short");
+        assertThat(calls).hasValue(3);
+    }
+
+    /**
+     * Single bytes get their own value as rank (byte 255 only if {@code complete}); merges
+     * follow from 256 in order.
+     */
+    private static ByteArrayInputStream vocabulary(boolean complete, String... merges) {
+        Base64.Encoder base64 = Base64.getEncoder();
+        StringBuilder file = new StringBuilder();
+        for (int b = 0; b < (complete ? 256 : 255); b++) {
+            file.append(base64.encodeToString(new byte[] {(byte) b})).append(' ').append(b).append('\n');
+        }
+        for (int i = 0; i < merges.length; i++) {
+            file.append(base64.encodeToString(merges[i].getBytes(StandardCharsets.UTF_8)))
+                    .append(' ').append(256 + i).append('\n');
+        }
+        return new ByteArrayInputStream(file.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+}